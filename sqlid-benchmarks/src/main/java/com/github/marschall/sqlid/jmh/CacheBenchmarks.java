@@ -16,6 +16,7 @@ import org.springframework.util.ConcurrentLruCache;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.marschall.sqlid.Cache;
+import com.github.marschall.sqlid.ClockCache;
 import com.github.marschall.sqlid.HashLruCache;
 
 /**
@@ -28,6 +29,15 @@ public class CacheBenchmarks {
 
   private static final int CAPACITY = 256;
 
+  private static final Integer[] KEYS;
+
+  static {
+    KEYS = new Integer[CAPACITY];
+    for (int i = 0; i < KEYS.length; i++) {
+      KEYS[i] = i;
+    }
+  }
+
   /*
    * https://github.com/spring-projects/spring-framework/issues/26320
    */
@@ -35,12 +45,15 @@ public class CacheBenchmarks {
 
   private Cache<Integer, Integer> projectCache;
 
+  private Cache<Integer, Integer> clockCache;
+
   private com.github.benmanes.caffeine.cache.Cache<Integer, Integer> caffeineCache;
 
   @Setup
   public void doSetup() {
     this.springCache = new ConcurrentLruCache<>(CAPACITY, Function.identity());
     this.projectCache = new HashLruCache<>(CAPACITY);
+    this.clockCache = new ClockCache<>(CAPACITY);
     this.caffeineCache = Caffeine.newBuilder()
             .initialCapacity(CAPACITY)
             .maximumSize(CAPACITY)
@@ -51,6 +64,7 @@ public class CacheBenchmarks {
       Integer key = i;
       this.springCache.get(key);
       this.projectCache.get(key, Function.identity());
+      this.clockCache.get(key, Function.identity());
       this.caffeineCache.put(key, key);
     }
   }
@@ -82,6 +96,15 @@ public class CacheBenchmarks {
     }
   }
 
+  @Benchmark
+  public void getInCapacityClock(Blackhole blackhole) {
+    for (int i = 0; i < CAPACITY; i++) {
+      for (int j = 0; j < i; j++) {
+        blackhole.consume(this.clockCache.get(j, Function.identity()));
+      }
+    }
+  }
+
   @Benchmark
   public void getOutOfCapacitySpring(Blackhole blackhole) {
     for (int i = 0; i < (CAPACITY + 1); i++) {
@@ -103,4 +126,35 @@ public class CacheBenchmarks {
     }
   }
 
+  @Benchmark
+  public void gettOutOfCapacityClock(Blackhole blackhole) {
+    for (int i = 0; i < (CAPACITY + 1); i++) {
+      blackhole.consume(this.clockCache.get(i, Function.identity()));
+    }
+  }
+
+  /*
+   * The fill benchmarks create a full cache, run them with -prof gc.
+   * gc.alloc.rate.norm / CAPACITY approximates the heap retained per entry,
+   * the keys and values are preallocated.
+   */
+
+  @Benchmark
+  public Cache<Integer, Integer> fillProject() {
+    Cache<Integer, Integer> cache = new HashLruCache<>(CAPACITY);
+    for (Integer key : KEYS) {
+      cache.get(key, Function.identity());
+    }
+    return cache;
+  }
+
+  @Benchmark
+  public Cache<Integer, Integer> fillClock() {
+    Cache<Integer, Integer> cache = new ClockCache<>(CAPACITY);
+    for (Integer key : KEYS) {
+      cache.get(key, Function.identity());
+    }
+    return cache;
+  }
+
 }
@@ -14,12 +14,18 @@ import org.openjdk.jmh.infra.Blackhole;
 import org.springframework.util.ConcurrentLruCache;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.marschall.sqlid.BufferedLruCache;
 import com.github.marschall.sqlid.Cache;
+import com.github.marschall.sqlid.ClockCache;
 import com.github.marschall.sqlid.HashLruCache;
+import com.github.marschall.sqlid.SegmentedLruCache;
 import com.github.marschall.sqlid.SqlId;
 
 /**
  * Multi-threaded micro-benchmarks for LRU caches with a realistic load function.
+ * <p>
+ * {@link CacheBenchmarksThreaded32} and {@link CacheBenchmarksThreaded64}
+ * run the same benchmarks with more threads.
  */
 @BenchmarkMode(Throughput)
 @OutputTimeUnit(MILLISECONDS)
@@ -45,12 +51,21 @@ public class CacheBenchmarksThreaded {
 
   private Cache<String, String> projectCache;
 
+  private Cache<String, String> segmentedCache;
+
+  private Cache<String, String> bufferedCache;
+
+  private Cache<String, String> clockCache;
+
   private com.github.benmanes.caffeine.cache.Cache<String, String> caffeineCache;
 
   @Setup
   public void doSetup() {
     this.springCache = new ConcurrentLruCache<>(CAPACITY, SqlId::compute);
     this.projectCache = new HashLruCache<>(CAPACITY);
+    this.segmentedCache = new SegmentedLruCache<>(CAPACITY);
+    this.bufferedCache = new BufferedLruCache<>(CAPACITY);
+    this.clockCache = new ClockCache<>(CAPACITY);
     this.caffeineCache = Caffeine.newBuilder()
             .initialCapacity(CAPACITY)
             .maximumSize(CAPACITY)
@@ -61,6 +76,9 @@ public class CacheBenchmarksThreaded {
       String query = QUERIES[i];
       this.springCache.get(query);
       this.projectCache.get(query, SqlId::compute);
+      this.segmentedCache.get(query, SqlId::compute);
+      this.bufferedCache.get(query, SqlId::compute);
+      this.clockCache.get(query, SqlId::compute);
       this.caffeineCache.put(query, SqlId.compute(query));
     }
   }
@@ -95,6 +113,36 @@ public class CacheBenchmarksThreaded {
     }
   }
 
+  @Benchmark
+  public void getInCapacitySegmented(Blackhole blackhole) {
+    for (int i = 0; i < CAPACITY; i++) {
+      for (int j = 0; j < i; j++) {
+        String query = QUERIES[j];
+        blackhole.consume(this.segmentedCache.get(query, SqlId::compute));
+      }
+    }
+  }
+
+  @Benchmark
+  public void getInCapacityBuffered(Blackhole blackhole) {
+    for (int i = 0; i < CAPACITY; i++) {
+      for (int j = 0; j < i; j++) {
+        String query = QUERIES[j];
+        blackhole.consume(this.bufferedCache.get(query, SqlId::compute));
+      }
+    }
+  }
+
+  @Benchmark
+  public void getInCapacityClock(Blackhole blackhole) {
+    for (int i = 0; i < CAPACITY; i++) {
+      for (int j = 0; j < i; j++) {
+        String query = QUERIES[j];
+        blackhole.consume(this.clockCache.get(query, SqlId::compute));
+      }
+    }
+  }
+
   @Benchmark
   public void getOutOfCapacitySpring(Blackhole blackhole) {
     for (int i = 0; i < (CAPACITY + 1); i++) {
@@ -119,4 +167,28 @@ public class CacheBenchmarksThreaded {
     }
   }
 
+  @Benchmark
+  public void gettOutOfCapacitySegmented(Blackhole blackhole) {
+    for (int i = 0; i < (CAPACITY + 1); i++) {
+      String query = QUERIES[i];
+      blackhole.consume(this.segmentedCache.get(query, SqlId::compute));
+    }
+  }
+
+  @Benchmark
+  public void gettOutOfCapacityBuffered(Blackhole blackhole) {
+    for (int i = 0; i < (CAPACITY + 1); i++) {
+      String query = QUERIES[i];
+      blackhole.consume(this.bufferedCache.get(query, SqlId::compute));
+    }
+  }
+
+  @Benchmark
+  public void gettOutOfCapacityClock(Blackhole blackhole) {
+    for (int i = 0; i < (CAPACITY + 1); i++) {
+      String query = QUERIES[i];
+      blackhole.consume(this.clockCache.get(query, SqlId::compute));
+    }
+  }
+
 }
@@ -0,0 +1,11 @@
+package com.github.marschall.sqlid.jmh;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Same as {@link CacheBenchmarksThreaded} but with 32 threads.
+ */
+@Threads(32)
+public class CacheBenchmarksThreaded32 extends CacheBenchmarksThreaded {
+
+}
@@ -0,0 +1,11 @@
+package com.github.marschall.sqlid.jmh;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Same as {@link CacheBenchmarksThreaded} but with 64 threads.
+ */
+@Threads(64)
+public class CacheBenchmarksThreaded64 extends CacheBenchmarksThreaded {
+
+}
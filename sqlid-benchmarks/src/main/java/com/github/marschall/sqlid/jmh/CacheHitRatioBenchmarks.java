@@ -0,0 +1,141 @@
+package com.github.marschall.sqlid.jmh;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.openjdk.jmh.annotations.Mode.Throughput;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.marschall.sqlid.BufferedLruCache;
+import com.github.marschall.sqlid.Cache;
+import com.github.marschall.sqlid.ClockCache;
+import com.github.marschall.sqlid.HashLruCache;
+import com.github.marschall.sqlid.SegmentedLruCache;
+import com.github.marschall.sqlid.TinyLfuCache;
+
+/**
+ * Trace driven benchmarks for the hit ratio of caches.
+ * <p>
+ * The trace mixes a Zipf distributed set of reused statements with unique
+ * statements with inlined literals that are only seen once. The hit ratio
+ * is {@code hits / (hits + misses)} of the reported secondary results.
+ */
+@BenchmarkMode(Throughput)
+@OutputTimeUnit(MILLISECONDS)
+@State(Scope.Benchmark)
+public class CacheHitRatioBenchmarks {
+
+  private static final int CAPACITY = 256;
+
+  /**
+   * Number of distinct reused statements.
+   */
+  private static final int REUSED_STATEMENTS = 1024;
+
+  private static final int TRACE_LENGTH = 1 << 20;
+
+  @Param({"lru", "segmented", "buffered", "clock", "tinyLfu", "caffeine"})
+  public String cacheType;
+
+  /**
+   * The share of the trace that are unique statements with inlined literals.
+   */
+  @Param({"0.0", "0.5", "0.9"})
+  public double literalRatio;
+
+  private String[] trace;
+
+  private Cache<String, String> cache;
+
+  @Setup
+  public void doSetup() {
+    this.cache = newCache(this.cacheType);
+    this.trace = newTrace(this.literalRatio);
+  }
+
+  private static Cache<String, String> newCache(String cacheType) {
+    switch (cacheType) {
+      case "lru":
+        return new HashLruCache<>(CAPACITY);
+      case "segmented":
+        return new SegmentedLruCache<>(CAPACITY);
+      case "buffered":
+        return new BufferedLruCache<>(CAPACITY);
+      case "clock":
+        return new ClockCache<>(CAPACITY);
+      case "tinyLfu":
+        return new TinyLfuCache<>(CAPACITY);
+      case "caffeine":
+        com.github.benmanes.caffeine.cache.Cache<String, String> caffeine = Caffeine.newBuilder()
+                .initialCapacity(CAPACITY)
+                .maximumSize(CAPACITY)
+                .executor(Runnable::run)
+                .build();
+        return (key, loader) -> caffeine.get(key, k -> loader.apply(k));
+      default:
+        throw new IllegalArgumentException("unknown cache type: " + cacheType);
+    }
+  }
+
+  private static String[] newTrace(double literalRatio) {
+    Random random = new Random(42L);
+    // cumulative Zipf distribution with s = 1
+    double[] cumulative = new double[REUSED_STATEMENTS];
+    double sum = 0.0d;
+    for (int i = 0; i < REUSED_STATEMENTS; i++) {
+      sum += 1.0d / (i + 1);
+      cumulative[i] = sum;
+    }
+    String[] trace = new String[TRACE_LENGTH];
+    int literal = 0;
+    for (int i = 0; i < TRACE_LENGTH; i++) {
+      if (random.nextDouble() < literalRatio) {
+        trace[i] = "SELECT * FROM orders WHERE order_id = " + literal++;
+      } else {
+        int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+        if (rank < 0) {
+          rank = -(rank + 1);
+        }
+        trace[i] = "SELECT * FROM table_" + rank + " WHERE id = :1 ";
+      }
+    }
+    return trace;
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class HitCounters {
+
+    public long hits;
+
+    public long misses;
+
+    int index;
+
+  }
+
+  @Benchmark
+  public String lookup(HitCounters counters) {
+    String statement = this.trace[counters.index++ & (TRACE_LENGTH - 1)];
+    long missesBefore = counters.misses;
+    String value = this.cache.get(statement, key -> {
+      counters.misses += 1L;
+      return key;
+    });
+    if (counters.misses == missesBefore) {
+      counters.hits += 1L;
+    }
+    return value;
+  }
+
+}
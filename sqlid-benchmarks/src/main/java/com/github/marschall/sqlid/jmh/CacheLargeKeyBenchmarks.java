@@ -0,0 +1,115 @@
+package com.github.marschall.sqlid.jmh;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.openjdk.jmh.annotations.Mode.Throughput;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.github.marschall.sqlid.Cache;
+import com.github.marschall.sqlid.FingerprintCache;
+import com.github.marschall.sqlid.FingerprintCache.Verification;
+import com.github.marschall.sqlid.HashLruCache;
+import com.github.marschall.sqlid.SqlId;
+
+/**
+ * Micro-benchmarks for cache hits of large generated query strings.
+ * <p>
+ * The lookup keys are equal but not identical copies of the cached key, as
+ * happens when the query string is generated for every execution. With one
+ * copy the same instance is looked up on every invocation, with two copies
+ * the instances alternate so {@link FingerprintCache} has to verify the
+ * query string on every hit.
+ * <p>
+ * Measured on JDK 17.0.9 (Temurin), Intel Xeon, x86_64, throughput in ops/us:
+ * <pre>
+ * length  copies  hashLru         fingerprint     fingerprintVerified
+ *   1000       1  13.19 &plusmn; 2.43  23.66 &plusmn; 0.62  28.94 &plusmn; 4.45
+ *  30000       1   0.65 &plusmn; 0.05  23.62 &plusmn; 0.34  26.99 &plusmn; 9.71
+ * 200000       1   0.10 &plusmn; 0.03  23.67 &plusmn; 0.80  27.22 &plusmn; 8.35
+ *   1000       2  13.11 &plusmn; 3.85   0.98 &plusmn; 0.05  10.47 &plusmn; 2.83
+ *  30000       2   0.66 &plusmn; 0.08   0.04 &plusmn; 0.02   0.65 &plusmn; 0.06
+ * 200000       2   0.13 &plusmn; 0.02   0.006 &plusmn; 0.003  0.10 &plusmn; 0.01
+ * </pre>
+ * Looking up the same instance again is independent of the length. Verifying
+ * an other instance by fingerprint reads every character and is slower than
+ * the intrinsic of {@link String#equals(Object)}, verifying by
+ * {@link String#equals(Object)} is on par with {@link HashLruCache}. Before
+ * the lookup by hash code and length, a {@link FingerprintCache} hit
+ * computed the fingerprint every time: 0.014 ops/us at 30000 and
+ * 0.002 ops/us at 200000 characters. Since entries are in a table keyed by a
+ * {@code long} a hit with the same instance allocates nothing
+ * ({@code -prof gc}), 28.36 &plusmn; 6.36 ops/us at 30000 characters.
+ */
+@BenchmarkMode(Throughput)
+@OutputTimeUnit(MICROSECONDS)
+@State(Scope.Benchmark)
+public class CacheLargeKeyBenchmarks {
+
+  @Param({"1000", "30000", "200000"})
+  public int length;
+
+  @Param({"1", "2"})
+  public int copies;
+
+  private String[] lookupKeys;
+
+  private int index;
+
+  private Cache<String, String> hashLruCache;
+
+  private Cache<String, String> fingerprintCache;
+
+  private Cache<String, String> verifiedFingerprintCache;
+
+  @Setup
+  public void doSetup() {
+    StringBuilder buffer = new StringBuilder(this.length);
+    buffer.append("SELECT * FROM report WHERE id IN (");
+    while (buffer.length() < this.length) {
+      buffer.append(":").append(buffer.length()).append(", ");
+    }
+    String cachedKey = buffer.toString();
+    this.lookupKeys = new String[this.copies];
+    for (int i = 0; i < this.copies; i++) {
+      this.lookupKeys[i] = new String(cachedKey.toCharArray());
+    }
+
+    this.hashLruCache = new HashLruCache<>(16);
+    this.fingerprintCache = new FingerprintCache<>(1024 * 1024, Verification.NONE);
+    this.verifiedFingerprintCache = new FingerprintCache<>(1024 * 1024, Verification.FULL);
+    this.hashLruCache.get(cachedKey, SqlId::compute);
+    this.fingerprintCache.get(cachedKey, SqlId::compute);
+    this.verifiedFingerprintCache.get(cachedKey, SqlId::compute);
+  }
+
+  private String nextLookupKey() {
+    int i = this.index + 1;
+    if (i == this.lookupKeys.length) {
+      i = 0;
+    }
+    this.index = i;
+    return this.lookupKeys[i];
+  }
+
+  @Benchmark
+  public String hashLru() {
+    return this.hashLruCache.get(this.nextLookupKey(), SqlId::compute);
+  }
+
+  @Benchmark
+  public String fingerprint() {
+    return this.fingerprintCache.get(this.nextLookupKey(), SqlId::compute);
+  }
+
+  @Benchmark
+  public String fingerprintVerified() {
+    return this.verifiedFingerprintCache.get(this.nextLookupKey(), SqlId::compute);
+  }
+
+}
@@ -0,0 +1,86 @@
+package com.github.marschall.sqlid.jmh;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.openjdk.jmh.annotations.Mode.Throughput;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.marschall.sqlid.Cache;
+import com.github.marschall.sqlid.HashLruCache;
+import com.github.marschall.sqlid.SqlId;
+import com.github.marschall.sqlid.ThreadLocalCache;
+
+/**
+ * Multi-threaded micro-benchmarks for the hit path of a per-thread cache in
+ * front of a shared cache where every thread uses the same few statements.
+ * <p>
+ * Measured on JDK 17.0.9 (Temurin), Intel Xeon, x86_64, one CPU,
+ * throughput in ops/us, one op looks up all eight statements:
+ * <pre>
+ * threads  getHashLru       getThreadLocal
+ *       8  3.85 &plusmn; 1.38  16.85 &plusmn; 7.06
+ *       1  3.77 &plusmn; 0.58  11.33 &plusmn; 0.48
+ * </pre>
+ * With the previous slot function six of the eight statements collided in
+ * the per-thread cache and {@code getThreadLocal} was slower than
+ * {@code getHashLru}, 3.52 &plusmn; 2.02 with eight threads. The thread
+ * local cache only pays off for threads that perform many lookups, a
+ * thread per task never hits its per-thread cache.
+ */
+@BenchmarkMode(Throughput)
+@OutputTimeUnit(MICROSECONDS)
+@State(Scope.Benchmark)
+@Threads(8)
+public class CacheThreadLocalBenchmarks {
+
+  private static final int CAPACITY = 256;
+
+  private static final int THREAD_LOCAL_SIZE = 16;
+
+  private static final String[] QUERIES;
+
+  static {
+    QUERIES = new String[8];
+    for (int i = 0; i < QUERIES.length; i++) {
+      QUERIES[i] = "SELECT * from dual where dummy = " + i;
+    }
+  }
+
+  private Cache<String, String> hashLruCache;
+
+  private Cache<String, String> threadLocalCache;
+
+  @Setup
+  public void doSetup() {
+    this.hashLruCache = new HashLruCache<>(CAPACITY);
+    this.threadLocalCache = new ThreadLocalCache<>(new HashLruCache<>(CAPACITY), THREAD_LOCAL_SIZE);
+
+    // preload the shared caches
+    for (String query : QUERIES) {
+      this.hashLruCache.get(query, SqlId::compute);
+      this.threadLocalCache.get(query, SqlId::compute);
+    }
+  }
+
+  @Benchmark
+  public void getHashLru(Blackhole blackhole) {
+    for (String query : QUERIES) {
+      blackhole.consume(this.hashLruCache.get(query, SqlId::compute));
+    }
+  }
+
+  @Benchmark
+  public void getThreadLocal(Blackhole blackhole) {
+    for (String query : QUERIES) {
+      blackhole.consume(this.threadLocalCache.get(query, SqlId::compute));
+    }
+  }
+
+}
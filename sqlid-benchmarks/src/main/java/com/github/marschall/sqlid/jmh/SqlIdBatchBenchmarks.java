@@ -0,0 +1,72 @@
+package com.github.marschall.sqlid.jmh;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.openjdk.jmh.annotations.Mode.Throughput;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.github.marschall.sqlid.SqlId;
+
+/**
+ * Micro-benchmarks for computing the sql_ids of many statements with
+ * different degrees of parallelism.
+ */
+@BenchmarkMode(Throughput)
+@OutputTimeUnit(MILLISECONDS)
+@State(Scope.Benchmark)
+public class SqlIdBatchBenchmarks {
+
+  private static final int STATEMENT_COUNT = 100_000;
+
+  @Param({"1", "2", "4", "8"})
+  public int parallelism;
+
+  private List<String> statements;
+
+  private ForkJoinPool pool;
+
+  @Setup
+  public void doSetup() {
+    this.statements = new ArrayList<>(STATEMENT_COUNT);
+    for (int i = 0; i < STATEMENT_COUNT; i++) {
+      this.statements.add("SELECT * from dual where dummy = " + i);
+    }
+    this.pool = new ForkJoinPool(this.parallelism);
+  }
+
+  @TearDown
+  public void doTearDown() {
+    this.pool.shutdown();
+  }
+
+  @Benchmark
+  public long[] computeAllBinary() {
+    return SqlId.computeAllBinary(this.statements, this.pool);
+  }
+
+  @Benchmark
+  public String[] computeAll() {
+    return SqlId.computeAll(this.statements, this.pool);
+  }
+
+  @Benchmark
+  public String[] loop() {
+    String[] sqlIds = new String[this.statements.size()];
+    for (int i = 0; i < sqlIds.length; i++) {
+      sqlIds[i] = SqlId.compute(this.statements.get(i));
+    }
+    return sqlIds;
+  }
+
+}
@@ -0,0 +1,12 @@
+package com.github.marschall.sqlid.jmh;
+
+import org.openjdk.jmh.annotations.Fork;
+
+/**
+ * Same as {@link SqlIdBatchBenchmarks} but with the {@code jdk.incubator.vector}
+ * module present so that multi-buffer MD5 is used on Java 17 and later.
+ */
+@Fork(jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class SqlIdBatchVectorBenchmarks extends SqlIdBatchBenchmarks {
+
+}
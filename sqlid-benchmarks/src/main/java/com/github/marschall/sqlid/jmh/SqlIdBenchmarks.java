@@ -3,6 +3,7 @@ package com.github.marschall.sqlid.jmh;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.openjdk.jmh.annotations.Mode.Throughput;
 
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -17,6 +18,10 @@ import com.github.marschall.sqlid.SqlId;
 @OutputTimeUnit(MILLISECONDS)
 public class SqlIdBenchmarks {
 
+  private static final Charset WINDOWS_1252 = Charset.forName("windows-1252");
+
+  private static final Charset SHIFT_JIS = Charset.forName("Shift_JIS");
+
   @Benchmark
   public String original() {
     return OriginalSqlId.SQL_ID("SELECT * from dual where dummy = :1 ");
@@ -27,12 +32,27 @@ public class SqlIdBenchmarks {
     return SqlId.compute("SELECT * from dual where dummy = :1 ");
   }
 
+  @Benchmark
+  public String projectNonAscii() {
+    return SqlId.compute("SELECT /* \u00E4 */ * from dual where dummy = :1 ");
+  }
+
+  @Benchmark
+  public long projectWindows1252() {
+    return SqlId.computeBinary("SELECT /* \u00E4\u20AC */ * from dual where dummy = :1 ", WINDOWS_1252);
+  }
+
+  @Benchmark
+  public long projectShiftJis() {
+    return SqlId.computeBinary("SELECT /* \u00E4\u20AC */ * from dual where dummy = :1 ", SHIFT_JIS);
+  }
+
   @Benchmark
   public byte[] jdkHash() {
     return jdkHash("SELECT * from dual where dummy = :1 ");
   }
 
-  private static byte[] jdkHash(String s) {
+  static byte[] jdkHash(String s) {
 
     // compute the MD5 hash of the SQL
     // it's not clear whether the MD5 hash is computed based on UTF-8 or the database encoding
@@ -0,0 +1,70 @@
+package com.github.marschall.sqlid.jmh;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.openjdk.jmh.annotations.Mode.Throughput;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.github.marschall.sqlid.SqlId;
+
+/**
+ * Micro-benchmarks for sql_id computation of statements of different lengths.
+ * <p>
+ * {@link SqlIdLengthDigestBenchmarks} and {@link SqlIdLengthHandRolledBenchmarks}
+ * force one MD5 implementation to find the length from which on
+ * {@code MessageDigest} is faster.
+ */
+@BenchmarkMode(Throughput)
+@OutputTimeUnit(MICROSECONDS)
+@State(Scope.Benchmark)
+public class SqlIdLengthBenchmarks {
+
+  @Param({"16", "32", "64", "128", "256", "1024", "2048", "4096", "8192", "20480", "81920"})
+  public int length;
+
+  /**
+   * Whether the last character is non-ASCII, forcing a switch to the UTF-8
+   * path after all the ASCII chunks have been hashed.
+   */
+  @Param({"false", "true"})
+  public boolean trailingNonAscii;
+
+  private String nativeSql;
+
+  @Setup
+  public void doSetup() {
+    StringBuilder buffer = new StringBuilder(this.length);
+    buffer.append("SELECT ");
+    int column = 0;
+    while (buffer.length() < this.length) {
+      buffer.append("t.column_").append(column++).append(", ");
+    }
+    buffer.setLength(this.length);
+    if (this.trailingNonAscii) {
+      buffer.setCharAt(this.length - 1, '\u00E4');
+    }
+    this.nativeSql = buffer.toString();
+  }
+
+  @Benchmark
+  public String project() {
+    return SqlId.compute(this.nativeSql);
+  }
+
+  @Benchmark
+  public byte[] jdkHash() {
+    return SqlIdBenchmarks.jdkHash(this.nativeSql);
+  }
+
+  @Benchmark
+  public String original() {
+    return OriginalSqlId.SQL_ID(this.nativeSql);
+  }
+
+}
@@ -0,0 +1,12 @@
+package com.github.marschall.sqlid.jmh;
+
+import org.openjdk.jmh.annotations.Fork;
+
+/**
+ * Same as {@link SqlIdLengthBenchmarks} but never uses {@code MessageDigest}
+ * for MD5.
+ */
+@Fork(jvmArgsAppend = "-Dcom.github.marschall.sqlid.digestThreshold=-1")
+public class SqlIdLengthHandRolledBenchmarks extends SqlIdLengthBenchmarks {
+
+}
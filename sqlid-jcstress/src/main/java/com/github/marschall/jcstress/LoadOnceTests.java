@@ -0,0 +1,63 @@
+package com.github.marschall.jcstress;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.IIZ_Result;
+
+import com.github.marschall.sqlid.Cache;
+import com.github.marschall.sqlid.HashLruCache;
+
+/**
+ * Concurrent misses on the same key compute the value only once and all
+ * threads get the same value.
+ */
+@JCStressTest
+@Outcome(id = "1, 1, true", expect = ACCEPTABLE, desc = "loaded once, same value")
+@Outcome(expect = FORBIDDEN, desc = "loaded more than once or different values")
+@State
+public class LoadOnceTests {
+
+  private final Cache<String, String> cache;
+
+  private final AtomicInteger loads;
+
+  private String value1;
+
+  private String value2;
+
+  public LoadOnceTests() {
+    this.cache = new HashLruCache<>(2);
+    this.loads = new AtomicInteger();
+  }
+
+  private String load(String key) {
+    this.loads.incrementAndGet();
+    return new String(key);
+  }
+
+  @Actor
+  public void actor1() {
+    this.value1 = this.cache.get("1", this::load);
+  }
+
+  @Actor
+  public void actor2() {
+    this.value2 = this.cache.get("1", this::load);
+  }
+
+  @Arbiter
+  public void arbiter(IIZ_Result r) {
+    r.r1 = this.loads.get();
+    r.r2 = this.cache.get("1", key -> "nok").equals("1") ? 1 : 0;
+    r.r3 = (this.value1 == this.value2) && (this.value1 != null);
+  }
+
+}
@@ -2,6 +2,8 @@ package com.github.marschall.sqlid;
 
 import static java.nio.charset.StandardCharsets.ISO_8859_1;
 
+import java.io.IOException;
+
 /**
  * Base32 encoding as done by Oracle for SQL_ID computation.
  */
@@ -10,7 +12,7 @@ final class Base32 {
   /**
    * The length of sql_id is 13 chars.
    */
-  private static final int SQL_ID_SIZE = 13;
+  static final int SQL_ID_SIZE = 13;
 
   /**
    * The alphabet used for base32 encoding of sql_id, it seems to be a custom variant.
@@ -23,33 +25,130 @@ final class Base32 {
       'm', 'n', // o missing
       'p', 'q', 'r', 's', 't', 'u', 'v', 'w', 'x', 'y', 'z'};
 
-  private Base32() {
-    throw new AssertionError("not instantiable");
-  }
+  /**
+   * All combinations of two characters, indexed by 10 bits, the first
+   * character is in the upper byte, the second character in the lower byte.
+   */
+  private static final short[] BASE32_PAIRS;
 
-  private static byte toBase32(int i) {
-    if ((i < 0) || (i > 32)) {
-      throw new IllegalArgumentException();
+  /**
+   * Maps an ASCII character to its 5 bit value, -1 if the character is not
+   * in the alphabet.
+   */
+  private static final byte[] BASE32_VALUES;
+
+  static {
+    BASE32_PAIRS = new short[1024];
+    for (int i = 0; i < BASE32_PAIRS.length; i++) {
+      BASE32_PAIRS[i] = (short) ((BASE32_ALPHABET[i >>> 5] << 8) | BASE32_ALPHABET[i & 0b11111]);
+    }
+    BASE32_VALUES = new byte[128];
+    for (int i = 0; i < BASE32_VALUES.length; i++) {
+      BASE32_VALUES[i] = -1;
+    }
+    for (int i = 0; i < BASE32_ALPHABET.length; i++) {
+      BASE32_VALUES[BASE32_ALPHABET[i]] = (byte) i;
     }
-    return BASE32_ALPHABET[i];
+  }
+
+  private Base32() {
+    throw new AssertionError("not instantiable");
   }
 
   static String toBase32String(long l) {
     byte[] result = new byte[SQL_ID_SIZE];
-    result[0] = toBase32((int) ((l & (0b11111L << 60)) >>> 60));
-    result[1] = toBase32((int) ((l & (0b11111L << 55)) >>> 55));
-    result[2] = toBase32((int) ((l & (0b11111L << 50)) >>> 50));
-    result[3] = toBase32((int) ((l & (0b11111L << 45)) >>> 45));
-    result[4] = toBase32((int) ((l & (0b11111L << 40)) >>> 40));
-    result[5] = toBase32((int) ((l & (0b11111L << 35)) >>> 35));
-    result[6] = toBase32((int) ((l & (0b11111L << 30)) >>> 30));
-    result[7] = toBase32((int) ((l & (0b11111L << 25)) >>> 25));
-    result[8] = toBase32((int) ((l & (0b11111L << 20)) >>> 20));
-    result[9] = toBase32((int) ((l & (0b11111L << 15)) >>> 15));
-    result[10] = toBase32((int) ((l & (0b11111L << 10)) >>> 10));
-    result[11] = toBase32((int) ((l & (0b11111L << 5)) >>> 5));
-    result[12] = toBase32((int) (l & 0b11111L));
+    writeTo(l, result, 0);
     return new String(result, ISO_8859_1); // US_ASCII fast path is only in JDK 17+
   }
 
+  /**
+   * Writes the 13 ASCII characters of a sql_id into a byte array.
+   *
+   * @return the index after the last character written
+   */
+  static int writeTo(long l, byte[] destination, int offset) {
+    if ((offset < 0) || (offset > (destination.length - SQL_ID_SIZE))) {
+      throw new IndexOutOfBoundsException("offset: " + offset + " array length: " + destination.length);
+    }
+    // 13 x 5 bits are 65 bits, the first character only has 4 bits
+    destination[offset] = BASE32_ALPHABET[(int) (l >>> 60)];
+    writePair(BASE32_PAIRS[(int) ((l >>> 50) & 0b11111_11111L)], destination, offset + 1);
+    writePair(BASE32_PAIRS[(int) ((l >>> 40) & 0b11111_11111L)], destination, offset + 3);
+    writePair(BASE32_PAIRS[(int) ((l >>> 30) & 0b11111_11111L)], destination, offset + 5);
+    writePair(BASE32_PAIRS[(int) ((l >>> 20) & 0b11111_11111L)], destination, offset + 7);
+    writePair(BASE32_PAIRS[(int) ((l >>> 10) & 0b11111_11111L)], destination, offset + 9);
+    writePair(BASE32_PAIRS[(int) (l & 0b11111_11111L)], destination, offset + 11);
+    return offset + SQL_ID_SIZE;
+  }
+
+  private static void writePair(short pair, byte[] destination, int offset) {
+    destination[offset] = (byte) (pair >>> 8);
+    destination[offset + 1] = (byte) pair;
+  }
+
+  static void appendTo(long l, StringBuilder destination) {
+    destination.ensureCapacity(destination.length() + SQL_ID_SIZE);
+    destination.append((char) BASE32_ALPHABET[(int) (l >>> 60)]);
+    appendPair(BASE32_PAIRS[(int) ((l >>> 50) & 0b11111_11111L)], destination);
+    appendPair(BASE32_PAIRS[(int) ((l >>> 40) & 0b11111_11111L)], destination);
+    appendPair(BASE32_PAIRS[(int) ((l >>> 30) & 0b11111_11111L)], destination);
+    appendPair(BASE32_PAIRS[(int) ((l >>> 20) & 0b11111_11111L)], destination);
+    appendPair(BASE32_PAIRS[(int) ((l >>> 10) & 0b11111_11111L)], destination);
+    appendPair(BASE32_PAIRS[(int) (l & 0b11111_11111L)], destination);
+  }
+
+  private static void appendPair(short pair, StringBuilder destination) {
+    destination.append((char) ((pair >>> 8) & 0xFF));
+    destination.append((char) (pair & 0xFF));
+  }
+
+  static void appendTo(long l, Appendable destination) throws IOException {
+    if (destination instanceof StringBuilder) {
+      appendTo(l, (StringBuilder) destination);
+      return;
+    }
+    destination.append((char) BASE32_ALPHABET[(int) (l >>> 60)]);
+    appendPair(BASE32_PAIRS[(int) ((l >>> 50) & 0b11111_11111L)], destination);
+    appendPair(BASE32_PAIRS[(int) ((l >>> 40) & 0b11111_11111L)], destination);
+    appendPair(BASE32_PAIRS[(int) ((l >>> 30) & 0b11111_11111L)], destination);
+    appendPair(BASE32_PAIRS[(int) ((l >>> 20) & 0b11111_11111L)], destination);
+    appendPair(BASE32_PAIRS[(int) ((l >>> 10) & 0b11111_11111L)], destination);
+    appendPair(BASE32_PAIRS[(int) (l & 0b11111_11111L)], destination);
+  }
+
+  private static void appendPair(short pair, Appendable destination) throws IOException {
+    destination.append((char) ((pair >>> 8) & 0xFF));
+    destination.append((char) (pair & 0xFF));
+  }
+
+  /**
+   * Parses a 13 character sql_id into its binary form.
+   *
+   * @throws IllegalArgumentException if the input is not a valid sql_id
+   */
+  static long parse(CharSequence s) {
+    if (s.length() != SQL_ID_SIZE) {
+      throw new IllegalArgumentException("sql_id must be " + SQL_ID_SIZE + " characters but was: " + s.length());
+    }
+    int first = valueAt(s, 0);
+    if (first > 0b1111) {
+      // 13 x 5 bits are 65 bits, the most significant bit has to be 0
+      throw new IllegalArgumentException("sql_id out of range: " + s);
+    }
+    long l = first;
+    for (int i = 1; i < SQL_ID_SIZE; i++) {
+      l = (l << 5) | valueAt(s, i);
+    }
+    return l;
+  }
+
+  private static int valueAt(CharSequence s, int index) {
+    char c = s.charAt(index);
+    int value = c < BASE32_VALUES.length ? BASE32_VALUES[c] : -1;
+    if (value < 0) {
+      throw new IllegalArgumentException("invalid sql_id character: '" + c + "' at index: " + index);
+    }
+    return value;
+  }
+
 }
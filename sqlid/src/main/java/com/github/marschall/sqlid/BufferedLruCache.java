@@ -0,0 +1,302 @@
+package com.github.marschall.sqlid;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * A {@link ConcurrentHashMap} and linked list based implementation of
+ * {@link Cache} that uses the Least Recently Used (LRU) algorithm and does
+ * not lock on reads.
+ *
+ * <h2>Implementation Notes</h2>
+ * A cache hit is a read from a {@link ConcurrentHashMap}. The access is
+ * recorded in one of several striped ring buffers. The buffers are drained
+ * and the LRU order updated in batches by whichever thread acquires the
+ * lock, readers never wait for the lock. If a buffer is full accesses are
+ * dropped, the LRU order is therefore approximate under heavy load.
+ * <p>
+ * Adding a value acquires an exclusive lock, the value is computed outside
+ * of the lock. If several threads compute a value for the same key at the
+ * same time, all of them get the value that was added first.
+ *
+ * @param <K> the type of the lookup keys
+ * @param <V> the type of the cached values
+ * @see HashLruCache
+ */
+public final class BufferedLruCache<K, V> implements Cache<K, V> {
+
+  /**
+   * Maximum number of read buffers.
+   */
+  private static final int MAX_READ_BUFFERS = 64;
+
+  private final int capacity;
+
+  private final ConcurrentMap<K, Node<K, V>> values;
+
+  private final ReadBuffer<K, V>[] readBuffers;
+
+  private final int readBufferMask;
+
+  private final Lock lock;
+
+  // guarded by lock
+  private Node<K, V> mostRecentlyUsed;
+
+  // guarded by lock
+  private Node<K, V> leastRecentlyUsed;
+
+  // guarded by lock
+  private int size;
+
+  /**
+   * Constructs a {@link BufferedLruCache}.
+   *
+   * @param capacity the desired maximum capacity of this cache,
+   *                 must be positive
+   * @throws IllegalArgumentException if {@code capacity} is not positive
+   */
+  @SuppressWarnings("unchecked")
+  public BufferedLruCache(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+    this.capacity = capacity;
+    this.values = new ConcurrentHashMap<>(capacity);
+    int processors = Runtime.getRuntime().availableProcessors();
+    int readBufferCount = Math.min(MAX_READ_BUFFERS, processors == 1 ? 1 : Integer.highestOneBit(processors - 1) << 1);
+    this.readBuffers = new ReadBuffer[readBufferCount];
+    for (int i = 0; i < readBufferCount; i++) {
+      this.readBuffers[i] = new ReadBuffer<>();
+    }
+    this.readBufferMask = readBufferCount - 1;
+    this.lock = new ReentrantLock(false);
+  }
+
+  @Override
+  public V get(K key, Function<? super K, ? extends V> loader) {
+    Objects.requireNonNull(key, "key");
+    Objects.requireNonNull(loader, "loader");
+    Node<K, V> node = this.values.get(key);
+    if (node != null) {
+      this.recordRead(node);
+      return node.value;
+    }
+    // the value is not in the cache
+    // recomputing the value is likely expensive, otherwise we would not need a cache
+    V value = loader.apply(key);
+    Objects.requireNonNull(value, "value");
+    Node<K, V> newNode = new Node<>(key, value);
+    Node<K, V> existing = this.values.putIfAbsent(key, newNode);
+    if (existing != null) {
+      // an other thread was faster, keep its value
+      this.recordRead(existing);
+      return existing.value;
+    }
+    this.lock.lock();
+    try {
+      this.drainReadBuffers();
+      this.addNewNode(newNode);
+    } finally {
+      this.lock.unlock();
+    }
+    return value;
+  }
+
+  @Override
+  public V getIfPresent(K key) {
+    Objects.requireNonNull(key, "key");
+    Node<K, V> node = this.values.get(key);
+    if (node != null) {
+      this.recordRead(node);
+      return node.value;
+    }
+    return null;
+  }
+
+  int size() {
+    this.lock.lock();
+    try {
+      return this.size;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  private void recordRead(Node<K, V> node) {
+    ReadBuffer<K, V> buffer = this.readBuffers[readBufferIndex() & this.readBufferMask];
+    if (buffer.offer(node) && this.lock.tryLock()) {
+      try {
+        this.drainReadBuffers();
+      } finally {
+        this.lock.unlock();
+      }
+    }
+  }
+
+  private static int readBufferIndex() {
+    long threadId = Thread.currentThread().getId();
+    int hash = (int) (threadId ^ (threadId >>> 32));
+    return hash * 0x9E3779B9 >>> 16;
+  }
+
+  // requires lock
+  private void drainReadBuffers() {
+    for (ReadBuffer<K, V> buffer : this.readBuffers) {
+      buffer.drainTo(this);
+    }
+  }
+
+  // requires lock
+  void updateLru(Node<K, V> node) {
+    if (!node.linked || (node == this.mostRecentlyUsed)) {
+      // already evicted or nothing to do
+      return;
+    }
+    this.unlink(node);
+    this.linkMostRecentlyUsed(node);
+  }
+
+  // requires lock
+  private void addNewNode(Node<K, V> node) {
+    this.linkMostRecentlyUsed(node);
+    this.size += 1;
+    while (this.size > this.capacity) {
+      Node<K, V> eldest = this.leastRecentlyUsed;
+      this.unlink(eldest);
+      this.size -= 1;
+      this.values.remove(eldest.key, eldest);
+    }
+  }
+
+  // requires lock
+  private void linkMostRecentlyUsed(Node<K, V> node) {
+    node.previous = null;
+    node.next = this.mostRecentlyUsed;
+    if (this.mostRecentlyUsed != null) {
+      this.mostRecentlyUsed.previous = node;
+    } else {
+      this.leastRecentlyUsed = node;
+    }
+    this.mostRecentlyUsed = node;
+    node.linked = true;
+  }
+
+  // requires lock
+  private void unlink(Node<K, V> node) {
+    if (node.previous != null) {
+      node.previous.next = node.next;
+    } else {
+      this.mostRecentlyUsed = node.next;
+    }
+    if (node.next != null) {
+      node.next.previous = node.previous;
+    } else {
+      this.leastRecentlyUsed = node.previous;
+    }
+    node.previous = null;
+    node.next = null;
+    node.linked = false;
+  }
+
+  /**
+   * A lossy, bounded, multiple producer, single consumer ring buffer of
+   * accessed nodes.
+   */
+  static final class ReadBuffer<K, V> {
+
+    private static final int SIZE = 16;
+
+    private static final int MASK = SIZE - 1;
+
+    /**
+     * Drain once half of the buffer is full.
+     */
+    private static final int DRAIN_THRESHOLD = SIZE / 2;
+
+    private final AtomicReferenceArray<Node<K, V>> nodes;
+
+    private final AtomicLong writeCounter;
+
+    // only written by the draining thread
+    private volatile long readCounter;
+
+    ReadBuffer() {
+      this.nodes = new AtomicReferenceArray<>(SIZE);
+      this.writeCounter = new AtomicLong();
+    }
+
+    /**
+     * Records an access, drops it if the buffer is full.
+     *
+     * @return whether the buffer should be drained
+     */
+    boolean offer(Node<K, V> node) {
+      long readCounter = this.readCounter;
+      long writeCounter = this.writeCounter.get();
+      long pending = writeCounter - readCounter;
+      if (pending >= SIZE) {
+        return true;
+      }
+      if (this.writeCounter.compareAndSet(writeCounter, writeCounter + 1L)) {
+        this.nodes.lazySet((int) (writeCounter & MASK), node);
+        return (pending + 1L) >= DRAIN_THRESHOLD;
+      }
+      // contended, drop the access
+      return false;
+    }
+
+    // requires lock
+    void drainTo(BufferedLruCache<K, V> cache) {
+      long readCounter = this.readCounter;
+      long writeCounter = this.writeCounter.get();
+      while (readCounter < writeCounter) {
+        int index = (int) (readCounter & MASK);
+        Node<K, V> node = this.nodes.get(index);
+        if (node == null) {
+          // not yet published by the writer
+          break;
+        }
+        this.nodes.lazySet(index, null);
+        cache.updateLru(node);
+        readCounter += 1L;
+      }
+      this.readCounter = readCounter;
+    }
+
+  }
+
+  static final class Node<NK, NV> {
+
+    final NK key;
+
+    final NV value;
+
+    // guarded by lock
+    Node<NK, NV> previous;
+
+    // guarded by lock
+    Node<NK, NV> next;
+
+    // guarded by lock
+    boolean linked;
+
+    Node(NK key, NV value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    @Override
+    public String toString() {
+        return this.key + "=" + this.value;
+    }
+
+  }
+
+}
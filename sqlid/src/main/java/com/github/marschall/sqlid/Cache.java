@@ -24,4 +24,17 @@ public interface Cache<K, V> {
    */
   V get(K key, Function<? super K, ? extends V> loader);
 
+  /**
+   * Looks up a value in the cache without computing it.
+   * <p>
+   * The default implementation always returns {@code null}, implementations
+   * should override it if they can.
+   * 
+   * @param key the lookup key, not {@code null}
+   * @return the value if it is in the cache, {@code null} otherwise
+   */
+  default V getIfPresent(K key) {
+    return null;
+  }
+
 }
@@ -0,0 +1,82 @@
+package com.github.marschall.sqlid;
+
+/**
+ * The cache implementations that {@link SqlIdLookup} can create.
+ *
+ * @see SqlIdLookup#SqlIdLookup(javax.sql.DataSource, int, CacheAlgorithm)
+ */
+public enum CacheAlgorithm {
+
+  /**
+   * Least Recently Used with a single lock.
+   *
+   * @see HashLruCache
+   */
+  LRU {
+
+    @Override
+    <K, V> Cache<K, V> newCache(int capacity) {
+      return new HashLruCache<>(capacity);
+    }
+
+  },
+
+  /**
+   * Least Recently Used per segment, with one lock per segment.
+   *
+   * @see SegmentedLruCache
+   */
+  SEGMENTED_LRU {
+
+    @Override
+    <K, V> Cache<K, V> newCache(int capacity) {
+      return new SegmentedLruCache<>(capacity);
+    }
+
+  },
+
+  /**
+   * Least Recently Used without locking on cache hits.
+   *
+   * @see BufferedLruCache
+   */
+  BUFFERED_LRU {
+
+    @Override
+    <K, V> Cache<K, V> newCache(int capacity) {
+      return new BufferedLruCache<>(capacity);
+    }
+
+  },
+
+  /**
+   * CLOCK (second chance) without allocation per entry.
+   *
+   * @see ClockCache
+   */
+  CLOCK {
+
+    @Override
+    <K, V> Cache<K, V> newCache(int capacity) {
+      return new ClockCache<>(capacity);
+    }
+
+  },
+
+  /**
+   * Window TinyLFU, scan resistant.
+   *
+   * @see TinyLfuCache
+   */
+  TINY_LFU {
+
+    @Override
+    <K, V> Cache<K, V> newCache(int capacity) {
+      return new TinyLfuCache<>(capacity);
+    }
+
+  };
+
+  abstract <K, V> Cache<K, V> newCache(int capacity);
+
+}
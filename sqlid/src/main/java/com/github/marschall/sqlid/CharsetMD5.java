@@ -0,0 +1,230 @@
+package com.github.marschall.sqlid;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * MD5 hashing of SQL strings encoded in a database character set other than
+ * UTF-8.
+ * <p>
+ * The common single byte Oracle character sets are encoded on the fly while
+ * hashing using a lookup table. All other character sets are encoded with a
+ * {@link CharsetEncoder} into a per thread buffer.
+ * <p>
+ * Characters that can not be encoded are replaced with the replacement of
+ * the character set, same as {@link String#getBytes(Charset)}.
+ */
+final class CharsetMD5 {
+
+  private static final int BUFFER_SIZE = 1024;
+
+  private static final ThreadLocal<EncoderState> ENCODER_STATE = new ThreadLocal<>();
+
+  private CharsetMD5() {
+    throw new AssertionError("not instantiable");
+  }
+
+  static long getBinarySqlId(CharSequence s, Charset charset) {
+    if (charset.equals(StandardCharsets.UTF_8)) {
+      return MD5.getBinarySqlId(s);
+    }
+    SingleByteEncoding encoding = SingleByteEncoding.of(charset);
+    if (encoding != null) {
+      return encoding.getBinarySqlId(s);
+    }
+    return encoderMd5Hash(s, charset);
+  }
+
+  private static long encoderMd5Hash(CharSequence s, Charset charset) {
+    EncoderState state = ENCODER_STATE.get();
+    if ((state == null) || !state.charset.equals(charset)) {
+      state = new EncoderState(charset);
+      ENCODER_STATE.set(state);
+    }
+    return state.hash(s);
+  }
+
+  /**
+   * A {@link CharsetEncoder} and the buffer it encodes into, reused for
+   * subsequent calls with the same character set on the same thread.
+   */
+  static final class EncoderState {
+
+    final Charset charset;
+
+    private final CharsetEncoder encoder;
+
+    private final ByteBuffer buffer;
+
+    private final CharBuffer input;
+
+    private final MD5.Hasher hasher;
+
+    EncoderState(Charset charset) {
+      if (!charset.canEncode()) {
+        throw new IllegalArgumentException("charset: " + charset + " does not support encoding");
+      }
+      this.charset = charset;
+      this.encoder = charset.newEncoder()
+              .onMalformedInput(CodingErrorAction.REPLACE)
+              .onUnmappableCharacter(CodingErrorAction.REPLACE);
+      this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      this.input = CharBuffer.allocate(BUFFER_SIZE);
+      this.hasher = new MD5.Hasher();
+    }
+
+    long hash(CharSequence s) {
+      MD5.Hasher hasher = this.hasher;
+      hasher.reset();
+      CharBuffer input = this.input;
+      input.clear();
+      CharsetEncoder encoder = this.encoder.reset();
+      ByteBuffer buffer = this.buffer;
+      int length = s.length();
+      int index = 0;
+      try {
+        CoderResult result;
+        boolean endOfInput;
+        do {
+          // copy the next characters into the input buffer, a high surrogate
+          // left over from the previous round is kept
+          int end = Math.min(index + input.remaining(), length);
+          while (index < end) {
+            input.put(s.charAt(index++));
+          }
+          endOfInput = index == length;
+          input.flip();
+          do {
+            buffer.clear();
+            result = encoder.encode(input, buffer, endOfInput);
+            this.hashAndCheck(hasher, result);
+          } while (result.isOverflow());
+          input.compact();
+        } while (!endOfInput);
+        do {
+          buffer.clear();
+          result = encoder.flush(buffer);
+          this.hashAndCheck(hasher, result);
+        } while (result.isOverflow());
+      } catch (CharacterCodingException e) {
+        // can not happen with REPLACE
+        throw new IllegalArgumentException("could not encode SQL string with: " + this.charset, e);
+      }
+      return hasher.finish();
+    }
+
+    private void hashAndCheck(MD5.Hasher hasher, CoderResult result) throws CharacterCodingException {
+      ByteBuffer buffer = this.buffer;
+      hasher.update(buffer.array(), 0, buffer.position());
+      if (result.isError()) {
+        result.throwException();
+      }
+    }
+
+  }
+
+  /**
+   * An ASCII compatible single byte character set that is encoded on the fly.
+   */
+  static final class SingleByteEncoding {
+
+    private static final SingleByteEncoding ISO_8859_1 = new SingleByteEncoding(StandardCharsets.ISO_8859_1);
+
+    /**
+     * Oracle WE8MSWIN1252.
+     */
+    private static final SingleByteEncoding WINDOWS_1252 = forName("windows-1252");
+
+    /**
+     * Oracle WE8ISO8859P15.
+     */
+    private static final SingleByteEncoding ISO_8859_15 = forName("ISO-8859-15");
+
+    private final Charset charset;
+
+    /**
+     * The encoded byte of a character {@code ch} is
+     * {@code pages[ch >>> 8][ch & 0xFF]}. Pages without any character that
+     * can be encoded share a single page of replacement bytes.
+     */
+    private final byte[][] pages;
+
+    private SingleByteEncoding(Charset charset) {
+      this.charset = charset;
+      byte replacement = charset.newEncoder().replacement()[0];
+      byte[] replacementPage = new byte[256];
+      Arrays.fill(replacementPage, replacement);
+      this.pages = new byte[256][];
+      Arrays.fill(this.pages, replacementPage);
+      byte[] asciiPage = replacementPage.clone();
+      for (int i = 0; i < 0x80; i++) {
+        asciiPage[i] = (byte) i;
+      }
+      this.pages[0] = asciiPage;
+
+      CharsetDecoder decoder = charset.newDecoder()
+              .onMalformedInput(CodingErrorAction.REPORT)
+              .onUnmappableCharacter(CodingErrorAction.REPORT);
+      char[] characters = new char[128];
+      int count = 0;
+      for (int i = 0x80; i <= 0xFF; i++) {
+        try {
+          CharBuffer decoded = decoder.reset().decode(ByteBuffer.wrap(new byte[] {(byte) i}));
+          if (decoded.remaining() == 1) {
+            characters[count++] = decoded.get();
+          }
+        } catch (CharacterCodingException e) {
+          // byte not defined in this character set
+        }
+      }
+      CharsetEncoder encoder = charset.newEncoder();
+      for (int i = 0; i < count; i++) {
+        char ch = characters[i];
+        byte encoded;
+        try {
+          encoded = encoder.reset().encode(CharBuffer.wrap(new char[] {ch})).get();
+        } catch (CharacterCodingException e) {
+          throw new IllegalStateException("can not encode: " + ch + " in: " + charset, e);
+        }
+        byte[] page = this.pages[ch >>> 8];
+        if (page == replacementPage) {
+          page = replacementPage.clone();
+          this.pages[ch >>> 8] = page;
+        }
+        page[ch & 0xFF] = encoded;
+      }
+    }
+
+    private static SingleByteEncoding forName(String charsetName) {
+      if (!Charset.isSupported(charsetName)) {
+        return null;
+      }
+      return new SingleByteEncoding(Charset.forName(charsetName));
+    }
+
+    static SingleByteEncoding of(Charset charset) {
+      if (charset.equals(ISO_8859_1.charset)) {
+        return ISO_8859_1;
+      } else if ((WINDOWS_1252 != null) && charset.equals(WINDOWS_1252.charset)) {
+        return WINDOWS_1252;
+      } else if ((ISO_8859_15 != null) && charset.equals(ISO_8859_15.charset)) {
+        return ISO_8859_15;
+      }
+      return null;
+    }
+
+    long getBinarySqlId(CharSequence s) {
+      return MD5.singleByteMd5Hash(s, this.pages);
+    }
+
+  }
+
+}
@@ -0,0 +1,117 @@
+package com.github.marschall.sqlid;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Counts consecutive failures to borrow a connection and stops borrowing
+ * for some time if there are too many.
+ * <p>
+ * Every successful {@link #tryAcquire()} has to be followed by exactly one
+ * call to either {@link #onSuccess()} or {@link #onFailure()}.
+ *
+ * @see FailurePolicy
+ */
+final class CircuitBreaker {
+
+  private final int failureThreshold;
+
+  private final long openDurationNanos;
+
+  private final LongSupplier nanoTime;
+
+  private final Lock lock;
+
+  private CircuitState state;
+
+  private int consecutiveFailures;
+
+  private long openedAt;
+
+  /**
+   * Whether the single trial in {@link CircuitState#HALF_OPEN} is running.
+   */
+  private boolean trialRunning;
+
+  CircuitBreaker(int failureThreshold, long openDurationNanos, LongSupplier nanoTime) {
+    this.failureThreshold = failureThreshold;
+    this.openDurationNanos = openDurationNanos;
+    this.nanoTime = nanoTime;
+    this.lock = new ReentrantLock(false);
+    this.state = CircuitState.CLOSED;
+  }
+
+  /**
+   * Whether a connection may be borrowed.
+   *
+   * @return {@code true} if a connection may be borrowed, {@code false} if the circuit is open
+   */
+  boolean tryAcquire() {
+    this.lock.lock();
+    try {
+      switch (this.state) {
+        case CLOSED:
+          return true;
+        case OPEN:
+          if ((this.nanoTime.getAsLong() - this.openedAt) < this.openDurationNanos) {
+            return false;
+          }
+          this.state = CircuitState.HALF_OPEN;
+          this.trialRunning = true;
+          return true;
+        case HALF_OPEN:
+          if (this.trialRunning) {
+            // only a single trial at a time
+            return false;
+          }
+          this.trialRunning = true;
+          return true;
+        default:
+          throw new IllegalStateException("unknown state: " + this.state);
+      }
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  void onSuccess() {
+    this.lock.lock();
+    try {
+      this.consecutiveFailures = 0;
+      this.trialRunning = false;
+      this.state = CircuitState.CLOSED;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  void onFailure() {
+    this.lock.lock();
+    try {
+      this.trialRunning = false;
+      this.consecutiveFailures += 1;
+      if ((this.state == CircuitState.HALF_OPEN) || (this.consecutiveFailures >= this.failureThreshold)) {
+        this.state = CircuitState.OPEN;
+        this.openedAt = this.nanoTime.getAsLong();
+      }
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  CircuitState getState() {
+    this.lock.lock();
+    try {
+      if ((this.state == CircuitState.OPEN)
+              && ((this.nanoTime.getAsLong() - this.openedAt) >= this.openDurationNanos)) {
+        // the next lookup will try again
+        return CircuitState.HALF_OPEN;
+      }
+      return this.state;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+}
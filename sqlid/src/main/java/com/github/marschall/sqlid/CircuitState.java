@@ -0,0 +1,29 @@
+package com.github.marschall.sqlid;
+
+/**
+ * The state of the circuit breaker of a {@link SqlIdLookup} that guards
+ * borrowing connections from the data source.
+ *
+ * @see SqlIdLookup#getCircuitState()
+ * @see FailurePolicy
+ */
+public enum CircuitState {
+
+  /**
+   * Connections are borrowed normally.
+   */
+  CLOSED,
+
+  /**
+   * Borrowing a connection failed too often, no connections are borrowed
+   * until the open duration has passed.
+   */
+  OPEN,
+
+  /**
+   * The open duration has passed, the next lookup tries to borrow a
+   * connection. If it succeeds the circuit closes, otherwise it opens again.
+   */
+  HALF_OPEN;
+
+}
@@ -0,0 +1,306 @@
+package com.github.marschall.sqlid;
+
+import java.util.Objects;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+
+/**
+ * An array based implementation of {@link Cache} that uses the CLOCK
+ * (second chance) algorithm.
+ * <p>
+ * Compared to {@link HashLruCache} no objects are allocated per entry and a
+ * cache hit only sets a reference bit.
+ *
+ * <h2>Implementation Notes</h2>
+ * The keys, values, hashes and reference bits are stored in parallel arrays
+ * indexed by an open addressing hash table with linear probing. All arrays
+ * are allocated upfront for the full capacity.
+ * <p>
+ * Reads are optimistic and do not lock, only if they overlap with a write
+ * are they retried under a read lock. Adding a value acquires an exclusive
+ * lock, the value is computed outside of the lock.
+ *
+ * @param <K> the type of the lookup keys
+ * @param <V> the type of the cached values
+ * @see HashLruCache
+ */
+public final class ClockCache<K, V> implements Cache<K, V> {
+
+  /**
+   * Marker for an empty slot in {@link #index}.
+   */
+  private static final int EMPTY = 0;
+
+  private final int capacity;
+
+  private final Object[] keys;
+
+  private final Object[] values;
+
+  /**
+   * The spread hash of the key at the same index in {@link #keys}.
+   */
+  private final int[] hashes;
+
+  /**
+   * The reference bit of the entry at the same index in {@link #keys}.
+   * Written by readers without a lock, lost updates only affect eviction.
+   */
+  private final byte[] referenced;
+
+  /**
+   * Open addressing hash table, contains the entry index + 1 or {@link #EMPTY}.
+   */
+  private final int[] index;
+
+  private final int indexMask;
+
+  private final StampedLock lock;
+
+  // guarded by lock
+  private int size;
+
+  // guarded by lock
+  private int hand;
+
+  /**
+   * Constructs a {@link ClockCache}.
+   *
+   * @param capacity the maximum capacity of this cache,
+   *                 must be positive
+   * @throws IllegalArgumentException if {@code capacity} is not positive
+   *                                  or too large
+   */
+  public ClockCache(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+    if (capacity > (1 << 28)) {
+      throw new IllegalArgumentException("capacity too large: " + capacity);
+    }
+    this.capacity = capacity;
+    this.keys = new Object[capacity];
+    this.values = new Object[capacity];
+    this.hashes = new int[capacity];
+    this.referenced = new byte[capacity];
+    // load factor of at most 0.5 keeps the probe sequences short
+    int indexSize = Integer.highestOneBit(capacity) << 2;
+    this.index = new int[indexSize];
+    this.indexMask = indexSize - 1;
+    this.lock = new StampedLock();
+  }
+
+  @Override
+  public V get(K key, Function<? super K, ? extends V> loader) {
+    Objects.requireNonNull(key, "key");
+    Objects.requireNonNull(loader, "loader");
+    int hash = spread(key.hashCode());
+
+    V value = this.read(key, hash);
+    if (value != null) {
+      return value;
+    }
+
+    // the value is not in the cache
+    // recomputing the value is likely expensive, otherwise we would not need a cache
+    value = loader.apply(key);
+    Objects.requireNonNull(value, "value");
+
+    long stamp = this.lock.writeLock();
+    try {
+      return this.addNewValue(key, hash, value);
+    } finally {
+      this.lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public V getIfPresent(K key) {
+    Objects.requireNonNull(key, "key");
+    return this.read(key, spread(key.hashCode()));
+  }
+
+  int size() {
+    long stamp = this.lock.readLock();
+    try {
+      return this.size;
+    } finally {
+      this.lock.unlockRead(stamp);
+    }
+  }
+
+  private V read(K key, int hash) {
+    long stamp = this.lock.tryOptimisticRead();
+    if (stamp != 0L) {
+      V value = null;
+      int entry;
+      try {
+        entry = this.findEntry(key, hash);
+        if (entry >= 0) {
+          value = this.valueAt(entry);
+        }
+      } catch (RuntimeException e) {
+        // inconsistent state from an overlapping write, eg. in #equals
+        entry = -1;
+        stamp = 0L;
+      }
+      if ((stamp != 0L) && this.lock.validate(stamp)) {
+        if (entry >= 0) {
+          this.referenced[entry] = 1;
+        }
+        return value;
+      }
+    }
+    // overlapping write, retry with a read lock
+    stamp = this.lock.readLock();
+    try {
+      int entry = this.findEntry(key, hash);
+      if (entry >= 0) {
+        this.referenced[entry] = 1;
+        return this.valueAt(entry);
+      }
+      return null;
+    } finally {
+      this.lock.unlockRead(stamp);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private V valueAt(int entry) {
+    return (V) this.values[entry];
+  }
+
+  /**
+   * Finds the entry index of a key.
+   *
+   * @return the entry index, -1 if not present
+   */
+  private int findEntry(Object key, int hash) {
+    int[] index = this.index;
+    int mask = this.indexMask;
+    int slot = hash & mask;
+    // bounded so that optimistic reads always terminate
+    for (int i = 0; i < index.length; i++) {
+      int entry = index[slot] - 1;
+      if (entry < 0) {
+        return -1;
+      }
+      if (this.hashes[entry] == hash) {
+        Object candidate = this.keys[entry];
+        if ((candidate == key) || ((candidate != null) && candidate.equals(key))) {
+          return entry;
+        }
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Finds the slot in {@link #index} of an entry.
+   */
+  private int findSlot(int entry) {
+    int mask = this.indexMask;
+    int slot = this.hashes[entry] & mask;
+    while (this.index[slot] != (entry + 1)) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  // requires write lock
+  private V addNewValue(K key, int hash, V value) {
+    // because we computed the value outside the lock the value may now be in the cache
+    int existing = this.findEntry(key, hash);
+    if (existing >= 0) {
+      this.referenced[existing] = 1;
+      return this.valueAt(existing);
+    }
+
+    int entry;
+    if (this.size < this.capacity) {
+      entry = this.size;
+      this.size += 1;
+    } else {
+      entry = this.evict();
+    }
+    this.keys[entry] = key;
+    this.values[entry] = value;
+    this.hashes[entry] = hash;
+    this.referenced[entry] = 0;
+
+    int mask = this.indexMask;
+    int slot = hash & mask;
+    while (this.index[slot] != EMPTY) {
+      slot = (slot + 1) & mask;
+    }
+    this.index[slot] = entry + 1;
+    return value;
+  }
+
+  /**
+   * Advances the clock hand to the first entry without the reference bit
+   * set, clearing the reference bits on the way, and removes it.
+   *
+   * @return the index of the removed entry
+   */
+  // requires write lock
+  private int evict() {
+    int victim = this.hand;
+    while (this.referenced[victim] != 0) {
+      // second chance
+      this.referenced[victim] = 0;
+      victim = this.nextEntry(victim);
+    }
+    this.hand = this.nextEntry(victim);
+    this.removeFromIndex(this.findSlot(victim));
+    this.keys[victim] = null;
+    this.values[victim] = null;
+    return victim;
+  }
+
+  private int nextEntry(int entry) {
+    int next = entry + 1;
+    return next == this.capacity ? 0 : next;
+  }
+
+  /**
+   * Removes a slot from {@link #index} and shifts back the following slots
+   * of the probe sequence so that no tombstones are needed.
+   */
+  // requires write lock
+  private void removeFromIndex(int slot) {
+    int[] index = this.index;
+    int mask = this.indexMask;
+    int free = slot;
+    index[free] = EMPTY;
+    int current = free;
+    while (true) {
+      current = (current + 1) & mask;
+      int entry = index[current] - 1;
+      if (entry < 0) {
+        return;
+      }
+      int home = this.hashes[entry] & mask;
+      // move the entry to the free slot unless its home slot lies cyclically in (free, current]
+      boolean stays;
+      if (free <= current) {
+        stays = (free < home) && (home <= current);
+      } else {
+        stays = (free < home) || (home <= current);
+      }
+      if (!stays) {
+        index[free] = index[current];
+        index[current] = EMPTY;
+        free = current;
+      }
+    }
+  }
+
+  private static int spread(int hashCode) {
+    // the index uses the low bits, mix in the high bits
+    int h = hashCode * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+}
@@ -0,0 +1,45 @@
+package com.github.marschall.sqlid;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The executor for asynchronous lookups if the caller does not provide one.
+ * <p>
+ * This is the Java 8 version which uses a fixed pool of daemon threads so
+ * that a burst of cache misses does not start a thread per miss. The Java 21
+ * version uses virtual threads.
+ */
+final class DefaultExecutor {
+
+  // only created on first use as this class is only loaded then
+  private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+      Math.max(Runtime.getRuntime().availableProcessors(), SqlIdLookup.DEFAULT_MAXIMUM_CONCURRENT_NATIVE_SQL),
+      new DaemonThreadFactory());
+
+  private DefaultExecutor() {
+    throw new AssertionError("not instantiable");
+  }
+
+  static Executor get() {
+    return EXECUTOR;
+  }
+
+  static final class DaemonThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "sqlid-lookup-" + this.threadNumber.getAndIncrement());
+      // do not prevent the JVM from exiting
+      thread.setDaemon(true);
+      return thread;
+    }
+
+  }
+
+}
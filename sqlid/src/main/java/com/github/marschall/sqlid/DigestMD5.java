@@ -0,0 +1,251 @@
+package com.github.marschall.sqlid;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * MD5 hashing using {@link MessageDigest}, one instance per thread.
+ * <p>
+ * Starting with Java 16 HotSpot has an intrinsic for MD5 {@link MessageDigest}
+ * on x86_64 and aarch64 which is faster than {@link MD5} except for very
+ * short input where the setup cost and the UTF-8 encoding outweigh the gain.
+ * On other architectures and other virtual machines {@link MD5} is used.
+ * <p>
+ * The minimum input length in characters or bytes from which on
+ * {@link MessageDigest} is used can be configured with the system property
+ * {@value #THRESHOLD_PROPERTY}, a negative value disables it. This should be
+ * done when the intrinsic is disabled with {@code -XX:-UseMD5Intrinsics}.
+ * <p>
+ * Virtual threads are usually short lived and would allocate a new
+ * {@link MessageDigest} for every hash, they use {@link MD5} instead.
+ */
+final class DigestMD5 {
+
+  static final String THRESHOLD_PROPERTY = "com.github.marschall.sqlid.digestThreshold";
+
+  /**
+   * Default threshold on JVMs with an MD5 intrinsic.
+   * <p>
+   * Measured with {@code SqlIdLengthDigestBenchmarks} and
+   * {@code SqlIdLengthHandRolledBenchmarks} ({@code project}, ASCII input)
+   * on JDK 17.0.9 (Temurin), Intel Xeon, x86_64, throughput in ops/us:
+   * <pre>
+   * length   MessageDigest  MD5
+   *     16   3.84 &plusmn; 0.42  3.67 &plusmn; 0.16
+   *     32   4.34 &plusmn; 0.61  3.31 &plusmn; 0.23
+   *     64   2.43 &plusmn; 0.17  1.61 &plusmn; 0.30
+   *    256   0.98 &plusmn; 0.23  0.65 &plusmn; 0.02
+   *   1024   0.30 &plusmn; 0.02  0.19 &plusmn; 0.03
+   *   4096   0.08 &plusmn; 0.02  0.05 &plusmn; 0.00
+   *  20480   0.011 &plusmn; 0.001  0.010 &plusmn; 0.001
+   * </pre>
+   * Below 32 characters both are within the error, from 32 characters on
+   * {@link MessageDigest} is faster. Input with a trailing non-ASCII
+   * character shows the same crossover.
+   */
+  private static final int DEFAULT_INTRINSIC_THRESHOLD = 32;
+
+  /**
+   * Minimum input length from which on {@link MessageDigest} is used,
+   * {@link Integer#MAX_VALUE} if it is never used.
+   */
+  static final int THRESHOLD = computeThreshold();
+
+  /**
+   * Maximum size of the scratch buffer.
+   */
+  private static final int BUFFER_SIZE = 8192;
+
+  /**
+   * Minimum size of the scratch buffer, large enough for a surrogate pair.
+   */
+  private static final int MINIMUM_BUFFER_SIZE = 64;
+
+  private static final byte[] EMPTY = new byte[0];
+
+  private static final ThreadLocal<DigestMD5> INSTANCE = ThreadLocal.withInitial(DigestMD5::new);
+
+  private final MessageDigest messageDigest;
+
+  /**
+   * Scratch buffer for the UTF-8 bytes, grows with the input up to
+   * {@link #BUFFER_SIZE}.
+   */
+  private byte[] buffer;
+
+  private final byte[] digest;
+
+  private DigestMD5() {
+    this.messageDigest = newMessageDigest();
+    this.buffer = EMPTY;
+    this.digest = new byte[16];
+  }
+
+  private static int computeThreshold() {
+    String value = System.getProperty(THRESHOLD_PROPERTY);
+    if (value != null) {
+      int threshold;
+      try {
+        threshold = Integer.parseInt(value.trim());
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("invalid value for " + THRESHOLD_PROPERTY + ": " + value, e);
+      }
+      return threshold >= 0 ? threshold : Integer.MAX_VALUE;
+    }
+    if (!hasIntrinsic() || !isMessageDigestAvailable()) {
+      return Integer.MAX_VALUE;
+    }
+    return DEFAULT_INTRINSIC_THRESHOLD;
+  }
+
+  private static boolean hasIntrinsic() {
+    return isIntrinsicArchitecture(System.getProperty("os.arch", ""))
+            && isHotSpot(System.getProperty("java.vm.name", ""))
+            && isIntrinsicVersion(System.getProperty("java.specification.version", "1.8"));
+  }
+
+  static boolean isIntrinsicArchitecture(String architecture) {
+    return architecture.equals("amd64")
+            || architecture.equals("x86_64")
+            || architecture.equals("aarch64");
+  }
+
+  static boolean isHotSpot(String vmName) {
+    // "Java HotSpot(TM) 64-Bit Server VM" or "OpenJDK 64-Bit Server VM"
+    // but not "OpenJDK 64-Bit Zero VM" or "Eclipse OpenJ9 VM"
+    return (vmName.contains("HotSpot") || vmName.startsWith("OpenJDK"))
+            && vmName.contains("Server VM");
+  }
+
+  static boolean isIntrinsicVersion(String specificationVersion) {
+    // "1.8" on Java 8, "9", "10", ... afterwards
+    if (specificationVersion.startsWith("1.")) {
+      return false;
+    }
+    try {
+      return Integer.parseInt(specificationVersion) >= 16;
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  private static boolean isMessageDigestAvailable() {
+    try {
+      MessageDigest.getInstance("MD5");
+      return true;
+    } catch (NoSuchAlgorithmException e) {
+      return false;
+    }
+  }
+
+  private static MessageDigest newMessageDigest() {
+    try {
+      return MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("MD5 not supported", e);
+    }
+  }
+
+  static long getBinarySqlId(CharSequence s) {
+    if (VirtualThreads.isCurrentThreadVirtual()) {
+      return MD5.asciiMd5Hash(s);
+    }
+    return INSTANCE.get().hash(s);
+  }
+
+  static long getBinarySqlId(byte[] utf8, int offset, int length) {
+    if (VirtualThreads.isCurrentThreadVirtual()) {
+      return MD5.utf8Md5Hash(utf8, offset, length);
+    }
+    if ((offset < 0) || (length < 0) || (offset > (utf8.length - length))) {
+      throw new IndexOutOfBoundsException("offset: " + offset + " length: " + length + " array length: " + utf8.length);
+    }
+    DigestMD5 instance = INSTANCE.get();
+    instance.messageDigest.update(utf8, offset, length);
+    return instance.finish();
+  }
+
+  static long getBinarySqlId(ByteBuffer utf8) {
+    if (VirtualThreads.isCurrentThreadVirtual()) {
+      return MD5.utf8Md5Hash(utf8);
+    }
+    DigestMD5 instance = INSTANCE.get();
+    // don't modify the position of the caller
+    instance.messageDigest.update(utf8.duplicate());
+    return instance.finish();
+  }
+
+  /**
+   * Returns a scratch buffer for UTF-8 encoding {@code length} characters.
+   */
+  private byte[] buffer(int length) {
+    byte[] buffer = this.buffer;
+    if ((buffer.length < BUFFER_SIZE) && (length > (buffer.length / 3))) {
+      // up to three bytes per character, a surrogate pair is four bytes for two characters
+      int size = length > (BUFFER_SIZE / 3) ? BUFFER_SIZE : Math.max(MINIMUM_BUFFER_SIZE, length * 3);
+      buffer = new byte[Math.max(size, Math.min(BUFFER_SIZE, buffer.length * 2))];
+      this.buffer = buffer;
+    }
+    return buffer;
+  }
+
+  private long hash(CharSequence s) {
+    int length = s.length();
+    byte[] buffer = this.buffer(length);
+    int limit = buffer.length - 4;
+    int position = 0;
+    int i = 0;
+    try {
+      while (i < length) {
+        if (position > limit) {
+          this.messageDigest.update(buffer, 0, position);
+          position = 0;
+        }
+        char ch = s.charAt(i++);
+        if (ch < 0b10000000) {
+          buffer[position++] = (byte) ch;
+        } else if (ch < 0b100000000000) {
+          buffer[position++] = (byte) (0b11000000 | (ch >>> 6));
+          buffer[position++] = (byte) (0b10000000 | (ch & 0b111111));
+        } else if (Character.isHighSurrogate(ch)) {
+          if (i == length) {
+            throw new IllegalArgumentException("malformed input, truncated");
+          }
+          char low = s.charAt(i++);
+          if (!Character.isLowSurrogate(low)) {
+            throw new IllegalArgumentException("malformed input, missing surrogate pair");
+          }
+          int codePoint = Character.toCodePoint(ch, low);
+          buffer[position++] = (byte) (0b11110000 | (codePoint >>> 18));
+          buffer[position++] = (byte) (0b10000000 | ((codePoint >>> 12) & 0b111111));
+          buffer[position++] = (byte) (0b10000000 | ((codePoint >>> 6) & 0b111111));
+          buffer[position++] = (byte) (0b10000000 | (codePoint & 0b111111));
+        } else {
+          buffer[position++] = (byte) (0b11100000 | (ch >>> 12));
+          buffer[position++] = (byte) (0b10000000 | ((ch >>> 6) & 0b111111));
+          buffer[position++] = (byte) (0b10000000 | (ch & 0b111111));
+        }
+      }
+    } catch (RuntimeException e) {
+      // don't leave partial input for the next caller on this thread
+      this.messageDigest.reset();
+      throw e;
+    }
+    this.messageDigest.update(buffer, 0, position);
+    return this.finish();
+  }
+
+  private long finish() {
+    // a 0 is added at the end of the SQL string for the computation of the SQL_ID
+    this.messageDigest.update((byte) 0x00);
+    try {
+      this.messageDigest.digest(this.digest, 0, this.digest.length);
+    } catch (DigestException e) {
+      throw new IllegalStateException("could not compute digest", e);
+    }
+    return MD5.mostSignificantLong(this.digest);
+  }
+
+}
@@ -0,0 +1,141 @@
+package com.github.marschall.sqlid;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * How a {@link SqlIdLookup} handles failing conversions of JDBC query
+ * strings to native query strings.
+ * <p>
+ * A failed lookup of a JDBC query string is remembered for the negative
+ * cache TTL, during that time lookups of the same JDBC query string fail
+ * without borrowing a connection with a new {@link java.sql.SQLException}
+ * whose cause is the original exception. Lookups that pass a connection
+ * are not affected. Failing fast because the circuit is open is not
+ * remembered.
+ * <p>
+ * After a number of consecutive failures to borrow a connection the
+ * circuit breaker opens. While it is open no connections are borrowed and
+ * lookups that would need one either fail fast or are translated with
+ * {@link NativeSqlTranslator}.
+ * <p>
+ * Negative caching and the circuit breaker can be used independently of
+ * each other.
+ *
+ * @see SqlIdLookup#SqlIdLookup(javax.sql.DataSource, Cache, NativeSqlMode, FailurePolicy)
+ * @see CircuitState
+ */
+public final class FailurePolicy {
+
+  /**
+   * No negative caching and no circuit breaker.
+   */
+  public static final FailurePolicy NONE = new FailurePolicy();
+
+  /**
+   * What lookups that would borrow a connection do while the circuit is open.
+   */
+  public enum OpenCircuitBehavior {
+
+    /**
+     * Fail with a {@link java.sql.SQLTransientConnectionException}.
+     */
+    FAIL_FAST,
+
+    /**
+     * Translate with {@link NativeSqlTranslator}, the results are cached.
+     */
+    TRANSLATE;
+
+  }
+
+  private final long negativeCacheTtlNanos;
+
+  /**
+   * 0 if there is no circuit breaker.
+   */
+  private final int failureThreshold;
+
+  private final long openDurationNanos;
+
+  private final OpenCircuitBehavior openCircuitBehavior;
+
+  private FailurePolicy() {
+    this.negativeCacheTtlNanos = 0L;
+    this.failureThreshold = 0;
+    this.openDurationNanos = 0L;
+    this.openCircuitBehavior = OpenCircuitBehavior.FAIL_FAST;
+  }
+
+  /**
+   * Creates a new {@link FailurePolicy} with negative caching but without a
+   * circuit breaker.
+   * 
+   * @param negativeCacheTtl how long a failed lookup is remembered,
+   *                         not {@code null}, must be positive
+   * @return the failure policy
+   * @throws IllegalArgumentException if {@code negativeCacheTtl} is not positive
+   */
+  public static FailurePolicy negativeCaching(Duration negativeCacheTtl) {
+    Objects.requireNonNull(negativeCacheTtl, "negativeCacheTtl");
+    if (negativeCacheTtl.isNegative() || negativeCacheTtl.isZero()) {
+      throw new IllegalArgumentException("negative cache TTL must be positive but was: " + negativeCacheTtl);
+    }
+    return new FailurePolicy(negativeCacheTtl, 0, Duration.ZERO, OpenCircuitBehavior.FAIL_FAST);
+  }
+
+  /**
+   * Constructs a new {@link FailurePolicy}.
+   * 
+   * @param negativeCacheTtl how long a failed lookup is remembered,
+   *                         {@link Duration#ZERO} for no negative caching,
+   *                         not {@code null}, must not be negative
+   * @param failureThreshold after how many consecutive failures to borrow a connection the circuit opens,
+   *                         {@code 0} for no circuit breaker, must not be negative
+   * @param openDuration how long the circuit stays open before a connection is tried again,
+   *                     not {@code null}, must be positive unless {@code failureThreshold} is {@code 0}
+   * @param openCircuitBehavior what lookups that would borrow a connection do while the circuit is open,
+   *                            not {@code null}
+   * @throws IllegalArgumentException if a duration or {@code failureThreshold} is out of range
+   */
+  public FailurePolicy(Duration negativeCacheTtl, int failureThreshold, Duration openDuration,
+          OpenCircuitBehavior openCircuitBehavior) {
+    Objects.requireNonNull(negativeCacheTtl, "negativeCacheTtl");
+    Objects.requireNonNull(openDuration, "openDuration");
+    Objects.requireNonNull(openCircuitBehavior, "openCircuitBehavior");
+    if (negativeCacheTtl.isNegative()) {
+      throw new IllegalArgumentException("negative cache TTL must not be negative but was: " + negativeCacheTtl);
+    }
+    if (failureThreshold < 0) {
+      throw new IllegalArgumentException("failure threshold must not be negative but was: " + failureThreshold);
+    }
+    if ((failureThreshold > 0) && (openDuration.isNegative() || openDuration.isZero())) {
+      throw new IllegalArgumentException("open duration must be positive but was: " + openDuration);
+    }
+    this.negativeCacheTtlNanos = negativeCacheTtl.toNanos();
+    this.failureThreshold = failureThreshold;
+    this.openDurationNanos = openDuration.toNanos();
+    this.openCircuitBehavior = openCircuitBehavior;
+  }
+
+  long getNegativeCacheTtlNanos() {
+    return this.negativeCacheTtlNanos;
+  }
+
+  boolean hasCircuitBreaker() {
+    return this.failureThreshold > 0;
+  }
+
+  int getFailureThreshold() {
+    return this.failureThreshold;
+  }
+
+  long getOpenDurationNanos() {
+    return this.openDurationNanos;
+  }
+
+  OpenCircuitBehavior getOpenCircuitBehavior() {
+    return this.openCircuitBehavior;
+  }
+
+}
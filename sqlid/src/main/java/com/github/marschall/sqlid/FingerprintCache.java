@@ -0,0 +1,650 @@
+package com.github.marschall.sqlid;
+
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * An implementation of {@link Cache} for large query strings that uses the
+ * Least Recently Used (LRU) algorithm and is keyed by a fingerprint of the
+ * query string.
+ * <p>
+ * The fingerprint is a 128 bit hash plus the length of the query string.
+ * Compared to {@link HashLruCache} a cache hit does not compare the full
+ * query string and, depending on the {@link Verification} policy, the query
+ * string is not retained by the cache.
+ * <p>
+ * The cache is bounded by the estimated number of bytes retained rather than
+ * the number of entries. The weight of an entry is a fixed overhead plus, if
+ * retained, the size of the query string.
+ *
+ * <h2>Implementation Notes</h2>
+ * The fingerprint is not a cryptographic hash. If the query strings can be
+ * chosen by an attacker {@link Verification#FULL} should be used.
+ * <p>
+ * Entries are found by {@link String#hashCode()} and the length of the query
+ * string in an open addressing hash table with linear probing keyed by a
+ * {@code long}. {@link String} caches its hash code so looking up the same
+ * {@link String} instance again does not read the characters and does not
+ * allocate. Every entry weakly references the last {@link String} instance
+ * it was verified against, a hit with that instance does not verify the
+ * query string again. Other instances are verified by their fingerprint or,
+ * with {@link Verification#FULL}, by {@link String#equals(Object)}.
+ * <p>
+ * Query strings with the same hash code and length are kept in a collision
+ * chain of at most {@value #MAXIMUM_CHAIN_LENGTH} entries, if it is full the
+ * oldest entry of the chain is evicted.
+ * <p>
+ * Accessing the cache acquires an exclusive lock that is released during the
+ * computation of the value to be cached.
+ *
+ * @param <V> the type of the cached values
+ * @see HashLruCache
+ */
+public final class FingerprintCache<V> implements Cache<String, V> {
+
+  /**
+   * Estimated number of bytes of an entry without the query string,
+   * the node, the fingerprint, the hash table slot and a sql_id value.
+   */
+  static final int ENTRY_OVERHEAD = 160;
+
+  /**
+   * The maximum number of entries with the same hash code and length.
+   */
+  static final int MAXIMUM_CHAIN_LENGTH = 4;
+
+  /**
+   * Estimated number of bytes of a {@link String} without the characters.
+   */
+  static final int STRING_OVERHEAD = 40;
+
+  private static final int INITIAL_TABLE_SIZE = 16;
+
+  /**
+   * The policy for detecting two query strings with the same fingerprint.
+   * <p>
+   * Independent of the policy more than {@value #MAXIMUM_CHAIN_LENGTH} query
+   * strings with the same {@link String#hashCode()} and length evict each
+   * other. Such query strings are easy to construct, they only reduce the
+   * hit rate and never return a wrong value.
+   */
+  public enum Verification {
+
+    /**
+     * The query string is not retained, query strings with the same
+     * fingerprint are assumed to be equal.
+     * <p>
+     * Two different query strings with the same fingerprint, hash code and
+     * length return the value of the one that was cached first. This is
+     * unlikely by accident but the fingerprint is not a cryptographic hash.
+     * <p>
+     * Computing the fingerprint of an other {@link String} instance reads
+     * every character and is slower than {@link String#equals(Object)}.
+     */
+    NONE,
+
+    /**
+     * The query string is retained and compared to the lookup key on
+     * every cache hit. If they differ the value is recomputed and added
+     * to the collision chain.
+     */
+    FULL;
+
+  }
+
+  private final long maximumWeight;
+
+  private final Verification verification;
+
+  private final Function<? super String, Fingerprint> fingerprinter;
+
+  private final Lock lock;
+
+  /**
+   * Open addressing hash table, the hash code and length of the query
+   * strings, guarded by {@link #lock}.
+   */
+  private long[] slots;
+
+  /**
+   * The first entry of the collision chain of the slot at the same index in
+   * {@link #slots}, {@code null} if the slot is empty, guarded by {@link #lock}.
+   */
+  private Node<V>[] chains;
+
+  /**
+   * The number of used slots in {@link #slots}.
+   */
+  private int usedSlots;
+
+  /**
+   * The number of entries.
+   */
+  private int size;
+
+  private Node<V> mostRecentlyUsed;
+
+  private Node<V> leastRecentlyUsed;
+
+  private long weight;
+
+  /**
+   * Constructs a {@link FingerprintCache}.
+   *
+   * @param maximumWeight the estimated maximum number of bytes retained by this cache,
+   *                      must be positive
+   * @param verification the policy for detecting two query strings with the same fingerprint,
+   *                     not {@code null}
+   * @throws IllegalArgumentException if {@code maximumWeight} is not positive
+   */
+  public FingerprintCache(long maximumWeight, Verification verification) {
+    this(maximumWeight, verification, Fingerprint::of);
+  }
+
+  FingerprintCache(long maximumWeight, Verification verification, Function<? super String, Fingerprint> fingerprinter) {
+    if (maximumWeight <= 0L) {
+      throw new IllegalArgumentException("maximumWeight must be positive");
+    }
+    Objects.requireNonNull(verification, "verification");
+    this.maximumWeight = maximumWeight;
+    this.verification = verification;
+    this.fingerprinter = fingerprinter;
+    this.lock = new ReentrantLock(false);
+    this.slots = new long[INITIAL_TABLE_SIZE];
+    this.chains = newChains(INITIAL_TABLE_SIZE);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <NV> Node<NV>[] newChains(int size) {
+    return new Node[size];
+  }
+
+  @Override
+  public V get(String key, Function<? super String, ? extends V> loader) {
+    Objects.requireNonNull(key, "key");
+    Objects.requireNonNull(loader, "loader");
+    long slot = slotOf(key);
+    Node<V> node = this.find(slot, key);
+    if (node != null) {
+      return node.value;
+    }
+
+    // recompute the value outside of the lock
+    // recomputing the value is likely expensive, otherwise we would not need a cache
+    V value = loader.apply(key);
+    Objects.requireNonNull(value, "value");
+    Fingerprint fingerprint = this.fingerprinter.apply(key);
+
+    this.lock.lock();
+    try {
+      return this.addNewValue(slot, fingerprint, key, value);
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  @Override
+  public V getIfPresent(String key) {
+    Objects.requireNonNull(key, "key");
+    Node<V> node = this.find(slotOf(key), key);
+    return node != null ? node.value : null;
+  }
+
+  /**
+   * Finds the entry of a query string and makes it the most recently used.
+   *
+   * @return the entry, {@code null} if not present
+   */
+  private Node<V> find(long slot, String key) {
+    Node<V> first;
+    // all entries of the chain, null if first is the only one
+    Node<V>[] candidates;
+    this.lock.lock();
+    try {
+      first = this.chainOf(slot);
+      if (first == null) {
+        return null;
+      }
+      int chainLength = 0;
+      for (Node<V> node = first; node != null; node = node.sameSlot) {
+        if (node.isLastKey(key)) {
+          this.moveToMostRecentlyUsed(node);
+          return node;
+        }
+        chainLength += 1;
+      }
+      if (chainLength > 1) {
+        // the chain may change once the lock is released
+        candidates = newChains(chainLength);
+        int i = 0;
+        for (Node<V> node = first; node != null; node = node.sameSlot) {
+          candidates[i++] = node;
+        }
+      } else {
+        candidates = null;
+      }
+    } finally {
+      this.lock.unlock();
+    }
+
+    // verify outside of the lock, reads all characters
+    Node<V> match = null;
+    Fingerprint fingerprint = null;
+    int candidateCount = candidates != null ? candidates.length : 1;
+    for (int i = 0; (match == null) && (i < candidateCount); i++) {
+      Node<V> candidate = candidates != null ? candidates[i] : first;
+      if (candidate.key != null) {
+        if (candidate.key.equals(key)) {
+          match = candidate;
+        }
+      } else {
+        if (fingerprint == null) {
+          fingerprint = this.fingerprinter.apply(key);
+        }
+        if (candidate.fingerprint.equals(fingerprint)) {
+          match = candidate;
+        }
+      }
+    }
+    if (match == null) {
+      return null;
+    }
+
+    this.lock.lock();
+    try {
+      // may have been evicted in the meantime, the value is still valid
+      if (!match.removed) {
+        this.moveToMostRecentlyUsed(match);
+        match.lastKey = new WeakReference<>(key);
+      }
+      return match;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  int size() {
+    this.lock.lock();
+    try {
+      return this.size;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  long weight() {
+    this.lock.lock();
+    try {
+      return this.weight;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  private static long slotOf(String key) {
+    return ((long) key.hashCode() << 32) | (key.length() & 0xFFFFFFFFL);
+  }
+
+  private static int spread(long slot) {
+    // the table uses the low bits, mix in the high bits
+    long h = slot * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  /**
+   * Returns the index of a slot in {@link #slots} or the index of the empty
+   * slot where it would be inserted.
+   */
+  // requires lock
+  private int indexOf(long slot) {
+    int mask = this.slots.length - 1;
+    int index = spread(slot) & mask;
+    while ((this.chains[index] != null) && (this.slots[index] != slot)) {
+      index = (index + 1) & mask;
+    }
+    return index;
+  }
+
+  // requires lock
+  private Node<V> chainOf(long slot) {
+    return this.chains[this.indexOf(slot)];
+  }
+
+  private static boolean matches(Node<?> node, String key, Fingerprint fingerprint) {
+    if (node.key != null) {
+      return node.key.equals(key);
+    }
+    return node.fingerprint.equals(fingerprint);
+  }
+
+  // requires lock
+  private V addNewValue(long slot, Fingerprint fingerprint, String key, V value) {
+    // because we computed the value outside the lock the value may now be in the cache
+    int index = this.indexOf(slot);
+    Node<V> first = this.chains[index];
+    int chainLength = 0;
+    for (Node<V> node = first; node != null; node = node.sameSlot) {
+      if (node.isLastKey(key) || matches(node, key, fingerprint)) {
+        this.moveToMostRecentlyUsed(node);
+        return node.value;
+      }
+      chainLength += 1;
+    }
+
+    String retainedKey = this.verification == Verification.FULL ? key : null;
+    long entryWeight = weigh(fingerprint, retainedKey);
+    if (entryWeight > this.maximumWeight) {
+      // would evict everything else and still not fit
+      return value;
+    }
+    Node<V> newNode = new Node<>(slot, fingerprint, retainedKey, value, entryWeight);
+    newNode.lastKey = new WeakReference<>(key);
+    newNode.sameSlot = first;
+    this.chains[index] = newNode;
+    this.slots[index] = slot;
+    this.size += 1;
+    if (first == null) {
+      this.usedSlots += 1;
+      if ((this.usedSlots * 2) > this.slots.length) {
+        // load factor of at most 0.5 keeps the probe sequences short
+        this.resize();
+      }
+    } else if (chainLength == MAXIMUM_CHAIN_LENGTH) {
+      // same hash code and length, evict the oldest
+      Node<V> oldest = newNode;
+      while (oldest.sameSlot != null) {
+        oldest = oldest.sameSlot;
+      }
+      this.removeNode(oldest);
+    }
+    this.addMostRecentlyUsed(newNode);
+    this.weight += entryWeight;
+    while (this.weight > this.maximumWeight) {
+      this.removeNode(this.leastRecentlyUsed);
+    }
+    return value;
+  }
+
+  // requires lock
+  private void resize() {
+    long[] oldSlots = this.slots;
+    Node<V>[] oldChains = this.chains;
+    this.slots = new long[oldSlots.length * 2];
+    this.chains = newChains(oldSlots.length * 2);
+    for (int i = 0; i < oldSlots.length; i++) {
+      if (oldChains[i] != null) {
+        int index = this.indexOf(oldSlots[i]);
+        this.slots[index] = oldSlots[i];
+        this.chains[index] = oldChains[i];
+      }
+    }
+  }
+
+  /**
+   * Estimates the number of bytes retained by an entry.
+   */
+  private static long weigh(Fingerprint fingerprint, String retainedKey) {
+    if (retainedKey == null) {
+      return ENTRY_OVERHEAD;
+    }
+    // compact strings use one byte per character if possible
+    int bytesPerChar = fingerprint.latin1 ? 1 : 2;
+    return ENTRY_OVERHEAD + STRING_OVERHEAD + ((long) fingerprint.length * bytesPerChar);
+  }
+
+  // requires lock
+  private void removeNode(Node<V> node) {
+    int index = this.indexOf(node.slot);
+    Node<V> first = this.chains[index];
+    if (first == node) {
+      if (node.sameSlot != null) {
+        this.chains[index] = node.sameSlot;
+      } else {
+        this.removeSlot(index);
+      }
+    } else {
+      Node<V> previous = first;
+      while (previous.sameSlot != node) {
+        previous = previous.sameSlot;
+      }
+      previous.sameSlot = node.sameSlot;
+    }
+    node.sameSlot = null;
+    node.removed = true;
+    this.size -= 1;
+    this.unlink(node);
+    this.weight -= node.weight;
+  }
+
+  /**
+   * Removes a slot from the hash table and shifts back the following slots
+   * of the probe sequence so that no tombstones are needed.
+   */
+  // requires lock
+  private void removeSlot(int index) {
+    long[] slots = this.slots;
+    Node<V>[] chains = this.chains;
+    int mask = slots.length - 1;
+    int free = index;
+    chains[free] = null;
+    this.usedSlots -= 1;
+    int current = free;
+    while (true) {
+      current = (current + 1) & mask;
+      if (chains[current] == null) {
+        return;
+      }
+      int home = spread(slots[current]) & mask;
+      // move the slot to the free one unless its home lies cyclically in (free, current]
+      boolean stays;
+      if (free <= current) {
+        stays = (free < home) && (home <= current);
+      } else {
+        stays = (free < home) || (home <= current);
+      }
+      if (!stays) {
+        slots[free] = slots[current];
+        chains[free] = chains[current];
+        chains[current] = null;
+        free = current;
+      }
+    }
+  }
+
+  // requires lock
+  private void moveToMostRecentlyUsed(Node<V> node) {
+    if (node != this.mostRecentlyUsed) {
+      this.unlink(node);
+      this.addMostRecentlyUsed(node);
+    }
+  }
+
+  // requires lock
+  private void addMostRecentlyUsed(Node<V> node) {
+    node.previous = null;
+    node.next = this.mostRecentlyUsed;
+    if (this.mostRecentlyUsed != null) {
+      this.mostRecentlyUsed.previous = node;
+    } else {
+      this.leastRecentlyUsed = node;
+    }
+    this.mostRecentlyUsed = node;
+  }
+
+  // requires lock
+  private void unlink(Node<V> node) {
+    if (node.previous != null) {
+      node.previous.next = node.next;
+    } else {
+      this.mostRecentlyUsed = node.next;
+    }
+    if (node.next != null) {
+      node.next.previous = node.previous;
+    } else {
+      this.leastRecentlyUsed = node.previous;
+    }
+    node.previous = null;
+    node.next = null;
+  }
+
+  /**
+   * A 128 bit hash of a query string plus its length.
+   */
+  static final class Fingerprint {
+
+    private static final long SEED = 0xcbf29ce484222325L;
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+    private static final long MULTIPLIER = 0xC2B2AE3D27D4EB4FL;
+
+    final long high;
+
+    final long low;
+
+    final int length;
+
+    /**
+     * Whether all characters are in ISO-8859-1, only used for weighing.
+     */
+    final boolean latin1;
+
+    Fingerprint(long high, long low, int length, boolean latin1) {
+      this.high = high;
+      this.low = low;
+      this.length = length;
+      this.latin1 = latin1;
+    }
+
+    static Fingerprint of(String s) {
+      // two independent hash chains, the CPU can interleave them
+      long high = SEED;
+      long low = GOLDEN_RATIO;
+      long allChars = 0L;
+      int length = s.length();
+      int i = 0;
+      // four characters at a time, one dependent multiplication per chain and word
+      for (; i <= length - 4; i += 4) {
+        long word = s.charAt(i)
+                | ((long) s.charAt(i + 1) << 16)
+                | ((long) s.charAt(i + 2) << 32)
+                | ((long) s.charAt(i + 3) << 48);
+        high = Long.rotateLeft(high ^ (word * GOLDEN_RATIO), 27) * MULTIPLIER;
+        low = Long.rotateLeft(low + (word * MULTIPLIER), 31) * GOLDEN_RATIO;
+        allChars |= word;
+      }
+      if (i < length) {
+        long word = 0L;
+        for (int shift = 0; i < length; i++, shift += 16) {
+          word |= (long) s.charAt(i) << shift;
+        }
+        high = Long.rotateLeft(high ^ (word * GOLDEN_RATIO), 27) * MULTIPLIER;
+        low = Long.rotateLeft(low + (word * MULTIPLIER), 31) * GOLDEN_RATIO;
+        allChars |= word;
+      }
+      boolean latin1 = (allChars & 0xFF00FF00FF00FF00L) == 0L;
+      return new Fingerprint(mix(high ^ length), mix(low + length), length, latin1);
+    }
+
+    /**
+     * The finalizer of MurmurHash3, makes every input bit affect every output bit.
+     */
+    private static long mix(long h) {
+      long k = h;
+      k ^= k >>> 33;
+      k *= 0xff51afd7ed558ccdL;
+      k ^= k >>> 33;
+      k *= 0xc4ceb9fe1a85ec53L;
+      k ^= k >>> 33;
+      return k;
+    }
+
+    @Override
+    public int hashCode() {
+      return (int) this.low;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Fingerprint)) {
+        return false;
+      }
+      Fingerprint other = (Fingerprint) obj;
+      return (this.high == other.high)
+              && (this.low == other.low)
+              && (this.length == other.length);
+    }
+
+    @Override
+    public String toString() {
+      return Long.toHexString(this.high) + Long.toHexString(this.low) + "/" + this.length;
+    }
+
+  }
+
+  static final class Node<NV> {
+
+    /**
+     * The hash code and length of the query string.
+     */
+    final long slot;
+
+    final Fingerprint fingerprint;
+
+    /**
+     * The query string, {@code null} if not retained.
+     */
+    final String key;
+
+    final NV value;
+
+    final long weight;
+
+    /**
+     * The last query string instance this entry was verified against,
+     * guarded by the lock of the cache.
+     */
+    WeakReference<String> lastKey;
+
+    /**
+     * The next entry with the same hash code and length, guarded by the
+     * lock of the cache.
+     */
+    Node<NV> sameSlot;
+
+    /**
+     * Whether this entry has been removed from the cache, guarded by the
+     * lock of the cache.
+     */
+    boolean removed;
+
+    Node<NV> previous;
+
+    Node<NV> next;
+
+    Node(long slot, Fingerprint fingerprint, String key, NV value, long weight) {
+      this.slot = slot;
+      this.fingerprint = fingerprint;
+      this.key = key;
+      this.value = value;
+      this.weight = weight;
+    }
+
+    // requires lock
+    boolean isLastKey(String key) {
+      return (this.key == key)
+              || ((this.lastKey != null) && (this.lastKey.get() == key));
+    }
+
+    @Override
+    public String toString() {
+      return this.fingerprint + "=" + this.value;
+    }
+
+  }
+
+}
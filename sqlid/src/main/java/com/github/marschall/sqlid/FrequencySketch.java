@@ -0,0 +1,123 @@
+package com.github.marschall.sqlid;
+
+/**
+ * A count-min sketch estimating the access frequency of keys with 4 bit
+ * counters.
+ * <p>
+ * Each key is counted in four rows, the estimate is the minimum of the four
+ * counters. Once the number of increments reaches the sample size all
+ * counters are halved so that old accesses age out.
+ * <p>
+ * Not thread safe.
+ *
+ * @see <a href="https://arxiv.org/abs/1512.00727">TinyLFU: A Highly Efficient Cache Admission Policy</a>
+ */
+final class FrequencySketch {
+
+  private static final int ROWS = 4;
+
+  /**
+   * Maximum value of a 4 bit counter.
+   */
+  private static final int MAX_COUNT = 15;
+
+  private static final long RESET_MASK = 0x7777_7777_7777_7777L;
+
+  private static final long[] SEEDS = {
+    0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+  };
+
+  /**
+   * {@link #ROWS} rows of {@link #rowLength} longs each with 16 counters
+   * per long.
+   */
+  private final long[] table;
+
+  private final int rowLength;
+
+  /**
+   * Mask for the counter index in a row.
+   */
+  private final int counterMask;
+
+  private final int sampleSize;
+
+  private int additions;
+
+  /**
+   * Constructs a {@link FrequencySketch}.
+   *
+   * @param capacity the maximum number of entries of the cache, must be positive
+   */
+  FrequencySketch(int capacity) {
+    // at least one counter per entry in each row
+    int counterCount = Math.max(16, capacity == 1 ? 1 : Integer.highestOneBit(Math.min(capacity, 1 << 28) - 1) << 1);
+    this.rowLength = counterCount / 16;
+    this.counterMask = counterCount - 1;
+    this.table = new long[ROWS * this.rowLength];
+    this.sampleSize = (int) Math.min(10L * capacity, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns the estimated number of accesses of a key.
+   *
+   * @param hashCode the hash code of the key
+   * @return the estimated frequency, between 0 and 15
+   */
+  int frequency(int hashCode) {
+    int frequency = MAX_COUNT;
+    for (int row = 0; row < ROWS; row++) {
+      int counter = this.counterIndex(hashCode, row);
+      long word = this.table[this.wordIndex(row, counter)];
+      int count = (int) ((word >>> ((counter & 15) << 2)) & 0xF);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  /**
+   * Increments the estimated number of accesses of a key.
+   *
+   * @param hashCode the hash code of the key
+   */
+  void increment(int hashCode) {
+    boolean added = false;
+    for (int row = 0; row < ROWS; row++) {
+      int counter = this.counterIndex(hashCode, row);
+      int wordIndex = this.wordIndex(row, counter);
+      int shift = (counter & 15) << 2;
+      long word = this.table[wordIndex];
+      if (((word >>> shift) & 0xF) < MAX_COUNT) {
+        this.table[wordIndex] = word + (1L << shift);
+        added = true;
+      }
+    }
+    if (added) {
+      this.additions += 1;
+      if (this.additions >= this.sampleSize) {
+        this.reset();
+      }
+    }
+  }
+
+  /**
+   * Halves all counters.
+   */
+  private void reset() {
+    for (int i = 0; i < this.table.length; i++) {
+      this.table[i] = (this.table[i] >>> 1) & RESET_MASK;
+    }
+    this.additions /= 2;
+  }
+
+  private int counterIndex(int hashCode, int row) {
+    long hash = (hashCode + SEEDS[row]) * SEEDS[row];
+    hash += hash >>> 32;
+    return ((int) hash) & this.counterMask;
+  }
+
+  private int wordIndex(int row, int counter) {
+    return (row * this.rowLength) + (counter >>> 4);
+  }
+
+}
@@ -3,6 +3,8 @@ package com.github.marschall.sqlid;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
@@ -14,6 +16,13 @@ import java.util.function.Function;
  * <h2>Implementation Notes</h2>
  * Accessing the cache acquires an exclusive lock that is released during the
  * computation of the value to be cached.
+ * <p>
+ * Only one value is computed per key at a time. Threads that miss while the
+ * value of the same key is being computed by an other thread wait for its
+ * result instead of computing the value again. If the computation fails the
+ * computing thread gets the exception of the loader and every waiting thread
+ * gets its own {@link CompletionException} with the exception of the loader
+ * as the cause. The failure is not cached.
  *
  * @param <K> the type of the lookup keys
  * @param <V> the type of the cached values
@@ -24,6 +33,11 @@ public final class HashLruCache<K, V> implements Cache<K, V> {
 
   private final Map<K, Node<K, V>> values;
 
+  /**
+   * The in-flight computations of values, guarded by {@link #lock}.
+   */
+  private final Map<K, Loading<V>> loading;
+
   private Node<K, V> mostRecentlyUsed;
 
   private Node<K, V> leastRecentlyUsed;
@@ -43,6 +57,7 @@ public final class HashLruCache<K, V> implements Cache<K, V> {
     }
     this.capacity = capacity;
     this.values = new HashMap<>(capacity);
+    this.loading = new HashMap<>();
     this.lock = new ReentrantLock(false);
   }
 
@@ -50,28 +65,99 @@ public final class HashLruCache<K, V> implements Cache<K, V> {
   public V get(K key, Function<? super K, ? extends V> loader) {
     Objects.requireNonNull(key, "key");
     Objects.requireNonNull(loader, "loader");
+    Loading<V> loading;
+    boolean owner;
     this.lock.lock();
+    try {
       Node<K, V> node = this.values.get(key);
-      int currentSize = this.values.size();
       if (node != null) {
-        V value = this.updateLru(node, currentSize);
-        this.lock.unlock();
-        return value;
+        return this.updateLru(node, this.values.size());
+      }
+      loading = this.loading.get(key);
+      if (loading == null) {
+        // we are the first thread to miss, all other threads wait for our result
+        loading = new Loading<>();
+        this.loading.put(key, loading);
+        owner = true;
       } else {
-        // recompute the value outside of the lock
-        // recomputing the value is likely expensive, otherwise we would not need a cache
-        // allow other reads while recomputing
-        this.lock.unlock();
-        // the value is not in the cache
-        V value = loader.apply(key); // this could be done outside the lock
-        Objects.requireNonNull(value, "value");
+        if (loading.isOwnedByCurrentThread()) {
+          throw new IllegalStateException("recursive load of key: " + key);
+        }
+        // an other thread is already computing the value
+        loading.waiters += 1;
+        owner = false;
+      }
+    } finally {
+      this.lock.unlock();
+    }
+
+    if (!owner) {
+      // wait outside of the lock
+      return loading.await();
+    }
 
-        // acquire lock again
-        this.lock.lock();
-        this.addNewValue(key, value);
+    // recompute the value outside of the lock
+    // recomputing the value is likely expensive, otherwise we would not need a cache
+    // allow other reads while recomputing
+    V value;
+    try {
+      value = loader.apply(key);
+      Objects.requireNonNull(value, "value");
+    } catch (Throwable e) {
+      // also checked exceptions thrown by a loader that sneaky throws
+      this.lock.lock();
+      try {
+        this.loading.remove(key);
+      } finally {
         this.lock.unlock();
-        return value;
       }
+      loading.fail(e);
+      throw e;
+    }
+
+    // acquire lock again
+    this.lock.lock();
+    try {
+      this.loading.remove(key);
+      value = this.addNewValue(key, value);
+    } finally {
+      this.lock.unlock();
+    }
+    loading.complete(value);
+    return value;
+  }
+
+  /**
+   * Returns the number of threads waiting for the in-flight computation of
+   * the value of a key.
+   *
+   * @param key the key, not {@code null}
+   * @return the number of waiting threads, {@code 0} if the value of
+   *         {@code key} is not being computed
+   */
+  int getWaiterCount(K key) {
+    this.lock.lock();
+    try {
+      Loading<V> loading = this.loading.get(key);
+      return loading != null ? loading.waiters : 0;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  @Override
+  public V getIfPresent(K key) {
+    Objects.requireNonNull(key, "key");
+    this.lock.lock();
+    try {
+      Node<K, V> node = this.values.get(key);
+      if (node != null) {
+        return this.updateLru(node, this.values.size());
+      }
+      return null;
+    } finally {
+      this.lock.unlock();
+    }
   }
 
   private V updateLru(Node<K, V> node, int currentSize) {
@@ -95,14 +181,13 @@ public final class HashLruCache<K, V> implements Cache<K, V> {
     return node.value;
   }
 
-  private void addNewValue(K key, V value) {
-    // because we computed the value outside the lock the value may now be in the cache
+  private V addNewValue(K key, V value) {
+    // loads are coalesced, the value should not be in the cache
+    // but be defensive and keep the value that is already cached
     Node<K, V> readBack = this.values.get(key);
     int currentSize = this.values.size();
     if (readBack != null) {
-      this.updateLru(readBack, currentSize);
-      // FIXME identity
-      return;
+      return this.updateLru(readBack, currentSize);
     }
 
     Node<K, V> newNode;
@@ -128,6 +213,72 @@ public final class HashLruCache<K, V> implements Cache<K, V> {
     newNode.next = this.mostRecentlyUsed;
     this.mostRecentlyUsed = newNode;
     this.values.put(key, newNode);
+    return value;
+  }
+
+  /**
+   * The result of an in-flight computation of a value, shared between the
+   * loading thread and the threads waiting for it.
+   */
+  static final class Loading<LV> {
+
+    private final Thread owner;
+
+    private final CountDownLatch latch;
+
+    // published through latch
+    private LV value;
+
+    // published through latch
+    private Throwable failure;
+
+    /**
+     * The number of threads waiting for the result, guarded by the lock of
+     * the cache.
+     */
+    int waiters;
+
+    Loading() {
+      this.owner = Thread.currentThread();
+      this.latch = new CountDownLatch(1);
+    }
+
+    boolean isOwnedByCurrentThread() {
+      return this.owner == Thread.currentThread();
+    }
+
+    void complete(LV value) {
+      this.value = value;
+      this.latch.countDown();
+    }
+
+    void fail(Throwable failure) {
+      this.failure = failure;
+      this.latch.countDown();
+    }
+
+    LV await() {
+      boolean interrupted = false;
+      while (true) {
+        try {
+          this.latch.await();
+          break;
+        } catch (InterruptedException e) {
+          // like a lock, waiting is not interruptible
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      Throwable failure = this.failure;
+      if (failure != null) {
+        // every waiter gets its own exception, exceptions are mutable
+        throw new CompletionException("loading failed in an other thread", failure);
+      }
+      return this.value;
+    }
+
   }
 
   static final class Node<NK, NV> {
@@ -0,0 +1,137 @@
+package com.github.marschall.sqlid;
+
+/**
+ * A small direct mapped cache of sql_ids keyed by the identity of the query
+ * string.
+ * <p>
+ * Intended as a front cache for compile time constant query strings that are
+ * passed as the same instance on every call. A hit neither computes
+ * {@link String#hashCode()} nor {@link String#equals(Object)} and does not
+ * lock.
+ * <p>
+ * The cache can be disabled with the system property
+ * {@value #ENABLED_PROPERTY} set to {@code false}.
+ *
+ * <h2>Implementation Notes</h2>
+ * Every slot holds an {@link Entry} whose key and sql_id are published
+ * through its final fields. Concurrent writes to the same slot may overwrite
+ * each other, this only causes additional misses.
+ * <p>
+ * The caller offers a query string only after it was found in the shared
+ * cache, so query strings seen only once are never written. An entry that
+ * had a hit is not replaced, so generated query strings that never hit do
+ * not evict constant query strings and once a slot holds such an entry a
+ * miss does not write to the array.
+ * <p>
+ * Query strings longer than {@link #MAXIMUM_KEY_LENGTH} are not cached to
+ * bound the memory retained by query strings that are generated on every
+ * call and therefore never hit.
+ */
+final class IdentitySqlIdCache {
+
+  static final String ENABLED_PROPERTY = "com.github.marschall.sqlid.identityFrontCache";
+
+  /**
+   * The number of slots, must be a power of two.
+   */
+  static final int SIZE = 256;
+
+  static final int MAXIMUM_KEY_LENGTH = 4096;
+
+  // null if disabled
+  private final Entry[] entries;
+
+  IdentitySqlIdCache() {
+    this(true);
+  }
+
+  IdentitySqlIdCache(boolean enabled) {
+    this.entries = enabled ? new Entry[SIZE] : null;
+  }
+
+  /**
+   * Creates a new cache, disabled if {@value #ENABLED_PROPERTY} is {@code false}.
+   *
+   * @return the new cache
+   */
+  static IdentitySqlIdCache newInstance() {
+    return new IdentitySqlIdCache(Boolean.parseBoolean(System.getProperty(ENABLED_PROPERTY, "true")));
+  }
+
+  /**
+   * Looks up the entry of a query string.
+   *
+   * @param key the query string, not {@code null}
+   * @return the entry if {@code key} is cached, {@code null} otherwise
+   */
+  Entry get(String key) {
+    Entry[] entries = this.entries;
+    if (entries == null) {
+      return null;
+    }
+    Entry entry = entries[slot(key)];
+    if ((entry != null) && (entry.key == key)) {
+      if (!entry.hit) {
+        // write only once
+        entry.hit = true;
+      }
+      return entry;
+    }
+    return null;
+  }
+
+  /**
+   * Offers the sql_id of a query string that was found in the shared cache.
+   * <p>
+   * The query string is added unless its slot holds an entry that had a hit.
+   *
+   * @param key the query string, not {@code null}
+   * @param sqlId the sql_id of {@code key}, not {@code null}
+   * @param binarySqlId the binary sql_id of {@code key}
+   * @return the new entry
+   */
+  Entry put(String key, String sqlId, long binarySqlId) {
+    Entry entry = new Entry(key, sqlId, binarySqlId);
+    Entry[] entries = this.entries;
+    if ((entries != null) && (key.length() <= MAXIMUM_KEY_LENGTH)) {
+      int slot = slot(key);
+      Entry existing = entries[slot];
+      if ((existing == null) || !existing.hit) {
+        entries[slot] = entry;
+      }
+    }
+    return entry;
+  }
+
+  private static int slot(String key) {
+    return System.identityHashCode(key) & (SIZE - 1);
+  }
+
+  static final class Entry {
+
+    final String key;
+
+    final String sqlId;
+
+    final long binarySqlId;
+
+    /**
+     * Whether the entry had a hit, only ever set from {@code false} to
+     * {@code true} so a stale read only causes an additional replacement.
+     */
+    boolean hit;
+
+    Entry(String key, String sqlId, long binarySqlId) {
+      this.key = key;
+      this.sqlId = sqlId;
+      this.binarySqlId = binarySqlId;
+    }
+
+    @Override
+    public String toString() {
+      return this.key + "=" + this.sqlId;
+    }
+
+  }
+
+}
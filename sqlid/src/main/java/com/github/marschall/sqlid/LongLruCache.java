@@ -0,0 +1,370 @@
+package com.github.marschall.sqlid;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+/**
+ * An array based cache of {@code long} values that uses the Least Recently
+ * Used (LRU) algorithm.
+ * <p>
+ * Intended for caching binary sql_ids, see {@link SqlIdLookup#SqlIdLookup(javax.sql.DataSource, LongLruCache)}.
+ * Compared to a {@link HashLruCache} of {@link String} values no objects
+ * are allocated per entry, apart from the key, which reduces the memory
+ * footprint per entry to about 40 bytes.
+ *
+ * <h2>Implementation Notes</h2>
+ * The keys, values, hashes and LRU links are stored in parallel arrays
+ * indexed by an open addressing hash table with linear probing. All arrays
+ * are allocated upfront for the full capacity.
+ * <p>
+ * Accessing the cache acquires an exclusive lock that is released during the
+ * computation of the value to be cached.
+ * <p>
+ * Only one value is computed per key at a time, same as {@link HashLruCache}.
+ * Threads that miss while the value of the same key is being computed by an
+ * other thread wait for its result instead of computing the value again. If
+ * the computation fails the computing thread gets the exception of the loader
+ * and every waiting thread gets its own
+ * {@link java.util.concurrent.CompletionException} with the exception of the
+ * loader as the cause. The failure is not cached.
+ *
+ * @param <K> the type of the lookup keys
+ * @see HashLruCache
+ */
+public final class LongLruCache<K> {
+
+  /**
+   * Marker for an empty slot in {@link #index} and the end of the LRU list.
+   */
+  private static final int NONE = -1;
+
+  private final int capacity;
+
+  private final Object[] keys;
+
+  private final long[] values;
+
+  private final int[] hashes;
+
+  /**
+   * The entry used before the entry at the same index, towards the most
+   * recently used entry.
+   */
+  private final int[] previous;
+
+  /**
+   * The entry used after the entry at the same index, towards the least
+   * recently used entry.
+   */
+  private final int[] next;
+
+  /**
+   * Open addressing hash table, contains the entry index or {@link #NONE}.
+   */
+  private final int[] index;
+
+  private final int indexMask;
+
+  /**
+   * The in-flight computations of values, guarded by {@link #lock}.
+   */
+  private final Map<K, HashLruCache.Loading<Long>> loading;
+
+  private final Lock lock;
+
+  private int size;
+
+  private int mostRecentlyUsed;
+
+  private int leastRecentlyUsed;
+
+  /**
+   * Constructs a {@link LongLruCache}.
+   *
+   * @param capacity the maximum capacity of this cache,
+   *                 must be positive
+   * @throws IllegalArgumentException if {@code capacity} is not positive
+   *                                  or too large
+   */
+  public LongLruCache(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+    if (capacity > (1 << 28)) {
+      throw new IllegalArgumentException("capacity too large: " + capacity);
+    }
+    this.capacity = capacity;
+    this.keys = new Object[capacity];
+    this.values = new long[capacity];
+    this.hashes = new int[capacity];
+    this.previous = new int[capacity];
+    this.next = new int[capacity];
+    // load factor of at most 0.5 keeps the probe sequences short
+    int indexSize = Integer.highestOneBit(capacity) << 2;
+    this.index = new int[indexSize];
+    Arrays.fill(this.index, NONE);
+    this.indexMask = indexSize - 1;
+    this.mostRecentlyUsed = NONE;
+    this.leastRecentlyUsed = NONE;
+    this.loading = new HashMap<>();
+    this.lock = new ReentrantLock(false);
+  }
+
+  /**
+   * Looks up a value in the cache. If none is found computes a new value
+   * and stores it, possibly ejecting an existing one.
+   *
+   * @param key the lookup key, not {@code null}
+   * @param loader the function to compute the value based on the lookup up
+   *               should it not already be in the cache,
+   *               not {@code null}
+   * @return the value, if it wasn't in the cache before the call it was
+   *         computed using {@code loader} and now is in the cache
+   */
+  public long get(K key, ToLongFunction<? super K> loader) {
+    Objects.requireNonNull(key, "key");
+    Objects.requireNonNull(loader, "loader");
+    int hash = spread(key.hashCode());
+    HashLruCache.Loading<Long> loading;
+    boolean owner;
+    this.lock.lock();
+    try {
+      int entry = this.findEntry(key, hash);
+      if (entry != NONE) {
+        this.moveToMostRecentlyUsed(entry);
+        return this.values[entry];
+      }
+      loading = this.loading.get(key);
+      if (loading == null) {
+        // we are the first thread to miss, all other threads wait for our result
+        loading = new HashLruCache.Loading<>();
+        this.loading.put(key, loading);
+        owner = true;
+      } else {
+        if (loading.isOwnedByCurrentThread()) {
+          throw new IllegalStateException("recursive load of key: " + key);
+        }
+        // an other thread is already computing the value
+        loading.waiters += 1;
+        owner = false;
+      }
+    } finally {
+      this.lock.unlock();
+    }
+
+    if (!owner) {
+      // wait outside of the lock
+      return loading.await();
+    }
+
+    // recompute the value outside of the lock
+    // recomputing the value is likely expensive, otherwise we would not need a cache
+    long value;
+    try {
+      value = loader.applyAsLong(key);
+    } catch (Throwable e) {
+      // also checked exceptions thrown by a loader that sneaky throws
+      this.lock.lock();
+      try {
+        this.loading.remove(key);
+      } finally {
+        this.lock.unlock();
+      }
+      loading.fail(e);
+      throw e;
+    }
+
+    this.lock.lock();
+    try {
+      this.loading.remove(key);
+      this.addNewValue(key, hash, value);
+    } finally {
+      this.lock.unlock();
+    }
+    loading.complete(value);
+    return value;
+  }
+
+  /**
+   * Returns the number of threads waiting for the in-flight computation of
+   * the value of a key.
+   *
+   * @param key the key, not {@code null}
+   * @return the number of waiting threads, {@code 0} if the value of
+   *         {@code key} is not being computed
+   */
+  int getWaiterCount(K key) {
+    this.lock.lock();
+    try {
+      HashLruCache.Loading<Long> loading = this.loading.get(key);
+      return loading != null ? loading.waiters : 0;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  /**
+   * Looks up a value in the cache without computing it.
+   *
+   * @param key the lookup key, not {@code null}
+   * @return the value if it is in the cache, empty otherwise
+   */
+  public OptionalLong getIfPresent(K key) {
+    Objects.requireNonNull(key, "key");
+    int hash = spread(key.hashCode());
+    this.lock.lock();
+    try {
+      int entry = this.findEntry(key, hash);
+      if (entry != NONE) {
+        this.moveToMostRecentlyUsed(entry);
+        return OptionalLong.of(this.values[entry]);
+      }
+      return OptionalLong.empty();
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  int size() {
+    this.lock.lock();
+    try {
+      return this.size;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  // requires lock
+  private int findEntry(Object key, int hash) {
+    int mask = this.indexMask;
+    int slot = hash & mask;
+    int entry = this.index[slot];
+    while (entry != NONE) {
+      if ((this.hashes[entry] == hash) && this.keys[entry].equals(key)) {
+        return entry;
+      }
+      slot = (slot + 1) & mask;
+      entry = this.index[slot];
+    }
+    return NONE;
+  }
+
+  // requires lock
+  private void addNewValue(K key, int hash, long value) {
+    // loads are coalesced, the value should not be in the cache
+    // but be defensive
+    int existing = this.findEntry(key, hash);
+    if (existing != NONE) {
+      this.values[existing] = value;
+      this.moveToMostRecentlyUsed(existing);
+      return;
+    }
+
+    int entry;
+    if (this.size < this.capacity) {
+      entry = this.size;
+      this.size += 1;
+    } else {
+      // reuse the least recently used entry
+      entry = this.leastRecentlyUsed;
+      this.unlink(entry);
+      this.removeFromIndex(entry);
+    }
+    this.keys[entry] = key;
+    this.values[entry] = value;
+    this.hashes[entry] = hash;
+    this.linkMostRecentlyUsed(entry);
+
+    int mask = this.indexMask;
+    int slot = hash & mask;
+    while (this.index[slot] != NONE) {
+      slot = (slot + 1) & mask;
+    }
+    this.index[slot] = entry;
+  }
+
+  // requires lock
+  private void moveToMostRecentlyUsed(int entry) {
+    if (entry != this.mostRecentlyUsed) {
+      this.unlink(entry);
+      this.linkMostRecentlyUsed(entry);
+    }
+  }
+
+  // requires lock
+  private void linkMostRecentlyUsed(int entry) {
+    this.previous[entry] = NONE;
+    this.next[entry] = this.mostRecentlyUsed;
+    if (this.mostRecentlyUsed != NONE) {
+      this.previous[this.mostRecentlyUsed] = entry;
+    } else {
+      this.leastRecentlyUsed = entry;
+    }
+    this.mostRecentlyUsed = entry;
+  }
+
+  // requires lock
+  private void unlink(int entry) {
+    int previousEntry = this.previous[entry];
+    int nextEntry = this.next[entry];
+    if (previousEntry != NONE) {
+      this.next[previousEntry] = nextEntry;
+    } else {
+      this.mostRecentlyUsed = nextEntry;
+    }
+    if (nextEntry != NONE) {
+      this.previous[nextEntry] = previousEntry;
+    } else {
+      this.leastRecentlyUsed = previousEntry;
+    }
+  }
+
+  /**
+   * Removes an entry from {@link #index} and shifts back the following slots
+   * of the probe sequence so that no tombstones are needed.
+   */
+  // requires lock
+  private void removeFromIndex(int entry) {
+    int[] index = this.index;
+    int mask = this.indexMask;
+    int free = this.hashes[entry] & mask;
+    while (index[free] != entry) {
+      free = (free + 1) & mask;
+    }
+    index[free] = NONE;
+    int current = free;
+    while (true) {
+      current = (current + 1) & mask;
+      int candidate = index[current];
+      if (candidate == NONE) {
+        return;
+      }
+      int home = this.hashes[candidate] & mask;
+      // move the entry to the free slot unless its home slot lies cyclically in (free, current]
+      boolean stays;
+      if (free <= current) {
+        stays = (free < home) && (home <= current);
+      } else {
+        stays = (free < home) || (home <= current);
+      }
+      if (!stays) {
+        index[free] = candidate;
+        index[current] = NONE;
+        free = current;
+      }
+    }
+  }
+
+  private static int spread(int hashCode) {
+    // the index uses the low bits, mix in the high bits
+    int h = hashCode * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+}
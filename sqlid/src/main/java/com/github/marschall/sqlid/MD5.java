@@ -1,8 +1,8 @@
 package com.github.marschall.sqlid;
 
-import java.security.DigestException;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
 
 /**
  * MD5 hashing as done by Oracle for SQL_ID computation.
@@ -16,6 +16,12 @@ final class MD5 {
    */
   private static final int CHUNK_BYTES = 64;
 
+  /**
+   * Mask for the character bits of {@link #checkedWordAt(CharSequence, int, int)},
+   * a bit is set if there is a non-ASCII character.
+   */
+  private static final long NON_ASCII_MASK = 0xFFFF_FF80_0000_0000L;
+
   /*
    * Constants for MD5Transform routine.
    */
@@ -40,51 +46,457 @@ final class MD5 {
     throw new AssertionError("not instantiable");
   }
 
-  static long getBinarySqlId(String s) {
+  static long getBinarySqlId(CharSequence s) {
+    if (s.length() >= DigestMD5.THRESHOLD) {
+      // long input, MessageDigest is faster on JVMs with an MD5 intrinsic
+      return DigestMD5.getBinarySqlId(s);
+    }
     // compute the MD5 hash of the SQL
-    int utf8Length = getUtf8Length(s);
-    if (utf8Length == s.length()) {
-      return asciiMd5Hash(s);
-    } else {
-      return nonAsciiMd5Hash(s);
+    // optimistically assume ASCII, switches to UTF-8 at the first non-ASCII chunk
+    return asciiMd5Hash(s);
+  }
+
+  static long getBinarySqlId(byte[] utf8, int offset, int length) {
+    if (length >= DigestMD5.THRESHOLD) {
+      return DigestMD5.getBinarySqlId(utf8, offset, length);
     }
+    return utf8Md5Hash(utf8, offset, length);
+  }
+
+  static long getBinarySqlId(ByteBuffer utf8) {
+    if (utf8.remaining() >= DigestMD5.THRESHOLD) {
+      return DigestMD5.getBinarySqlId(utf8);
+    }
+    return utf8Md5Hash(utf8);
+  }
+
+  static long utf8Md5Hash(byte[] utf8, int offset, int length) {
+    Hasher hasher = new Hasher();
+    hasher.update(utf8, offset, length);
+    return hasher.finish();
   }
 
-  static long nonAsciiMd5Hash(String s) {
+  static long utf8Md5Hash(ByteBuffer utf8) {
     Hasher hasher = new Hasher();
-    int i = 0;
-    while (i < s.length()) {
-      char c = s.charAt(i++);
-      if (Character.isHighSurrogate(c)) {
-        if (i == s.length()) {
-          throw new IllegalArgumentException("malformed input, truncated");
+    hasher.update(utf8);
+    return hasher.finish();
+  }
+
+  /**
+   * Hashes the input starting at a chunk boundary, all characters before
+   * {@code start} have to be ASCII and are already hashed into the given state.
+   */
+  private static long nonAsciiMd5Hash(CharSequence s, int start, int a0, int b0, int c0, int d0) {
+
+    // the UTF-8 bytes are generated on the fly, we therefore don't know in
+    // advance how many chunks are needed
+    int charIndex = start;
+    // the remaining bytes of a multi byte UTF-8 sequence, least significant byte first
+    int pending = 0;
+    int pendingCount = 0;
+    // the number of bytes of the message including the trailing 0x00 byte,
+    // negative until the trailing 0x00 byte has been added
+    long messageLength = -1L;
+    boolean padded = false;
+    // all characters before start are ASCII
+    long chunkStart = start;
+
+    boolean isLast = false;
+    while (!isLast) {
+      int a = a0;
+      int b = b0;
+      int c = c0;
+      int d = d0;
+
+      int  x0 = 0;
+      int  x1 = 0;
+      int  x2 = 0;
+      int  x3 = 0;
+      int  x4 = 0;
+      int  x5 = 0;
+      int  x6 = 0;
+      int  x7 = 0;
+      int  x8 = 0;
+      int  x9 = 0;
+      int x10 = 0;
+      int x11 = 0;
+      int x12 = 0;
+      int x13 = 0;
+      int x14 = 0;
+      int x15 = 0;
+
+      for (int wordIndex = 0; (wordIndex < 16) && !padded; wordIndex++) {
+        int word;
+        if ((pendingCount == 0) && ((charIndex + 4) <= s.length())
+            && ((s.charAt(charIndex) | s.charAt(charIndex + 1) | s.charAt(charIndex + 2) | s.charAt(charIndex + 3)) < 0b10000000)) {
+          // fast path, four ASCII characters
+          word = s.charAt(charIndex)
+              | (s.charAt(charIndex + 1) << 8)
+              | (s.charAt(charIndex + 2) << 16)
+              | (s.charAt(charIndex + 3) << 24);
+          charIndex += 4;
+        } else {
+          // slow path, encode byte by byte
+          word = 0;
+          for (int byteIndex = 0; byteIndex < 4; byteIndex++) {
+            int byteValue;
+            if (pendingCount > 0) {
+              byteValue = pending & 0xFF;
+              pending >>>= 8;
+              pendingCount -= 1;
+            } else if (charIndex < s.length()) {
+              char ch = s.charAt(charIndex++);
+              if (ch < 0b10000000) {
+                byteValue = ch;
+              } else if (ch < 0b100000000000) {
+                byteValue = 0b11000000 | ((ch & 0b11111_000000) >>> 6);
+                pending = 0b10000000 | (ch & 0b111111);
+                pendingCount = 1;
+              } else if (Character.isHighSurrogate(ch)) {
+                if (charIndex == s.length()) {
+                  throw new IllegalArgumentException("malformed input, truncated");
+                }
+                char low = s.charAt(charIndex++);
+                if (!Character.isLowSurrogate(low)) {
+                  throw new IllegalArgumentException("malformed input, missing surrogate pair");
+                }
+                int codePoint = Character.toCodePoint(ch, low);
+                byteValue = 0b11110000 | ((codePoint & 0b111_000000_000000_000000) >>> 18);
+                pending = (0b10000000 | ((codePoint & 0b111111_000000_000000) >>> 12))
+                    | ((0b10000000 | ((codePoint & 0b111111_000000) >>> 6)) << 8)
+                    | ((0b10000000 | (codePoint & 0b111111)) << 16);
+                pendingCount = 3;
+              } else {
+                byteValue = 0b11100000 | ((ch & 0b1111_000000_000000) >>> 12);
+                pending = (0b10000000 | ((ch & 0b111111_000000) >>> 6))
+                    | ((0b10000000 | (ch & 0b111111)) << 8);
+                pendingCount = 2;
+              }
+            } else if (messageLength < 0L) {
+              // a 0 is added at the end of the SQL string for the computation of the SQL_ID
+              byteValue = 0x00;
+              messageLength = chunkStart + (wordIndex * 4) + byteIndex + 1;
+            } else {
+              // first padding byte, the rest of the chunk is 0x00
+              byteValue = 0x80;
+              padded = true;
+              word |= byteValue << (byteIndex * 8);
+              break;
+            }
+            word |= byteValue << (byteIndex * 8);
+          }
         }
-        char low = s.charAt(i++);
-        if (!Character.isLowSurrogate(low)) {
-          throw new IllegalArgumentException("malformed input, missing surrogate pair");
+        switch (wordIndex) {
+          case 0:
+            x0 = word;
+            break;
+          case 1:
+            x1 = word;
+            break;
+          case 2:
+            x2 = word;
+            break;
+          case 3:
+            x3 = word;
+            break;
+          case 4:
+            x4 = word;
+            break;
+          case 5:
+            x5 = word;
+            break;
+          case 6:
+            x6 = word;
+            break;
+          case 7:
+            x7 = word;
+            break;
+          case 8:
+            x8 = word;
+            break;
+          case 9:
+            x9 = word;
+            break;
+          case 10:
+            x10 = word;
+            break;
+          case 11:
+            x11 = word;
+            break;
+          case 12:
+            x12 = word;
+            break;
+          case 13:
+            x13 = word;
+            break;
+          case 14:
+            x14 = word;
+            break;
+          case 15:
+            x15 = word;
+            break;
         }
-        int codePoint = Character.toCodePoint(c, low);
-        hasher.put((byte) (0b11110000 | ((codePoint & 0b111_000000_000000_000000) >>> 18)));
-        hasher.put((byte) (0b10000000 | ((codePoint & 0b111111_000000_000000) >>> 12)));
-        hasher.put((byte) (0b10000000 | ((codePoint & 0b111111_000000) >>> 6)));
-        hasher.put((byte) (0b10000000 | (codePoint & 0b111111)));
-      } else {
-        if (c < 0b10000000) {
-          hasher.put((byte) c);
-        } else if (c < 0b100000000000) {
-          hasher.put((byte) (0b11000000 | ((c & 0b11111_000000) >>> 6)));
-          hasher.put((byte) (0b10000000 | (c & 0b111111)));
+      }
+
+      // the length has to fit into the last 8 bytes, after the first padding byte
+      if (padded && ((messageLength - chunkStart) < 56L)) {
+        long messageLengthBits = messageLength * 8L;
+        x14 = (int) messageLengthBits;
+        x15 = (int) (messageLengthBits >>> 32);
+        isLast = true;
+      }
+      chunkStart += CHUNK_BYTES;
+
+      // fully inline FF, GG, HH and II
+
+      /* Round 1 */
+      a = Integer.rotateLeft(a + ((b & c) | ((~b) & d)) + x0 + 0xd76aa478, S11) + b; /* 1 */
+      d = Integer.rotateLeft(d + ((a & b) | ((~a) & c)) + x1 + 0xe8c7b756, S12) + a; /* 2 */
+      c = Integer.rotateLeft(c + ((d & a) | ((~d) & b)) + x2 + 0x242070db, S13) + d; /* 3 */
+      b = Integer.rotateLeft(b + ((c & d) | ((~c) & a)) + x3 + 0xc1bdceee, S14) + c; /* 4 */
+      a = Integer.rotateLeft(a + ((b & c) | ((~b) & d)) + x4 + 0xf57c0faf, S11) + b; /* 5 */
+      d = Integer.rotateLeft(d + ((a & b) | ((~a) & c)) + x5 + 0x4787c62a, S12) + a; /* 6 */
+      c = Integer.rotateLeft(c + ((d & a) | ((~d) & b)) + x6 + 0xa8304613, S13) + d; /* 7 */
+      b = Integer.rotateLeft(b + ((c & d) | ((~c) & a)) + x7 + 0xfd469501, S14) + c; /* 8 */
+      a = Integer.rotateLeft(a + ((b & c) | ((~b) & d)) + x8 + 0x698098d8, S11) + b; /* 9 */
+      d = Integer.rotateLeft(d + ((a & b) | ((~a) & c)) + x9 + 0x8b44f7af, S12) + a; /* 10 */
+      c = Integer.rotateLeft(c + ((d & a) | ((~d) & b)) + x10 + 0xffff5bb1, S13) + d; /* 11 */
+      b = Integer.rotateLeft(b + ((c & d) | ((~c) & a)) + x11 + 0x895cd7be, S14) + c; /* 12 */
+      a = Integer.rotateLeft(a + ((b & c) | ((~b) & d)) + x12 + 0x6b901122, S11) + b; /* 13 */
+      d = Integer.rotateLeft(d + ((a & b) | ((~a) & c)) + x13 + 0xfd987193, S12) + a; /* 14 */
+      c = Integer.rotateLeft(c + ((d & a) | ((~d) & b)) + x14 + 0xa679438e, S13) + d; /* 15 */
+      b = Integer.rotateLeft(b + ((c & d) | ((~c) & a)) + x15 + 0x49b40821, S14) + c; /* 16 */
+
+      /* Round 2 */
+      a = Integer.rotateLeft(a + ((b & d) | (c & (~d))) + x1 + 0xf61e2562, S21) + b; /* 17 */
+      d = Integer.rotateLeft(d + ((a & c) | (b & (~c))) + x6 + 0xc040b340, S22) + a; /* 18 */
+      c = Integer.rotateLeft(c + ((d & b) | (a & (~b))) + x11 + 0x265e5a51, S23) + d; /* 19 */
+      b = Integer.rotateLeft(b + ((c & a) | (d & (~a))) + x0 + 0xe9b6c7aa, S24) + c; /* 20 */
+      a = Integer.rotateLeft(a + ((b & d) | (c & (~d))) + x5 + 0xd62f105d, S21) + b; /* 21 */
+      d = Integer.rotateLeft(d + ((a & c) | (b & (~c))) + x10 + 0x2441453, S22) + a; /* 22 */
+      c = Integer.rotateLeft(c + ((d & b) | (a & (~b))) + x15 + 0xd8a1e681, S23) + d; /* 23 */
+      b = Integer.rotateLeft(b + ((c & a) | (d & (~a))) + x4 + 0xe7d3fbc8, S24) + c; /* 24 */
+      a = Integer.rotateLeft(a + ((b & d) | (c & (~d))) + x9 + 0x21e1cde6, S21) + b; /* 25 */
+      d = Integer.rotateLeft(d + ((a & c) | (b & (~c))) + x14 + 0xc33707d6, S22) + a; /* 26 */
+      c = Integer.rotateLeft(c + ((d & b) | (a & (~b))) + x3 + 0xf4d50d87, S23) + d; /* 27 */
+      b = Integer.rotateLeft(b + ((c & a) | (d & (~a))) + x8 + 0x455a14ed, S24) + c; /* 28 */
+      a = Integer.rotateLeft(a + ((b & d) | (c & (~d))) + x13 + 0xa9e3e905, S21) + b; /* 29 */
+      d = Integer.rotateLeft(d + ((a & c) | (b & (~c))) + x2 + 0xfcefa3f8, S22) + a; /* 30 */
+      c = Integer.rotateLeft(c + ((d & b) | (a & (~b))) + x7 + 0x676f02d9, S23) + d; /* 31 */
+      b = Integer.rotateLeft(b + ((c & a) | (d & (~a))) + x12 + 0x8d2a4c8a, S24) + c; /* 32 */
+
+      /* Round 3 */
+      a = Integer.rotateLeft(a + ((b ^ c) ^ d) + x5 + 0xfffa3942, S31) + b; /* 33 */
+      d = Integer.rotateLeft(d + ((a ^ b) ^ c) + x8 + 0x8771f681, S32) + a; /* 34 */
+      c = Integer.rotateLeft(c + ((d ^ a) ^ b) + x11 + 0x6d9d6122, S33) + d; /* 35 */
+      b = Integer.rotateLeft(b + ((c ^ d) ^ a) + x14 + 0xfde5380c, S34) + c; /* 36 */
+      a = Integer.rotateLeft(a + ((b ^ c) ^ d) + x1 + 0xa4beea44, S31) + b; /* 37 */
+      d = Integer.rotateLeft(d + ((a ^ b) ^ c) + x4 + 0x4bdecfa9, S32) + a; /* 38 */
+      c = Integer.rotateLeft(c + ((d ^ a) ^ b) + x7 + 0xf6bb4b60, S33) + d; /* 39 */
+      b = Integer.rotateLeft(b + ((c ^ d) ^ a) + x10 + 0xbebfbc70, S34) + c; /* 40 */
+      a = Integer.rotateLeft(a + ((b ^ c) ^ d) + x13 + 0x289b7ec6, S31) + b; /* 41 */
+      d = Integer.rotateLeft(d + ((a ^ b) ^ c) + x0 + 0xeaa127fa, S32) + a; /* 42 */
+      c = Integer.rotateLeft(c + ((d ^ a) ^ b) + x3 + 0xd4ef3085, S33) + d; /* 43 */
+      b = Integer.rotateLeft(b + ((c ^ d) ^ a) + x6 + 0x4881d05, S34) + c; /* 44 */
+      a = Integer.rotateLeft(a + ((b ^ c) ^ d) + x9 + 0xd9d4d039, S31) + b; /* 45 */
+      d = Integer.rotateLeft(d + ((a ^ b) ^ c) + x12 + 0xe6db99e5, S32) + a; /* 46 */
+      c = Integer.rotateLeft(c + ((d ^ a) ^ b) + x15 + 0x1fa27cf8, S33) + d; /* 47 */
+      b = Integer.rotateLeft(b + ((c ^ d) ^ a) + x2 + 0xc4ac5665, S34) + c; /* 48 */
+
+      /* Round 4 */
+      a = Integer.rotateLeft(a + (c ^ (b | (~d))) + x0 + 0xf4292244, S41) + b; /* 49 */
+      d = Integer.rotateLeft(d + (b ^ (a | (~c))) + x7 + 0x432aff97, S42) + a; /* 50 */
+      c = Integer.rotateLeft(c + (a ^ (d | (~b))) + x14 + 0xab9423a7, S43) + d; /* 51 */
+      b = Integer.rotateLeft(b + (d ^ (c | (~a))) + x5 + 0xfc93a039, S44) + c; /* 52 */
+      a = Integer.rotateLeft(a + (c ^ (b | (~d))) + x12 + 0x655b59c3, S41) + b; /* 53 */
+      d = Integer.rotateLeft(d + (b ^ (a | (~c))) + x3 + 0x8f0ccc92, S42) + a; /* 54 */
+      c = Integer.rotateLeft(c + (a ^ (d | (~b))) + x10 + 0xffeff47d, S43) + d; /* 55 */
+      b = Integer.rotateLeft(b + (d ^ (c | (~a))) + x1 + 0x85845dd1, S44) + c; /* 56 */
+      a = Integer.rotateLeft(a + (c ^ (b | (~d))) + x8 + 0x6fa87e4f, S41) + b; /* 57 */
+      d = Integer.rotateLeft(d + (b ^ (a | (~c))) + x15 + 0xfe2ce6e0, S42) + a; /* 58 */
+      c = Integer.rotateLeft(c + (a ^ (d | (~b))) + x6 + 0xa3014314, S43) + d; /* 59 */
+      b = Integer.rotateLeft(b + (d ^ (c | (~a))) + x13 + 0x4e0811a1, S44) + c; /* 60 */
+      a = Integer.rotateLeft(a + (c ^ (b | (~d))) + x4 + 0xf7537e82, S41) + b; /* 61 */
+      d = Integer.rotateLeft(d + (b ^ (a | (~c))) + x11 + 0xbd3af235, S42) + a; /* 62 */
+      c = Integer.rotateLeft(c + (a ^ (d | (~b))) + x2 + 0x2ad7d2bb, S43) + d; /* 63 */
+      b = Integer.rotateLeft(b + (d ^ (c | (~a))) + x9 + 0xeb86d391, S44) + c; /* 64 */
+
+      a0 += a;
+      b0 += b;
+      c0 += c;
+      d0 += d;
+    }
+
+    return (Integer.toUnsignedLong(c0) << 32) | Integer.toUnsignedLong(d0);
+  }
+
+  /**
+   * Hashes the input encoded in an ASCII compatible single byte character set.
+   * The bytes are looked up while hashing, only the MD5 state is allocated.
+   * <p>
+   * Every character is encoded into exactly one byte with the exception of
+   * a surrogate pair which is a single unmappable character. The pages for
+   * the surrogates have to hold the replacement byte.
+   *
+   * @param s the input
+   * @param pages the byte of a character {@code ch} is
+   *              {@code pages[ch >>> 8][ch & 0xFF]}, 256 pages of 256 bytes
+   *              each
+   */
+  static long singleByteMd5Hash(CharSequence s, byte[][] pages) {
+
+    State state = new State();
+
+    // because of surrogate pairs we don't know in advance how many chunks are needed
+    int length = s.length();
+    int charIndex = 0;
+    // the number of bytes of the message including the trailing 0x00 byte,
+    // negative until the trailing 0x00 byte has been added
+    long messageLength = -1L;
+    boolean padded = false;
+    long chunkStart = 0L;
+
+    boolean isLast = false;
+    while (!isLast) {
+      int  x0 = 0;
+      int  x1 = 0;
+      int  x2 = 0;
+      int  x3 = 0;
+      int  x4 = 0;
+      int  x5 = 0;
+      int  x6 = 0;
+      int  x7 = 0;
+      int  x8 = 0;
+      int  x9 = 0;
+      int x10 = 0;
+      int x11 = 0;
+      int x12 = 0;
+      int x13 = 0;
+      int x14 = 0;
+      int x15 = 0;
+
+      for (int wordIndex = 0; (wordIndex < 16) && !padded; wordIndex++) {
+        int word;
+        if (((charIndex + 4) <= length)
+            && ((s.charAt(charIndex) | s.charAt(charIndex + 1) | s.charAt(charIndex + 2) | s.charAt(charIndex + 3)) < 0b10000000)) {
+          // fast path, four ASCII characters
+          word = s.charAt(charIndex)
+              | (s.charAt(charIndex + 1) << 8)
+              | (s.charAt(charIndex + 2) << 16)
+              | (s.charAt(charIndex + 3) << 24);
+          charIndex += 4;
+        } else if (((charIndex + 4) <= length) && !hasHighSurrogate(s, charIndex)) {
+          // four characters, one byte each
+          word = encode(pages, s.charAt(charIndex))
+              | (encode(pages, s.charAt(charIndex + 1)) << 8)
+              | (encode(pages, s.charAt(charIndex + 2)) << 16)
+              | (encode(pages, s.charAt(charIndex + 3)) << 24);
+          charIndex += 4;
         } else {
-          hasher.put((byte) (0b11100000 | ((c & 0b1111_000000_000000) >>> 12)));
-          hasher.put((byte) (0b10000000 | ((c & 0b111111_000000) >>> 6)));
-          hasher.put((byte) (0b10000000 | (c & 0b111111)));
+          // slow path, surrogate pairs and the end of the message
+          word = 0;
+          for (int byteIndex = 0; byteIndex < 4; byteIndex++) {
+            int byteValue;
+            if (charIndex < length) {
+              char ch = s.charAt(charIndex++);
+              byteValue = encode(pages, ch);
+              if (Character.isHighSurrogate(ch) && (charIndex < length) && Character.isLowSurrogate(s.charAt(charIndex))) {
+                // a supplementary character is replaced with a single replacement byte
+                charIndex += 1;
+              }
+            } else if (messageLength < 0L) {
+              // a 0 is added at the end of the SQL string for the computation of the SQL_ID
+              byteValue = 0x00;
+              messageLength = chunkStart + (wordIndex * 4) + byteIndex + 1;
+            } else {
+              // first padding byte, the rest of the chunk is 0x00
+              byteValue = 0x80;
+              padded = true;
+              word |= byteValue << (byteIndex * 8);
+              break;
+            }
+            word |= byteValue << (byteIndex * 8);
+          }
         }
+        switch (wordIndex) {
+          case 0:
+            x0 = word;
+            break;
+          case 1:
+            x1 = word;
+            break;
+          case 2:
+            x2 = word;
+            break;
+          case 3:
+            x3 = word;
+            break;
+          case 4:
+            x4 = word;
+            break;
+          case 5:
+            x5 = word;
+            break;
+          case 6:
+            x6 = word;
+            break;
+          case 7:
+            x7 = word;
+            break;
+          case 8:
+            x8 = word;
+            break;
+          case 9:
+            x9 = word;
+            break;
+          case 10:
+            x10 = word;
+            break;
+          case 11:
+            x11 = word;
+            break;
+          case 12:
+            x12 = word;
+            break;
+          case 13:
+            x13 = word;
+            break;
+          case 14:
+            x14 = word;
+            break;
+          case 15:
+            x15 = word;
+            break;
+        }
+      }
+
+      // the length has to fit into the last 8 bytes, after the first padding byte
+      if (padded && ((messageLength - chunkStart) < 56L)) {
+        long messageLengthBits = messageLength * 8L;
+        x14 = (int) messageLengthBits;
+        x15 = (int) (messageLengthBits >>> 32);
+        isLast = true;
       }
+      chunkStart += CHUNK_BYTES;
+
+      state.transform(x0, x1, x2, x3, x4, x5, x6, x7, x8, x9, x10, x11, x12, x13, x14, x15);
     }
-    return hasher.finish();
+
+    return state.binarySqlId();
   }
 
-  static long asciiMd5Hash(String s) {
+  private static int encode(byte[][] pages, char ch) {
+    return pages[ch >>> 8][ch & 0xFF] & 0xFF;
+  }
+
+  private static boolean hasHighSurrogate(CharSequence s, int index) {
+    return Character.isHighSurrogate(s.charAt(index))
+        || Character.isHighSurrogate(s.charAt(index + 1))
+        || Character.isHighSurrogate(s.charAt(index + 2))
+        || Character.isHighSurrogate(s.charAt(index + 3));
+  }
+
+  static long asciiMd5Hash(CharSequence s) {
 
     int a0 = 0x67452301; // A
     int b0 = 0xefcdab89; // B
@@ -120,23 +532,51 @@ final class MD5 {
       int x15;
 
       if (chunkIndex < fastLoopCount) {
-         x0 = fastWordAt(s,  0, chunkIndex);
-         x1 = fastWordAt(s,  1, chunkIndex);
-         x2 = fastWordAt(s,  2, chunkIndex);
-         x3 = fastWordAt(s,  3, chunkIndex);
-         x4 = fastWordAt(s,  4, chunkIndex);
-         x5 = fastWordAt(s,  5, chunkIndex);
-         x6 = fastWordAt(s,  6, chunkIndex);
-         x7 = fastWordAt(s,  7, chunkIndex);
-         x8 = fastWordAt(s,  8, chunkIndex);
-         x9 = fastWordAt(s,  9, chunkIndex);
-        x10 = fastWordAt(s, 10, chunkIndex);
-        x11 = fastWordAt(s, 11, chunkIndex);
-        x12 = fastWordAt(s, 12, chunkIndex);
-        x13 = fastWordAt(s, 13, chunkIndex);
-        x14 = fastWordAt(s, 14, chunkIndex);
-        x15 = fastWordAt(s, 15, chunkIndex);
+        // the upper 32 bits contain all the character bits, allows us to
+        // detect non-ASCII characters without reading the chunk twice
+        long  w0 = checkedWordAt(s,  0, chunkIndex);
+        long  w1 = checkedWordAt(s,  1, chunkIndex);
+        long  w2 = checkedWordAt(s,  2, chunkIndex);
+        long  w3 = checkedWordAt(s,  3, chunkIndex);
+        long  w4 = checkedWordAt(s,  4, chunkIndex);
+        long  w5 = checkedWordAt(s,  5, chunkIndex);
+        long  w6 = checkedWordAt(s,  6, chunkIndex);
+        long  w7 = checkedWordAt(s,  7, chunkIndex);
+        long  w8 = checkedWordAt(s,  8, chunkIndex);
+        long  w9 = checkedWordAt(s,  9, chunkIndex);
+        long w10 = checkedWordAt(s, 10, chunkIndex);
+        long w11 = checkedWordAt(s, 11, chunkIndex);
+        long w12 = checkedWordAt(s, 12, chunkIndex);
+        long w13 = checkedWordAt(s, 13, chunkIndex);
+        long w14 = checkedWordAt(s, 14, chunkIndex);
+        long w15 = checkedWordAt(s, 15, chunkIndex);
+        long characterBits = w0 | w1 | w2 | w3 | w4 | w5 | w6 | w7
+            | w8 | w9 | w10 | w11 | w12 | w13 | w14 | w15;
+        if ((characterBits & NON_ASCII_MASK) != 0L) {
+          // continue with the current state, the UTF-8 encoding of the previous chunks is identical
+          return nonAsciiMd5Hash(s, chunkIndex * CHUNK_BYTES, a0, b0, c0, d0);
+        }
+         x0 = (int)  w0;
+         x1 = (int)  w1;
+         x2 = (int)  w2;
+         x3 = (int)  w3;
+         x4 = (int)  w4;
+         x5 = (int)  w5;
+         x6 = (int)  w6;
+         x7 = (int)  w7;
+         x8 = (int)  w8;
+         x9 = (int)  w9;
+        x10 = (int) w10;
+        x11 = (int) w11;
+        x12 = (int) w12;
+        x13 = (int) w13;
+        x14 = (int) w14;
+        x15 = (int) w15;
       } else {
+        if ((chunkIndex == fastLoopCount) && !isAscii(s, chunkIndex * CHUNK_BYTES)) {
+          // continue with the current state, the UTF-8 encoding of the previous chunks is identical
+          return nonAsciiMd5Hash(s, chunkIndex * CHUNK_BYTES, a0, b0, c0, d0);
+        }
         boolean isLast = chunkIndex == (totalLoopCount - 1);
 
         int fullWords;
@@ -395,7 +835,7 @@ final class MD5 {
   /**
    * Quick access to a word in the input message, does not deal with padding.
    */
-  private static int fastWordAt(String s, int index, int chunckIndex) {
+  private static int fastWordAt(CharSequence s, int index, int chunckIndex) {
     int base = (chunckIndex * 64) + (4 * index);
     return s.charAt(base)
         | ((s.charAt(base + 1)) << 8)
@@ -403,10 +843,28 @@ final class MD5 {
         | ((s.charAt(base + 3)) << 24);
   }
 
+  /**
+   * Quick access to a word in the input message, does not deal with padding.
+   * The word is in the lower 32 bits, the upper 32 bits are the bitwise or of
+   * all the characters.
+   */
+  private static long checkedWordAt(CharSequence s, int index, int chunckIndex) {
+    int base = (chunckIndex * 64) + (4 * index);
+    char c0 = s.charAt(base);
+    char c1 = s.charAt(base + 1);
+    char c2 = s.charAt(base + 2);
+    char c3 = s.charAt(base + 3);
+    int word = c0
+        | (c1 << 8)
+        | (c2 << 16)
+        | (c3 << 24);
+    return ((long) (c0 | c1 | c2 | c3) << 32) | Integer.toUnsignedLong(word);
+  }
+
   /**
    * Slow access to a word in the input message, deals with padding.
    */
-  private static int slowWordAt(String s, int index, int chunkIndex, boolean finalBlock) {
+  private static int slowWordAt(CharSequence s, int index, int chunkIndex, boolean finalBlock) {
     int base = (chunkIndex * 64) + (4 * index);
     int b1 = byteValueAt(s, base + 0, finalBlock);
     int b2 = byteValueAt(s, base + 1, finalBlock);
@@ -418,7 +876,7 @@ final class MD5 {
         | (b4 << 24);
   }
 
-  private static int byteValueAt(String s, int index, boolean finalBlock) {
+  private static int byteValueAt(CharSequence s, int index, boolean finalBlock) {
     int inputLenght = s.length();
     if (index < inputLenght) {
       return s.charAt(index);
@@ -434,80 +892,305 @@ final class MD5 {
     return 0x00;
   }
 
-  private static boolean needsAdditionalChunk(String s) {
+  private static boolean needsAdditionalChunk(CharSequence s) {
     // FIXME mask
     int end = s.length() % 64;
     return end > (56 - 1 /* 0x00 byte */ - 1 /* first pad byte */);
   }
 
-  private static int getUtf8Length(String s) {
-    int length = 0;
-    for (int i = 0; i < s.length(); i++) {
-      char c = s.charAt(i);
-      if (!Character.isLowSurrogate(c)) {
-        if (c <= 0b1111111) {
-          length += 1;
-        } else if (c <= 0b11111_111111) {
-            length += 2;
-        } else if (c <= 0b1111_111111_111111) {
-          length += 3;
-        } else {
-          length += 4;
-        }
-      }
-
+  private static boolean isAscii(CharSequence s, int start) {
+    int characterBits = 0;
+    for (int i = start; i < s.length(); i++) {
+      characterBits |= s.charAt(i);
     }
-    return length;
+    return characterBits < 0b10000000;
   }
 
-  static final class Hasher {
+  /**
+   * The state of an MD5 computation that is updated one chunk at a time.
+   * <p>
+   * This is the only copy of the rounds for callers that assemble the words of
+   * a chunk themselves.
+   */
+  static class State {
 
-    static final int CHUNK_SIZE = 64;
-    static final int HASH_SIZE = 16;
+    private int a0;
+    private int b0;
+    private int c0;
+    private int d0;
+
+    State() {
+      this.resetState();
+    }
+
+    State(State original) {
+      this.a0 = original.a0;
+      this.b0 = original.b0;
+      this.c0 = original.c0;
+      this.d0 = original.d0;
+    }
+
+    final void resetState() {
+      this.a0 = 0x67452301; // A
+      this.b0 = 0xefcdab89; // B
+      this.c0 = 0x98badcfe; // C
+      this.d0 = 0x10325476; // D
+    }
+
+    final long binarySqlId() {
+      return (Integer.toUnsignedLong(this.c0) << 32) | Integer.toUnsignedLong(this.d0);
+    }
+
+    final void transform(int x0, int x1, int x2, int x3, int x4, int x5, int x6, int x7,
+                         int x8, int x9, int x10, int x11, int x12, int x13, int x14, int x15) {
+      int a = this.a0;
+      int b = this.b0;
+      int c = this.c0;
+      int d = this.d0;
+
+      /* Round 1 */
+      a = Integer.rotateLeft(a + ((b & c) | ((~b) & d)) + x0 + 0xd76aa478, S11) + b; /* 1 */
+      d = Integer.rotateLeft(d + ((a & b) | ((~a) & c)) + x1 + 0xe8c7b756, S12) + a; /* 2 */
+      c = Integer.rotateLeft(c + ((d & a) | ((~d) & b)) + x2 + 0x242070db, S13) + d; /* 3 */
+      b = Integer.rotateLeft(b + ((c & d) | ((~c) & a)) + x3 + 0xc1bdceee, S14) + c; /* 4 */
+      a = Integer.rotateLeft(a + ((b & c) | ((~b) & d)) + x4 + 0xf57c0faf, S11) + b; /* 5 */
+      d = Integer.rotateLeft(d + ((a & b) | ((~a) & c)) + x5 + 0x4787c62a, S12) + a; /* 6 */
+      c = Integer.rotateLeft(c + ((d & a) | ((~d) & b)) + x6 + 0xa8304613, S13) + d; /* 7 */
+      b = Integer.rotateLeft(b + ((c & d) | ((~c) & a)) + x7 + 0xfd469501, S14) + c; /* 8 */
+      a = Integer.rotateLeft(a + ((b & c) | ((~b) & d)) + x8 + 0x698098d8, S11) + b; /* 9 */
+      d = Integer.rotateLeft(d + ((a & b) | ((~a) & c)) + x9 + 0x8b44f7af, S12) + a; /* 10 */
+      c = Integer.rotateLeft(c + ((d & a) | ((~d) & b)) + x10 + 0xffff5bb1, S13) + d; /* 11 */
+      b = Integer.rotateLeft(b + ((c & d) | ((~c) & a)) + x11 + 0x895cd7be, S14) + c; /* 12 */
+      a = Integer.rotateLeft(a + ((b & c) | ((~b) & d)) + x12 + 0x6b901122, S11) + b; /* 13 */
+      d = Integer.rotateLeft(d + ((a & b) | ((~a) & c)) + x13 + 0xfd987193, S12) + a; /* 14 */
+      c = Integer.rotateLeft(c + ((d & a) | ((~d) & b)) + x14 + 0xa679438e, S13) + d; /* 15 */
+      b = Integer.rotateLeft(b + ((c & d) | ((~c) & a)) + x15 + 0x49b40821, S14) + c; /* 16 */
+
+      /* Round 2 */
+      a = Integer.rotateLeft(a + ((b & d) | (c & (~d))) + x1 + 0xf61e2562, S21) + b; /* 17 */
+      d = Integer.rotateLeft(d + ((a & c) | (b & (~c))) + x6 + 0xc040b340, S22) + a; /* 18 */
+      c = Integer.rotateLeft(c + ((d & b) | (a & (~b))) + x11 + 0x265e5a51, S23) + d; /* 19 */
+      b = Integer.rotateLeft(b + ((c & a) | (d & (~a))) + x0 + 0xe9b6c7aa, S24) + c; /* 20 */
+      a = Integer.rotateLeft(a + ((b & d) | (c & (~d))) + x5 + 0xd62f105d, S21) + b; /* 21 */
+      d = Integer.rotateLeft(d + ((a & c) | (b & (~c))) + x10 + 0x2441453, S22) + a; /* 22 */
+      c = Integer.rotateLeft(c + ((d & b) | (a & (~b))) + x15 + 0xd8a1e681, S23) + d; /* 23 */
+      b = Integer.rotateLeft(b + ((c & a) | (d & (~a))) + x4 + 0xe7d3fbc8, S24) + c; /* 24 */
+      a = Integer.rotateLeft(a + ((b & d) | (c & (~d))) + x9 + 0x21e1cde6, S21) + b; /* 25 */
+      d = Integer.rotateLeft(d + ((a & c) | (b & (~c))) + x14 + 0xc33707d6, S22) + a; /* 26 */
+      c = Integer.rotateLeft(c + ((d & b) | (a & (~b))) + x3 + 0xf4d50d87, S23) + d; /* 27 */
+      b = Integer.rotateLeft(b + ((c & a) | (d & (~a))) + x8 + 0x455a14ed, S24) + c; /* 28 */
+      a = Integer.rotateLeft(a + ((b & d) | (c & (~d))) + x13 + 0xa9e3e905, S21) + b; /* 29 */
+      d = Integer.rotateLeft(d + ((a & c) | (b & (~c))) + x2 + 0xfcefa3f8, S22) + a; /* 30 */
+      c = Integer.rotateLeft(c + ((d & b) | (a & (~b))) + x7 + 0x676f02d9, S23) + d; /* 31 */
+      b = Integer.rotateLeft(b + ((c & a) | (d & (~a))) + x12 + 0x8d2a4c8a, S24) + c; /* 32 */
+
+      /* Round 3 */
+      a = Integer.rotateLeft(a + ((b ^ c) ^ d) + x5 + 0xfffa3942, S31) + b; /* 33 */
+      d = Integer.rotateLeft(d + ((a ^ b) ^ c) + x8 + 0x8771f681, S32) + a; /* 34 */
+      c = Integer.rotateLeft(c + ((d ^ a) ^ b) + x11 + 0x6d9d6122, S33) + d; /* 35 */
+      b = Integer.rotateLeft(b + ((c ^ d) ^ a) + x14 + 0xfde5380c, S34) + c; /* 36 */
+      a = Integer.rotateLeft(a + ((b ^ c) ^ d) + x1 + 0xa4beea44, S31) + b; /* 37 */
+      d = Integer.rotateLeft(d + ((a ^ b) ^ c) + x4 + 0x4bdecfa9, S32) + a; /* 38 */
+      c = Integer.rotateLeft(c + ((d ^ a) ^ b) + x7 + 0xf6bb4b60, S33) + d; /* 39 */
+      b = Integer.rotateLeft(b + ((c ^ d) ^ a) + x10 + 0xbebfbc70, S34) + c; /* 40 */
+      a = Integer.rotateLeft(a + ((b ^ c) ^ d) + x13 + 0x289b7ec6, S31) + b; /* 41 */
+      d = Integer.rotateLeft(d + ((a ^ b) ^ c) + x0 + 0xeaa127fa, S32) + a; /* 42 */
+      c = Integer.rotateLeft(c + ((d ^ a) ^ b) + x3 + 0xd4ef3085, S33) + d; /* 43 */
+      b = Integer.rotateLeft(b + ((c ^ d) ^ a) + x6 + 0x4881d05, S34) + c; /* 44 */
+      a = Integer.rotateLeft(a + ((b ^ c) ^ d) + x9 + 0xd9d4d039, S31) + b; /* 45 */
+      d = Integer.rotateLeft(d + ((a ^ b) ^ c) + x12 + 0xe6db99e5, S32) + a; /* 46 */
+      c = Integer.rotateLeft(c + ((d ^ a) ^ b) + x15 + 0x1fa27cf8, S33) + d; /* 47 */
+      b = Integer.rotateLeft(b + ((c ^ d) ^ a) + x2 + 0xc4ac5665, S34) + c; /* 48 */
+
+      /* Round 4 */
+      a = Integer.rotateLeft(a + (c ^ (b | (~d))) + x0 + 0xf4292244, S41) + b; /* 49 */
+      d = Integer.rotateLeft(d + (b ^ (a | (~c))) + x7 + 0x432aff97, S42) + a; /* 50 */
+      c = Integer.rotateLeft(c + (a ^ (d | (~b))) + x14 + 0xab9423a7, S43) + d; /* 51 */
+      b = Integer.rotateLeft(b + (d ^ (c | (~a))) + x5 + 0xfc93a039, S44) + c; /* 52 */
+      a = Integer.rotateLeft(a + (c ^ (b | (~d))) + x12 + 0x655b59c3, S41) + b; /* 53 */
+      d = Integer.rotateLeft(d + (b ^ (a | (~c))) + x3 + 0x8f0ccc92, S42) + a; /* 54 */
+      c = Integer.rotateLeft(c + (a ^ (d | (~b))) + x10 + 0xffeff47d, S43) + d; /* 55 */
+      b = Integer.rotateLeft(b + (d ^ (c | (~a))) + x1 + 0x85845dd1, S44) + c; /* 56 */
+      a = Integer.rotateLeft(a + (c ^ (b | (~d))) + x8 + 0x6fa87e4f, S41) + b; /* 57 */
+      d = Integer.rotateLeft(d + (b ^ (a | (~c))) + x15 + 0xfe2ce6e0, S42) + a; /* 58 */
+      c = Integer.rotateLeft(c + (a ^ (d | (~b))) + x6 + 0xa3014314, S43) + d; /* 59 */
+      b = Integer.rotateLeft(b + (d ^ (c | (~a))) + x13 + 0x4e0811a1, S44) + c; /* 60 */
+      a = Integer.rotateLeft(a + (c ^ (b | (~d))) + x4 + 0xf7537e82, S41) + b; /* 61 */
+      d = Integer.rotateLeft(d + (b ^ (a | (~c))) + x11 + 0xbd3af235, S42) + a; /* 62 */
+      c = Integer.rotateLeft(c + (a ^ (d | (~b))) + x2 + 0x2ad7d2bb, S43) + d; /* 63 */
+      b = Integer.rotateLeft(b + (d ^ (c | (~a))) + x9 + 0xeb86d391, S44) + c; /* 64 */
+
+      this.a0 += a;
+      this.b0 += b;
+      this.c0 += c;
+      this.d0 += d;
+    }
+
+  }
+
+  /**
+   * Incremental MD5 hashing of bytes.
+   * <p>
+   * Whole chunks are read directly from the input, only incomplete chunks are
+   * buffered.
+   */
+  static final class Hasher extends State {
 
-    private final MessageDigest messageDigest;
     private final byte[] buffer;
+
     private int position;
 
+    private long byteCount;
+
     Hasher() {
-      try {
-        this.messageDigest = MessageDigest.getInstance("MD5");
-      } catch (NoSuchAlgorithmException e) {
-        throw new IllegalStateException("MD5 not supported", e);
-      }
-      this.buffer = new byte[CHUNK_SIZE];
+      this.buffer = new byte[CHUNK_BYTES];
+      this.reset();
+    }
+
+    /**
+     * Creates a copy of the state of a hasher, the copy can be updated
+     * independently of the original.
+     */
+    Hasher(Hasher original) {
+      super(original);
+      this.buffer = original.buffer.clone();
+      this.position = original.position;
+      this.byteCount = original.byteCount;
+    }
+
+    void reset() {
+      this.resetState();
       this.position = 0;
+      this.byteCount = 0L;
     }
 
     void put(byte b) {
       this.buffer[this.position++] = b;
-      if (this.position == CHUNK_SIZE) {
-        this.messageDigest.update(this.buffer);
+      this.byteCount += 1L;
+      if (this.position == CHUNK_BYTES) {
+        this.transform(this.buffer, 0);
         this.position = 0;
       }
     }
 
-    long finish() {
-      // append a trailing 0x00 byte
-      this.put((byte) 0x00);
-      if (this.position != 0) {
-        this.messageDigest.update(this.buffer, 0, this.position);
+    void update(byte[] input, int offset, int length) {
+      if ((offset < 0) || (length < 0) || (offset > (input.length - length))) {
+        throw new IndexOutOfBoundsException("offset: " + offset + " length: " + length + " array length: " + input.length);
+      }
+      this.byteCount += length;
+      int index = offset;
+      int end = offset + length;
+      if (this.position > 0) {
+        // fill the partial chunk first
+        int toCopy = Math.min(CHUNK_BYTES - this.position, length);
+        System.arraycopy(input, index, this.buffer, this.position, toCopy);
+        this.position += toCopy;
+        index += toCopy;
+        if (this.position < CHUNK_BYTES) {
+          return;
+        }
+        this.transform(this.buffer, 0);
+        this.position = 0;
+      }
+      // hash whole chunks directly from the input without copying
+      while ((end - index) >= CHUNK_BYTES) {
+        this.transform(input, index);
+        index += CHUNK_BYTES;
+      }
+      int remaining = end - index;
+      if (remaining > 0) {
+        System.arraycopy(input, index, this.buffer, 0, remaining);
+        this.position = remaining;
+      }
+    }
+
+    /**
+     * Hashes the bytes between the position and the limit of the buffer.
+     * The position, limit and mark of the buffer are not modified.
+     */
+    void update(ByteBuffer input) {
+      if (input.hasArray()) {
+        this.update(input.array(), input.arrayOffset() + input.position(), input.remaining());
+        return;
       }
-      int resultSize;
-      try {
-        // reuse the buffer already allocated
-        resultSize = this.messageDigest.digest(this.buffer, 0, HASH_SIZE);
-      } catch (DigestException e) {
-        throw new IllegalStateException("MD5 could not be computed", e);
+      int index = input.position();
+      int end = input.limit();
+      this.byteCount += end - index;
+      while ((this.position > 0) && (index < end)) {
+        // fill the partial chunk first
+        this.buffer[this.position++] = input.get(index++);
+        if (this.position == CHUNK_BYTES) {
+          this.transform(this.buffer, 0);
+          this.position = 0;
+        }
+      }
+      // hash whole chunks directly from the input without copying
+      boolean littleEndian = input.order() == ByteOrder.LITTLE_ENDIAN;
+      while ((end - index) >= CHUNK_BYTES) {
+        this.transform(input, index, littleEndian);
+        index += CHUNK_BYTES;
       }
-      if (resultSize != HASH_SIZE) {
-        throw new IllegalStateException("Unexpected result size: " +resultSize);
+      while (index < end) {
+        this.buffer[this.position++] = input.get(index++);
       }
+    }
 
-      // bytes 0 - 7 from the hash are not used, only the last 64bits are used
-      // therefore we can use a 64bit long
-      return mostSignificantLong(this.buffer);
+    long finish() {
+      // a 0 is added at the end of the SQL string for the computation of the SQL_ID
+      this.put((byte) 0x00);
+      long messageLengthBits = this.byteCount * 8L;
+
+      // first padding byte
+      this.buffer[this.position++] = (byte) 0x80;
+      if (this.position > 56) {
+        // no space for the length, an additional chunk is needed
+        Arrays.fill(this.buffer, this.position, CHUNK_BYTES, (byte) 0x00);
+        this.transform(this.buffer, 0);
+        this.position = 0;
+      }
+      Arrays.fill(this.buffer, this.position, 56, (byte) 0x00);
+      this.transform(
+          wordAt(this.buffer, 0), wordAt(this.buffer, 4), wordAt(this.buffer, 8), wordAt(this.buffer, 12),
+          wordAt(this.buffer, 16), wordAt(this.buffer, 20), wordAt(this.buffer, 24), wordAt(this.buffer, 28),
+          wordAt(this.buffer, 32), wordAt(this.buffer, 36), wordAt(this.buffer, 40), wordAt(this.buffer, 44),
+          wordAt(this.buffer, 48), wordAt(this.buffer, 52), (int) messageLengthBits, (int) (messageLengthBits >>> 32));
+      this.position = 0;
+
+      return this.binarySqlId();
+    }
+
+    private void transform(byte[] input, int offset) {
+      this.transform(
+          wordAt(input, offset),      wordAt(input, offset + 4),  wordAt(input, offset + 8),  wordAt(input, offset + 12),
+          wordAt(input, offset + 16), wordAt(input, offset + 20), wordAt(input, offset + 24), wordAt(input, offset + 28),
+          wordAt(input, offset + 32), wordAt(input, offset + 36), wordAt(input, offset + 40), wordAt(input, offset + 44),
+          wordAt(input, offset + 48), wordAt(input, offset + 52), wordAt(input, offset + 56), wordAt(input, offset + 60));
+    }
+
+    private void transform(ByteBuffer input, int offset, boolean littleEndian) {
+      this.transform(
+          wordAt(input, offset, littleEndian),      wordAt(input, offset + 4, littleEndian),
+          wordAt(input, offset + 8, littleEndian),  wordAt(input, offset + 12, littleEndian),
+          wordAt(input, offset + 16, littleEndian), wordAt(input, offset + 20, littleEndian),
+          wordAt(input, offset + 24, littleEndian), wordAt(input, offset + 28, littleEndian),
+          wordAt(input, offset + 32, littleEndian), wordAt(input, offset + 36, littleEndian),
+          wordAt(input, offset + 40, littleEndian), wordAt(input, offset + 44, littleEndian),
+          wordAt(input, offset + 48, littleEndian), wordAt(input, offset + 52, littleEndian),
+          wordAt(input, offset + 56, littleEndian), wordAt(input, offset + 60, littleEndian));
     }
+
+    private static int wordAt(byte[] input, int offset) {
+      return (input[offset] & 0xFF)
+          | ((input[offset + 1] & 0xFF) << 8)
+          | ((input[offset + 2] & 0xFF) << 16)
+          | ((input[offset + 3] & 0xFF) << 24);
+    }
+
+    private static int wordAt(ByteBuffer input, int offset, boolean littleEndian) {
+      int word = input.getInt(offset);
+      return littleEndian ? word : Integer.reverseBytes(word);
+    }
+
   }
 
   static long mostSignificantLong(byte[] b) {
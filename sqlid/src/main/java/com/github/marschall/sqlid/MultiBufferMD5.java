@@ -0,0 +1,27 @@
+package com.github.marschall.sqlid;
+
+import java.util.List;
+
+/**
+ * Computes the MD5 hashes of many messages.
+ * <p>
+ * This is the Java 8 version which hashes one message after the other. The
+ * Java 17 version can hash several messages at once using the Vector API.
+ */
+final class MultiBufferMD5 {
+
+  private MultiBufferMD5() {
+    throw new AssertionError("not instantiable");
+  }
+
+  static void computeBinarySqlIds(List<? extends CharSequence> nativeSqls, long[] binarySqlIds, int from, int to) {
+    for (int i = from; i < to; i++) {
+      CharSequence nativeSql = nativeSqls.get(i);
+      if (nativeSql == null) {
+        throw new NullPointerException("nativeSql at index: " + i);
+      }
+      binarySqlIds[i] = MD5.getBinarySqlId(nativeSql);
+    }
+  }
+
+}
@@ -0,0 +1,32 @@
+package com.github.marschall.sqlid;
+
+/**
+ * How {@link SqlIdLookup} translates JDBC query strings to native query
+ * strings.
+ *
+ * @see SqlIdLookup#SqlIdLookup(javax.sql.DataSource, Cache, NativeSqlMode)
+ */
+public enum NativeSqlMode {
+
+  /**
+   * Uses {@link java.sql.Connection#nativeSQL(String)}, borrows a connection
+   * on every cache miss.
+   */
+  DRIVER,
+
+  /**
+   * Uses {@link NativeSqlTranslator}, never borrows a connection.
+   */
+  TRANSLATOR,
+
+  /**
+   * Uses {@link NativeSqlTranslator} and additionally
+   * {@link java.sql.Connection#nativeSQL(String)} for a sample of the cache
+   * misses. If the results differ the result of the driver is used. If
+   * {@link NativeSqlTranslator} fails the driver is used as well.
+   *
+   * @see SqlIdLookup#getTranslationMismatchCount()
+   */
+  VERIFIED_TRANSLATOR;
+
+}
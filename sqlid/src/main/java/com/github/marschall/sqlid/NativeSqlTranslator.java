@@ -0,0 +1,544 @@
+package com.github.marschall.sqlid;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Translates JDBC query strings to native Oracle query strings the same way
+ * the Oracle JDBC driver does in {@link Connection#nativeSQL(String)}, but
+ * without a connection.
+ * <p>
+ * The following translations are performed:
+ * <ul>
+ *  <li>{@code ?} place holders are replaced with {@code :1 }, {@code :2 }, &hellip;</li>
+ *  <li>the JDBC escapes {@code {call}}, {@code {? = call}}, {@code {d}},
+ *  {@code {t}}, {@code {ts}}, {@code {fn}}, {@code {escape}} and
+ *  {@code {oj}} are replaced with their Oracle equivalents</li>
+ *  <li>leading spaces are removed</li>
+ * </ul>
+ * String literals, including alternative quoting literals, quoted
+ * identifiers and comments are copied unchanged.
+ *
+ * <h2>Implementation Notes</h2>
+ * The translation follows the driver including some of its quirks, eg. only
+ * spaces and no other whitespace are removed at the start. For malformed
+ * query strings, eg. unbalanced escapes, the result may differ from the
+ * driver.
+ *
+ * @see <a href="https://docs.oracle.com/en/database/oracle/oracle-database/21/jjdbc/JDBC-reference-information.html#GUID-6C2A1B43-7A22-4E6A-B5C3-F1E3AB1C4CF4">JDBC Escape Syntax to Oracle SQL Syntax Example</a>
+ */
+public final class NativeSqlTranslator {
+
+  private static final int TOP_LEVEL = 0;
+
+  /**
+   * Inside an escape, ends at the closing }.
+   */
+  private static final int ESCAPE = 1;
+
+  /**
+   * The first argument of {fn locate()}, ends at the first ,.
+   */
+  private static final int LOCATE_FIRST_ARGUMENT = 2;
+
+  /**
+   * The remaining arguments of {fn locate()}, ends at the closing ).
+   */
+  private static final int LOCATE_REMAINING_ARGUMENTS = 3;
+
+  /**
+   * Functions that are only renamed, the arguments are copied.
+   */
+  private static final Map<String, String> RENAMED_FUNCTIONS;
+
+  /**
+   * Functions where the name and opening parenthesis are replaced with a
+   * prefix, the arguments are copied.
+   */
+  private static final Map<String, String> PREFIXED_FUNCTIONS;
+
+  static {
+    RENAMED_FUNCTIONS = new HashMap<>();
+    // numeric functions
+    for (String function : new String[] {"ABS", "ACOS", "ASIN", "ATAN", "ATAN2", "COS", "EXP",
+        "FLOOR", "MOD", "POWER", "ROUND", "SIGN", "SIN", "SQRT", "TAN"}) {
+      RENAMED_FUNCTIONS.put(function, function);
+    }
+    RENAMED_FUNCTIONS.put("CEILING", "CEIL");
+    RENAMED_FUNCTIONS.put("LOG", "LN");
+    RENAMED_FUNCTIONS.put("TRUNCATE", "TRUNC");
+    // string functions
+    for (String function : new String[] {"ASCII", "CONCAT", "LENGTH", "LTRIM", "REPLACE",
+        "RTRIM", "SOUNDEX"}) {
+      RENAMED_FUNCTIONS.put(function, function);
+    }
+    RENAMED_FUNCTIONS.put("CHAR", "CHR");
+    RENAMED_FUNCTIONS.put("CHAR_LENGTH", "LENGTH");
+    RENAMED_FUNCTIONS.put("CHARACTER_LENGTH", "LENGTH");
+    RENAMED_FUNCTIONS.put("LCASE", "LOWER");
+    RENAMED_FUNCTIONS.put("OCTET_LENGTH", "LENGTHB");
+    RENAMED_FUNCTIONS.put("SUBSTRING", "SUBSTR");
+    RENAMED_FUNCTIONS.put("UCASE", "UPPER");
+    // time and date functions
+    RENAMED_FUNCTIONS.put("EXTRACT", "EXTRACT");
+    // system functions
+    RENAMED_FUNCTIONS.put("IFNULL", "NVL");
+
+    PREFIXED_FUNCTIONS = new HashMap<>();
+    PREFIXED_FUNCTIONS.put("LOG10", "LOG ( 10, ");
+    PREFIXED_FUNCTIONS.put("PI", "( 3.141592653589793238462643383279502884197169399375 ");
+    PREFIXED_FUNCTIONS.put("CURDATE", "(CURRENT_DATE");
+    PREFIXED_FUNCTIONS.put("CURRENT_DATE", "(CURRENT_DATE");
+    PREFIXED_FUNCTIONS.put("CURTIME", "(CURRENT_TIMESTAMP");
+    PREFIXED_FUNCTIONS.put("CURRENT_TIMESTAMP", "(CURRENT_TIMESTAMP");
+    PREFIXED_FUNCTIONS.put("NOW", "(CURRENT_TIMESTAMP");
+    PREFIXED_FUNCTIONS.put("DAYOFMONTH", "EXTRACT ( DAY FROM ");
+    PREFIXED_FUNCTIONS.put("HOUR", "EXTRACT ( HOUR FROM ");
+    PREFIXED_FUNCTIONS.put("MINUTE", "EXTRACT ( MINUTE FROM ");
+    PREFIXED_FUNCTIONS.put("MONTH", "EXTRACT ( MONTH FROM ");
+    PREFIXED_FUNCTIONS.put("SECOND", "EXTRACT ( SECOND FROM ");
+    PREFIXED_FUNCTIONS.put("YEAR", "EXTRACT ( YEAR FROM ");
+    PREFIXED_FUNCTIONS.put("USER", "(USER");
+  }
+
+  private final String sql;
+
+  private final int length;
+
+  private int position;
+
+  private int parameterIndex;
+
+  /**
+   * Whether call escapes translate to a PL/SQL block or are already inside one.
+   */
+  private boolean plsql;
+
+  private NativeSqlTranslator(String sql) {
+    this.sql = sql;
+    this.length = sql.length();
+    this.parameterIndex = 1;
+  }
+
+  /**
+   * Translates a JDBC query string to a native Oracle query string.
+   *
+   * @param jdbcQueryString the JDBC query string with ? as place holders,
+   *                        not {@code null}
+   * @return the native Oracle query string with :1, :2, &hellip; as place holders
+   * @throws SQLException if {@code jdbcQueryString} contains an unsupported or malformed escape,
+   *                      same as {@link Connection#nativeSQL(String)}
+   */
+  public static String toNativeSql(String jdbcQueryString) throws SQLException {
+    Objects.requireNonNull(jdbcQueryString, "jdbcQueryString");
+    return new NativeSqlTranslator(jdbcQueryString).translate();
+  }
+
+  private String translate() throws SQLException {
+    while ((this.position < this.length) && (this.sql.charAt(this.position) == ' ')) {
+      this.position += 1;
+    }
+    if (!this.requiresTranslation()) {
+      // fast path, avoid copying
+      return this.position == 0 ? this.sql : this.sql.substring(this.position);
+    }
+    this.plsql = this.startsWithBegin();
+    StringBuilder nativeSql = new StringBuilder(this.length + 16);
+    this.parse(nativeSql, TOP_LEVEL);
+    return nativeSql.toString();
+  }
+
+  private boolean requiresTranslation() {
+    for (int i = this.position; i < this.length; i++) {
+      char c = this.sql.charAt(i);
+      if ((c == '?') || (c == '{')) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Whether the first keyword, ignoring whitespace and comments, is BEGIN.
+   */
+  private boolean startsWithBegin() {
+    int i = this.position;
+    while (i < this.length) {
+      char c = this.sql.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i += 1;
+      } else if (this.sql.startsWith("--", i)) {
+        i = this.endOfLineComment(i);
+      } else if (this.sql.startsWith("/*", i)) {
+        i = this.endOfBlockComment(i);
+      } else {
+        break;
+      }
+    }
+    int keywordEnd = i;
+    while ((keywordEnd < this.length) && isIdentifierPart(this.sql.charAt(keywordEnd))) {
+      keywordEnd += 1;
+    }
+    return this.sql.substring(i, keywordEnd).equalsIgnoreCase("BEGIN");
+  }
+
+  private void parse(StringBuilder out, int mode) throws SQLException {
+    int depth = 0;
+    while (this.position < this.length) {
+      char c = this.sql.charAt(this.position);
+      switch (c) {
+        case '\'':
+          this.copyUntil(out, this.endOfQuoted(this.position, '\''));
+          break;
+        case '"':
+          this.copyUntil(out, this.endOfQuoted(this.position, '"'));
+          break;
+        case 'q':
+        case 'Q':
+          if (this.isAlternativeQuotingLiteral()) {
+            this.copyUntil(out, this.endOfAlternativeQuotingLiteral());
+          } else {
+            this.copyLiteralPrefix(out, mode);
+          }
+          break;
+        case 'n':
+        case 'N':
+          this.copyLiteralPrefix(out, mode);
+          break;
+        case '-':
+          if (this.sql.startsWith("--", this.position)) {
+            this.copyUntil(out, this.endOfLineComment(this.position));
+          } else {
+            out.append(c);
+            this.position += 1;
+          }
+          break;
+        case '/':
+          if (this.sql.startsWith("/*", this.position)) {
+            this.copyUntil(out, this.endOfBlockComment(this.position));
+          } else {
+            out.append(c);
+            this.position += 1;
+          }
+          break;
+        case '?':
+          this.appendParameter(out);
+          this.position += 1;
+          break;
+        case '{':
+          this.position += 1;
+          this.parseEscape(out);
+          break;
+        case '}':
+          if (mode == TOP_LEVEL) {
+            out.append(c);
+            this.position += 1;
+          } else if (mode == ESCAPE) {
+            this.position += 1;
+            return;
+          } else {
+            // unbalanced parenthesis in {fn locate()}, let the enclosing escape end
+            return;
+          }
+          break;
+        case '(':
+          depth += 1;
+          out.append(c);
+          this.position += 1;
+          break;
+        case ')':
+          if ((depth == 0) && (mode == LOCATE_REMAINING_ARGUMENTS)) {
+            this.position += 1;
+            return;
+          }
+          if ((depth == 0) && (mode == LOCATE_FIRST_ARGUMENT)) {
+            return;
+          }
+          depth -= 1;
+          out.append(c);
+          this.position += 1;
+          break;
+        case ',':
+          if ((depth == 0) && (mode == LOCATE_FIRST_ARGUMENT)) {
+            this.position += 1;
+            return;
+          }
+          if ((depth == 0) && (mode == LOCATE_REMAINING_ARGUMENTS)) {
+            // the driver drops the separators of the remaining arguments
+            this.position += 1;
+            break;
+          }
+          out.append(c);
+          this.position += 1;
+          break;
+        default:
+          out.append(c);
+          this.position += 1;
+          break;
+      }
+    }
+  }
+
+  /**
+   * Copies a n or q that may start a literal like n'text'. Same as the
+   * driver, outside of escapes a ? directly following a n or q that is not
+   * part of an identifier or bind name is copied as is and a { is copied but
+   * still starts an escape.
+   */
+  private void copyLiteralPrefix(StringBuilder out, int mode) throws SQLException {
+    int next = this.position + 1;
+    if ((mode == TOP_LEVEL) && (next < this.length) && this.startsWord()) {
+      char nextChar = this.sql.charAt(next);
+      if (nextChar == '?') {
+        this.copyUntil(out, next + 1);
+        return;
+      } else if (nextChar == '{') {
+        this.copyUntil(out, next + 1);
+        this.parseEscape(out);
+        return;
+      }
+    }
+    this.copyUntil(out, next);
+  }
+
+  private void appendParameter(StringBuilder out) {
+    out.append(':').append(this.parameterIndex).append(' ');
+    this.parameterIndex += 1;
+  }
+
+  private void copyUntil(StringBuilder out, int end) {
+    out.append(this.sql, this.position, end);
+    this.position = end;
+  }
+
+  /**
+   * Returns the index after the closing quote, or the end if not closed.
+   */
+  private int endOfQuoted(int start, char quote) {
+    int end = this.sql.indexOf(quote, start + 1);
+    return end == -1 ? this.length : end + 1;
+  }
+
+  private int endOfLineComment(int start) {
+    int end = this.sql.indexOf('\n', start + 2);
+    return end == -1 ? this.length : end + 1;
+  }
+
+  private int endOfBlockComment(int start) {
+    int end = this.sql.indexOf("*/", start + 2);
+    return end == -1 ? this.length : end + 2;
+  }
+
+  /**
+   * Whether the current position starts an alternative quoting literal like q'[it's]'.
+   */
+  private boolean isAlternativeQuotingLiteral() {
+    if (((this.position + 2) >= this.length) || (this.sql.charAt(this.position + 1) != '\'')) {
+      return false;
+    }
+    // nq'[it's]' or aq'[it's]' are not treated as alternative quoting literals
+    return (this.position == 0) || !isIdentifierPart(this.sql.charAt(this.position - 1));
+  }
+
+  private int endOfAlternativeQuotingLiteral() {
+    char openingDelimiter = this.sql.charAt(this.position + 2);
+    char closingDelimiter;
+    switch (openingDelimiter) {
+      case '[':
+        closingDelimiter = ']';
+        break;
+      case '{':
+        closingDelimiter = '}';
+        break;
+      case '(':
+        closingDelimiter = ')';
+        break;
+      case '<':
+        closingDelimiter = '>';
+        break;
+      default:
+        closingDelimiter = openingDelimiter;
+        break;
+    }
+    int i = this.position + 3;
+    while (i < (this.length - 1)) {
+      if ((this.sql.charAt(i) == closingDelimiter) && (this.sql.charAt(i + 1) == '\'')) {
+        return i + 2;
+      }
+      i += 1;
+    }
+    return this.length;
+  }
+
+  /**
+   * Parses an escape, the current position is after the opening {.
+   */
+  private void parseEscape(StringBuilder out) throws SQLException {
+    this.skipWhitespace();
+    if (this.position == this.length) {
+      return;
+    }
+    if (this.sql.charAt(this.position) == '?') {
+      this.position += 1;
+      this.parseCallWithReturnValue(out);
+      return;
+    }
+    int keywordStart = this.position;
+    while ((this.position < this.length) && isIdentifierPart(this.sql.charAt(this.position))) {
+      this.position += 1;
+    }
+    String keyword = this.sql.substring(keywordStart, this.position).toLowerCase(Locale.ROOT);
+    switch (keyword) {
+      case "call":
+        this.parseCall(out);
+        break;
+      case "d":
+        this.parseEscapeBody(out, "TO_DATE (", ", 'YYYY-MM-DD')");
+        break;
+      case "t":
+        this.parseEscapeBody(out, "TO_DATE('1-JAN-1970 '||TO_CHAR(TO_DATE(", ",'HH24:MI:SS'),'HH24:MI:SS'),'DD-MON-YYYY HH24:MI:SS')");
+        break;
+      case "ts":
+        this.parseEscapeBody(out, "TO_TIMESTAMP (", ", 'YYYY-MM-DD HH24:MI:SS.FF')");
+        break;
+      case "escape":
+        this.parseEscapeBody(out, "ESCAPE ", "");
+        break;
+      case "oj":
+        this.parseEscapeBody(out, " ( ", " ) ");
+        break;
+      case "fn":
+        this.parseFunction(out);
+        break;
+      default:
+        throw this.unsupportedToken(Integer.toString(keywordStart + 1));
+    }
+  }
+
+  private void parseEscapeBody(StringBuilder out, String prefix, String suffix) throws SQLException {
+    out.append(prefix);
+    this.skipSpaces();
+    this.parse(out, ESCAPE);
+    out.append(suffix);
+  }
+
+  private void parseCall(StringBuilder out) throws SQLException {
+    if (this.plsql) {
+      this.parseEscapeBody(out, "", "");
+    } else {
+      this.plsql = true;
+      this.parseEscapeBody(out, "BEGIN ", "; END;");
+    }
+  }
+
+  /**
+   * Parses {? = call}, the current position is after the ?.
+   */
+  private void parseCallWithReturnValue(StringBuilder out) throws SQLException {
+    this.skipSpaces();
+    if ((this.position == this.length) || (this.sql.charAt(this.position) != '=')) {
+      throw this.malformed("Expecting \"=\"");
+    }
+    this.position += 1;
+    this.skipSpaces();
+    // the driver only accepts lower case
+    if (!this.sql.startsWith("call", this.position)) {
+      throw this.malformed("Expecting \"call\"");
+    }
+    this.position += 4;
+    StringBuilder returnValue = new StringBuilder();
+    this.appendParameter(returnValue);
+    returnValue.append(":= ");
+    if (this.plsql) {
+      this.parseEscapeBody(out, returnValue.toString(), "");
+    } else {
+      this.plsql = true;
+      this.parseEscapeBody(out, "BEGIN " + returnValue, "; END;");
+    }
+  }
+
+  /**
+   * Parses {fn}, the current position is after fn.
+   */
+  private void parseFunction(StringBuilder out) throws SQLException {
+    this.skipWhitespace();
+    int nameStart = this.position;
+    while ((this.position < this.length) && isIdentifierPart(this.sql.charAt(this.position))) {
+      this.position += 1;
+    }
+    String name = this.sql.substring(nameStart, this.position).toUpperCase(Locale.ROOT);
+    String renamed = RENAMED_FUNCTIONS.get(name);
+    if (renamed != null) {
+      this.parseEscapeBody(out, renamed, "");
+      return;
+    }
+    String prefix = PREFIXED_FUNCTIONS.get(name);
+    if (prefix != null) {
+      this.skipOpeningParenthesis();
+      this.skipSpaces();
+      out.append(prefix);
+      this.parse(out, ESCAPE);
+      return;
+    }
+    if (name.equals("LOCATE")) {
+      this.skipOpeningParenthesis();
+      // LOCATE(search, string, start) -> INSTR(string start, search)
+      StringBuilder search = new StringBuilder();
+      this.parse(search, LOCATE_FIRST_ARGUMENT);
+      StringBuilder remaining = new StringBuilder();
+      this.parse(remaining, LOCATE_REMAINING_ARGUMENTS);
+      out.append("INSTR(").append(remaining).append(',').append(search).append(')');
+      this.parse(out, ESCAPE);
+      return;
+    }
+    throw this.unsupportedToken(name);
+  }
+
+  private void skipOpeningParenthesis() throws SQLException {
+    this.skipSpaces();
+    if ((this.position == this.length) || (this.sql.charAt(this.position) != '(')) {
+      throw this.malformed("Expecting \"(\"");
+    }
+    this.position += 1;
+  }
+
+  /**
+   * Skips spaces but no other whitespace, same as the driver.
+   */
+  private void skipSpaces() {
+    while ((this.position < this.length) && (this.sql.charAt(this.position) == ' ')) {
+      this.position += 1;
+    }
+  }
+
+  private void skipWhitespace() {
+    while ((this.position < this.length) && Character.isWhitespace(this.sql.charAt(this.position))) {
+      this.position += 1;
+    }
+  }
+
+  private boolean startsWord() {
+    if (this.position == 0) {
+      return true;
+    }
+    char previous = this.sql.charAt(this.position - 1);
+    return !isIdentifierPart(previous) && (previous != ':') && (previous != '@');
+  }
+
+  private static boolean isIdentifierPart(char c) {
+    return Character.isLetterOrDigit(c) || (c == '_') || (c == '$') || (c == '#');
+  }
+
+  private SQLException unsupportedToken(String token) {
+    return new SQLException("Non supported SQL92 token at position: " + token + " in: " + this.sql);
+  }
+
+  private SQLException malformed(String expectation) {
+    return new SQLException("Malformed SQL92 string at position: " + (this.position + 1) + ". " + expectation + " in: " + this.sql);
+  }
+
+}
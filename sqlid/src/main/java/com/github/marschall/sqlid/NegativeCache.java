@@ -0,0 +1,85 @@
+package com.github.marschall.sqlid;
+
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers failed lookups of JDBC query strings for some time.
+ *
+ * <h2>Implementation Notes</h2>
+ * The number of failures is bounded by {@link #MAXIMUM_SIZE}. If it is
+ * reached the expired failures are removed and if that is not enough all
+ * of them.
+ *
+ * @see FailurePolicy
+ */
+final class NegativeCache {
+
+  static final int MAXIMUM_SIZE = 1024;
+
+  private final long ttlNanos;
+
+  private final LongSupplier nanoTime;
+
+  private final ConcurrentMap<String, Failure> failures;
+
+  NegativeCache(long ttlNanos, LongSupplier nanoTime) {
+    this.ttlNanos = ttlNanos;
+    this.nanoTime = nanoTime;
+    this.failures = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Looks up a failure of a JDBC query string.
+   *
+   * @param jdbcQueryString the JDBC query string, not {@code null}
+   * @return the exception if the lookup of {@code jdbcQueryString} failed recently,
+   *         {@code null} otherwise
+   */
+  SQLException get(String jdbcQueryString) {
+    Failure failure = this.failures.get(jdbcQueryString);
+    if (failure == null) {
+      return null;
+    }
+    if (failure.isExpired(this.nanoTime.getAsLong())) {
+      this.failures.remove(jdbcQueryString, failure);
+      return null;
+    }
+    return failure.exception;
+  }
+
+  void put(String jdbcQueryString, SQLException exception) {
+    long now = this.nanoTime.getAsLong();
+    if (this.failures.size() >= MAXIMUM_SIZE) {
+      this.failures.values().removeIf(failure -> failure.isExpired(now));
+      if (this.failures.size() >= MAXIMUM_SIZE) {
+        this.failures.clear();
+      }
+    }
+    this.failures.put(jdbcQueryString, new Failure(exception, now + this.ttlNanos));
+  }
+
+  int size() {
+    return this.failures.size();
+  }
+
+  static final class Failure {
+
+    final SQLException exception;
+
+    final long expiresAt;
+
+    Failure(SQLException exception, long expiresAt) {
+      this.exception = exception;
+      this.expiresAt = expiresAt;
+    }
+
+    boolean isExpired(long now) {
+      return (now - this.expiresAt) >= 0L;
+    }
+
+  }
+
+}
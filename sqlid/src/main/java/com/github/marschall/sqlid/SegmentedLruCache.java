@@ -0,0 +1,105 @@
+package com.github.marschall.sqlid;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * An implementation of {@link Cache} that stripes the keys over several
+ * independent {@link HashLruCache} segments.
+ * <p>
+ * Each segment has its own map, list and lock, threads accessing different
+ * segments do not contend.
+ *
+ * <h2>Implementation Notes</h2>
+ * The Least Recently Used (LRU) algorithm is applied per segment, not over
+ * the whole cache. A value may therefore be ejected from a full segment
+ * while other segments still have capacity. The capacity is split evenly
+ * across the segments.
+ *
+ * @param <K> the type of the lookup keys
+ * @param <V> the type of the cached values
+ * @see HashLruCache
+ */
+public final class SegmentedLruCache<K, V> implements Cache<K, V> {
+
+  /**
+   * The segment index is taken from the upper 16 bits of the hash.
+   */
+  private static final int MAX_SEGMENTS = 1 << 16;
+
+  private final HashLruCache<K, V>[] segments;
+
+  private final int segmentMask;
+
+  /**
+   * Constructs a {@link SegmentedLruCache} with one segment per available
+   * processor.
+   *
+   * @param capacity the desired maximum capacity of this cache,
+   *                 must be positive
+   * @throws IllegalArgumentException if {@code capacity} is not positive
+   */
+  public SegmentedLruCache(int capacity) {
+    this(capacity, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Constructs a {@link SegmentedLruCache}.
+   *
+   * @param capacity the desired maximum capacity of this cache,
+   *                 must be positive
+   * @param segmentCount the desired number of segments, rounded up to the
+   *                     next power of two but at most {@code capacity}
+   *                     and 65536,
+   *                     must be positive
+   * @throws IllegalArgumentException if {@code capacity} or {@code segmentCount}
+   *                                  is not positive
+   */
+  @SuppressWarnings("unchecked")
+  public SegmentedLruCache(int capacity, int segmentCount) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+    if (segmentCount <= 0) {
+      throw new IllegalArgumentException("segment count must be positive");
+    }
+    int cappedSegmentCount = Math.min(segmentCount, MAX_SEGMENTS);
+    int actualSegmentCount = cappedSegmentCount == 1 ? 1 : Integer.highestOneBit(cappedSegmentCount - 1) << 1;
+    while (actualSegmentCount > capacity) {
+      actualSegmentCount >>>= 1;
+    }
+    this.segments = new HashLruCache[actualSegmentCount];
+    int segmentCapacity = capacity / actualSegmentCount;
+    int remainder = capacity % actualSegmentCount;
+    for (int i = 0; i < actualSegmentCount; i++) {
+      // spread the remainder over the first segments
+      this.segments[i] = new HashLruCache<>(i < remainder ? segmentCapacity + 1 : segmentCapacity);
+    }
+    this.segmentMask = actualSegmentCount - 1;
+  }
+
+  int getSegmentCount() {
+    return this.segments.length;
+  }
+
+  @Override
+  public V get(K key, Function<? super K, ? extends V> loader) {
+    Objects.requireNonNull(key, "key");
+    return this.segmentFor(key).get(key, loader);
+  }
+
+  @Override
+  public V getIfPresent(K key) {
+    Objects.requireNonNull(key, "key");
+    return this.segmentFor(key).getIfPresent(key);
+  }
+
+  private HashLruCache<K, V> segmentFor(K key) {
+    int hash = key.hashCode();
+    // the low bits are used by the segment maps, use the high bits
+    hash ^= hash >>> 16;
+    hash *= 0x9E3779B9;
+    return this.segments[(hash >>> 16) & this.segmentMask];
+  }
+
+}
@@ -1,7 +1,15 @@
 package com.github.marschall.sqlid;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.sql.Connection;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collector;
 
 import oracle.jdbc.OracleDatabaseException;
 
@@ -13,6 +21,11 @@ import oracle.jdbc.OracleDatabaseException;
  */
 public final class SqlId {
 
+  /**
+   * The size of the buffer used for reading from {@link Reader}s and {@link InputStream}s.
+   */
+  private static final int READ_BUFFER_SIZE = 8192;
+
   private SqlId() {
     throw new AssertionError("not instantiable");
   }
@@ -31,4 +44,336 @@ public final class SqlId {
     return Base32.toBase32String(id);
   }
 
+  /**
+   * Computes Oracle sql_id of a native SQL statement.
+   * <p>
+   * Allows to compute the sql_id of a {@link StringBuilder} or other
+   * {@link CharSequence} without first converting it to a {@link String}.
+   *
+   * @param nativeSql SQL string without trailing 0x00 byte, not {@code null},
+   *                  must not be modified during the computation
+   * @return sql_id as computed by Oracle
+   * @see Connection#nativeSQL(String)
+   * @see OracleDatabaseException#getSql()
+   */
+  public static String compute(CharSequence nativeSql) {
+    Objects.requireNonNull(nativeSql, "nativeSql");
+    long id = MD5.getBinarySqlId(nativeSql);
+    return Base32.toBase32String(id);
+  }
+
+  /**
+   * Computes Oracle sql_id of a native SQL statement for a database that does
+   * not use a Unicode character set.
+   * <p>
+   * The statement is hashed in the database character set instead of UTF-8.
+   * This makes a difference only for statements with non-ASCII characters.
+   * Characters that can not be encoded in the database character set are
+   * replaced, same as {@link String#getBytes(Charset)}.
+   * <p>
+   * windows-1252 (WE8MSWIN1252), ISO-8859-15 (WE8ISO8859P15) and ISO-8859-1
+   * (WE8ISO8859P1) are encoded while hashing without any allocation, other
+   * character sets go through a {@link java.nio.charset.CharsetEncoder}.
+   *
+   * @param nativeSql SQL string without trailing 0x00 byte, not {@code null}
+   * @param databaseCharset the database character set, not {@code null}
+   * @return sql_id as computed by Oracle
+   * @throws IllegalArgumentException if {@code databaseCharset} does not support encoding
+   * @see Connection#nativeSQL(String)
+   * @see OracleDatabaseException#getSql()
+   */
+  public static String compute(String nativeSql, Charset databaseCharset) {
+    Objects.requireNonNull(nativeSql, "nativeSql");
+    Objects.requireNonNull(databaseCharset, "databaseCharset");
+    long id = CharsetMD5.getBinarySqlId(nativeSql, databaseCharset);
+    return Base32.toBase32String(id);
+  }
+
+  /**
+   * Computes Oracle sql_id of a UTF-8 encoded native SQL statement.
+   * <p>
+   * The bytes are hashed directly, no copy is made.
+   *
+   * @param utf8 the UTF-8 encoded SQL string without trailing 0x00 byte, not {@code null}
+   * @param offset the offset of the first byte of the SQL string in {@code utf8}
+   * @param length the number of bytes of the SQL string
+   * @return sql_id as computed by Oracle
+   * @throws IndexOutOfBoundsException if {@code offset} or {@code length} are out of bounds
+   * @see Connection#nativeSQL(String)
+   */
+  public static String compute(byte[] utf8, int offset, int length) {
+    Objects.requireNonNull(utf8, "utf8");
+    long id = MD5.getBinarySqlId(utf8, offset, length);
+    return Base32.toBase32String(id);
+  }
+
+  /**
+   * Computes Oracle sql_id of a UTF-8 encoded native SQL statement.
+   * <p>
+   * The bytes between the position and the limit of the buffer are hashed
+   * directly, no copy is made. Both heap and direct buffers are supported.
+   * The position, limit and mark of the buffer are not modified.
+   *
+   * @param utf8 the UTF-8 encoded SQL string without trailing 0x00 byte, not {@code null}
+   * @return sql_id as computed by Oracle
+   * @see Connection#nativeSQL(String)
+   */
+  public static String compute(ByteBuffer utf8) {
+    Objects.requireNonNull(utf8, "utf8");
+    long id = MD5.getBinarySqlId(utf8);
+    return Base32.toBase32String(id);
+  }
+
+  /**
+   * Computes Oracle sql_id of a native SQL statement read from a {@link Reader}.
+   * <p>
+   * The statement is never fully held in memory. The reader is read until
+   * the end but not closed.
+   *
+   * @param nativeSql reader of the SQL string without trailing 0x00 byte, not {@code null}
+   * @return sql_id as computed by Oracle
+   * @throws IOException if reading fails
+   * @see SqlIdHasher
+   */
+  public static String compute(Reader nativeSql) throws IOException {
+    Objects.requireNonNull(nativeSql, "nativeSql");
+    SqlIdHasher hasher = new SqlIdHasher();
+    char[] buffer = new char[READ_BUFFER_SIZE];
+    int read = nativeSql.read(buffer);
+    while (read != -1) {
+      hasher.update(buffer, 0, read);
+      read = nativeSql.read(buffer);
+    }
+    return hasher.finish();
+  }
+
+  /**
+   * Computes Oracle sql_id of a UTF-8 encoded native SQL statement read from an {@link InputStream}.
+   * <p>
+   * The statement is never fully held in memory. The stream is read until
+   * the end but not closed.
+   *
+   * @param utf8 stream of the UTF-8 encoded SQL string without trailing 0x00 byte, not {@code null}
+   * @return sql_id as computed by Oracle
+   * @throws IOException if reading fails
+   * @see SqlIdHasher
+   */
+  public static String compute(InputStream utf8) throws IOException {
+    Objects.requireNonNull(utf8, "utf8");
+    SqlIdHasher hasher = new SqlIdHasher();
+    byte[] buffer = new byte[READ_BUFFER_SIZE];
+    int read = utf8.read(buffer);
+    while (read != -1) {
+      hasher.update(buffer, 0, read);
+      read = utf8.read(buffer);
+    }
+    return hasher.finish();
+  }
+
+  /**
+   * Computes Oracle sql_id of a native SQL statement in binary form.
+   * <p>
+   * This avoids the allocation of the sql_id {@link String}.
+   *
+   * @param nativeSql SQL string without trailing 0x00 byte, not {@code null}
+   * @return binary sql_id, the last 64 bits of the MD5 hash
+   * @see SqlIdValue#valueOf(long)
+   * @see Connection#nativeSQL(String)
+   * @see OracleDatabaseException#getSql()
+   */
+  public static long computeBinary(String nativeSql) {
+    Objects.requireNonNull(nativeSql, "nativeSql");
+    return MD5.getBinarySqlId(nativeSql);
+  }
+
+  /**
+   * Computes Oracle sql_id of a native SQL statement in binary form.
+   *
+   * @param nativeSql SQL string without trailing 0x00 byte, not {@code null},
+   *                  must not be modified during the computation
+   * @return binary sql_id, the last 64 bits of the MD5 hash
+   * @see SqlIdValue#valueOf(long)
+   * @see #compute(CharSequence)
+   */
+  public static long computeBinary(CharSequence nativeSql) {
+    Objects.requireNonNull(nativeSql, "nativeSql");
+    return MD5.getBinarySqlId(nativeSql);
+  }
+
+  /**
+   * Computes Oracle sql_id of a native SQL statement in binary form for a
+   * database that does not use a Unicode character set.
+   *
+   * @param nativeSql SQL string without trailing 0x00 byte, not {@code null}
+   * @param databaseCharset the database character set, not {@code null}
+   * @return binary sql_id, the last 64 bits of the MD5 hash
+   * @throws IllegalArgumentException if {@code databaseCharset} does not support encoding
+   * @see #compute(String, Charset)
+   */
+  public static long computeBinary(CharSequence nativeSql, Charset databaseCharset) {
+    Objects.requireNonNull(nativeSql, "nativeSql");
+    Objects.requireNonNull(databaseCharset, "databaseCharset");
+    return CharsetMD5.getBinarySqlId(nativeSql, databaseCharset);
+  }
+
+  /**
+   * Computes Oracle sql_id of a UTF-8 encoded native SQL statement in binary form.
+   *
+   * @param utf8 the UTF-8 encoded SQL string without trailing 0x00 byte, not {@code null}
+   * @param offset the offset of the first byte of the SQL string in {@code utf8}
+   * @param length the number of bytes of the SQL string
+   * @return binary sql_id, the last 64 bits of the MD5 hash
+   * @throws IndexOutOfBoundsException if {@code offset} or {@code length} are out of bounds
+   * @see SqlIdValue#valueOf(long)
+   * @see #compute(byte[], int, int)
+   */
+  public static long computeBinary(byte[] utf8, int offset, int length) {
+    Objects.requireNonNull(utf8, "utf8");
+    return MD5.getBinarySqlId(utf8, offset, length);
+  }
+
+  /**
+   * Computes Oracle sql_id of a UTF-8 encoded native SQL statement in binary form.
+   *
+   * @param utf8 the UTF-8 encoded SQL string without trailing 0x00 byte, not {@code null}
+   * @return binary sql_id, the last 64 bits of the MD5 hash
+   * @see SqlIdValue#valueOf(long)
+   * @see #compute(ByteBuffer)
+   */
+  public static long computeBinary(ByteBuffer utf8) {
+    Objects.requireNonNull(utf8, "utf8");
+    return MD5.getBinarySqlId(utf8);
+  }
+
+  /**
+   * Computes Oracle sql_ids of many native SQL statements.
+   * <p>
+   * If there are many statements the sql_ids are computed in parallel in the
+   * {@linkplain ForkJoinPool#commonPool() common pool}.
+   *
+   * @param nativeSqls SQL strings without trailing 0x00 byte, not {@code null},
+   *                   no element must be {@code null}
+   * @return sql_ids as computed by Oracle in the order of {@code nativeSqls}
+   */
+  public static String[] computeAll(List<? extends CharSequence> nativeSqls) {
+    return computeAll(nativeSqls, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Computes Oracle sql_ids of many native SQL statements.
+   * <p>
+   * If there are many statements the sql_ids are computed in parallel in the given pool.
+   *
+   * @param nativeSqls SQL strings without trailing 0x00 byte, not {@code null},
+   *                   no element must be {@code null}
+   * @param pool the pool in which to compute the sql_ids in parallel, not {@code null}
+   * @return sql_ids as computed by Oracle in the order of {@code nativeSqls}
+   */
+  public static String[] computeAll(List<? extends CharSequence> nativeSqls, ForkJoinPool pool) {
+    Objects.requireNonNull(nativeSqls, "nativeSqls");
+    Objects.requireNonNull(pool, "pool");
+    return SqlIdBatch.computeAll(nativeSqls, pool);
+  }
+
+  /**
+   * Computes Oracle sql_ids of many native SQL statements in binary form.
+   * <p>
+   * If there are many statements the sql_ids are computed in parallel in the
+   * {@linkplain ForkJoinPool#commonPool() common pool}.
+   *
+   * @param nativeSqls SQL strings without trailing 0x00 byte, not {@code null},
+   *                   no element must be {@code null}
+   * @return binary sql_ids in the order of {@code nativeSqls}
+   * @see #computeBinary(CharSequence)
+   */
+  public static long[] computeAllBinary(List<? extends CharSequence> nativeSqls) {
+    return computeAllBinary(nativeSqls, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Computes Oracle sql_ids of many native SQL statements in binary form.
+   * <p>
+   * If there are many statements the sql_ids are computed in parallel in the given pool.
+   *
+   * @param nativeSqls SQL strings without trailing 0x00 byte, not {@code null},
+   *                   no element must be {@code null}
+   * @param pool the pool in which to compute the sql_ids in parallel, not {@code null}
+   * @return binary sql_ids in the order of {@code nativeSqls}
+   * @see #computeBinary(CharSequence)
+   */
+  public static long[] computeAllBinary(List<? extends CharSequence> nativeSqls, ForkJoinPool pool) {
+    Objects.requireNonNull(nativeSqls, "nativeSqls");
+    Objects.requireNonNull(pool, "pool");
+    return SqlIdBatch.computeAllBinary(nativeSqls, pool);
+  }
+
+  /**
+   * Returns a {@link Collector} that computes the sql_ids of native SQL
+   * statements in binary form. Supports parallel streams.
+   *
+   * <pre><code>
+   * long[] sqlIds = statements.parallelStream()
+   *     .collect(SqlId.toBinarySqlIds());
+   * </code></pre>
+   *
+   * @return a collector of binary sql_ids in encounter order
+   * @see #computeBinary(CharSequence)
+   */
+  public static Collector<CharSequence, ?, long[]> toBinarySqlIds() {
+    return SqlIdBatch.toBinarySqlIds();
+  }
+
+  /**
+   * Parses a sql_id into its binary form.
+   *
+   * @param sqlId the 13 character sql_id, not {@code null}
+   * @return binary sql_id, the last 64 bits of the MD5 hash
+   * @throws IllegalArgumentException if {@code sqlId} is not a valid sql_id
+   * @see SqlIdValue#parse(CharSequence)
+   */
+  public static long parse(CharSequence sqlId) {
+    Objects.requireNonNull(sqlId, "sqlId");
+    return Base32.parse(sqlId);
+  }
+
+  /**
+   * Appends the 13 character sql_id of a binary sql_id.
+   *
+   * @param binarySqlId the binary sql_id
+   * @param destination where to append the sql_id, not {@code null}
+   * @throws IOException if appending fails
+   * @see #computeBinary(String)
+   */
+  public static void appendTo(long binarySqlId, Appendable destination) throws IOException {
+    Objects.requireNonNull(destination, "destination");
+    Base32.appendTo(binarySqlId, destination);
+  }
+
+  /**
+   * Appends the 13 character sql_id of a binary sql_id.
+   *
+   * @param binarySqlId the binary sql_id
+   * @param destination where to append the sql_id, not {@code null}
+   * @see #computeBinary(String)
+   */
+  public static void appendTo(long binarySqlId, StringBuilder destination) {
+    Objects.requireNonNull(destination, "destination");
+    Base32.appendTo(binarySqlId, destination);
+  }
+
+  /**
+   * Writes the 13 character sql_id of a binary sql_id as ASCII bytes.
+   *
+   * @param binarySqlId the binary sql_id
+   * @param destination where to write the sql_id, not {@code null}
+   * @param offset the index of the first byte to write
+   * @return the index after the last byte written, {@code offset + 13}
+   * @throws IndexOutOfBoundsException if there is not enough space for the sql_id
+   * @see #computeBinary(String)
+   */
+  public static int writeTo(long binarySqlId, byte[] destination, int offset) {
+    Objects.requireNonNull(destination, "destination");
+    return Base32.writeTo(binarySqlId, destination, offset);
+  }
+
 }
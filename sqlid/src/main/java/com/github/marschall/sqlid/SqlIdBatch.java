@@ -0,0 +1,172 @@
+package com.github.marschall.sqlid;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * Computes the sql_ids of many statements, in parallel if there are enough of them.
+ */
+final class SqlIdBatch {
+
+  /**
+   * Below this number of statements the sql_ids are computed in the calling thread.
+   */
+  static final int PARALLEL_THRESHOLD = 1024;
+
+  /**
+   * The minimum number of statements computed in one fork join task.
+   */
+  private static final int LEAF_SIZE = 256;
+
+  private SqlIdBatch() {
+    throw new AssertionError("not instantiable");
+  }
+
+  static long[] computeAllBinary(List<? extends CharSequence> nativeSqls, ForkJoinPool pool) {
+    List<? extends CharSequence> statements;
+    if (nativeSqls instanceof RandomAccess) {
+      statements = nativeSqls;
+    } else {
+      // avoid O(n) access in linked lists
+      statements = Arrays.asList(nativeSqls.toArray(new CharSequence[0]));
+    }
+    long[] binarySqlIds = new long[statements.size()];
+    ComputeTask task = new ComputeTask(statements, binarySqlIds, 0, binarySqlIds.length);
+    if ((binarySqlIds.length < PARALLEL_THRESHOLD) || (pool.getParallelism() == 1)) {
+      task.computeDirectly();
+    } else {
+      pool.invoke(task);
+    }
+    return binarySqlIds;
+  }
+
+  static String[] computeAll(List<? extends CharSequence> nativeSqls, ForkJoinPool pool) {
+    long[] binarySqlIds = computeAllBinary(nativeSqls, pool);
+    String[] sqlIds = new String[binarySqlIds.length];
+    for (int i = 0; i < binarySqlIds.length; i++) {
+      sqlIds[i] = Base32.toBase32String(binarySqlIds[i]);
+    }
+    return sqlIds;
+  }
+
+  static Collector<CharSequence, ?, long[]> toBinarySqlIds() {
+    return BinarySqlIdCollector.INSTANCE;
+  }
+
+  /**
+   * Computes the sql_ids of a range of statements, splits the range in two
+   * until it is small enough.
+   */
+  static final class ComputeTask extends RecursiveAction {
+
+    private final List<? extends CharSequence> nativeSqls;
+
+    private final long[] binarySqlIds;
+
+    private final int from;
+
+    private final int to;
+
+    ComputeTask(List<? extends CharSequence> nativeSqls, long[] binarySqlIds, int from, int to) {
+      this.nativeSqls = nativeSqls;
+      this.binarySqlIds = binarySqlIds;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if ((this.to - this.from) <= LEAF_SIZE) {
+        this.computeDirectly();
+      } else {
+        int middle = (this.from + this.to) >>> 1;
+        invokeAll(
+            new ComputeTask(this.nativeSqls, this.binarySqlIds, this.from, middle),
+            new ComputeTask(this.nativeSqls, this.binarySqlIds, middle, this.to));
+      }
+    }
+
+    void computeDirectly() {
+      MultiBufferMD5.computeBinarySqlIds(this.nativeSqls, this.binarySqlIds, this.from, this.to);
+    }
+
+  }
+
+  /**
+   * Collects binary sql_ids into a {@code long[]} in encounter order.
+   */
+  enum BinarySqlIdCollector implements Collector<CharSequence, LongArrayBuilder, long[]> {
+
+    INSTANCE;
+
+    @Override
+    public Supplier<LongArrayBuilder> supplier() {
+      return LongArrayBuilder::new;
+    }
+
+    @Override
+    public BiConsumer<LongArrayBuilder, CharSequence> accumulator() {
+      return (builder, nativeSql) -> builder.add(SqlId.computeBinary(nativeSql));
+    }
+
+    @Override
+    public BinaryOperator<LongArrayBuilder> combiner() {
+      return LongArrayBuilder::addAll;
+    }
+
+    @Override
+    public Function<LongArrayBuilder, long[]> finisher() {
+      return LongArrayBuilder::toArray;
+    }
+
+    @Override
+    public Set<Characteristics> characteristics() {
+      return Collections.emptySet();
+    }
+
+  }
+
+  static final class LongArrayBuilder {
+
+    private long[] values;
+
+    private int size;
+
+    LongArrayBuilder() {
+      this.values = new long[16];
+      this.size = 0;
+    }
+
+    void add(long value) {
+      if (this.size == this.values.length) {
+        this.values = Arrays.copyOf(this.values, this.values.length * 2);
+      }
+      this.values[this.size++] = value;
+    }
+
+    LongArrayBuilder addAll(LongArrayBuilder other) {
+      if ((this.size + other.size) > this.values.length) {
+        this.values = Arrays.copyOf(this.values, Math.max(this.values.length * 2, this.size + other.size));
+      }
+      System.arraycopy(other.values, 0, this.values, this.size, other.size);
+      this.size += other.size;
+      return this;
+    }
+
+    long[] toArray() {
+      return Arrays.copyOf(this.values, this.size);
+    }
+
+  }
+
+}
@@ -0,0 +1,206 @@
+package com.github.marschall.sqlid;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Computes the Oracle sql_id of a native SQL statement incrementally.
+ * <p>
+ * Useful for statements that are too large to be built as a {@link String}
+ * first, eg. PL/SQL blocks read from a CLOB or a file. Memory use is
+ * constant and does not depend on the size of the statement.
+ * <p>
+ * Characters are encoded in UTF-8, a surrogate pair may be split across
+ * two calls to {@code update}. Character and UTF-8 byte input may be mixed
+ * as long as no surrogate pair is split by byte input.
+ * <p>
+ * Instances are not thread safe.
+ *
+ * @see SqlId#compute(java.io.Reader)
+ * @see SqlId#compute(java.io.InputStream)
+ */
+public final class SqlIdHasher {
+
+  /**
+   * Size of the buffer for UTF-8 encoded characters.
+   */
+  private static final int BUFFER_SIZE = 256;
+
+  private final MD5.Hasher hasher;
+
+  private final byte[] buffer;
+
+  private int position;
+
+  /**
+   * The high surrogate of the last update if it was not followed by the low surrogate, 0 otherwise.
+   */
+  private char highSurrogate;
+
+  /**
+   * Constructs a new {@link SqlIdHasher}.
+   */
+  public SqlIdHasher() {
+    this.hasher = new MD5.Hasher();
+    this.buffer = new byte[BUFFER_SIZE];
+    this.position = 0;
+    this.highSurrogate = 0;
+  }
+
+  /**
+   * Creates a copy of the state of a hasher, the copy can be updated
+   * independently of the original.
+   */
+  SqlIdHasher(SqlIdHasher original) {
+    this.hasher = new MD5.Hasher(original.hasher);
+    this.buffer = new byte[BUFFER_SIZE];
+    System.arraycopy(original.buffer, 0, this.buffer, 0, original.position);
+    this.position = original.position;
+    this.highSurrogate = original.highSurrogate;
+  }
+
+  /**
+   * Updates the sql_id with characters.
+   *
+   * @param chars the characters of the native SQL statement, not {@code null}
+   * @param offset the offset of the first character in {@code chars}
+   * @param length the number of characters
+   * @throws IndexOutOfBoundsException if {@code offset} or {@code length} are out of bounds
+   * @throws IllegalArgumentException if the input contains a high surrogate not followed by a low surrogate
+   */
+  public void update(char[] chars, int offset, int length) {
+    Objects.requireNonNull(chars, "chars");
+    if ((offset < 0) || (length < 0) || (offset > (chars.length - length))) {
+      throw new IndexOutOfBoundsException("offset: " + offset + " length: " + length + " array length: " + chars.length);
+    }
+    for (int i = offset; i < (offset + length); i++) {
+      this.put(chars[i]);
+    }
+  }
+
+  /**
+   * Updates the sql_id with characters.
+   *
+   * @param chars the characters of the native SQL statement, not {@code null}
+   * @throws IllegalArgumentException if the input contains a high surrogate not followed by a low surrogate
+   */
+  public void update(CharSequence chars) {
+    Objects.requireNonNull(chars, "chars");
+    for (int i = 0; i < chars.length(); i++) {
+      this.put(chars.charAt(i));
+    }
+  }
+
+  /**
+   * Updates the sql_id with UTF-8 encoded bytes.
+   *
+   * @param utf8 the UTF-8 encoded bytes of the native SQL statement, not {@code null}
+   * @param offset the offset of the first byte in {@code utf8}
+   * @param length the number of bytes
+   * @throws IndexOutOfBoundsException if {@code offset} or {@code length} are out of bounds
+   * @throws IllegalArgumentException if the previous character update ended in a high surrogate
+   */
+  public void update(byte[] utf8, int offset, int length) {
+    Objects.requireNonNull(utf8, "utf8");
+    this.flush();
+    this.hasher.update(utf8, offset, length);
+  }
+
+  /**
+   * Updates the sql_id with the UTF-8 encoded bytes between the position and the
+   * limit of the buffer. The position, limit and mark of the buffer are not modified.
+   *
+   * @param utf8 the UTF-8 encoded bytes of the native SQL statement, not {@code null}
+   * @throws IllegalArgumentException if the previous character update ended in a high surrogate
+   */
+  public void update(ByteBuffer utf8) {
+    Objects.requireNonNull(utf8, "utf8");
+    this.flush();
+    this.hasher.update(utf8);
+  }
+
+  /**
+   * Completes the sql_id computation. Afterwards this hasher is reset and
+   * can be used for a different statement.
+   *
+   * @return sql_id as computed by Oracle
+   * @throws IllegalArgumentException if the input ended in a high surrogate
+   */
+  public String finish() {
+    return Base32.toBase32String(this.finishBinary());
+  }
+
+  /**
+   * Completes the sql_id computation. Afterwards this hasher is reset and
+   * can be used for a different statement.
+   *
+   * @return binary sql_id, the last 64 bits of the MD5 hash
+   * @throws IllegalArgumentException if the input ended in a high surrogate
+   * @see SqlIdValue#valueOf(long)
+   */
+  public long finishBinary() {
+    try {
+      if (this.highSurrogate != 0) {
+        throw new IllegalArgumentException("malformed input, truncated");
+      }
+      this.flush();
+      return this.hasher.finish();
+    } finally {
+      this.reset();
+    }
+  }
+
+  /**
+   * Resets this hasher, discarding all previous updates.
+   */
+  public void reset() {
+    this.hasher.reset();
+    this.position = 0;
+    this.highSurrogate = 0;
+  }
+
+  private void put(char c) {
+    if (this.position > (BUFFER_SIZE - 4)) {
+      this.hasher.update(this.buffer, 0, this.position);
+      this.position = 0;
+    }
+    if (this.highSurrogate != 0) {
+      if (!Character.isLowSurrogate(c)) {
+        throw new IllegalArgumentException("malformed input, missing surrogate pair");
+      }
+      int codePoint = Character.toCodePoint(this.highSurrogate, c);
+      this.highSurrogate = 0;
+      this.buffer[this.position++] = (byte) (0b11110000 | ((codePoint & 0b111_000000_000000_000000) >>> 18));
+      this.buffer[this.position++] = (byte) (0b10000000 | ((codePoint & 0b111111_000000_000000) >>> 12));
+      this.buffer[this.position++] = (byte) (0b10000000 | ((codePoint & 0b111111_000000) >>> 6));
+      this.buffer[this.position++] = (byte) (0b10000000 | (codePoint & 0b111111));
+    } else if (c < 0b10000000) {
+      this.buffer[this.position++] = (byte) c;
+    } else if (c < 0b100000000000) {
+      this.buffer[this.position++] = (byte) (0b11000000 | ((c & 0b11111_000000) >>> 6));
+      this.buffer[this.position++] = (byte) (0b10000000 | (c & 0b111111));
+    } else if (Character.isHighSurrogate(c)) {
+      // the low surrogate may be in the next update
+      this.highSurrogate = c;
+    } else {
+      this.buffer[this.position++] = (byte) (0b11100000 | ((c & 0b1111_000000_000000) >>> 12));
+      this.buffer[this.position++] = (byte) (0b10000000 | ((c & 0b111111_000000) >>> 6));
+      this.buffer[this.position++] = (byte) (0b10000000 | (c & 0b111111));
+    }
+  }
+
+  /**
+   * Hashes all the buffered characters, afterwards at most 63 bytes are
+   * buffered in {@link MD5.Hasher}.
+   */
+  void flush() {
+    if (this.highSurrogate != 0) {
+      throw new IllegalArgumentException("malformed input, missing surrogate pair");
+    }
+    if (this.position > 0) {
+      this.hasher.update(this.buffer, 0, this.position);
+      this.position = 0;
+    }
+  }
+
+}
@@ -2,22 +2,94 @@ package com.github.marschall.sqlid;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
 
 import javax.sql.DataSource;
 
+import oracle.jdbc.OracleConnection;
 import oracle.jdbc.OracleDatabaseException;
 
 /**
  * Convenience class for computing the Oracle sql_id. Takes care of
  * converting form JDBC query strings to native query strings and
  * also performs caching.
+ * <p>
+ * In front of the configured cache a small cache keyed by the identity of
+ * the query string answers lookups of constant query strings without
+ * hashing or comparing them. A query string is added to it only after it
+ * was found in the configured cache. It can be disabled by setting the
+ * system property {@code com.github.marschall.sqlid.identityFrontCache} to
+ * {@code false}.
+ * <p>
+ * By default JDBC query strings are converted using
+ * {@link Connection#nativeSQL(String)} which borrows a connection on every
+ * cache miss. Using {@link NativeSqlMode#TRANSLATOR} they are converted in
+ * process by {@link NativeSqlTranslator} instead. Callers that already hold
+ * a connection can pass it to {@link #getSqlIdOfJdbcString(Connection, String)}
+ * so that no second connection is borrowed.
+ * <p>
+ * The asynchronous methods complete cache hits in the calling thread.
+ * Cache misses are computed on an executor, by default at most
+ * {@value #DEFAULT_MAXIMUM_CONCURRENT_NATIVE_SQL} of them borrow a connection
+ * at the same time.
+ * <p>
+ * A {@link FailurePolicy} can remember failed lookups and stop borrowing
+ * connections if the database is not reachable.
  */
 public final class SqlIdLookup {
 
+  // null if constructed without a data source, implies NativeSqlMode.TRANSLATOR
   private final DataSource dataSource;
+  // exactly one of cache and binaryCache is set
   private final Cache<String, String> cache;
+  private final LongLruCache<String> binaryCache;
+  // separate front caches so that JDBC and native query strings can not collide
+  private final IdentitySqlIdCache jdbcFrontCache;
+  private final IdentitySqlIdCache nativeFrontCache;
+  private final NativeSqlMode nativeSqlMode;
+  // only used for NativeSqlMode.VERIFIED_TRANSLATOR
+  private final AtomicInteger translations;
+  private final LongAdder translationMismatches;
+  // bounds the connections borrowed by asynchronous lookups
+  private final Semaphore nativeSqlPermits;
+  // null if disabled by the failure policy
+  private final NegativeCache negativeCache;
+  private final CircuitBreaker circuitBreaker;
+  private final FailurePolicy.OpenCircuitBehavior openCircuitBehavior;
+
+  /**
+   * Every how many cache misses the result of {@link NativeSqlTranslator} is
+   * compared to the driver with {@link NativeSqlMode#VERIFIED_TRANSLATOR},
+   * must be a power of two.
+   */
+  static final int VERIFICATION_INTERVAL = 16;
+
+  /**
+   * The default maximum number of asynchronous lookups that borrow a
+   * connection at the same time.
+   *
+   * @see #SqlIdLookup(DataSource, Cache, NativeSqlMode, FailurePolicy, int)
+   */
+  public static final int DEFAULT_MAXIMUM_CONCURRENT_NATIVE_SQL = 4;
 
   /**
    * Constructs a new {@link SqlIdLookup} with the given cache.
@@ -28,10 +100,148 @@ public final class SqlIdLookup {
    *              not {@code null}
    */
   public SqlIdLookup(DataSource dataSource, Cache<String, String> cache) {
-    Objects.requireNonNull(dataSource, "dataSource");
-    Objects.requireNonNull(cache, "cache");
-    this.dataSource = dataSource;
-    this.cache = cache;
+    this(dataSource, cache, NativeSqlMode.DRIVER);
+  }
+
+  /**
+   * Constructs a new {@link SqlIdLookup} with the given cache and native SQL mode.
+   * 
+   * @param dataSource the data source must directly or indirectly be an Oracle data source,
+   *                   not {@code null}
+   * @param cache the cache to use,
+   *              not {@code null}
+   * @param nativeSqlMode how JDBC query strings are translated to native query strings,
+   *                      not {@code null}
+   */
+  public SqlIdLookup(DataSource dataSource, Cache<String, String> cache, NativeSqlMode nativeSqlMode) {
+    this(dataSource, cache, nativeSqlMode, FailurePolicy.NONE);
+  }
+
+  /**
+   * Constructs a new {@link SqlIdLookup} with the given cache, native SQL mode and failure policy.
+   * 
+   * @param dataSource the data source must directly or indirectly be an Oracle data source,
+   *                   not {@code null}
+   * @param cache the cache to use,
+   *              not {@code null}
+   * @param nativeSqlMode how JDBC query strings are translated to native query strings,
+   *                      not {@code null}
+   * @param failurePolicy how failures to convert JDBC query strings are handled,
+   *                      not {@code null}
+   * @see #getCircuitState()
+   */
+  public SqlIdLookup(DataSource dataSource, Cache<String, String> cache, NativeSqlMode nativeSqlMode,
+          FailurePolicy failurePolicy) {
+    this(dataSource, cache, nativeSqlMode, failurePolicy, DEFAULT_MAXIMUM_CONCURRENT_NATIVE_SQL);
+  }
+
+  /**
+   * Constructs a new {@link SqlIdLookup} with the given cache, native SQL mode, failure policy
+   * and limit of connections borrowed by asynchronous lookups.
+   * 
+   * @param dataSource the data source must directly or indirectly be an Oracle data source,
+   *                   not {@code null}
+   * @param cache the cache to use,
+   *              not {@code null}
+   * @param nativeSqlMode how JDBC query strings are translated to native query strings,
+   *                      not {@code null}
+   * @param failurePolicy how failures to convert JDBC query strings are handled,
+   *                      not {@code null}
+   * @param maximumConcurrentNativeSql the maximum number of asynchronous lookups that borrow
+   *                                   a connection at the same time, should be lower than the
+   *                                   size of the connection pool, must be positive
+   * @see #getSqlIdOfJdbcStringAsync(String, Executor)
+   * @see #DEFAULT_MAXIMUM_CONCURRENT_NATIVE_SQL
+   */
+  public SqlIdLookup(DataSource dataSource, Cache<String, String> cache, NativeSqlMode nativeSqlMode,
+          FailurePolicy failurePolicy, int maximumConcurrentNativeSql) {
+    this(dataSource, Objects.requireNonNull(cache, "cache"), null, nativeSqlMode, failurePolicy,
+            maximumConcurrentNativeSql, System::nanoTime);
+  }
+
+  SqlIdLookup(DataSource dataSource, Cache<String, String> cache, NativeSqlMode nativeSqlMode,
+          FailurePolicy failurePolicy, LongSupplier nanoTime) {
+    this(dataSource, Objects.requireNonNull(cache, "cache"), null, nativeSqlMode, failurePolicy,
+            DEFAULT_MAXIMUM_CONCURRENT_NATIVE_SQL, nanoTime);
+  }
+
+  /**
+   * Constructs a new {@link SqlIdLookup} with the given cache of binary sql_ids.
+   * <p>
+   * Caching binary sql_ids reduces the memory footprint per entry, the sql_id
+   * {@link String} is created on every call to a method returning a {@link String}.
+   * 
+   * @param dataSource the data source must directly or indirectly be an Oracle data source,
+   *                   not {@code null}
+   * @param binaryCache the cache of binary sql_ids to use,
+   *                    not {@code null}
+   * @see #getBinarySqlIdOfJdbcString(String)
+   * @see #getBinarySqlIdOfNativeString(String)
+   */
+  public SqlIdLookup(DataSource dataSource, LongLruCache<String> binaryCache) {
+    this(dataSource, binaryCache, NativeSqlMode.DRIVER);
+  }
+
+  /**
+   * Constructs a new {@link SqlIdLookup} with the given cache of binary sql_ids
+   * and native SQL mode.
+   * 
+   * @param dataSource the data source must directly or indirectly be an Oracle data source,
+   *                   not {@code null}
+   * @param binaryCache the cache of binary sql_ids to use,
+   *                    not {@code null}
+   * @param nativeSqlMode how JDBC query strings are translated to native query strings,
+   *                      not {@code null}
+   * @see #SqlIdLookup(DataSource, LongLruCache)
+   */
+  public SqlIdLookup(DataSource dataSource, LongLruCache<String> binaryCache, NativeSqlMode nativeSqlMode) {
+    this(dataSource, binaryCache, nativeSqlMode, FailurePolicy.NONE);
+  }
+
+  /**
+   * Constructs a new {@link SqlIdLookup} with the given cache of binary sql_ids,
+   * native SQL mode and failure policy.
+   * 
+   * @param dataSource the data source must directly or indirectly be an Oracle data source,
+   *                   not {@code null}
+   * @param binaryCache the cache of binary sql_ids to use,
+   *                    not {@code null}
+   * @param nativeSqlMode how JDBC query strings are translated to native query strings,
+   *                      not {@code null}
+   * @param failurePolicy how failures to convert JDBC query strings are handled,
+   *                      not {@code null}
+   * @see #SqlIdLookup(DataSource, LongLruCache)
+   * @see #getCircuitState()
+   */
+  public SqlIdLookup(DataSource dataSource, LongLruCache<String> binaryCache, NativeSqlMode nativeSqlMode,
+          FailurePolicy failurePolicy) {
+    this(dataSource, binaryCache, nativeSqlMode, failurePolicy, DEFAULT_MAXIMUM_CONCURRENT_NATIVE_SQL);
+  }
+
+  /**
+   * Constructs a new {@link SqlIdLookup} with the given cache of binary sql_ids,
+   * native SQL mode, failure policy and limit of connections borrowed by
+   * asynchronous lookups.
+   * 
+   * @param dataSource the data source must directly or indirectly be an Oracle data source,
+   *                   not {@code null}
+   * @param binaryCache the cache of binary sql_ids to use,
+   *                    not {@code null}
+   * @param nativeSqlMode how JDBC query strings are translated to native query strings,
+   *                      not {@code null}
+   * @param failurePolicy how failures to convert JDBC query strings are handled,
+   *                      not {@code null}
+   * @param maximumConcurrentNativeSql the maximum number of asynchronous lookups that borrow
+   *                                   a connection at the same time, should be lower than the
+   *                                   size of the connection pool, must be positive
+   * @see #SqlIdLookup(DataSource, LongLruCache)
+   * @see #getSqlIdOfJdbcStringAsync(String, Executor)
+   * @see #DEFAULT_MAXIMUM_CONCURRENT_NATIVE_SQL
+   */
+  public SqlIdLookup(DataSource dataSource, LongLruCache<String> binaryCache, NativeSqlMode nativeSqlMode,
+          FailurePolicy failurePolicy, int maximumConcurrentNativeSql) {
+    this(dataSource, null, Objects.requireNonNull(binaryCache, "binaryCache"), nativeSqlMode, failurePolicy,
+            maximumConcurrentNativeSql, System::nanoTime);
   }
 
   /**
@@ -44,12 +254,96 @@ public final class SqlIdLookup {
    * @see HashLruCache
    */
   public SqlIdLookup(DataSource dataSource, int cacheCapacity) {
-    Objects.requireNonNull(dataSource, "dataSource");
+    this(dataSource, cacheCapacity, CacheAlgorithm.LRU);
+  }
+
+  /**
+   * Constructs a new {@link SqlIdLookup} with a cache of the given capacity and algorithm.
+   * 
+   * @param dataSource the data source must directly or indirectly be an Oracle data source,
+   *                   not {@code null}
+   * @param cacheCapacity the capacity or the cache,
+   *                      must be positive
+   * @param cacheAlgorithm the algorithm of the cache,
+   *                       not {@code null}
+   */
+  public SqlIdLookup(DataSource dataSource, int cacheCapacity, CacheAlgorithm cacheAlgorithm) {
+    this(dataSource, newCache(cacheCapacity, cacheAlgorithm), NativeSqlMode.DRIVER);
+  }
+
+  /**
+   * Constructs a new {@link SqlIdLookup} with the given cache but without a
+   * data source.
+   * <p>
+   * JDBC query strings are translated using {@link NativeSqlTranslator}
+   * unless a connection is passed.
+   * 
+   * @param cache the cache to use,
+   *              not {@code null}
+   * @see NativeSqlMode#TRANSLATOR
+   * @see #getSqlIdOfJdbcString(Connection, String)
+   */
+  public SqlIdLookup(Cache<String, String> cache) {
+    this(null, Objects.requireNonNull(cache, "cache"), null, NativeSqlMode.TRANSLATOR, FailurePolicy.NONE,
+            DEFAULT_MAXIMUM_CONCURRENT_NATIVE_SQL, System::nanoTime);
+  }
+
+  /**
+   * Constructs a new {@link SqlIdLookup} with the given cache of binary sql_ids
+   * but without a data source.
+   * <p>
+   * JDBC query strings are translated using {@link NativeSqlTranslator}
+   * unless a connection is passed.
+   * 
+   * @param binaryCache the cache of binary sql_ids to use,
+   *                    not {@code null}
+   * @see NativeSqlMode#TRANSLATOR
+   * @see #getBinarySqlIdOfJdbcString(Connection, String)
+   */
+  public SqlIdLookup(LongLruCache<String> binaryCache) {
+    this(null, null, Objects.requireNonNull(binaryCache, "binaryCache"), NativeSqlMode.TRANSLATOR, FailurePolicy.NONE,
+            DEFAULT_MAXIMUM_CONCURRENT_NATIVE_SQL, System::nanoTime);
+  }
+
+  private SqlIdLookup(DataSource dataSource, Cache<String, String> cache, LongLruCache<String> binaryCache,
+          NativeSqlMode nativeSqlMode, FailurePolicy failurePolicy, int maximumConcurrentNativeSql,
+          LongSupplier nanoTime) {
+    Objects.requireNonNull(nativeSqlMode, "nativeSqlMode");
+    Objects.requireNonNull(failurePolicy, "failurePolicy");
+    if (nativeSqlMode != NativeSqlMode.TRANSLATOR) {
+      Objects.requireNonNull(dataSource, "dataSource");
+    }
+    if (maximumConcurrentNativeSql <= 0) {
+      throw new IllegalArgumentException("maximum concurrent native SQL must be positive but was: " + maximumConcurrentNativeSql);
+    }
+    this.dataSource = dataSource;
+    this.cache = cache;
+    this.binaryCache = binaryCache;
+    this.jdbcFrontCache = IdentitySqlIdCache.newInstance();
+    this.nativeFrontCache = IdentitySqlIdCache.newInstance();
+    this.nativeSqlMode = nativeSqlMode;
+    this.translations = new AtomicInteger();
+    this.translationMismatches = new LongAdder();
+    this.nativeSqlPermits = new Semaphore(maximumConcurrentNativeSql);
+    if (failurePolicy.getNegativeCacheTtlNanos() > 0L) {
+      this.negativeCache = new NegativeCache(failurePolicy.getNegativeCacheTtlNanos(), nanoTime);
+    } else {
+      this.negativeCache = null;
+    }
+    if (failurePolicy.hasCircuitBreaker()) {
+      this.circuitBreaker = new CircuitBreaker(failurePolicy.getFailureThreshold(), failurePolicy.getOpenDurationNanos(), nanoTime);
+    } else {
+      this.circuitBreaker = null;
+    }
+    this.openCircuitBehavior = failurePolicy.getOpenCircuitBehavior();
+  }
+
+  private static Cache<String, String> newCache(int cacheCapacity, CacheAlgorithm cacheAlgorithm) {
+    Objects.requireNonNull(cacheAlgorithm, "cacheAlgorithm");
     if (cacheCapacity < 0) {
       throw new IllegalArgumentException("cache capacity must be positive but was: " + cacheCapacity);
     }
-    this.dataSource = dataSource;
-    this.cache = new HashLruCache<>(cacheCapacity);
+    return cacheAlgorithm.newCache(cacheCapacity);
   }
 
   /**
@@ -79,25 +373,231 @@ public final class SqlIdLookup {
    *                        not {@code null}
    * @return the Oracle sql_id of {@code jdbcQueryString}
    * @throws SQLException if no connection can be acquired or {@link Connection#nativeSQL(String)}
-   *                      throws a {@link SQLException}
+   *                      or {@link NativeSqlTranslator#toNativeSql(String)} throws a {@link SQLException}
    */
   public String getSqlIdOfJdbcString(String jdbcQueryString) throws SQLException {
     Objects.requireNonNull(jdbcQueryString, "jdbcQueryString");
+    return this.lookupJdbc(jdbcQueryString, sql -> this.nativeSQL(sql, null), true).sqlId;
+  }
+
+  /**
+   * Computes the sql_id of a JDBC query string with ? as place holders for bind parameters
+   * using a connection the caller already holds instead of borrowing one.
+   * <p>
+   * If {@code connection} is or wraps an {@link OracleConnection} it is always used
+   * for the conversion to a native query string, independent of the
+   * {@link NativeSqlMode}, as the driver performs it in memory.
+   * <p>
+   * The negative cache of the {@link FailurePolicy} is neither consulted nor
+   * updated as failures of borrowed connections do not apply to
+   * {@code connection}.
+   * 
+   * @param connection the connection to use on a cache miss, is not closed,
+   *                   not {@code null}
+   * @param jdbcQueryString the JDBC query string with ? as place holder,
+   *                        not {@code null}
+   * @return the Oracle sql_id of {@code jdbcQueryString}
+   * @throws SQLException if {@link Connection#nativeSQL(String)}
+   *                      or {@link NativeSqlTranslator#toNativeSql(String)} throws a {@link SQLException}
+   */
+  public String getSqlIdOfJdbcString(Connection connection, String jdbcQueryString) throws SQLException {
+    Objects.requireNonNull(connection, "connection");
+    Objects.requireNonNull(jdbcQueryString, "jdbcQueryString");
+    return this.lookupJdbc(jdbcQueryString, sql -> this.nativeSQL(sql, connection), false).sqlId;
+  }
+
+  /**
+   * Computes the sql_ids of many JDBC query strings with ? as place holders for bind parameters.
+   * <p>
+   * Cache hits are answered directly. All cache misses are converted using
+   * a single connection that is borrowed only if there are misses and the
+   * {@link NativeSqlMode} requires one. The sql_ids of the misses are
+   * computed in parallel if there are enough of them and then added to the
+   * cache.
+   * <p>
+   * Every JDBC query string is converted on its own, one that can not be
+   * converted does not prevent the others from being added to the cache.
+   * The failures are reported after all the others have been added. Only if
+   * the connection can not be borrowed the whole call fails immediately.
+   * <p>
+   * The negative cache of the {@link FailurePolicy} is consulted for every
+   * miss, a JDBC query string that failed recently fails again without being
+   * converted. If the connection can not be borrowed the failure is
+   * remembered for every miss, if a single JDBC query string can not be
+   * converted the failure is remembered only for it.
+   * 
+   * @param jdbcQueryStrings the JDBC query strings with ? as place holder,
+   *                         not {@code null}, must not contain {@code null}
+   * @return the Oracle sql_ids keyed by JDBC query string, in the iteration
+   *         order of {@code jdbcQueryStrings} without duplicates
+   * @throws SQLException if no connection can be acquired or {@link Connection#nativeSQL(String)}
+   *                      or {@link NativeSqlTranslator#toNativeSql(String)} throws a {@link SQLException},
+   *                      if several JDBC query strings can not be converted the failures
+   *                      except the first are added as suppressed exceptions
+   */
+  public Map<String, String> getSqlIdsOfJdbcStrings(Collection<String> jdbcQueryStrings) throws SQLException {
+    Objects.requireNonNull(jdbcQueryStrings, "jdbcQueryStrings");
+    Map<String, String> sqlIds = new LinkedHashMap<>();
+    List<String> misses = new ArrayList<>();
+    for (String jdbcQueryString : jdbcQueryStrings) {
+      Objects.requireNonNull(jdbcQueryString, "jdbcQueryString");
+      if (sqlIds.containsKey(jdbcQueryString)) {
+        continue;
+      }
+      String sqlId = this.getSqlIdIfPresent(jdbcQueryString);
+      // null marks a miss but keeps the order
+      sqlIds.put(jdbcQueryString, sqlId);
+      if (sqlId == null) {
+        misses.add(jdbcQueryString);
+      }
+    }
+    if (misses.isEmpty()) {
+      return sqlIds;
+    }
+
+    SQLException[] failures = new SQLException[misses.size()];
+    String[] nativeSqls = this.nativeSQLs(misses, failures);
+    List<String> converted = new ArrayList<>(misses.size());
+    for (String nativeSql : nativeSqls) {
+      if (nativeSql != null) {
+        converted.add(nativeSql);
+      }
+    }
+    long[] binarySqlIds = SqlIdBatch.computeAllBinary(converted, ForkJoinPool.commonPool());
+    int binarySqlIdIndex = 0;
+    for (int i = 0; i < nativeSqls.length; i++) {
+      if (nativeSqls[i] != null) {
+        String jdbcQueryString = misses.get(i);
+        sqlIds.put(jdbcQueryString, this.addSqlId(jdbcQueryString, binarySqlIds[binarySqlIdIndex++]).sqlId);
+      }
+    }
+    SQLException failure = combine(failures);
+    if (failure != null) {
+      throw failure;
+    }
+    return sqlIds;
+  }
+
+  /**
+   * Combines the failures of a batch into a single exception.
+   *
+   * @return {@code null} if there are no failures, the failure if there is
+   *         only one, otherwise a new exception caused by the first failure
+   *         with the others added as suppressed exceptions
+   */
+  private static SQLException combine(SQLException[] failures) {
+    SQLException combined = null;
+    SQLException first = null;
+    for (SQLException failure : failures) {
+      if (failure == null) {
+        continue;
+      }
+      if (first == null) {
+        first = failure;
+      } else {
+        if (combined == null) {
+          // don't modify an exception that may be in the negative cache
+          combined = copyOf(first);
+        }
+        combined.addSuppressed(failure);
+      }
+    }
+    return combined != null ? combined : first;
+  }
+
+  /**
+   * Computes the binary sql_id of a JDBC query string with ? as place holders for bind parameters.
+   * 
+   * @param jdbcQueryString the JDBC query string with ? as place holder,
+   *                        not {@code null}
+   * @return the binary Oracle sql_id of {@code jdbcQueryString}
+   * @throws SQLException if no connection can be acquired or {@link Connection#nativeSQL(String)}
+   *                      or {@link NativeSqlTranslator#toNativeSql(String)} throws a {@link SQLException}
+   * @see SqlIdValue#valueOf(long)
+   */
+  public long getBinarySqlIdOfJdbcString(String jdbcQueryString) throws SQLException {
+    Objects.requireNonNull(jdbcQueryString, "jdbcQueryString");
+    return this.lookupJdbc(jdbcQueryString, sql -> this.nativeSQL(sql, null), true).binarySqlId;
+  }
+
+  /**
+   * Computes the binary sql_id of a JDBC query string with ? as place holders for bind parameters
+   * using a connection the caller already holds instead of borrowing one.
+   * 
+   * @param connection the connection to use on a cache miss, is not closed,
+   *                   not {@code null}
+   * @param jdbcQueryString the JDBC query string with ? as place holder,
+   *                        not {@code null}
+   * @return the binary Oracle sql_id of {@code jdbcQueryString}
+   * @throws SQLException if {@link Connection#nativeSQL(String)}
+   *                      or {@link NativeSqlTranslator#toNativeSql(String)} throws a {@link SQLException}
+   * @see #getSqlIdOfJdbcString(Connection, String)
+   * @see SqlIdValue#valueOf(long)
+   */
+  public long getBinarySqlIdOfJdbcString(Connection connection, String jdbcQueryString) throws SQLException {
+    Objects.requireNonNull(connection, "connection");
+    Objects.requireNonNull(jdbcQueryString, "jdbcQueryString");
+    return this.lookupJdbc(jdbcQueryString, sql -> this.nativeSQL(sql, connection), false).binarySqlId;
+  }
+
+  /**
+   * Computes the sql_id of a JDBC query string with ? as place holders for bind parameters
+   * asynchronously using the default executor.
+   * <p>
+   * On Java 21 and later the default executor uses virtual threads, on
+   * earlier versions a pool of daemon threads.
+   * 
+   * @param jdbcQueryString the JDBC query string with ? as place holder,
+   *                        not {@code null}
+   * @return the future Oracle sql_id of {@code jdbcQueryString}, already completed
+   *         if {@code jdbcQueryString} is in the cache, completed exceptionally
+   *         with a {@link SQLException} if no connection can be acquired or
+   *         {@link Connection#nativeSQL(String)} or {@link NativeSqlTranslator#toNativeSql(String)}
+   *         throws a {@link SQLException}
+   * @see #getSqlIdOfJdbcStringAsync(String, Executor)
+   */
+  public CompletableFuture<String> getSqlIdOfJdbcStringAsync(String jdbcQueryString) {
+    return this.getSqlIdOfJdbcStringAsync(jdbcQueryString, DefaultExecutor.get());
+  }
+
+  /**
+   * Computes the sql_id of a JDBC query string with ? as place holders for bind parameters
+   * asynchronously.
+   * <p>
+   * Cache hits complete in the calling thread without using {@code executor}.
+   * 
+   * @param jdbcQueryString the JDBC query string with ? as place holder,
+   *                        not {@code null}
+   * @param executor the executor on which cache misses are computed,
+   *                 not {@code null}
+   * @return the future Oracle sql_id of {@code jdbcQueryString}, already completed
+   *         if {@code jdbcQueryString} is in the cache, completed exceptionally
+   *         with a {@link SQLException} if no connection can be acquired or
+   *         {@link Connection#nativeSQL(String)} or {@link NativeSqlTranslator#toNativeSql(String)}
+   *         throws a {@link SQLException}, completed exceptionally with a
+   *         {@link RejectedExecutionException} if {@code executor} rejects the lookup
+   */
+  public CompletableFuture<String> getSqlIdOfJdbcStringAsync(String jdbcQueryString, Executor executor) {
+    Objects.requireNonNull(jdbcQueryString, "jdbcQueryString");
+    Objects.requireNonNull(executor, "executor");
+    String sqlId = this.getSqlIdIfPresent(jdbcQueryString);
+    if (sqlId != null) {
+      return CompletableFuture.completedFuture(sqlId);
+    }
+    CompletableFuture<String> future = new CompletableFuture<>();
     try {
-      return this.cache.get(jdbcQueryString, sql -> {
-        String nativeSql;
-        try (Connection connection = this.dataSource.getConnection()) {
-          nativeSql = connection.nativeSQL(sql);
-        } catch (SQLException e) {
-          // convert checked to unchecked
-          throw new UncheckedSQLException(e);
+      executor.execute(() -> {
+        try {
+          future.complete(this.lookupJdbc(jdbcQueryString, this::boundedNativeSQL, true).sqlId);
+        } catch (SQLException | RuntimeException | Error e) {
+          future.completeExceptionally(e);
         }
-        return SqlId.compute(nativeSql);
       });
-    } catch (UncheckedSQLException e) {
-      // convert unchecked to unchecked
-      throw e.getCause();
+    } catch (RejectedExecutionException e) {
+      // report through the future like every other failure
+      future.completeExceptionally(e);
     }
+    return future;
   }
 
   /**
@@ -109,7 +609,413 @@ public final class SqlIdLookup {
    */
   public String getSqlIdOfNativeString(String nativeSql) {
     Objects.requireNonNull(nativeSql, "nativeSql");
-    return this.cache.get(nativeSql, SqlId::compute);
+    return this.lookupNative(nativeSql).sqlId;
+  }
+
+  /**
+   * Computes the binary sql_id of a native Oracle query string with named place holders for bind parameters, eg :value1.
+   * 
+   * @param nativeSql the native Oracle query string with named place holders for bind parameters, eg :value1,
+   *                  not {@code null}
+   * @return the binary Oracle sql_id of {@code nativeSql}
+   * @see SqlIdValue#valueOf(long)
+   */
+  public long getBinarySqlIdOfNativeString(String nativeSql) {
+    Objects.requireNonNull(nativeSql, "nativeSql");
+    return this.lookupNative(nativeSql).binarySqlId;
+  }
+
+  /**
+   * Returns how often the result of {@link NativeSqlTranslator} differed from
+   * the driver with {@link NativeSqlMode#VERIFIED_TRANSLATOR}.
+   * 
+   * @return the number of mismatches, always {@code 0} for the other modes
+   */
+  public long getTranslationMismatchCount() {
+    return this.translationMismatches.sum();
+  }
+
+  /**
+   * Returns the state of the circuit breaker that guards borrowing
+   * connections from the data source.
+   * 
+   * @return the state of the circuit breaker, always {@link CircuitState#CLOSED}
+   *         if the failure policy has no circuit breaker
+   * @see FailurePolicy
+   */
+  public CircuitState getCircuitState() {
+    if (this.circuitBreaker == null) {
+      return CircuitState.CLOSED;
+    }
+    return this.circuitBreaker.getState();
+  }
+
+  /**
+   * Looks up the sql_id of a JDBC query string.
+   *
+   * @param negativeCaching whether to use the negative cache, {@code false}
+   *                        if the caller passed a connection as a failure of
+   *                        a borrowed connection does not apply to it
+   */
+  private IdentitySqlIdCache.Entry lookupJdbc(String jdbcQueryString, Function<String, String> toNativeSql,
+          boolean negativeCaching) throws SQLException {
+    IdentitySqlIdCache.Entry entry = this.jdbcFrontCache.get(jdbcQueryString);
+    if (entry != null) {
+      return entry;
+    }
+    if (negativeCaching) {
+      this.checkNegativeCache(jdbcQueryString);
+    }
+    try {
+      return this.lookup(this.jdbcFrontCache, jdbcQueryString, toNativeSql);
+    } catch (UncheckedSQLException e) {
+      // convert unchecked to unchecked
+      SQLException failure = e.getCause();
+      if (negativeCaching) {
+        this.rememberFailure(jdbcQueryString, failure);
+      }
+      throw failure;
+    } catch (CompletionException e) {
+      // an other thread failed to load the same query string
+      if (e.getCause() instanceof UncheckedSQLException) {
+        throw copyOf(((UncheckedSQLException) e.getCause()).getCause());
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Throws a new exception if the lookup of a JDBC query string failed recently.
+   */
+  private void checkNegativeCache(String jdbcQueryString) throws SQLException {
+    if (this.negativeCache != null) {
+      SQLException failure = this.negativeCache.get(jdbcQueryString);
+      if (failure != null) {
+        throw copyOf(failure);
+      }
+    }
+  }
+
+  /**
+   * Adds a failure to the negative cache unless it was caused by the open
+   * circuit, that failure says nothing about the database and the circuit
+   * breaker already decides when to try again.
+   */
+  private void rememberFailure(String jdbcQueryString, SQLException failure) {
+    if ((this.negativeCache != null) && !(failure instanceof CircuitOpenException)) {
+      this.negativeCache.put(jdbcQueryString, failure);
+    }
+  }
+
+  /**
+   * Creates a new exception for a failure that is reported to several callers,
+   * exceptions are mutable and should not be shared.
+   */
+  private static SQLException copyOf(SQLException failure) {
+    return new SQLException(failure.getMessage(), failure.getSQLState(), failure.getErrorCode(), failure);
+  }
+
+  private IdentitySqlIdCache.Entry lookupNative(String nativeSql) {
+    IdentitySqlIdCache.Entry entry = this.nativeFrontCache.get(nativeSql);
+    if (entry != null) {
+      return entry;
+    }
+    return this.lookup(this.nativeFrontCache, nativeSql, Function.identity());
+  }
+
+  private String getSqlIdIfPresent(String jdbcQueryString) {
+    IdentitySqlIdCache.Entry entry = this.jdbcFrontCache.get(jdbcQueryString);
+    if (entry != null) {
+      return entry.sqlId;
+    }
+    String sqlId;
+    long binarySqlId;
+    if (this.cache != null) {
+      sqlId = this.cache.getIfPresent(jdbcQueryString);
+      if (sqlId == null) {
+        return null;
+      }
+      binarySqlId = Base32.parse(sqlId);
+    } else {
+      OptionalLong cached = this.binaryCache.getIfPresent(jdbcQueryString);
+      if (!cached.isPresent()) {
+        return null;
+      }
+      binarySqlId = cached.getAsLong();
+      sqlId = Base32.toBase32String(binarySqlId);
+    }
+    return this.jdbcFrontCache.put(jdbcQueryString, sqlId, binarySqlId).sqlId;
+  }
+
+  /**
+   * Converts many JDBC query strings to native query strings borrowing at most one connection.
+   *
+   * @param failures where to store the failure of each JDBC query string
+   *                 that can not be converted, same size as {@code jdbcQueryStrings}
+   * @return the native query strings in the order of {@code jdbcQueryStrings},
+   *         {@code null} for the ones that can not be converted
+   * @throws SQLException if the connection can not be borrowed
+   */
+  private String[] nativeSQLs(List<String> jdbcQueryStrings, SQLException[] failures) throws SQLException {
+    int pending = 0;
+    for (int i = 0; i < failures.length; i++) {
+      try {
+        this.checkNegativeCache(jdbcQueryStrings.get(i));
+        pending += 1;
+      } catch (SQLException e) {
+        failures[i] = e;
+      }
+    }
+    String[] nativeSqls = new String[failures.length];
+    if (pending == 0) {
+      return nativeSqls;
+    }
+    if (this.nativeSqlMode == NativeSqlMode.TRANSLATOR) {
+      this.batchNativeSQLs(jdbcQueryStrings, null, nativeSqls, failures);
+      return nativeSqls;
+    }
+    Connection borrowed;
+    try {
+      borrowed = this.borrowConnection();
+    } catch (SQLException e) {
+      // every single lookup would have failed the same way
+      for (int i = 0; i < failures.length; i++) {
+        if (failures[i] == null) {
+          this.rememberFailure(jdbcQueryStrings.get(i), e);
+        }
+      }
+      throw e;
+    }
+    try (Connection connection = borrowed) {
+      this.batchNativeSQLs(jdbcQueryStrings, connection, nativeSqls, failures);
+    }
+    return nativeSqls;
+  }
+
+  /**
+   * Converts the JDBC query strings of a batch that did not fail yet and
+   * remembers the failures.
+   *
+   * @param connection the borrowed connection,
+   *                   {@code null} to translate
+   */
+  private void batchNativeSQLs(List<String> jdbcQueryStrings, Connection connection,
+          String[] nativeSqls, SQLException[] failures) {
+    for (int i = 0; i < failures.length; i++) {
+      if (failures[i] != null) {
+        continue;
+      }
+      String jdbcQueryString = jdbcQueryStrings.get(i);
+      try {
+        if (connection != null) {
+          nativeSqls[i] = this.nativeSQL(jdbcQueryString, connection);
+        } else {
+          nativeSqls[i] = translateNativeSQL(jdbcQueryString);
+        }
+      } catch (UncheckedSQLException e) {
+        // convert unchecked to checked
+        SQLException failure = e.getCause();
+        this.rememberFailure(jdbcQueryString, failure);
+        failures[i] = failure;
+      }
+    }
+  }
+
+  /**
+   * Adds a computed sql_id to the caches, returns the cached value if an other thread was faster.
+   */
+  private IdentitySqlIdCache.Entry addSqlId(String jdbcQueryString, long computedBinarySqlId) {
+    return this.lookup(this.jdbcFrontCache, jdbcQueryString, new SqlIdLoader(computedBinarySqlId));
+  }
+
+  private IdentitySqlIdCache.Entry lookup(IdentitySqlIdCache frontCache, String sql, Function<String, String> toNativeSql) {
+    return this.lookup(frontCache, sql, new SqlIdLoader(toNativeSql));
+  }
+
+  private IdentitySqlIdCache.Entry lookup(IdentitySqlIdCache frontCache, String sql, SqlIdLoader loader) {
+    String sqlId;
+    long binarySqlId;
+    if (this.cache != null) {
+      sqlId = this.cache.get(sql, loader);
+      binarySqlId = Base32.parse(sqlId);
+    } else {
+      binarySqlId = this.binaryCache.get(sql, loader);
+      sqlId = Base32.toBase32String(binarySqlId);
+    }
+    if (loader.loaded) {
+      // only query strings seen before are offered to the front cache
+      return new IdentitySqlIdCache.Entry(sql, sqlId, binarySqlId);
+    }
+    return frontCache.put(sql, sqlId, binarySqlId);
+  }
+
+  /**
+   * Like {@link #nativeSQL(String, Connection)} but waits if too many
+   * connections are borrowed already.
+   */
+  private String boundedNativeSQL(String jdbcQueryString) {
+    if (this.nativeSqlMode == NativeSqlMode.TRANSLATOR) {
+      // never borrows a connection
+      return translateNativeSQL(jdbcQueryString);
+    }
+    try {
+      this.nativeSqlPermits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new UncheckedSQLException(new SQLException("interrupted while waiting for a connection", e));
+    }
+    try {
+      return this.nativeSQL(jdbcQueryString, null);
+    } finally {
+      this.nativeSqlPermits.release();
+    }
+  }
+
+  /**
+   * Converts a JDBC query string to a native query string.
+   * 
+   * @param connection the connection of the caller,
+   *                   {@code null} to borrow one from the data source if needed
+   */
+  private String nativeSQL(String jdbcQueryString, Connection connection) {
+    OracleConnection oracleConnection = unwrapOracleConnection(connection);
+    if (oracleConnection != null) {
+      // fast path, exact and no round trip
+      return driverNativeSQLOf(jdbcQueryString, oracleConnection);
+    }
+    switch (this.nativeSqlMode) {
+      case DRIVER:
+        return this.driverNativeSQL(jdbcQueryString, connection);
+      case TRANSLATOR:
+        return translateNativeSQL(jdbcQueryString);
+      case VERIFIED_TRANSLATOR:
+        return this.verifiedNativeSQL(jdbcQueryString, connection);
+      default:
+        throw new IllegalStateException("unknown mode: " + this.nativeSqlMode);
+    }
+  }
+
+  private String verifiedNativeSQL(String jdbcQueryString, Connection connection) {
+    String translated;
+    try {
+      translated = NativeSqlTranslator.toNativeSql(jdbcQueryString);
+    } catch (SQLException e) {
+      // let the driver decide whether the query string is valid
+      this.translationMismatches.increment();
+      return this.driverNativeSQL(jdbcQueryString, connection);
+    }
+    // always verify the first translation
+    if ((this.translations.getAndIncrement() & (VERIFICATION_INTERVAL - 1)) != 0) {
+      return translated;
+    }
+    String nativeSql = this.driverNativeSQL(jdbcQueryString, connection);
+    if (!nativeSql.equals(translated)) {
+      this.translationMismatches.increment();
+    }
+    return nativeSql;
+  }
+
+  private static String translateNativeSQL(String jdbcQueryString) {
+    try {
+      return NativeSqlTranslator.toNativeSql(jdbcQueryString);
+    } catch (SQLException e) {
+      // convert checked to unchecked
+      throw new UncheckedSQLException(e);
+    }
+  }
+
+  private String driverNativeSQL(String jdbcQueryString, Connection connection) {
+    if (connection != null) {
+      return driverNativeSQLOf(jdbcQueryString, connection);
+    }
+    try (Connection borrowed = this.borrowConnection()) {
+      if (borrowed == null) {
+        return translateNativeSQL(jdbcQueryString);
+      }
+      return driverNativeSQLOf(jdbcQueryString, borrowed);
+    } catch (SQLException e) {
+      // convert checked to unchecked
+      throw new UncheckedSQLException(e);
+    }
+  }
+
+  /**
+   * Borrows a connection from the data source unless the circuit is open.
+   * 
+   * @return the borrowed connection,
+   *         {@code null} if the circuit is open and the JDBC query strings should be translated
+   * @throws SQLException if the connection can not be borrowed or the circuit is open
+   *                      and lookups should fail fast
+   */
+  private Connection borrowConnection() throws SQLException {
+    if (this.circuitBreaker == null) {
+      return this.dataSource.getConnection();
+    }
+    if (!this.circuitBreaker.tryAcquire()) {
+      if (this.openCircuitBehavior == FailurePolicy.OpenCircuitBehavior.TRANSLATE) {
+        return null;
+      }
+      throw new CircuitOpenException();
+    }
+    boolean success = false;
+    try {
+      Connection connection = this.dataSource.getConnection();
+      success = true;
+      return connection;
+    } finally {
+      if (success) {
+        this.circuitBreaker.onSuccess();
+      } else {
+        this.circuitBreaker.onFailure();
+      }
+    }
+  }
+
+  /**
+   * Returns the {@link OracleConnection} of a connection that may be wrapped
+   * by a connection pool.
+   *
+   * @param connection the connection of the caller, may be {@code null}
+   * @return the {@link OracleConnection}, {@code null} if {@code connection}
+   *         is {@code null} or does not wrap an {@link OracleConnection}
+   */
+  private static OracleConnection unwrapOracleConnection(Connection connection) {
+    if (connection == null) {
+      return null;
+    }
+    if (connection instanceof OracleConnection) {
+      return (OracleConnection) connection;
+    }
+    try {
+      if (connection.isWrapperFor(OracleConnection.class)) {
+        return connection.unwrap(OracleConnection.class);
+      }
+      return null;
+    } catch (SQLException e) {
+      // convert checked to unchecked
+      throw new UncheckedSQLException(e);
+    }
+  }
+
+  private static String driverNativeSQLOf(String jdbcQueryString, Connection connection) {
+    try {
+      return connection.nativeSQL(jdbcQueryString);
+    } catch (SQLException e) {
+      // convert checked to unchecked
+      throw new UncheckedSQLException(e);
+    }
+  }
+
+  /**
+   * Thrown instead of borrowing a connection while the circuit is open with
+   * {@link FailurePolicy.OpenCircuitBehavior#FAIL_FAST}.
+   */
+  static final class CircuitOpenException extends SQLTransientConnectionException {
+
+    CircuitOpenException() {
+      super("circuit breaker open, not borrowing a connection");
+    }
+
   }
 
   static final class UncheckedSQLException extends RuntimeException {
@@ -125,4 +1031,46 @@ public final class SqlIdLookup {
 
   }
 
+  /**
+   * Computes the sql_id of a cache miss and remembers whether it was called.
+   */
+  private static final class SqlIdLoader implements Function<String, String>, ToLongFunction<String> {
+
+    // null if the binary sql_id is already computed
+    private final Function<String, String> toNativeSql;
+
+    private final long computedBinarySqlId;
+
+    /**
+     * Whether the sql_id was computed, only read by the thread that
+     * called the cache.
+     */
+    boolean loaded;
+
+    SqlIdLoader(Function<String, String> toNativeSql) {
+      this.toNativeSql = toNativeSql;
+      this.computedBinarySqlId = 0L;
+    }
+
+    SqlIdLoader(long computedBinarySqlId) {
+      this.toNativeSql = null;
+      this.computedBinarySqlId = computedBinarySqlId;
+    }
+
+    @Override
+    public String apply(String sql) {
+      return Base32.toBase32String(this.applyAsLong(sql));
+    }
+
+    @Override
+    public long applyAsLong(String sql) {
+      this.loaded = true;
+      if (this.toNativeSql == null) {
+        return this.computedBinarySqlId;
+      }
+      return SqlId.computeBinary(this.toNativeSql.apply(sql));
+    }
+
+  }
+
 }
@@ -0,0 +1,170 @@
+package com.github.marschall.sqlid;
+
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+/**
+ * The precomputed MD5 state of the common prefix of a family of native SQL statements.
+ * <p>
+ * Useful when many statements share a long prefix, eg. a long select list,
+ * and differ only in the where clause or the number of elements in an in list.
+ * The MD5 state after all the complete 64 byte chunks of the prefix is
+ * computed once, computing the sql_id of a statement only hashes the
+ * remainder of the prefix and the suffix.
+ * <p>
+ * Instances are immutable and thread safe.
+ *
+ * <pre><code>
+ * SqlIdPrefix prefix = SqlIdPrefix.of("SELECT id, name FROM employees ");
+ * String byId = prefix.compute("WHERE id = :1 ");
+ * String byName = prefix.compute("WHERE name = :1 ");
+ * </code></pre>
+ */
+public final class SqlIdPrefix {
+
+  /**
+   * The state after hashing the prefix, never updated, only copied.
+   */
+  private final SqlIdHasher prefixState;
+
+  private SqlIdPrefix(SqlIdHasher prefixState) {
+    this.prefixState = prefixState;
+  }
+
+  /**
+   * Precomputes the MD5 state of a prefix.
+   *
+   * @param nativeSqlPrefix the common prefix of the native SQL statements,
+   *                        not {@code null}
+   * @return the precomputed prefix
+   * @throws IllegalArgumentException if the prefix ends in a high surrogate
+   */
+  public static SqlIdPrefix of(CharSequence nativeSqlPrefix) {
+    Objects.requireNonNull(nativeSqlPrefix, "nativeSqlPrefix");
+    SqlIdHasher hasher = new SqlIdHasher();
+    hasher.update(nativeSqlPrefix);
+    hasher.flush();
+    return new SqlIdPrefix(hasher);
+  }
+
+  /**
+   * Computes the sql_id of the native SQL statement consisting of this prefix
+   * followed by the given suffix.
+   *
+   * @param nativeSqlSuffix the rest of the native SQL statement without trailing 0x00 byte,
+   *                        not {@code null}
+   * @return sql_id as computed by Oracle
+   */
+  public String compute(CharSequence nativeSqlSuffix) {
+    return Base32.toBase32String(this.computeBinary(nativeSqlSuffix));
+  }
+
+  /**
+   * Computes the sql_id in binary form of the native SQL statement consisting
+   * of this prefix followed by the given suffix.
+   *
+   * @param nativeSqlSuffix the rest of the native SQL statement without trailing 0x00 byte,
+   *                        not {@code null}
+   * @return binary sql_id, the last 64 bits of the MD5 hash
+   * @see SqlIdValue#valueOf(long)
+   */
+  public long computeBinary(CharSequence nativeSqlSuffix) {
+    Objects.requireNonNull(nativeSqlSuffix, "nativeSqlSuffix");
+    SqlIdHasher hasher = new SqlIdHasher(this.prefixState);
+    hasher.update(nativeSqlSuffix);
+    return hasher.finishBinary();
+  }
+
+  /**
+   * Computes the sql_ids of all the variants of an in list with 1 up to
+   * {@code maxElements} bind parameters.
+   * <p>
+   * The statement with {@code n} elements consists of this prefix, the
+   * bind parameters {@code :firstBindIndex } to {@code :(firstBindIndex + n - 1) }
+   * separated by {@code separator} and {@code nativeSqlSuffix}. The bind
+   * parameters have the format produced by {@link java.sql.Connection#nativeSQL(String)},
+   * for example the JDBC string {@code "... IN (?, ?)"} corresponds to the
+   * prefix {@code "... IN ("}, the separator {@code ", "} and the suffix {@code ")"}.
+   * <p>
+   * The variants are computed incrementally, every bind parameter is only hashed once.
+   *
+   * @param firstBindIndex the index of the first bind parameter of the in list, must be positive
+   * @param maxElements the maximum number of elements, must not be negative
+   * @param separator the separator between bind parameters, eg. {@code ", "},
+   *                  not {@code null}
+   * @param nativeSqlSuffix the rest of the native SQL statement after the in list
+   *                        without trailing 0x00 byte, not {@code null}
+   * @return the sql_ids, the sql_id with {@code n} elements is at index {@code n - 1}
+   */
+  public String[] computeInListVariants(int firstBindIndex, int maxElements, CharSequence separator, CharSequence nativeSqlSuffix) {
+    Objects.requireNonNull(nativeSqlSuffix, "nativeSqlSuffix");
+    return this.computeInListVariants(firstBindIndex, maxElements, separator, elements -> nativeSqlSuffix);
+  }
+
+  /**
+   * Computes the sql_ids of all the variants of an in list with 1 up to
+   * {@code maxElements} bind parameters where the suffix depends on the number
+   * of elements, eg. because the suffix contains additional bind parameters.
+   *
+   * @param firstBindIndex the index of the first bind parameter of the in list, must be positive
+   * @param maxElements the maximum number of elements, must not be negative
+   * @param separator the separator between bind parameters, eg. {@code ", "},
+   *                  not {@code null}
+   * @param nativeSqlSuffix computes the rest of the native SQL statement after
+   *                        the in list for a number of elements, not {@code null}
+   * @return the sql_ids, the sql_id with {@code n} elements is at index {@code n - 1}
+   * @see #computeInListVariants(int, int, CharSequence, CharSequence)
+   */
+  public String[] computeInListVariants(int firstBindIndex, int maxElements, CharSequence separator,
+          IntFunction<? extends CharSequence> nativeSqlSuffix) {
+    long[] binarySqlIds = this.computeBinaryInListVariants(firstBindIndex, maxElements, separator, nativeSqlSuffix);
+    String[] sqlIds = new String[binarySqlIds.length];
+    for (int i = 0; i < binarySqlIds.length; i++) {
+      sqlIds[i] = Base32.toBase32String(binarySqlIds[i]);
+    }
+    return sqlIds;
+  }
+
+  /**
+   * Computes the sql_ids in binary form of all the variants of an in list
+   * with 1 up to {@code maxElements} bind parameters.
+   *
+   * @param firstBindIndex the index of the first bind parameter of the in list, must be positive
+   * @param maxElements the maximum number of elements, must not be negative
+   * @param separator the separator between bind parameters, eg. {@code ", "},
+   *                  not {@code null}
+   * @param nativeSqlSuffix computes the rest of the native SQL statement after
+   *                        the in list for a number of elements, not {@code null}
+   * @return the binary sql_ids, the sql_id with {@code n} elements is at index {@code n - 1}
+   * @see #computeInListVariants(int, int, CharSequence, CharSequence)
+   */
+  public long[] computeBinaryInListVariants(int firstBindIndex, int maxElements, CharSequence separator,
+          IntFunction<? extends CharSequence> nativeSqlSuffix) {
+    Objects.requireNonNull(separator, "separator");
+    Objects.requireNonNull(nativeSqlSuffix, "nativeSqlSuffix");
+    if (firstBindIndex <= 0) {
+      throw new IllegalArgumentException("first bind index must be positive but was: " + firstBindIndex);
+    }
+    if (maxElements < 0) {
+      throw new IllegalArgumentException("max elements must not be negative but was: " + maxElements);
+    }
+    long[] binarySqlIds = new long[maxElements];
+    // prefix and all the elements so far
+    SqlIdHasher inList = new SqlIdHasher(this.prefixState);
+    StringBuilder element = new StringBuilder();
+    for (int i = 0; i < maxElements; i++) {
+      element.setLength(0);
+      if (i > 0) {
+        element.append(separator);
+      }
+      element.append(':').append(firstBindIndex + i).append(' ');
+      inList.update(element);
+
+      SqlIdHasher variant = new SqlIdHasher(inList);
+      variant.update(nativeSqlSuffix.apply(i + 1));
+      binarySqlIds[i] = variant.finishBinary();
+    }
+    return binarySqlIds;
+  }
+
+}
@@ -0,0 +1,130 @@
+package com.github.marschall.sqlid;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * An Oracle sql_id stored as a 64 bit value.
+ * <p>
+ * Comparing and hashing instances is cheaper than comparing and hashing the
+ * 13 character sql_id {@link String}. The {@link String} representation is
+ * only computed when requested through {@link #toString()}.
+ * <p>
+ * Instances are immutable and thread safe.
+ *
+ * @see SqlId#computeBinary(String)
+ */
+public final class SqlIdValue implements Comparable<SqlIdValue> {
+
+  private final long value;
+
+  /**
+   * Lazily computed, racy single check idiom as {@link String} is immutable.
+   */
+  private String sqlId;
+
+  private SqlIdValue(long value) {
+    this.value = value;
+  }
+
+  /**
+   * Creates a {@link SqlIdValue} from a binary sql_id.
+   *
+   * @param binarySqlId the binary sql_id
+   * @return the sql_id value
+   * @see SqlId#computeBinary(String)
+   */
+  public static SqlIdValue valueOf(long binarySqlId) {
+    return new SqlIdValue(binarySqlId);
+  }
+
+  /**
+   * Parses a {@link SqlIdValue} from a sql_id.
+   *
+   * @param sqlId the 13 character sql_id, not {@code null}
+   * @return the sql_id value
+   * @throws IllegalArgumentException if {@code sqlId} is not a valid sql_id
+   */
+  public static SqlIdValue parse(CharSequence sqlId) {
+    Objects.requireNonNull(sqlId, "sqlId");
+    return new SqlIdValue(Base32.parse(sqlId));
+  }
+
+  /**
+   * Returns the binary sql_id.
+   *
+   * @return the binary sql_id, the last 64 bits of the MD5 hash
+   */
+  public long longValue() {
+    return this.value;
+  }
+
+  /**
+   * Returns the hash value, the low 32 bits of the sql_id.
+   * <p>
+   * This is the same value as in the {@code HASH_VALUE} column of {@code V$SQL}.
+   *
+   * @return the hash value, an unsigned 32 bit integer
+   */
+  public long hashValue() {
+    return Integer.toUnsignedLong((int) this.value);
+  }
+
+  /**
+   * Returns the sql_id as a 13 character {@link String}.
+   *
+   * @return sql_id as computed by Oracle
+   */
+  @Override
+  public String toString() {
+    String s = this.sqlId;
+    if (s == null) {
+      s = Base32.toBase32String(this.value);
+      this.sqlId = s;
+    }
+    return s;
+  }
+
+  /**
+   * Appends the 13 character sql_id without computing the {@link String} representation.
+   *
+   * @param destination where to append the sql_id, not {@code null}
+   * @throws IOException if appending fails
+   */
+  public void appendTo(Appendable destination) throws IOException {
+    Objects.requireNonNull(destination, "destination");
+    String s = this.sqlId;
+    if (s != null) {
+      destination.append(s);
+    } else {
+      Base32.appendTo(this.value, destination);
+    }
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof SqlIdValue)) {
+      return false;
+    }
+    SqlIdValue other = (SqlIdValue) obj;
+    return this.value == other.value;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(this.value);
+  }
+
+  /**
+   * Compares two sql_ids. The order is consistent with the order of the
+   * {@link String} representations.
+   */
+  @Override
+  public int compareTo(SqlIdValue o) {
+    return Long.compareUnsigned(this.value, o.value);
+  }
+
+}
@@ -0,0 +1,139 @@
+package com.github.marschall.sqlid;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * A {@link Cache} that adds a small per-thread cache in front of a shared
+ * {@link Cache}.
+ * <p>
+ * If a thread looks up the same few keys repeatedly most lookups are
+ * answered from the per-thread cache without any locking or atomic
+ * operations. Only misses are forwarded to the shared cache. Since sql_ids
+ * only depend on the query string no invalidation is needed.
+ *
+ * <h2>Implementation Notes</h2>
+ * The per-thread cache is direct mapped, a key is only ever stored in a
+ * single slot and a new key replaces the previous one in that slot.
+ * <p>
+ * The per-thread caches are held in a {@link ThreadLocal}. Every thread that
+ * uses this cache allocates its own per-thread cache on first use. A thread
+ * that performs only a single lookup, as with a thread per task executor,
+ * never hits its per-thread cache and only pays for allocating it. Virtual
+ * threads are usually used this way so on Java 21 and later lookups from
+ * virtual threads bypass the per-thread cache and go directly to the shared
+ * cache. Lookups from short lived platform threads, eg. from
+ * {@code Executors.newThreadPerTaskExecutor}, still allocate a per-thread
+ * cache, this cache should not be used with such threads.
+ *
+ * @param <K> the type of the lookup keys
+ * @param <V> the type of the cached values
+ */
+public final class ThreadLocalCache<K, V> implements Cache<K, V> {
+
+  private final Cache<K, V> delegate;
+
+  private final ThreadLocal<Entry<K, V>[]> entries;
+
+  private final int mask;
+
+  private final int shift;
+
+  /**
+   * Constructs a {@link ThreadLocalCache}.
+   *
+   * @param delegate the shared cache to use on a miss,
+   *                 not {@code null}
+   * @param size the number of entries per thread,
+   *             must be positive, is rounded up to the next power of two
+   * @throws IllegalArgumentException if {@code size} is not positive or too large
+   */
+  public ThreadLocalCache(Cache<K, V> delegate, int size) {
+    Objects.requireNonNull(delegate, "delegate");
+    if (size <= 0) {
+      throw new IllegalArgumentException("size must be positive");
+    }
+    if (size > (1 << 16)) {
+      throw new IllegalArgumentException("size too large: " + size);
+    }
+    int slots = size == 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+    this.delegate = delegate;
+    this.mask = slots - 1;
+    // 0 for a single slot, 32 would not shift at all
+    this.shift = slots == 1 ? 0 : Integer.numberOfLeadingZeros(slots - 1);
+    this.entries = ThreadLocal.withInitial(() -> newEntries(slots));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <EK, EV> Entry<EK, EV>[] newEntries(int slots) {
+    return new Entry[slots];
+  }
+
+  @Override
+  public V get(K key, Function<? super K, ? extends V> loader) {
+    Objects.requireNonNull(key, "key");
+    if (VirtualThreads.isCurrentThreadVirtual()) {
+      // would never hit
+      return this.delegate.get(key, loader);
+    }
+    Entry<K, V>[] threadEntries = this.entries.get();
+    int slot = this.slot(key);
+    Entry<K, V> entry = threadEntries[slot];
+    if ((entry != null) && ((entry.key == key) || entry.key.equals(key))) {
+      return entry.value;
+    }
+    V value = this.delegate.get(key, loader);
+    threadEntries[slot] = new Entry<>(key, value);
+    return value;
+  }
+
+  @Override
+  public V getIfPresent(K key) {
+    Objects.requireNonNull(key, "key");
+    if (VirtualThreads.isCurrentThreadVirtual()) {
+      // would never hit
+      return this.delegate.getIfPresent(key);
+    }
+    Entry<K, V>[] threadEntries = this.entries.get();
+    int slot = this.slot(key);
+    Entry<K, V> entry = threadEntries[slot];
+    if ((entry != null) && ((entry.key == key) || entry.key.equals(key))) {
+      return entry.value;
+    }
+    V value = this.delegate.getIfPresent(key);
+    if (value != null) {
+      threadEntries[slot] = new Entry<>(key, value);
+    }
+    return value;
+  }
+
+  int size() {
+    return this.mask + 1;
+  }
+
+  private int slot(K key) {
+    // Fibonacci hashing, the high bits of the product depend on all bits of
+    // the hash code, query strings differing only in the last character
+    // have consecutive hash codes and end up in different slots
+    return ((key.hashCode() * 0x9E3779B9) >>> this.shift) & this.mask;
+  }
+
+  static final class Entry<EK, EV> {
+
+    final EK key;
+
+    final EV value;
+
+    Entry(EK key, EV value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    @Override
+    public String toString() {
+      return this.key + "=" + this.value;
+    }
+
+  }
+
+}
@@ -0,0 +1,283 @@
+package com.github.marschall.sqlid;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * An implementation of {@link Cache} that uses the Window TinyLFU (W-TinyLFU)
+ * algorithm.
+ * <p>
+ * Unlike {@link HashLruCache} this cache is scan resistant. Keys that are
+ * accessed only once, eg. statements with inlined literals, do not evict
+ * frequently accessed keys.
+ *
+ * <h2>Implementation Notes</h2>
+ * New values are added to a small LRU admission window of 1% of the
+ * capacity. Values evicted from the window are only admitted to the main
+ * segmented LRU if their estimated access frequency is higher than the one
+ * of the value that would be evicted from the main segmented LRU. The access
+ * frequencies are estimated with a count-min sketch.
+ * <p>
+ * Accessing the cache acquires an exclusive lock that is released during the
+ * computation of the value to be cached.
+ *
+ * @param <K> the type of the lookup keys
+ * @param <V> the type of the cached values
+ * @see <a href="https://arxiv.org/abs/1512.00727">TinyLFU: A Highly Efficient Cache Admission Policy</a>
+ */
+public final class TinyLfuCache<K, V> implements Cache<K, V> {
+
+  private static final int WINDOW = 0;
+  private static final int PROBATION = 1;
+  private static final int PROTECTED = 2;
+
+  private final int windowCapacity;
+
+  private final int protectedCapacity;
+
+  private final int mainCapacity;
+
+  private final Map<K, Node<K, V>> values;
+
+  private final FrequencySketch sketch;
+
+  private final Queue<K, V> window;
+
+  private final Queue<K, V> probation;
+
+  private final Queue<K, V> protectedQueue;
+
+  private final Lock lock;
+
+  /**
+   * Constructs a {@link TinyLfuCache}.
+   *
+   * @param capacity the desired maximum capacity of this cache,
+   *                 must be positive
+   * @throws IllegalArgumentException if {@code capacity} is not positive
+   */
+  public TinyLfuCache(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive");
+    }
+    this.windowCapacity = Math.max(1, capacity / 100);
+    this.mainCapacity = capacity - this.windowCapacity;
+    this.protectedCapacity = (int) (this.mainCapacity * 0.8d);
+    this.values = new HashMap<>(capacity);
+    this.sketch = new FrequencySketch(capacity);
+    this.window = new Queue<>();
+    this.probation = new Queue<>();
+    this.protectedQueue = new Queue<>();
+    this.lock = new ReentrantLock(false);
+  }
+
+  @Override
+  public V get(K key, Function<? super K, ? extends V> loader) {
+    Objects.requireNonNull(key, "key");
+    Objects.requireNonNull(loader, "loader");
+    this.lock.lock();
+    try {
+      this.sketch.increment(key.hashCode());
+      Node<K, V> node = this.values.get(key);
+      if (node != null) {
+        this.onHit(node);
+        return node.value;
+      }
+    } finally {
+      this.lock.unlock();
+    }
+    // recompute the value outside of the lock
+    // recomputing the value is likely expensive, otherwise we would not need a cache
+    V value = loader.apply(key);
+    Objects.requireNonNull(value, "value");
+
+    this.lock.lock();
+    try {
+      // because we computed the value outside the lock the value may now be in the cache
+      Node<K, V> readBack = this.values.get(key);
+      if (readBack != null) {
+        this.onHit(readBack);
+        return readBack.value;
+      }
+      this.addNewValue(key, value);
+      return value;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  @Override
+  public V getIfPresent(K key) {
+    Objects.requireNonNull(key, "key");
+    this.lock.lock();
+    try {
+      Node<K, V> node = this.values.get(key);
+      if (node != null) {
+        // a miss is counted by the following #get
+        this.sketch.increment(key.hashCode());
+        this.onHit(node);
+        return node.value;
+      }
+      return null;
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  int size() {
+    this.lock.lock();
+    try {
+      return this.values.size();
+    } finally {
+      this.lock.unlock();
+    }
+  }
+
+  // requires lock
+  private void onHit(Node<K, V> node) {
+    switch (node.queueType) {
+      case WINDOW:
+        this.window.moveToMostRecentlyUsed(node);
+        break;
+      case PROBATION:
+        // promote
+        this.probation.remove(node);
+        node.queueType = PROTECTED;
+        this.protectedQueue.addMostRecentlyUsed(node);
+        if (this.protectedQueue.size > this.protectedCapacity) {
+          // demote
+          Node<K, V> demoted = this.protectedQueue.leastRecentlyUsed;
+          this.protectedQueue.remove(demoted);
+          demoted.queueType = PROBATION;
+          this.probation.addMostRecentlyUsed(demoted);
+        }
+        break;
+      case PROTECTED:
+        this.protectedQueue.moveToMostRecentlyUsed(node);
+        break;
+      default:
+        throw new IllegalStateException("unknown queue type: " + node.queueType);
+    }
+  }
+
+  // requires lock
+  private void addNewValue(K key, V value) {
+    Node<K, V> newNode = new Node<>(key, value);
+    this.values.put(key, newNode);
+    newNode.queueType = WINDOW;
+    this.window.addMostRecentlyUsed(newNode);
+    if (this.window.size <= this.windowCapacity) {
+      return;
+    }
+
+    // the window is full, the least recently used window entry becomes a candidate for the main segment
+    Node<K, V> candidate = this.window.leastRecentlyUsed;
+    this.window.remove(candidate);
+    if ((this.probation.size + this.protectedQueue.size) < this.mainCapacity) {
+      // the main segment still has space
+      candidate.queueType = PROBATION;
+      this.probation.addMostRecentlyUsed(candidate);
+      return;
+    }
+    Node<K, V> victim = this.probation.leastRecentlyUsed;
+    if (victim == null) {
+      victim = this.protectedQueue.leastRecentlyUsed;
+    }
+    if (victim == null) {
+      // no main segment, capacity of 1
+      this.values.remove(candidate.key);
+      return;
+    }
+    if (this.sketch.frequency(candidate.key.hashCode()) > this.sketch.frequency(victim.key.hashCode())) {
+      // admit the candidate, evict the victim
+      this.queueOf(victim).remove(victim);
+      this.values.remove(victim.key);
+      candidate.queueType = PROBATION;
+      this.probation.addMostRecentlyUsed(candidate);
+    } else {
+      // reject the candidate
+      this.values.remove(candidate.key);
+    }
+  }
+
+  private Queue<K, V> queueOf(Node<K, V> node) {
+    return node.queueType == PROBATION ? this.probation : this.protectedQueue;
+  }
+
+  /**
+   * A doubly linked list in LRU order.
+   */
+  static final class Queue<QK, QV> {
+
+    Node<QK, QV> mostRecentlyUsed;
+
+    Node<QK, QV> leastRecentlyUsed;
+
+    int size;
+
+    void addMostRecentlyUsed(Node<QK, QV> node) {
+      node.previous = null;
+      node.next = this.mostRecentlyUsed;
+      if (this.mostRecentlyUsed != null) {
+        this.mostRecentlyUsed.previous = node;
+      } else {
+        this.leastRecentlyUsed = node;
+      }
+      this.mostRecentlyUsed = node;
+      this.size += 1;
+    }
+
+    void remove(Node<QK, QV> node) {
+      if (node.previous != null) {
+        node.previous.next = node.next;
+      } else {
+        this.mostRecentlyUsed = node.next;
+      }
+      if (node.next != null) {
+        node.next.previous = node.previous;
+      } else {
+        this.leastRecentlyUsed = node.previous;
+      }
+      node.previous = null;
+      node.next = null;
+      this.size -= 1;
+    }
+
+    void moveToMostRecentlyUsed(Node<QK, QV> node) {
+      if (node != this.mostRecentlyUsed) {
+        this.remove(node);
+        this.addMostRecentlyUsed(node);
+      }
+    }
+
+  }
+
+  static final class Node<NK, NV> {
+
+    final NK key;
+
+    final NV value;
+
+    int queueType;
+
+    Node<NK, NV> previous;
+
+    Node<NK, NV> next;
+
+    Node(NK key, NV value) {
+      this.key = key;
+      this.value = value;
+    }
+
+    @Override
+    public String toString() {
+        return this.key + "=" + this.value;
+    }
+
+  }
+
+}
@@ -0,0 +1,19 @@
+package com.github.marschall.sqlid;
+
+/**
+ * Detects virtual threads.
+ * <p>
+ * This is the Java 8 version, there are no virtual threads. The Java 21
+ * version uses {@code Thread#isVirtual()}.
+ */
+final class VirtualThreads {
+
+  private VirtualThreads() {
+    throw new AssertionError("not instantiable");
+  }
+
+  static boolean isCurrentThreadVirtual() {
+    return false;
+  }
+
+}
@@ -0,0 +1,33 @@
+package com.github.marschall.sqlid;
+
+import java.util.List;
+
+/**
+ * Computes the MD5 hashes of many messages.
+ * <p>
+ * This is the Java 17 version, if the {@code jdk.incubator.vector} module is
+ * present several messages are hashed at once using {@link VectorMD5}.
+ */
+final class MultiBufferMD5 {
+
+  private static final boolean VECTOR_AVAILABLE = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+  private MultiBufferMD5() {
+    throw new AssertionError("not instantiable");
+  }
+
+  static void computeBinarySqlIds(List<? extends CharSequence> nativeSqls, long[] binarySqlIds, int from, int to) {
+    if (VECTOR_AVAILABLE && ((to - from) >= VectorMD5.laneCount()) && (VectorMD5.laneCount() > 1)) {
+      VectorMD5.computeBinarySqlIds(nativeSqls, binarySqlIds, from, to);
+    } else {
+      for (int i = from; i < to; i++) {
+        CharSequence nativeSql = nativeSqls.get(i);
+        if (nativeSql == null) {
+          throw new NullPointerException("nativeSql at index: " + i);
+        }
+        binarySqlIds[i] = MD5.getBinarySqlId(nativeSql);
+      }
+    }
+  }
+
+}
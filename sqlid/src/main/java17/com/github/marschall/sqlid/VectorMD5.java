@@ -0,0 +1,299 @@
+package com.github.marschall.sqlid;
+
+import static jdk.incubator.vector.VectorOperators.AND_NOT;
+import static jdk.incubator.vector.VectorOperators.ROL;
+import static jdk.incubator.vector.VectorOperators.XOR;
+
+import java.util.List;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Multi-buffer MD5 hashing using the Vector API, hashes one ASCII message per
+ * vector lane in lockstep.
+ * <p>
+ * Every lane has its own message, when a lane is done the next message is
+ * loaded into it. Messages containing non-ASCII characters are hashed with
+ * the scalar implementation in {@link MD5}.
+ * <p>
+ * Requires the {@code jdk.incubator.vector} module.
+ */
+final class VectorMD5 {
+
+  private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+  private static final int CHUNK_BYTES = 64;
+
+  /*
+   * Constants for MD5Transform routine.
+   */
+  private static final int S11 = 7;
+  private static final int S12 = 12;
+  private static final int S13 = 17;
+  private static final int S14 = 22;
+  private static final int S21 = 5;
+  private static final int S22 = 9;
+  private static final int S23 = 14;
+  private static final int S24 = 20;
+  private static final int S31 = 4;
+  private static final int S32 = 11;
+  private static final int S33 = 16;
+  private static final int S34 = 23;
+  private static final int S41 = 6;
+  private static final int S42 = 10;
+  private static final int S43 = 15;
+  private static final int S44 = 21;
+
+  private VectorMD5() {
+    throw new AssertionError("not instantiable");
+  }
+
+  static int laneCount() {
+    return SPECIES.length();
+  }
+
+  static void computeBinarySqlIds(List<? extends CharSequence> nativeSqls, long[] binarySqlIds, int from, int to) {
+    computeBinarySqlIds(SPECIES, nativeSqls, binarySqlIds, from, to);
+  }
+
+  /**
+   * Computes the binary sql_ids using a given species instead of the
+   * preferred one, allows to test lane counts the current CPU does not
+   * prefer.
+   */
+  static void computeBinarySqlIds(VectorSpecies<Integer> species,
+          List<? extends CharSequence> nativeSqls, long[] binarySqlIds, int from, int to) {
+    int laneCount = species.length();
+    int[] a0 = new int[laneCount];
+    int[] b0 = new int[laneCount];
+    int[] c0 = new int[laneCount];
+    int[] d0 = new int[laneCount];
+    int[][] words = new int[16][laneCount];
+
+    // per lane state, the index of the message, -1 if the lane is idle
+    int[] messageIndices = new int[laneCount];
+    int[] chunkIndices = new int[laneCount];
+    int[] chunkCounts = new int[laneCount];
+
+    int nextMessage = from;
+    int activeLanes = 0;
+    for (int lane = 0; lane < laneCount; lane++) {
+      nextMessage = loadNextMessage(nativeSqls, binarySqlIds, nextMessage, to, lane,
+              messageIndices, chunkIndices, chunkCounts, a0, b0, c0, d0, words);
+      if (messageIndices[lane] >= 0) {
+        activeLanes += 1;
+      }
+    }
+
+    while (activeLanes > 0) {
+      IntVector a = IntVector.fromArray(species, a0, 0);
+      IntVector b = IntVector.fromArray(species, b0, 0);
+      IntVector c = IntVector.fromArray(species, c0, 0);
+      IntVector d = IntVector.fromArray(species, d0, 0);
+      IntVector aa = a;
+      IntVector bb = b;
+      IntVector cc = c;
+      IntVector dd = d;
+
+      IntVector  x0 = IntVector.fromArray(species,  words[0], 0);
+      IntVector  x1 = IntVector.fromArray(species,  words[1], 0);
+      IntVector  x2 = IntVector.fromArray(species,  words[2], 0);
+      IntVector  x3 = IntVector.fromArray(species,  words[3], 0);
+      IntVector  x4 = IntVector.fromArray(species,  words[4], 0);
+      IntVector  x5 = IntVector.fromArray(species,  words[5], 0);
+      IntVector  x6 = IntVector.fromArray(species,  words[6], 0);
+      IntVector  x7 = IntVector.fromArray(species,  words[7], 0);
+      IntVector  x8 = IntVector.fromArray(species,  words[8], 0);
+      IntVector  x9 = IntVector.fromArray(species,  words[9], 0);
+      IntVector x10 = IntVector.fromArray(species, words[10], 0);
+      IntVector x11 = IntVector.fromArray(species, words[11], 0);
+      IntVector x12 = IntVector.fromArray(species, words[12], 0);
+      IntVector x13 = IntVector.fromArray(species, words[13], 0);
+      IntVector x14 = IntVector.fromArray(species, words[14], 0);
+      IntVector x15 = IntVector.fromArray(species, words[15], 0);
+
+      /* Round 1 */
+      a = a.add(b.and(c).or(d.lanewise(AND_NOT, b))).add(x0).add(0xd76aa478).lanewise(ROL, S11).add(b); /* 1 */
+      d = d.add(a.and(b).or(c.lanewise(AND_NOT, a))).add(x1).add(0xe8c7b756).lanewise(ROL, S12).add(a); /* 2 */
+      c = c.add(d.and(a).or(b.lanewise(AND_NOT, d))).add(x2).add(0x242070db).lanewise(ROL, S13).add(d); /* 3 */
+      b = b.add(c.and(d).or(a.lanewise(AND_NOT, c))).add(x3).add(0xc1bdceee).lanewise(ROL, S14).add(c); /* 4 */
+      a = a.add(b.and(c).or(d.lanewise(AND_NOT, b))).add(x4).add(0xf57c0faf).lanewise(ROL, S11).add(b); /* 5 */
+      d = d.add(a.and(b).or(c.lanewise(AND_NOT, a))).add(x5).add(0x4787c62a).lanewise(ROL, S12).add(a); /* 6 */
+      c = c.add(d.and(a).or(b.lanewise(AND_NOT, d))).add(x6).add(0xa8304613).lanewise(ROL, S13).add(d); /* 7 */
+      b = b.add(c.and(d).or(a.lanewise(AND_NOT, c))).add(x7).add(0xfd469501).lanewise(ROL, S14).add(c); /* 8 */
+      a = a.add(b.and(c).or(d.lanewise(AND_NOT, b))).add(x8).add(0x698098d8).lanewise(ROL, S11).add(b); /* 9 */
+      d = d.add(a.and(b).or(c.lanewise(AND_NOT, a))).add(x9).add(0x8b44f7af).lanewise(ROL, S12).add(a); /* 10 */
+      c = c.add(d.and(a).or(b.lanewise(AND_NOT, d))).add(x10).add(0xffff5bb1).lanewise(ROL, S13).add(d); /* 11 */
+      b = b.add(c.and(d).or(a.lanewise(AND_NOT, c))).add(x11).add(0x895cd7be).lanewise(ROL, S14).add(c); /* 12 */
+      a = a.add(b.and(c).or(d.lanewise(AND_NOT, b))).add(x12).add(0x6b901122).lanewise(ROL, S11).add(b); /* 13 */
+      d = d.add(a.and(b).or(c.lanewise(AND_NOT, a))).add(x13).add(0xfd987193).lanewise(ROL, S12).add(a); /* 14 */
+      c = c.add(d.and(a).or(b.lanewise(AND_NOT, d))).add(x14).add(0xa679438e).lanewise(ROL, S13).add(d); /* 15 */
+      b = b.add(c.and(d).or(a.lanewise(AND_NOT, c))).add(x15).add(0x49b40821).lanewise(ROL, S14).add(c); /* 16 */
+
+      /* Round 2 */
+      a = a.add(b.and(d).or(c.lanewise(AND_NOT, d))).add(x1).add(0xf61e2562).lanewise(ROL, S21).add(b); /* 17 */
+      d = d.add(a.and(c).or(b.lanewise(AND_NOT, c))).add(x6).add(0xc040b340).lanewise(ROL, S22).add(a); /* 18 */
+      c = c.add(d.and(b).or(a.lanewise(AND_NOT, b))).add(x11).add(0x265e5a51).lanewise(ROL, S23).add(d); /* 19 */
+      b = b.add(c.and(a).or(d.lanewise(AND_NOT, a))).add(x0).add(0xe9b6c7aa).lanewise(ROL, S24).add(c); /* 20 */
+      a = a.add(b.and(d).or(c.lanewise(AND_NOT, d))).add(x5).add(0xd62f105d).lanewise(ROL, S21).add(b); /* 21 */
+      d = d.add(a.and(c).or(b.lanewise(AND_NOT, c))).add(x10).add(0x2441453).lanewise(ROL, S22).add(a); /* 22 */
+      c = c.add(d.and(b).or(a.lanewise(AND_NOT, b))).add(x15).add(0xd8a1e681).lanewise(ROL, S23).add(d); /* 23 */
+      b = b.add(c.and(a).or(d.lanewise(AND_NOT, a))).add(x4).add(0xe7d3fbc8).lanewise(ROL, S24).add(c); /* 24 */
+      a = a.add(b.and(d).or(c.lanewise(AND_NOT, d))).add(x9).add(0x21e1cde6).lanewise(ROL, S21).add(b); /* 25 */
+      d = d.add(a.and(c).or(b.lanewise(AND_NOT, c))).add(x14).add(0xc33707d6).lanewise(ROL, S22).add(a); /* 26 */
+      c = c.add(d.and(b).or(a.lanewise(AND_NOT, b))).add(x3).add(0xf4d50d87).lanewise(ROL, S23).add(d); /* 27 */
+      b = b.add(c.and(a).or(d.lanewise(AND_NOT, a))).add(x8).add(0x455a14ed).lanewise(ROL, S24).add(c); /* 28 */
+      a = a.add(b.and(d).or(c.lanewise(AND_NOT, d))).add(x13).add(0xa9e3e905).lanewise(ROL, S21).add(b); /* 29 */
+      d = d.add(a.and(c).or(b.lanewise(AND_NOT, c))).add(x2).add(0xfcefa3f8).lanewise(ROL, S22).add(a); /* 30 */
+      c = c.add(d.and(b).or(a.lanewise(AND_NOT, b))).add(x7).add(0x676f02d9).lanewise(ROL, S23).add(d); /* 31 */
+      b = b.add(c.and(a).or(d.lanewise(AND_NOT, a))).add(x12).add(0x8d2a4c8a).lanewise(ROL, S24).add(c); /* 32 */
+
+      /* Round 3 */
+      a = a.add(b.lanewise(XOR, c).lanewise(XOR, d)).add(x5).add(0xfffa3942).lanewise(ROL, S31).add(b); /* 33 */
+      d = d.add(a.lanewise(XOR, b).lanewise(XOR, c)).add(x8).add(0x8771f681).lanewise(ROL, S32).add(a); /* 34 */
+      c = c.add(d.lanewise(XOR, a).lanewise(XOR, b)).add(x11).add(0x6d9d6122).lanewise(ROL, S33).add(d); /* 35 */
+      b = b.add(c.lanewise(XOR, d).lanewise(XOR, a)).add(x14).add(0xfde5380c).lanewise(ROL, S34).add(c); /* 36 */
+      a = a.add(b.lanewise(XOR, c).lanewise(XOR, d)).add(x1).add(0xa4beea44).lanewise(ROL, S31).add(b); /* 37 */
+      d = d.add(a.lanewise(XOR, b).lanewise(XOR, c)).add(x4).add(0x4bdecfa9).lanewise(ROL, S32).add(a); /* 38 */
+      c = c.add(d.lanewise(XOR, a).lanewise(XOR, b)).add(x7).add(0xf6bb4b60).lanewise(ROL, S33).add(d); /* 39 */
+      b = b.add(c.lanewise(XOR, d).lanewise(XOR, a)).add(x10).add(0xbebfbc70).lanewise(ROL, S34).add(c); /* 40 */
+      a = a.add(b.lanewise(XOR, c).lanewise(XOR, d)).add(x13).add(0x289b7ec6).lanewise(ROL, S31).add(b); /* 41 */
+      d = d.add(a.lanewise(XOR, b).lanewise(XOR, c)).add(x0).add(0xeaa127fa).lanewise(ROL, S32).add(a); /* 42 */
+      c = c.add(d.lanewise(XOR, a).lanewise(XOR, b)).add(x3).add(0xd4ef3085).lanewise(ROL, S33).add(d); /* 43 */
+      b = b.add(c.lanewise(XOR, d).lanewise(XOR, a)).add(x6).add(0x4881d05).lanewise(ROL, S34).add(c); /* 44 */
+      a = a.add(b.lanewise(XOR, c).lanewise(XOR, d)).add(x9).add(0xd9d4d039).lanewise(ROL, S31).add(b); /* 45 */
+      d = d.add(a.lanewise(XOR, b).lanewise(XOR, c)).add(x12).add(0xe6db99e5).lanewise(ROL, S32).add(a); /* 46 */
+      c = c.add(d.lanewise(XOR, a).lanewise(XOR, b)).add(x15).add(0x1fa27cf8).lanewise(ROL, S33).add(d); /* 47 */
+      b = b.add(c.lanewise(XOR, d).lanewise(XOR, a)).add(x2).add(0xc4ac5665).lanewise(ROL, S34).add(c); /* 48 */
+
+      /* Round 4 */
+      a = a.add(c.lanewise(XOR, b.or(d.not()))).add(x0).add(0xf4292244).lanewise(ROL, S41).add(b); /* 49 */
+      d = d.add(b.lanewise(XOR, a.or(c.not()))).add(x7).add(0x432aff97).lanewise(ROL, S42).add(a); /* 50 */
+      c = c.add(a.lanewise(XOR, d.or(b.not()))).add(x14).add(0xab9423a7).lanewise(ROL, S43).add(d); /* 51 */
+      b = b.add(d.lanewise(XOR, c.or(a.not()))).add(x5).add(0xfc93a039).lanewise(ROL, S44).add(c); /* 52 */
+      a = a.add(c.lanewise(XOR, b.or(d.not()))).add(x12).add(0x655b59c3).lanewise(ROL, S41).add(b); /* 53 */
+      d = d.add(b.lanewise(XOR, a.or(c.not()))).add(x3).add(0x8f0ccc92).lanewise(ROL, S42).add(a); /* 54 */
+      c = c.add(a.lanewise(XOR, d.or(b.not()))).add(x10).add(0xffeff47d).lanewise(ROL, S43).add(d); /* 55 */
+      b = b.add(d.lanewise(XOR, c.or(a.not()))).add(x1).add(0x85845dd1).lanewise(ROL, S44).add(c); /* 56 */
+      a = a.add(c.lanewise(XOR, b.or(d.not()))).add(x8).add(0x6fa87e4f).lanewise(ROL, S41).add(b); /* 57 */
+      d = d.add(b.lanewise(XOR, a.or(c.not()))).add(x15).add(0xfe2ce6e0).lanewise(ROL, S42).add(a); /* 58 */
+      c = c.add(a.lanewise(XOR, d.or(b.not()))).add(x6).add(0xa3014314).lanewise(ROL, S43).add(d); /* 59 */
+      b = b.add(d.lanewise(XOR, c.or(a.not()))).add(x13).add(0x4e0811a1).lanewise(ROL, S44).add(c); /* 60 */
+      a = a.add(c.lanewise(XOR, b.or(d.not()))).add(x4).add(0xf7537e82).lanewise(ROL, S41).add(b); /* 61 */
+      d = d.add(b.lanewise(XOR, a.or(c.not()))).add(x11).add(0xbd3af235).lanewise(ROL, S42).add(a); /* 62 */
+      c = c.add(a.lanewise(XOR, d.or(b.not()))).add(x2).add(0x2ad7d2bb).lanewise(ROL, S43).add(d); /* 63 */
+      b = b.add(d.lanewise(XOR, c.or(a.not()))).add(x9).add(0xeb86d391).lanewise(ROL, S44).add(c); /* 64 */
+
+      a.add(aa).intoArray(a0, 0);
+      b.add(bb).intoArray(b0, 0);
+      c.add(cc).intoArray(c0, 0);
+      d.add(dd).intoArray(d0, 0);
+
+      for (int lane = 0; lane < laneCount; lane++) {
+        int messageIndex = messageIndices[lane];
+        if (messageIndex < 0) {
+          continue;
+        }
+        int chunkIndex = chunkIndices[lane] + 1;
+        if (chunkIndex == chunkCounts[lane]) {
+          binarySqlIds[messageIndex] = (Integer.toUnsignedLong(c0[lane]) << 32) | Integer.toUnsignedLong(d0[lane]);
+          nextMessage = loadNextMessage(nativeSqls, binarySqlIds, nextMessage, to, lane,
+                  messageIndices, chunkIndices, chunkCounts, a0, b0, c0, d0, words);
+          if (messageIndices[lane] < 0) {
+            activeLanes -= 1;
+          }
+        } else {
+          chunkIndices[lane] = chunkIndex;
+          loadWords(nativeSqls.get(messageIndex), chunkIndex, chunkCounts[lane], lane, words);
+        }
+      }
+    }
+  }
+
+  /**
+   * Loads the next ASCII message into a lane and resets the state of the lane.
+   * Non-ASCII messages are hashed directly.
+   *
+   * @return the index of the next message to load
+   */
+  private static int loadNextMessage(List<? extends CharSequence> nativeSqls, long[] binarySqlIds,
+          int nextMessage, int to, int lane,
+          int[] messageIndices, int[] chunkIndices, int[] chunkCounts,
+          int[] a0, int[] b0, int[] c0, int[] d0, int[][] words) {
+    int messageIndex = nextMessage;
+    while (messageIndex < to) {
+      CharSequence nativeSql = nativeSqls.get(messageIndex);
+      if (nativeSql == null) {
+        throw new NullPointerException("nativeSql at index: " + messageIndex);
+      }
+      if (isAscii(nativeSql)) {
+        messageIndices[lane] = messageIndex;
+        chunkIndices[lane] = 0;
+        // message, trailing 0x00 byte, first padding byte, 64 bit length
+        chunkCounts[lane] = (nativeSql.length() + 1 + 1 + 8 + (CHUNK_BYTES - 1)) / CHUNK_BYTES;
+        a0[lane] = 0x67452301; // A
+        b0[lane] = 0xefcdab89; // B
+        c0[lane] = 0x98badcfe; // C
+        d0[lane] = 0x10325476; // D
+        loadWords(nativeSql, 0, chunkCounts[lane], lane, words);
+        return messageIndex + 1;
+      }
+      binarySqlIds[messageIndex] = MD5.getBinarySqlId(nativeSql);
+      messageIndex += 1;
+    }
+    // no more messages, the lane becomes idle
+    messageIndices[lane] = -1;
+    return messageIndex;
+  }
+
+  private static boolean isAscii(CharSequence s) {
+    int characterBits = 0;
+    for (int i = 0; i < s.length(); i++) {
+      characterBits |= s.charAt(i);
+    }
+    return characterBits < 0b10000000;
+  }
+
+  /**
+   * Loads the 16 words of a chunk of a message into a lane.
+   */
+  private static void loadWords(CharSequence s, int chunkIndex, int chunkCount, int lane, int[][] words) {
+    int chunkStart = chunkIndex * CHUNK_BYTES;
+    if ((chunkStart + CHUNK_BYTES) <= s.length()) {
+      // fast path, no padding
+      for (int i = 0; i < 16; i++) {
+        int base = chunkStart + (4 * i);
+        words[i][lane] = s.charAt(base)
+            | (s.charAt(base + 1) << 8)
+            | (s.charAt(base + 2) << 16)
+            | (s.charAt(base + 3) << 24);
+      }
+    } else {
+      for (int i = 0; i < 16; i++) {
+        int base = chunkStart + (4 * i);
+        words[i][lane] = byteValueAt(s, base)
+            | (byteValueAt(s, base + 1) << 8)
+            | (byteValueAt(s, base + 2) << 16)
+            | (byteValueAt(s, base + 3) << 24);
+      }
+      if (chunkIndex == (chunkCount - 1)) {
+        long messageLengthBits = (s.length() + 1L) * 8L; // additional 1 byte for the trailing 0x00 byte
+        words[14][lane] = (int) messageLengthBits;
+        words[15][lane] = (int) (messageLengthBits >>> 32);
+      }
+    }
+  }
+
+  private static int byteValueAt(CharSequence s, int index) {
+    int inputLength = s.length();
+    if (index < inputLength) {
+      return s.charAt(index);
+    } else if (index == (inputLength + 1)) {
+      // first padding byte, a 0 is added at the end of the SQL string for the computation of the SQL_ID
+      return 0x80;
+    }
+    return 0x00;
+  }
+
+}
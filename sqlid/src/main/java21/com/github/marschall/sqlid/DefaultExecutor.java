@@ -0,0 +1,26 @@
+package com.github.marschall.sqlid;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The executor for asynchronous lookups if the caller does not provide one.
+ * <p>
+ * This is the Java 21 version which starts a new virtual thread per lookup.
+ */
+final class DefaultExecutor {
+
+  // only created on first use as this class is only loaded then
+  private static final ExecutorService EXECUTOR = Executors.newThreadPerTaskExecutor(
+      Thread.ofVirtual().name("sqlid-lookup-", 1).factory());
+
+  private DefaultExecutor() {
+    throw new AssertionError("not instantiable");
+  }
+
+  static Executor get() {
+    return EXECUTOR;
+  }
+
+}
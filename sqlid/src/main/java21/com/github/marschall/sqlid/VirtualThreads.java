@@ -0,0 +1,18 @@
+package com.github.marschall.sqlid;
+
+/**
+ * Detects virtual threads.
+ * <p>
+ * This is the Java 21 version which uses {@link Thread#isVirtual()}.
+ */
+final class VirtualThreads {
+
+  private VirtualThreads() {
+    throw new AssertionError("not instantiable");
+  }
+
+  static boolean isCurrentThreadVirtual() {
+    return Thread.currentThread().isVirtual();
+  }
+
+}
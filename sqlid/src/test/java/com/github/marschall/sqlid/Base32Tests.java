@@ -0,0 +1,75 @@
+package com.github.marschall.sqlid;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class Base32Tests {
+
+  static List<Long> values() {
+    return Arrays.asList(0L, 1L, 31L, 32L, -1L, Long.MAX_VALUE, Long.MIN_VALUE,
+        SqlId.computeBinary("select * from dual"), SqlId.computeBinary("SELECT * from dual where dummy = :1 "));
+  }
+
+  @ParameterizedTest
+  @MethodSource("values")
+  void roundTrip(long value) {
+    String sqlId = Base32.toBase32String(value);
+    assertEquals(13, sqlId.length());
+    assertEquals(value, Base32.parse(sqlId));
+  }
+
+  @ParameterizedTest
+  @MethodSource("values")
+  void appendTo(long value) throws IOException {
+    String expected = Base32.toBase32String(value);
+
+    StringBuilder builder = new StringBuilder("x");
+    Base32.appendTo(value, builder);
+    assertEquals("x" + expected, builder.toString());
+
+    StringWriter writer = new StringWriter();
+    Base32.appendTo(value, writer);
+    assertEquals(expected, writer.toString());
+  }
+
+  @ParameterizedTest
+  @MethodSource("values")
+  void writeTo(long value) {
+    byte[] destination = new byte[15];
+    assertEquals(14, Base32.writeTo(value, destination, 1));
+    assertEquals(Base32.toBase32String(value), new String(destination, 1, 13, ISO_8859_1));
+    assertThrows(IndexOutOfBoundsException.class, () -> Base32.writeTo(value, destination, 3));
+  }
+
+  @Test
+  void parse() {
+    assertEquals(SqlId.computeBinary("select * from dual"), Base32.parse("a5ks9fhw2v9s1"));
+    assertEquals(0L, Base32.parse("0000000000000"));
+    assertEquals(-1L, Base32.parse("gzzzzzzzzzzzz"));
+  }
+
+  @Test
+  void parseInvalid() {
+    assertThrows(IllegalArgumentException.class, () -> Base32.parse(""));
+    assertThrows(IllegalArgumentException.class, () -> Base32.parse("a5ks9fhw2v9s"));
+    assertThrows(IllegalArgumentException.class, () -> Base32.parse("a5ks9fhw2v9s1a"));
+    // e is not in the alphabet
+    assertThrows(IllegalArgumentException.class, () -> Base32.parse("a5ks9fhw2v9se"));
+    // upper case is not in the alphabet
+    assertThrows(IllegalArgumentException.class, () -> Base32.parse("A5KS9FHW2V9S1"));
+    assertThrows(IllegalArgumentException.class, () -> Base32.parse("a5ks9fhw2v9sä"));
+    // more than 64 bits
+    assertThrows(IllegalArgumentException.class, () -> Base32.parse("h000000000000"));
+  }
+
+}
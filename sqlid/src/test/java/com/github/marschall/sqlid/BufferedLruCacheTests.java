@@ -0,0 +1,112 @@
+package com.github.marschall.sqlid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+class BufferedLruCacheTests {
+
+  @Test
+  void sizeOne() {
+    Cache<Integer, Integer> cache = new BufferedLruCache<>(1);
+    assertEquals(2, cache.get(1, i -> i * 2));
+    // 1 is cached, not recomputed
+    assertEquals(2, cache.get(1, i -> i * 3));
+
+    assertEquals(4, cache.get(2, i -> i * 2));
+    // 2 is cached, not recomputed
+    assertEquals(4, cache.get(2, i -> i * 4));
+
+    // 1 is not cached, recomputed
+    assertEquals(5, cache.get(1, i -> i * 5));
+  }
+
+  @Test
+  void sizeThree() {
+    // the read buffers are drained before every write, single threaded this is an exact LRU
+    Cache<Integer, Integer> cache = new BufferedLruCache<>(3);
+    assertEquals(2, cache.get(1, i -> i * 2));
+    assertEquals(4, cache.get(2, i -> i * 2));
+    assertEquals(6, cache.get(3, i -> i * 2));
+
+    // 2 is cached, not recomputed
+    assertEquals(4, cache.get(2, i -> i * 3));
+
+    // order is now 2, 3, 1
+
+    // 1 is removed, 4 is added
+    assertEquals(8, cache.get(4, i -> i * 2));
+    // 3 is removed, 5 is added
+    assertEquals(10, cache.get(5, i -> i * 2));
+
+    // order is now 5, 4, 2
+
+    // 2 is cached, not recomputed
+    assertEquals(4, cache.get(2, i -> i * 3));
+
+    // order is not 2, 5, 4
+
+    // 4 is removed, 6 is added
+    assertEquals(12, cache.get(6, i -> i * 2));
+
+    // 5 is cached, not recomputed
+    assertEquals(10, cache.get(5, i -> i * 3));
+  }
+
+  @Test
+  void manyReads() {
+    Cache<Integer, Integer> cache = new BufferedLruCache<>(2);
+    cache.get(1, i -> i);
+    cache.get(2, i -> i);
+    // more reads than fit in a read buffer
+    for (int i = 0; i < 100; i++) {
+      cache.get(1, key -> -1);
+    }
+    // 2 is removed
+    cache.get(3, i -> i);
+    assertEquals(1, cache.get(1, key -> -1));
+    assertEquals(-1, cache.get(2, key -> -1));
+  }
+
+  @Test
+  void concurrentAccess() throws Exception {
+    int capacity = 64;
+    BufferedLruCache<Integer, String> cache = new BufferedLruCache<>(capacity);
+    int threadCount = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    try {
+      List<Future<?>> futures = new ArrayList<>(threadCount);
+      for (int t = 0; t < threadCount; t++) {
+        int seed = t;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 100_000; i++) {
+            int key = ((i * 31) + seed) % (capacity * 2);
+            assertEquals(Integer.toString(key), cache.get(key, k -> Integer.toString(k)));
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertTrue(cache.size() <= capacity);
+  }
+
+  @Test
+  void sameValue() {
+    Cache<String, String> cache = new BufferedLruCache<>(4);
+    String value = cache.get("key", k -> new String("value"));
+    assertSame(value, cache.get("key", k -> new String("value")));
+  }
+
+}
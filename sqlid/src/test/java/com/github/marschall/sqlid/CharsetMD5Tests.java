@@ -0,0 +1,107 @@
+package com.github.marschall.sqlid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class CharsetMD5Tests {
+
+  static List<Arguments> charsetInput() {
+    List<String> strings = new ArrayList<>();
+    strings.addAll(MD5HashTests.input());
+    strings.addAll(MD5HashTests.nonAsciiInput());
+    // characters that differ between windows-1252, ISO-8859-15 and ISO-8859-1
+    strings.add("SELECT '\u20AC' FROM dual");
+    strings.add("SELECT '\u0152\u0153\u0160\u0161\u017D\u017E\u0178' FROM dual");
+    strings.add("SELECT '\u00A4\u00A6\u00A8\u00B4\u00B8\u00BC\u00BD\u00BE' FROM dual");
+    // unpaired surrogates are replaced
+    strings.add("SELECT '\uD83D' FROM dual");
+    strings.add("SELECT '\uDC7D' FROM dual");
+    // surrogate pairs and non-ASCII characters at every position of a word
+    // and around the chunk boundaries
+    for (int i = 0; i < 70; i++) {
+      StringBuilder prefix = new StringBuilder();
+      for (int j = 0; j < i; j++) {
+        prefix.append((char) ('a' + (j % 26)));
+      }
+      strings.add(prefix + "\uD83D\uDE00");
+      strings.add(prefix + "\uD83D\uDE00abc\u00E4");
+      strings.add(prefix + "\u20AC\u00E4\u0152x");
+    }
+    StringBuilder buffer = new StringBuilder();
+    for (int i = 0; i < 500; i++) {
+      buffer.append("t.column_\u00E4").append(i).append(", ");
+    }
+    strings.add(buffer.toString());
+
+    String[] charsetNames = {"windows-1252", "ISO-8859-15", "ISO-8859-1", "US-ASCII", "UTF-8", "UTF-16LE", "Shift_JIS"};
+    List<Arguments> arguments = new ArrayList<>(strings.size() * charsetNames.length);
+    for (String charsetName : charsetNames) {
+      Charset charset = Charset.forName(charsetName);
+      for (String s : strings) {
+        if (charset.equals(StandardCharsets.UTF_8) && hasUnpairedSurrogate(s)) {
+          // rejected in UTF-8
+          continue;
+        }
+        arguments.add(Arguments.of(charset, s));
+      }
+    }
+    return arguments;
+  }
+
+  private static boolean hasUnpairedSurrogate(String s) {
+    return s.contains("'\uD83D'") || s.contains("'\uDC7D'");
+  }
+
+  @ParameterizedTest
+  @MethodSource("charsetInput")
+  void md5Equals(Charset charset, String s) {
+    assertEquals(referenceMd5Hash(s, charset), CharsetMD5.getBinarySqlId(s, charset));
+    assertEquals(referenceMd5Hash(s, charset), CharsetMD5.getBinarySqlId(new StringBuilder(s), charset));
+  }
+
+  @Test
+  void differentIds() {
+    String s = "SELECT '\u20AC' FROM dual";
+    assertEquals(SqlId.compute(s), SqlId.compute(s, StandardCharsets.UTF_8));
+    assertEquals(SqlId.compute("SELECT * FROM dual"), SqlId.compute("SELECT * FROM dual", Charset.forName("windows-1252")));
+    long windows1252 = SqlId.computeBinary(s, Charset.forName("windows-1252"));
+    long iso885915 = SqlId.computeBinary(s, Charset.forName("ISO-8859-15"));
+    assertEquals(referenceMd5Hash(s, Charset.forName("windows-1252")), windows1252);
+    assertEquals(referenceMd5Hash(s, Charset.forName("ISO-8859-15")), iso885915);
+  }
+
+  @Test
+  void decodeOnlyCharset() {
+    Charset charset = Charset.forName("ISO-2022-CN");
+    if (!charset.canEncode()) {
+      assertThrows(IllegalArgumentException.class, () -> SqlId.compute("SELECT * FROM dual", charset));
+    }
+  }
+
+  private static long referenceMd5Hash(String s, Charset charset) {
+    byte[] message = s.getBytes(charset);
+    MessageDigest messageDigest;
+    try {
+      messageDigest = MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("MD5 not supported", e);
+    }
+    messageDigest.update(message);
+    // append a trailing 0x00 byte
+    messageDigest.update((byte) 0x00);
+    return MD5.mostSignificantLong(messageDigest.digest());
+  }
+
+}
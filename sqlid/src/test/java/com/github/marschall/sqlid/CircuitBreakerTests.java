@@ -0,0 +1,79 @@
+package com.github.marschall.sqlid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTests {
+
+  private final AtomicLong nanoTime = new AtomicLong();
+
+  private final CircuitBreaker circuitBreaker = new CircuitBreaker(2, 100L, this.nanoTime::get);
+
+  @Test
+  void opensAfterConsecutiveFailures() {
+    assertTrue(this.circuitBreaker.tryAcquire());
+    this.circuitBreaker.onFailure();
+    assertEquals(CircuitState.CLOSED, this.circuitBreaker.getState());
+
+    // a success resets the failures
+    assertTrue(this.circuitBreaker.tryAcquire());
+    this.circuitBreaker.onSuccess();
+    assertTrue(this.circuitBreaker.tryAcquire());
+    this.circuitBreaker.onFailure();
+    assertEquals(CircuitState.CLOSED, this.circuitBreaker.getState());
+
+    assertTrue(this.circuitBreaker.tryAcquire());
+    this.circuitBreaker.onFailure();
+    assertEquals(CircuitState.OPEN, this.circuitBreaker.getState());
+    assertFalse(this.circuitBreaker.tryAcquire());
+  }
+
+  @Test
+  void halfOpen() {
+    this.open();
+
+    this.nanoTime.addAndGet(99L);
+    assertEquals(CircuitState.OPEN, this.circuitBreaker.getState());
+    assertFalse(this.circuitBreaker.tryAcquire());
+
+    this.nanoTime.addAndGet(1L);
+    assertEquals(CircuitState.HALF_OPEN, this.circuitBreaker.getState());
+    assertTrue(this.circuitBreaker.tryAcquire());
+    // only a single trial
+    assertFalse(this.circuitBreaker.tryAcquire());
+
+    this.circuitBreaker.onSuccess();
+    assertEquals(CircuitState.CLOSED, this.circuitBreaker.getState());
+    assertTrue(this.circuitBreaker.tryAcquire());
+    this.circuitBreaker.onSuccess();
+  }
+
+  @Test
+  void halfOpenFailure() {
+    this.open();
+
+    this.nanoTime.addAndGet(100L);
+    assertTrue(this.circuitBreaker.tryAcquire());
+    // a single failure opens the circuit again
+    this.circuitBreaker.onFailure();
+    assertEquals(CircuitState.OPEN, this.circuitBreaker.getState());
+    assertFalse(this.circuitBreaker.tryAcquire());
+
+    this.nanoTime.addAndGet(100L);
+    assertTrue(this.circuitBreaker.tryAcquire());
+  }
+
+  private void open() {
+    for (int i = 0; i < 2; i++) {
+      assertTrue(this.circuitBreaker.tryAcquire());
+      this.circuitBreaker.onFailure();
+    }
+    assertEquals(CircuitState.OPEN, this.circuitBreaker.getState());
+  }
+
+}
@@ -0,0 +1,122 @@
+package com.github.marschall.sqlid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+class ClockCacheTests {
+
+  @Test
+  void invalidCapacity() {
+    assertThrows(IllegalArgumentException.class, () -> new ClockCache<>(0));
+  }
+
+  @Test
+  void sizeOne() {
+    Cache<Integer, Integer> cache = new ClockCache<>(1);
+    assertEquals(2, cache.get(1, i -> i * 2));
+    // 1 is cached, not recomputed
+    assertEquals(2, cache.get(1, i -> i * 3));
+
+    assertEquals(4, cache.get(2, i -> i * 2));
+    // 2 is cached, not recomputed
+    assertEquals(4, cache.get(2, i -> i * 4));
+
+    // 1 is not cached, recomputed
+    assertEquals(5, cache.get(1, i -> i * 5));
+  }
+
+  @Test
+  void secondChance() {
+    Cache<Integer, Integer> cache = new ClockCache<>(2);
+    assertEquals(2, cache.get(1, i -> i * 2));
+    assertEquals(4, cache.get(2, i -> i * 2));
+
+    // 1 is referenced
+    assertEquals(2, cache.get(1, i -> i * 3));
+
+    // 1 gets a second chance, 2 is removed, 3 is added
+    assertEquals(6, cache.get(3, i -> i * 2));
+    assertEquals(2, cache.get(1, i -> i * 3));
+    assertEquals(6, cache.get(3, i -> i * 3));
+
+    // 2 is not cached, recomputed
+    assertEquals(10, cache.get(2, i -> i * 5));
+  }
+
+  @Test
+  void collisions() {
+    int capacity = 16;
+    ClockCache<CollidingKey, Integer> cache = new ClockCache<>(capacity);
+    Random random = new Random(42L);
+    List<CollidingKey> cached = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      int value = random.nextInt(64);
+      CollidingKey key = new CollidingKey(value);
+      assertEquals(value, cache.get(key, k -> k.value));
+      assertTrue(cache.size() <= capacity);
+      cached.add(key);
+    }
+    // the most recently added key is always present
+    CollidingKey last = cached.get(cached.size() - 1);
+    assertEquals(last.value, cache.get(last, k -> -1));
+    assertEquals(capacity, cache.size());
+  }
+
+  @Test
+  void concurrentAccess() throws Exception {
+    int capacity = 64;
+    ClockCache<Integer, String> cache = new ClockCache<>(capacity);
+    int threadCount = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    try {
+      List<Future<?>> futures = new ArrayList<>(threadCount);
+      for (int t = 0; t < threadCount; t++) {
+        int seed = t;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 100_000; i++) {
+            int key = ((i * 31) + seed) % (capacity * 2);
+            assertEquals(Integer.toString(key), cache.get(key, k -> Integer.toString(k)));
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertTrue(cache.size() <= capacity);
+  }
+
+  static final class CollidingKey {
+
+    final int value;
+
+    CollidingKey(int value) {
+      this.value = value;
+    }
+
+    @Override
+    public int hashCode() {
+      // many collisions
+      return this.value % 3;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return (obj instanceof CollidingKey) && (((CollidingKey) obj).value == this.value);
+    }
+
+  }
+
+}
@@ -0,0 +1,192 @@
+package com.github.marschall.sqlid;
+
+import static com.github.marschall.sqlid.FingerprintCache.ENTRY_OVERHEAD;
+import static com.github.marschall.sqlid.FingerprintCache.STRING_OVERHEAD;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.marschall.sqlid.FingerprintCache.Fingerprint;
+import com.github.marschall.sqlid.FingerprintCache.Verification;
+
+class FingerprintCacheTests {
+
+  @Test
+  void invalidArguments() {
+    assertThrows(IllegalArgumentException.class, () -> new FingerprintCache<>(0L, Verification.NONE));
+    assertThrows(NullPointerException.class, () -> new FingerprintCache<>(1024L, null));
+  }
+
+  @Test
+  void cached() {
+    FingerprintCache<String> cache = new FingerprintCache<>(1024L, Verification.NONE);
+    assertEquals("a1", cache.get("a", s -> s + "1"));
+    // not recomputed
+    assertEquals("a1", cache.get("a", s -> s + "2"));
+    assertEquals("b1", cache.get("b", s -> s + "1"));
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  void boundedByEntryOverhead() {
+    FingerprintCache<String> cache = new FingerprintCache<>(2L * ENTRY_OVERHEAD, Verification.NONE);
+    cache.get("a", s -> s + "1");
+    cache.get("b", s -> s + "1");
+    // a is now most recently used
+    assertEquals("a1", cache.get("a", s -> s + "2"));
+
+    // b is evicted
+    cache.get("c", s -> s + "1");
+    assertEquals(2, cache.size());
+    assertEquals(2L * ENTRY_OVERHEAD, cache.weight());
+    assertEquals("a1", cache.get("a", s -> s + "2"));
+    assertEquals("b2", cache.get("b", s -> s + "2"));
+  }
+
+  @Test
+  void boundedByKeyLength() {
+    String large = repeat('x', 1000);
+    long largeWeight = ENTRY_OVERHEAD + STRING_OVERHEAD + 1000L;
+    FingerprintCache<String> cache = new FingerprintCache<>(largeWeight + ENTRY_OVERHEAD + STRING_OVERHEAD + 10L, Verification.FULL);
+    cache.get("small", s -> "1");
+    cache.get(large, s -> "2");
+    assertEquals(2, cache.size());
+    assertEquals(largeWeight + ENTRY_OVERHEAD + STRING_OVERHEAD + 5L, cache.weight());
+
+    // does not fit with the large one, evicts both older entries
+    cache.get(repeat('y', 1000), s -> "3");
+    assertEquals(1, cache.size());
+    assertEquals(largeWeight, cache.weight());
+  }
+
+  @Test
+  void nonLatin1KeysWeighTwoBytesPerChar() {
+    FingerprintCache<String> cache = new FingerprintCache<>(1024L, Verification.FULL);
+    cache.get("\u20AC\u20AC", s -> "1");
+    assertEquals(ENTRY_OVERHEAD + STRING_OVERHEAD + 4L, cache.weight());
+  }
+
+  @Test
+  void tooLargeNotCached() {
+    FingerprintCache<String> cache = new FingerprintCache<>(ENTRY_OVERHEAD + STRING_OVERHEAD + 10L, Verification.FULL);
+    cache.get("small", s -> "1");
+    assertEquals("2", cache.get(repeat('x', 100), s -> "2"));
+    assertEquals(1, cache.size());
+    assertEquals("1", cache.get("small", s -> "3"));
+  }
+
+  @Test
+  void collisionVerified() {
+    // "Aa" and "BB" have the same hash code and length
+    FingerprintCache<String> cache = new FingerprintCache<>(1024L, Verification.FULL, FingerprintCacheTests::colliding);
+    assertEquals("Aa1", cache.get("Aa", s -> s + "1"));
+    assertEquals("BB1", cache.get("BB", s -> s + "1"));
+    // both are in the same collision chain
+    assertEquals(2, cache.size());
+    assertEquals("BB1", cache.get(new String("BB"), s -> s + "2"));
+    assertEquals("Aa1", cache.get(new String("Aa"), s -> s + "2"));
+  }
+
+  @Test
+  void collisionNotVerified() {
+    FingerprintCache<String> cache = new FingerprintCache<>(1024L, Verification.NONE, FingerprintCacheTests::colliding);
+    assertEquals("Aa1", cache.get("Aa", s -> s + "1"));
+    // the value of Aa is returned for BB
+    assertEquals("Aa1", cache.get("BB", s -> s + "1"));
+  }
+
+  @Test
+  void sameHashCodeDifferentFingerprint() {
+    FingerprintCache<String> cache = new FingerprintCache<>(1024L, Verification.NONE);
+    assertEquals("Aa1", cache.get("Aa", s -> s + "1"));
+    assertEquals("BB1", cache.get("BB", s -> s + "1"));
+    // both are in the same collision chain
+    assertEquals(2, cache.size());
+    assertEquals("Aa1", cache.get(new String("Aa"), s -> s + "2"));
+    assertEquals("BB1", cache.get(new String("BB"), s -> s + "2"));
+  }
+
+  @Test
+  void collisionChainBounded() {
+    // all combinations of "Aa" and "BB" have the same hash code and length
+    String[] keys = {"AaAaAa", "AaAaBB", "AaBBAa", "AaBBBB", "BBAaAa", "BBAaBB"};
+    for (String key : keys) {
+      assertEquals(keys[0].hashCode(), key.hashCode());
+    }
+    FingerprintCache<String> cache = new FingerprintCache<>(1024L * ENTRY_OVERHEAD, Verification.NONE);
+    for (String key : keys) {
+      cache.get(key, s -> s + "1");
+    }
+    // the oldest ones are evicted
+    assertEquals(FingerprintCache.MAXIMUM_CHAIN_LENGTH, cache.size());
+    assertEquals(FingerprintCache.MAXIMUM_CHAIN_LENGTH * (long) ENTRY_OVERHEAD, cache.weight());
+    assertNull(cache.getIfPresent(new String(keys[0])));
+    assertNull(cache.getIfPresent(new String(keys[1])));
+    for (int i = 2; i < keys.length; i++) {
+      assertEquals(keys[i] + "1", cache.getIfPresent(new String(keys[i])));
+    }
+  }
+
+  @Test
+  void manyEntries() {
+    int capacity = 100;
+    FingerprintCache<String> cache = new FingerprintCache<>(capacity * (long) ENTRY_OVERHEAD, Verification.NONE);
+    int count = 1000;
+    for (int i = 0; i < count; i++) {
+      String key = "SELECT " + i + " FROM dual";
+      assertEquals(key, cache.get(key, s -> s));
+    }
+    assertEquals(capacity, cache.size());
+    for (int i = 0; i < count; i++) {
+      String value = cache.getIfPresent("SELECT " + i + " FROM dual");
+      if (i < (count - capacity)) {
+        assertNull(value);
+      } else {
+        assertEquals("SELECT " + i + " FROM dual", value);
+      }
+    }
+  }
+
+  @Test
+  void equalNotIdentical() {
+    for (Verification verification : Verification.values()) {
+      FingerprintCache<String> cache = new FingerprintCache<>(1024L, verification);
+      String key = "SELECT * FROM dual";
+      assertEquals("1", cache.get(key, s -> "1"));
+      assertEquals("1", cache.get(new String(key), s -> "2"));
+      assertEquals("1", cache.getIfPresent(new String(key)));
+      assertEquals("1", cache.get(key, s -> "2"));
+      assertNull(cache.getIfPresent("SELECT * FROM duaL"));
+    }
+  }
+
+  @Test
+  void fingerprint() {
+    assertEquals(Fingerprint.of("SELECT * FROM dual"), Fingerprint.of(new String("SELECT * FROM dual")));
+    assertNotEquals(Fingerprint.of("SELECT * FROM dual"), Fingerprint.of("SELECT * FROM duaL"));
+    assertNotEquals(Fingerprint.of("ab"), Fingerprint.of("ba"));
+    assertNotEquals(Fingerprint.of(""), Fingerprint.of("\u0000"));
+    assertNotEquals(Fingerprint.of("abcd"), Fingerprint.of("abcd\u0000"));
+    assertNotEquals(Fingerprint.of("abcdefgh"), Fingerprint.of("efghabcd"));
+    assertTrue(Fingerprint.of("SELECT \u00E4").latin1);
+    assertFalse(Fingerprint.of("SELECT \u20AC").latin1);
+  }
+
+  private static Fingerprint colliding(String s) {
+    return new Fingerprint(0L, 0L, s.length(), true);
+  }
+
+  private static String repeat(char c, int count) {
+    StringBuilder buffer = new StringBuilder(count);
+    for (int i = 0; i < count; i++) {
+      buffer.append(c);
+    }
+    return buffer.toString();
+  }
+
+}
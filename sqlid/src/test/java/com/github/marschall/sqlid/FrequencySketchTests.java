@@ -0,0 +1,39 @@
+package com.github.marschall.sqlid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class FrequencySketchTests {
+
+  @Test
+  void increment() {
+    FrequencySketch sketch = new FrequencySketch(512);
+    int hashCode = "SELECT * FROM dual".hashCode();
+    assertEquals(0, sketch.frequency(hashCode));
+    for (int i = 1; i <= 15; i++) {
+      sketch.increment(hashCode);
+      assertEquals(i, sketch.frequency(hashCode));
+    }
+    // saturated
+    sketch.increment(hashCode);
+    assertEquals(15, sketch.frequency(hashCode));
+  }
+
+  @Test
+  void reset() {
+    // sample size of 10
+    FrequencySketch sketch = new FrequencySketch(1);
+    int hashCode = 42;
+    for (int i = 0; i < 9; i++) {
+      sketch.increment(hashCode);
+    }
+    assertEquals(9, sketch.frequency(hashCode));
+    // reaches the sample size, halves all counters
+    sketch.increment(43);
+    int frequency = sketch.frequency(hashCode);
+    assertTrue((frequency == 4) || (frequency == 5), "frequency: " + frequency);
+  }
+
+}
@@ -1,6 +1,18 @@
 package com.github.marschall.sqlid;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.junit.jupiter.api.Test;
 
@@ -21,6 +33,19 @@ class HashLruCacheTests {
     assertEquals(5, cache.get(1, i -> i * 5));
   }
 
+  @Test
+  void getIfPresent() {
+    Cache<Integer, Integer> cache = new HashLruCache<>(2);
+    assertNull(cache.getIfPresent(1));
+    assertEquals(2, cache.get(1, i -> i * 2));
+    assertEquals(4, cache.get(2, i -> i * 2));
+    assertEquals(2, cache.getIfPresent(1));
+    // 1 was used more recently than 2, 2 is removed
+    assertEquals(6, cache.get(3, i -> i * 2));
+    assertNull(cache.getIfPresent(2));
+    assertEquals(2, cache.getIfPresent(1));
+  }
+
   @Test
   void sizeTwo() {
     Cache<Integer, Integer> cache = new HashLruCache<>(2);
@@ -71,4 +96,129 @@ class HashLruCacheTests {
     assertEquals(10, cache.get(5, i -> i * 3));
   }
 
+  @Test
+  void singleFlight() throws InterruptedException {
+    HashLruCache<String, String> cache = new HashLruCache<>(2);
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger loads = new AtomicInteger();
+    AtomicReference<String> waiterResult = new AtomicReference<>();
+
+    Thread loader = new Thread(() -> cache.get("key", k -> {
+      loads.incrementAndGet();
+      loading.countDown();
+      awaitUninterruptibly(release);
+      return new String("value");
+    }));
+    loader.start();
+    loading.await();
+
+    Thread waiter = new Thread(() -> waiterResult.set(cache.get("key", k -> {
+      loads.incrementAndGet();
+      return "other";
+    })));
+    waiter.start();
+    // wait until the waiter joined the in-flight load
+    awaitWaiters(cache, "key", 1);
+    release.countDown();
+    loader.join();
+    waiter.join();
+
+    assertEquals(1, loads.get());
+    assertEquals("value", waiterResult.get());
+    assertSame(waiterResult.get(), cache.get("key", k -> "other"));
+  }
+
+  @Test
+  void singleFlightFailure() throws InterruptedException {
+    HashLruCache<String, String> cache = new HashLruCache<>(2);
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    IllegalStateException failure = new IllegalStateException("failed");
+    AtomicReference<Throwable> loaderFailure = new AtomicReference<>();
+    AtomicReferenceArray<Throwable> waiterFailures = new AtomicReferenceArray<>(2);
+
+    Thread loader = new Thread(() -> {
+      try {
+        cache.get("key", k -> {
+          loading.countDown();
+          awaitUninterruptibly(release);
+          throw failure;
+        });
+      } catch (IllegalStateException e) {
+        loaderFailure.set(e);
+      }
+    });
+    loader.start();
+    loading.await();
+
+    Thread[] waiters = new Thread[waiterFailures.length()];
+    for (int i = 0; i < waiters.length; i++) {
+      int index = i;
+      waiters[i] = new Thread(() -> {
+        try {
+          cache.get("key", k -> "other");
+        } catch (RuntimeException e) {
+          waiterFailures.set(index, e);
+        }
+      });
+      waiters[i].start();
+    }
+    awaitWaiters(cache, "key", waiters.length);
+    release.countDown();
+    loader.join();
+    for (Thread waiter : waiters) {
+      waiter.join();
+    }
+
+    // the loader gets the original exception, every waiter gets its own
+    assertSame(failure, loaderFailure.get());
+    for (int i = 0; i < waiters.length; i++) {
+      Throwable waiterFailure = waiterFailures.get(i);
+      assertInstanceOf(CompletionException.class, waiterFailure);
+      assertSame(failure, waiterFailure.getCause());
+    }
+    assertNotSame(waiterFailures.get(0), waiterFailures.get(1));
+    // the failure is not cached
+    assertEquals("value", cache.get("key", k -> "value"));
+  }
+
+  @Test
+  void recursiveLoad() {
+    Cache<String, String> cache = new HashLruCache<>(2);
+    assertThrows(IllegalStateException.class, () -> cache.get("key", k -> cache.get("key", k2 -> "value")));
+    // the failed load is not in-flight anymore
+    assertEquals("value", cache.get("key", k -> "value"));
+  }
+
+  @Test
+  void sneakyThrowingLoader() {
+    HashLruCache<String, String> cache = new HashLruCache<>(2);
+    SQLException failure = new SQLException("failed");
+    Exception thrown = assertThrows(Exception.class, () -> cache.get("key", k -> sneakyThrow(failure)));
+    assertSame(failure, thrown);
+    // the failed load is not in-flight anymore
+    assertEquals(0, cache.getWaiterCount("key"));
+    assertEquals("value", cache.get("key", k -> "value"));
+  }
+
+  @SuppressWarnings("unchecked")
+  static <T, E extends Throwable> T sneakyThrow(Throwable throwable) throws E {
+    throw (E) throwable;
+  }
+
+  private static void awaitWaiters(HashLruCache<String, ?> cache, String key, int count) {
+    while (cache.getWaiterCount(key) < count) {
+      Thread.yield();
+    }
+  }
+
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      throw new AssertionError("interrupted", e);
+    }
+  }
+
 }
@@ -0,0 +1,65 @@
+package com.github.marschall.sqlid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+class IdentitySqlIdCacheTests {
+
+  private static final String QUERY = "SELECT * FROM dual";
+
+  @Test
+  void identity() {
+    IdentitySqlIdCache cache = new IdentitySqlIdCache();
+    assertNull(cache.get(QUERY));
+    String sqlId = SqlId.compute(QUERY);
+    cache.put(QUERY, sqlId, SqlId.computeBinary(QUERY));
+
+    IdentitySqlIdCache.Entry entry = cache.get(QUERY);
+    assertNotNull(entry);
+    assertSame(sqlId, entry.sqlId);
+    assertEquals(SqlId.computeBinary(QUERY), entry.binarySqlId);
+
+    // equal but not identical
+    assertNull(cache.get(new String(QUERY)));
+  }
+
+  @Test
+  void longKeysNotCached() {
+    IdentitySqlIdCache cache = new IdentitySqlIdCache();
+    StringBuilder buffer = new StringBuilder();
+    while (buffer.length() <= IdentitySqlIdCache.MAXIMUM_KEY_LENGTH) {
+      buffer.append("SELECT * FROM dual UNION ALL ");
+    }
+    String query = buffer.toString();
+    IdentitySqlIdCache.Entry entry = cache.put(query, SqlId.compute(query), SqlId.computeBinary(query));
+    assertNotNull(entry);
+    assertNull(cache.get(query));
+  }
+
+  @Test
+  void entryWithHitNotReplaced() {
+    IdentitySqlIdCache cache = new IdentitySqlIdCache();
+    cache.put(QUERY, SqlId.compute(QUERY), SqlId.computeBinary(QUERY));
+    assertNotNull(cache.get(QUERY));
+
+    // generated query strings in the same slot do not replace QUERY
+    for (int i = 0; i < IdentitySqlIdCache.SIZE * 4; i++) {
+      String generated = "SELECT " + i + " FROM dual";
+      cache.put(generated, SqlId.compute(generated), SqlId.computeBinary(generated));
+    }
+    assertNotNull(cache.get(QUERY));
+  }
+
+  @Test
+  void disabled() {
+    IdentitySqlIdCache cache = new IdentitySqlIdCache(false);
+    IdentitySqlIdCache.Entry entry = cache.put(QUERY, SqlId.compute(QUERY), SqlId.computeBinary(QUERY));
+    assertNotNull(entry);
+    assertNull(cache.get(QUERY));
+  }
+
+}
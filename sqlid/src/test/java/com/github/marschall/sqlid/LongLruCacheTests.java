@@ -0,0 +1,226 @@
+package com.github.marschall.sqlid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.util.OptionalLong;
+import java.util.Random;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.junit.jupiter.api.Test;
+
+class LongLruCacheTests {
+
+  @Test
+  void invalidCapacity() {
+    assertThrows(IllegalArgumentException.class, () -> new LongLruCache<>(0));
+  }
+
+  @Test
+  void sizeOne() {
+    LongLruCache<Integer> cache = new LongLruCache<>(1);
+    assertEquals(2L, cache.get(1, i -> i * 2L));
+    // 1 is cached, not recomputed
+    assertEquals(2L, cache.get(1, i -> i * 3L));
+
+    assertEquals(4L, cache.get(2, i -> i * 2L));
+    // 2 is cached, not recomputed
+    assertEquals(4L, cache.get(2, i -> i * 4L));
+
+    // 1 is not cached, recomputed
+    assertEquals(5L, cache.get(1, i -> i * 5L));
+  }
+
+  @Test
+  void getIfPresent() {
+    LongLruCache<Integer> cache = new LongLruCache<>(2);
+    assertFalse(cache.getIfPresent(1).isPresent());
+    assertEquals(2L, cache.get(1, i -> i * 2L));
+    assertEquals(4L, cache.get(2, i -> i * 2L));
+    assertEquals(OptionalLong.of(2L), cache.getIfPresent(1));
+    // 1 was used more recently than 2, 2 is removed
+    assertEquals(6L, cache.get(3, i -> i * 2L));
+    assertFalse(cache.getIfPresent(2).isPresent());
+    assertEquals(OptionalLong.of(2L), cache.getIfPresent(1));
+  }
+
+  @Test
+  void sizeThree() {
+    LongLruCache<Integer> cache = new LongLruCache<>(3);
+    assertEquals(2L, cache.get(1, i -> i * 2L));
+    assertEquals(4L, cache.get(2, i -> i * 2L));
+    assertEquals(6L, cache.get(3, i -> i * 2L));
+
+    // 2 is cached, not recomputed
+    assertEquals(4L, cache.get(2, i -> i * 3L));
+
+    // order is now 2, 3, 1
+
+    // 1 is removed, 4 is added
+    assertEquals(8L, cache.get(4, i -> i * 2L));
+    // 3 is removed, 5 is added
+    assertEquals(10L, cache.get(5, i -> i * 2L));
+
+    // order is now 5, 4, 2
+
+    // 2 is cached, not recomputed
+    assertEquals(4L, cache.get(2, i -> i * 3L));
+
+    // order is not 2, 5, 4
+
+    // 4 is removed, 6 is added
+    assertEquals(12L, cache.get(6, i -> i * 2L));
+
+    // 5 is cached, not recomputed
+    assertEquals(10L, cache.get(5, i -> i * 3L));
+  }
+
+  @Test
+  void collisions() {
+    int capacity = 16;
+    LongLruCache<ClockCacheTests.CollidingKey> cache = new LongLruCache<>(capacity);
+    Random random = new Random(42L);
+    ClockCacheTests.CollidingKey last = null;
+    for (int i = 0; i < 10_000; i++) {
+      int value = random.nextInt(64);
+      last = new ClockCacheTests.CollidingKey(value);
+      assertEquals(value, cache.get(last, k -> k.value));
+      assertTrue(cache.size() <= capacity);
+    }
+    // the most recently used key is always present
+    assertEquals(last.value, cache.get(last, k -> -1L));
+    assertEquals(capacity, cache.size());
+  }
+
+  @Test
+  void singleFlight() throws InterruptedException {
+    LongLruCache<String> cache = new LongLruCache<>(2);
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger loads = new AtomicInteger();
+    AtomicLong waiterResult = new AtomicLong();
+
+    Thread loader = new Thread(() -> cache.get("key", k -> {
+      loads.incrementAndGet();
+      loading.countDown();
+      awaitUninterruptibly(release);
+      return 1L;
+    }));
+    loader.start();
+    loading.await();
+
+    Thread waiter = new Thread(() -> waiterResult.set(cache.get("key", k -> {
+      loads.incrementAndGet();
+      return 2L;
+    })));
+    waiter.start();
+    // wait until the waiter joined the in-flight load
+    awaitWaiters(cache, "key", 1);
+    release.countDown();
+    loader.join();
+    waiter.join();
+
+    assertEquals(1, loads.get());
+    assertEquals(1L, waiterResult.get());
+    assertEquals(1L, cache.get("key", k -> 2L));
+  }
+
+  @Test
+  void singleFlightFailure() throws InterruptedException {
+    LongLruCache<String> cache = new LongLruCache<>(2);
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    IllegalStateException failure = new IllegalStateException("failed");
+    AtomicReference<Throwable> loaderFailure = new AtomicReference<>();
+    AtomicReferenceArray<Throwable> waiterFailures = new AtomicReferenceArray<>(2);
+
+    Thread loader = new Thread(() -> {
+      try {
+        cache.get("key", k -> {
+          loading.countDown();
+          awaitUninterruptibly(release);
+          throw failure;
+        });
+      } catch (IllegalStateException e) {
+        loaderFailure.set(e);
+      }
+    });
+    loader.start();
+    loading.await();
+
+    Thread[] waiters = new Thread[waiterFailures.length()];
+    for (int i = 0; i < waiters.length; i++) {
+      int index = i;
+      waiters[i] = new Thread(() -> {
+        try {
+          cache.get("key", k -> 2L);
+        } catch (RuntimeException e) {
+          waiterFailures.set(index, e);
+        }
+      });
+      waiters[i].start();
+    }
+    awaitWaiters(cache, "key", waiters.length);
+    release.countDown();
+    loader.join();
+    for (Thread waiter : waiters) {
+      waiter.join();
+    }
+
+    // the loader gets the original exception, every waiter gets its own
+    assertSame(failure, loaderFailure.get());
+    for (int i = 0; i < waiters.length; i++) {
+      Throwable waiterFailure = waiterFailures.get(i);
+      assertInstanceOf(CompletionException.class, waiterFailure);
+      assertSame(failure, waiterFailure.getCause());
+    }
+    assertNotSame(waiterFailures.get(0), waiterFailures.get(1));
+    // the failure is not cached
+    assertEquals(1L, cache.get("key", k -> 1L));
+  }
+
+  @Test
+  void recursiveLoad() {
+    LongLruCache<String> cache = new LongLruCache<>(2);
+    assertThrows(IllegalStateException.class, () -> cache.get("key", k -> cache.get("key", k2 -> 1L)));
+    // the failed load is not in-flight anymore
+    assertEquals(1L, cache.get("key", k -> 1L));
+  }
+
+  @Test
+  void sneakyThrowingLoader() {
+    LongLruCache<String> cache = new LongLruCache<>(2);
+    SQLException failure = new SQLException("failed");
+    Exception thrown = assertThrows(Exception.class, () -> cache.get("key", k -> HashLruCacheTests.<Long, RuntimeException>sneakyThrow(failure)));
+    assertSame(failure, thrown);
+    // the failed load is not in-flight anymore
+    assertEquals(0, cache.getWaiterCount("key"));
+    assertEquals(1L, cache.get("key", k -> 1L));
+  }
+
+  private static void awaitWaiters(LongLruCache<String> cache, String key, int count) {
+    while (cache.getWaiterCount(key) < count) {
+      Thread.yield();
+    }
+  }
+
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      throw new AssertionError("interrupted", e);
+    }
+  }
+
+}
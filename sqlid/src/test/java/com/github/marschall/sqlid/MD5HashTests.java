@@ -1,13 +1,20 @@
 package com.github.marschall.sqlid;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
@@ -25,6 +32,21 @@ final class MD5HashTests {
     return input;
   }
 
+  static List<String> nonAsciiInput() {
+    int inputSize = 132;
+    String[] suffixes = {"\u00E4", "\uAC00", "\uD83D\uDC7D", "\u00E4\uAC00\uD83D\uDC7D"};
+    StringBuilder buffer = new StringBuilder(inputSize);
+    List<String> input = new ArrayList<>(inputSize * suffixes.length);
+    for (int i = 0; i < inputSize; i++) {
+      for (String suffix : suffixes) {
+        input.add(buffer + suffix);
+        input.add(suffix + buffer);
+      }
+      buffer.append((char) ('a' + (i % 26)));
+    }
+    return input;
+  }
+
   @ParameterizedTest
   @MethodSource("input")
   void md5Equals(String s) {
@@ -37,6 +59,134 @@ final class MD5HashTests {
     assertEquals(OriginalSqlId.SQL_ID(s), SqlId.compute(s));
   }
 
+  @ParameterizedTest
+  @MethodSource("nonAsciiInput")
+  void nonAsciiMd5Equals(String s) {
+    assertEquals(referenceMd5Hash(s), MD5.getBinarySqlId(s));
+  }
+
+  @ParameterizedTest
+  @MethodSource({"input", "nonAsciiInput"})
+  void charSequenceMd5Equals(String s) {
+    assertEquals(referenceMd5Hash(s), MD5.getBinarySqlId(new StringBuilder(s)));
+  }
+
+  @ParameterizedTest
+  @MethodSource({"input", "nonAsciiInput"})
+  void byteArrayMd5Equals(String s) {
+    byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+    byte[] padded = new byte[utf8.length + 3];
+    Arrays.fill(padded, (byte) 'x');
+    System.arraycopy(utf8, 0, padded, 1, utf8.length);
+    assertEquals(referenceMd5Hash(s), MD5.getBinarySqlId(utf8, 0, utf8.length));
+    assertEquals(referenceMd5Hash(s), MD5.getBinarySqlId(padded, 1, utf8.length));
+  }
+
+  @ParameterizedTest
+  @MethodSource({"input", "nonAsciiInput"})
+  void byteBufferMd5Equals(String s) {
+    byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+    ByteBuffer heap = ByteBuffer.allocate(utf8.length + 3);
+    ByteBuffer direct = ByteBuffer.allocateDirect(utf8.length + 3);
+    for (ByteBuffer buffer : new ByteBuffer[] {heap, direct}) {
+      for (ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+        buffer.clear();
+        buffer.order(order);
+        buffer.put((byte) 'x');
+        buffer.put(utf8);
+        buffer.put((byte) 'x');
+        buffer.flip();
+        buffer.position(1);
+        buffer.limit(utf8.length + 1);
+        assertEquals(referenceMd5Hash(s), MD5.getBinarySqlId(buffer));
+        assertEquals(1, buffer.position());
+        assertEquals(utf8.length + 1, buffer.limit());
+        assertEquals(referenceMd5Hash(s), MD5.getBinarySqlId(buffer.slice()));
+      }
+    }
+  }
+
+  /**
+   * {@link MD5#getBinarySqlId(CharSequence)} uses {@link DigestMD5} for all but
+   * very short input on JVMs with an MD5 intrinsic, test the hand rolled
+   * implementation directly.
+   */
+  @ParameterizedTest
+  @MethodSource({"input", "nonAsciiInput"})
+  void handRolledMd5Equals(String s) {
+    assertEquals(referenceMd5Hash(s), MD5.asciiMd5Hash(s));
+    assertEquals(referenceMd5Hash(s), MD5.asciiMd5Hash(new StringBuilder(s)));
+    byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+    MD5.Hasher hasher = new MD5.Hasher();
+    hasher.update(utf8, 0, utf8.length);
+    assertEquals(referenceMd5Hash(s), hasher.finish());
+    hasher.reset();
+    ByteBuffer direct = ByteBuffer.allocateDirect(utf8.length);
+    direct.put(utf8);
+    direct.flip();
+    hasher.update(direct);
+    assertEquals(referenceMd5Hash(s), hasher.finish());
+  }
+
+  static List<String> longInput() {
+    int chunkCount = 300;
+    StringBuilder buffer = new StringBuilder(chunkCount * 64);
+    List<String> input = new ArrayList<>();
+    for (int i = 0; i < chunkCount; i++) {
+      buffer.append("SELECT t.column_").append(i).append(" FROM some_table t WHERE t.id = :1 ");
+    }
+    String ascii = buffer.toString();
+    input.add(ascii);
+    input.add(ascii + "\u00E4");
+    input.add("\uD83D\uDC7D" + ascii);
+    input.add(ascii.substring(0, 8191) + "\uAC00" + ascii.substring(8191));
+    return input;
+  }
+
+  @ParameterizedTest
+  @MethodSource({"input", "nonAsciiInput", "longInput"})
+  void digestMd5Equals(String s) {
+    byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+    assertEquals(referenceMd5Hash(s), DigestMD5.getBinarySqlId(s));
+    assertEquals(referenceMd5Hash(s), DigestMD5.getBinarySqlId(utf8, 0, utf8.length));
+    ByteBuffer buffer = ByteBuffer.wrap(utf8);
+    assertEquals(referenceMd5Hash(s), DigestMD5.getBinarySqlId(buffer));
+    assertEquals(0, buffer.position());
+  }
+
+  @ParameterizedTest
+  @MethodSource("longInput")
+  void longMd5Equals(String s) {
+    assertEquals(referenceMd5Hash(s), MD5.getBinarySqlId(s));
+    assertEquals(referenceMd5Hash(s), MD5.asciiMd5Hash(s));
+  }
+
+  @Test
+  void digestMalformedInput() {
+    assertThrows(IllegalArgumentException.class, () -> DigestMD5.getBinarySqlId("a\uD83D"));
+    assertThrows(IllegalArgumentException.class, () -> DigestMD5.getBinarySqlId("a\uD83Db"));
+    // the state must have been reset
+    assertEquals(referenceMd5Hash("a"), DigestMD5.getBinarySqlId("a"));
+  }
+
+  @Test
+  void digestIntrinsicDetection() {
+    assertTrue(DigestMD5.isIntrinsicArchitecture("amd64"));
+    assertTrue(DigestMD5.isIntrinsicArchitecture("aarch64"));
+    assertFalse(DigestMD5.isIntrinsicArchitecture("ppc64le"));
+    assertFalse(DigestMD5.isIntrinsicArchitecture("s390x"));
+
+    assertTrue(DigestMD5.isHotSpot("Java HotSpot(TM) 64-Bit Server VM"));
+    assertTrue(DigestMD5.isHotSpot("OpenJDK 64-Bit Server VM"));
+    assertFalse(DigestMD5.isHotSpot("OpenJDK 64-Bit Zero VM"));
+    assertFalse(DigestMD5.isHotSpot("Eclipse OpenJ9 VM"));
+
+    assertFalse(DigestMD5.isIntrinsicVersion("1.8"));
+    assertFalse(DigestMD5.isIntrinsicVersion("15"));
+    assertTrue(DigestMD5.isIntrinsicVersion("16"));
+    assertTrue(DigestMD5.isIntrinsicVersion("21"));
+  }
+
   private static long referenceMd5Hash(String s) {
 
     // compute the MD5 hash of the SQL
@@ -3,8 +3,11 @@ package com.github.marschall.sqlid;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.sql.Connection;
+import java.sql.SQLException;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.jdbc.core.JdbcTemplate;
 
 class NativeSqlTests extends AbstractOracleTests {
@@ -29,4 +32,29 @@ class NativeSqlTests extends AbstractOracleTests {
     assertEquals(nativeSql, sqlText);
   }
 
+  @ParameterizedTest
+  @ValueSource(strings = {
+      "SELECT * from dual where dummy = ?",
+      "   SELECT ? FROM dual",
+      "SELECT 1 FROM dual",
+      "SELECT '?' , \"?\", ? FROM dual -- ?\n WHERE ? /* ? */",
+      "SELECT q'[it's ?]', Q'{?}', q'!?!', ? FROM dual",
+      "SELECT aq'[x?]', n'?', ? FROM dual",
+      "{call proc(?, ?)}",
+      "{ ? = call func(?) }",
+      "BEGIN {call proc(?)}; END;",
+      "SELECT {d '2021-01-01'}, {t '12:00:00'}, {ts '2021-01-01 12:00:00.0'} FROM dual",
+      "SELECT {fn ucase(?)}, {fn ifnull(?, 1)}, {fn log10(?)}, {fn now()}, {fn pi()} FROM dual",
+      "SELECT {fn locate('a', ?)}, {fn locate('a', ?, 2)} FROM dual",
+      "SELECT {fn month({fn curdate()})}, {fn substring(?, 1, 2)} FROM dual",
+      "SELECT * FROM t1 LEFT OUTER JOIN {oj t2 ON t1.id = t2.id}",
+      "SELECT * FROM t WHERE a LIKE '\\_%' {escape '\\'}"
+  })
+  void translator(String jdbcQueryString) throws SQLException {
+    String nativeSql = this.jdbcTemplate.execute((Connection connection) -> {
+      return connection.nativeSQL(jdbcQueryString);
+    });
+    assertEquals(nativeSql, NativeSqlTranslator.toNativeSql(jdbcQueryString));
+  }
+
 }
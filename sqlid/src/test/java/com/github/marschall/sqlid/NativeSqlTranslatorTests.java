@@ -0,0 +1,98 @@
+package com.github.marschall.sqlid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The expected values are the results of the Oracle 21.3 driver.
+ */
+class NativeSqlTranslatorTests {
+
+  private static void assertTranslation(String expected, String jdbcQueryString) throws SQLException {
+    assertEquals(expected, NativeSqlTranslator.toNativeSql(jdbcQueryString));
+  }
+
+  @Test
+  void parameters() throws SQLException {
+    assertTranslation("SELECT * FROM dual WHERE dummy = :1 ", "SELECT * FROM dual WHERE dummy = ?");
+    assertTranslation("SELECT :1 , :2  FROM dual", "SELECT ?, ? FROM dual");
+  }
+
+  @Test
+  void noTranslation() throws SQLException {
+    String sql = "SELECT 1 FROM dual";
+    assertSame(sql, NativeSqlTranslator.toNativeSql(sql));
+  }
+
+  @Test
+  void leadingSpaces() throws SQLException {
+    assertTranslation("SELECT :1  FROM dual", "   SELECT ? FROM dual");
+    assertTranslation("SELECT 1 FROM dual", "   SELECT 1 FROM dual");
+    // only spaces are removed
+    assertTranslation("\tSELECT :1  FROM dual", "\tSELECT ? FROM dual");
+  }
+
+  @Test
+  void literalsAndComments() throws SQLException {
+    assertTranslation("SELECT '?' , \"?\", :1  FROM dual -- ?\n WHERE :2  /* ? */",
+            "SELECT '?' , \"?\", ? FROM dual -- ?\n WHERE ? /* ? */");
+    assertTranslation("SELECT n'?', :1  FROM dual", "SELECT n'?', ? FROM dual");
+    assertTranslation("SELECT '\u00E4?' FROM dual WHERE dummy = :1 ", "SELECT '\u00E4?' FROM dual WHERE dummy = ?");
+  }
+
+  @Test
+  void alternativeQuoting() throws SQLException {
+    assertTranslation("SELECT q'[it's ?]', :1  FROM dual", "SELECT q'[it's ?]', ? FROM dual");
+    assertTranslation("SELECT Q'{?}', q'!?!', :1  FROM dual", "SELECT Q'{?}', q'!?!', ? FROM dual");
+    // part of an identifier, not an alternative quoting literal
+    assertTranslation("SELECT aq'[x?]' FROM dual", "SELECT aq'[x?]' FROM dual");
+  }
+
+  @Test
+  void call() throws SQLException {
+    assertTranslation("BEGIN proc(:1 , :2 ); END;", "{call proc(?, ?)}");
+    assertTranslation("BEGIN :1 := func(:2 ) ; END;", "{ ? = call func(?) }");
+    // already in a PL/SQL block
+    assertTranslation("BEGIN proc(:1 ); END;", "BEGIN {call proc(?)}; END;");
+  }
+
+  @Test
+  void dateAndTime() throws SQLException {
+    assertTranslation("SELECT TO_DATE ('2021-01-01', 'YYYY-MM-DD'), "
+            + "TO_DATE('1-JAN-1970 '||TO_CHAR(TO_DATE('12:00:00','HH24:MI:SS'),'HH24:MI:SS'),'DD-MON-YYYY HH24:MI:SS'), "
+            + "TO_TIMESTAMP ('2021-01-01 12:00:00.0', 'YYYY-MM-DD HH24:MI:SS.FF') FROM dual",
+            "SELECT {d '2021-01-01'}, {t '12:00:00'}, {ts '2021-01-01 12:00:00.0'} FROM dual");
+  }
+
+  @Test
+  void functions() throws SQLException {
+    assertTranslation("SELECT UPPER(:1 ), NVL(:2 , 1), LOG ( 10, :3 ), (CURRENT_TIMESTAMP) FROM dual",
+            "SELECT {fn ucase(?)}, {fn ifnull(?, 1)}, {fn log10(?)}, {fn now()} FROM dual");
+    assertTranslation("SELECT INSTR( :1 ,'a') FROM dual", "SELECT {fn locate('a', ?)} FROM dual");
+  }
+
+  @Test
+  void outerJoin() throws SQLException {
+    assertTranslation("SELECT * FROM t1 LEFT OUTER JOIN  ( t2 ON t1.id = t2.id ) ",
+            "SELECT * FROM t1 LEFT OUTER JOIN {oj t2 ON t1.id = t2.id}");
+  }
+
+  @Test
+  void escape() throws SQLException {
+    assertTranslation("SELECT * FROM t WHERE a LIKE '\\_%' ESCAPE '\\'",
+            "SELECT * FROM t WHERE a LIKE '\\_%' {escape '\\'}");
+  }
+
+  @Test
+  void invalid() {
+    assertThrows(SQLException.class, () -> NativeSqlTranslator.toNativeSql("{fn foo(?)}"));
+    assertThrows(SQLException.class, () -> NativeSqlTranslator.toNativeSql("{ ? call x}"));
+    assertThrows(SQLException.class, () -> NativeSqlTranslator.toNativeSql("{limit 10}"));
+  }
+
+}
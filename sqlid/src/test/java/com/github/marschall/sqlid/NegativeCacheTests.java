@@ -0,0 +1,45 @@
+package com.github.marschall.sqlid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class NegativeCacheTests {
+
+  private final AtomicLong nanoTime = new AtomicLong();
+
+  private final NegativeCache negativeCache = new NegativeCache(100L, this.nanoTime::get);
+
+  @Test
+  void expires() {
+    SQLException exception = new SQLException("failed");
+    assertNull(this.negativeCache.get("SELECT 1 FROM dual"));
+    this.negativeCache.put("SELECT 1 FROM dual", exception);
+    assertSame(exception, this.negativeCache.get("SELECT 1 FROM dual"));
+    assertNull(this.negativeCache.get("SELECT 2 FROM dual"));
+
+    this.nanoTime.addAndGet(99L);
+    assertSame(exception, this.negativeCache.get("SELECT 1 FROM dual"));
+    this.nanoTime.addAndGet(1L);
+    assertNull(this.negativeCache.get("SELECT 1 FROM dual"));
+    assertEquals(0, this.negativeCache.size());
+  }
+
+  @Test
+  void bounded() {
+    SQLException exception = new SQLException("failed");
+    for (int i = 0; i < NegativeCache.MAXIMUM_SIZE; i++) {
+      this.negativeCache.put("SELECT " + i + " FROM dual", exception);
+    }
+    assertEquals(NegativeCache.MAXIMUM_SIZE, this.negativeCache.size());
+    this.negativeCache.put("SELECT x FROM dual", exception);
+    assertEquals(1, this.negativeCache.size());
+    assertSame(exception, this.negativeCache.get("SELECT x FROM dual"));
+  }
+
+}
@@ -0,0 +1,82 @@
+package com.github.marschall.sqlid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class SegmentedLruCacheTests {
+
+  @Test
+  void segmentCount() {
+    assertEquals(1, new SegmentedLruCache<>(16, 1).getSegmentCount());
+    assertEquals(4, new SegmentedLruCache<>(16, 3).getSegmentCount());
+    assertEquals(4, new SegmentedLruCache<>(16, 4).getSegmentCount());
+    assertEquals(8, new SegmentedLruCache<>(16, 5).getSegmentCount());
+    // at most one segment per entry
+    assertEquals(2, new SegmentedLruCache<>(3, 8).getSegmentCount());
+    assertEquals(1, new SegmentedLruCache<>(1, 8).getSegmentCount());
+    assertEquals(1 << 16, new SegmentedLruCache<>(1 << 20, Integer.MAX_VALUE).getSegmentCount());
+  }
+
+  @Test
+  void invalidArguments() {
+    assertThrows(IllegalArgumentException.class, () -> new SegmentedLruCache<>(0));
+    assertThrows(IllegalArgumentException.class, () -> new SegmentedLruCache<>(16, 0));
+  }
+
+  @Test
+  void sizeOne() {
+    Cache<Integer, Integer> cache = new SegmentedLruCache<>(1, 4);
+    assertEquals(2, cache.get(1, i -> i * 2));
+    // 1 is cached, not recomputed
+    assertEquals(2, cache.get(1, i -> i * 3));
+
+    assertEquals(4, cache.get(2, i -> i * 2));
+    // 1 is not cached, recomputed
+    assertEquals(5, cache.get(1, i -> i * 5));
+  }
+
+  @Test
+  void capacity() {
+    int capacity = 64;
+    Cache<Integer, Integer> cache = new SegmentedLruCache<>(capacity, 4);
+    for (int i = 0; i < (capacity * 4); i++) {
+      cache.get(i, key -> key);
+    }
+
+    // at most capacity entries are cached
+    AtomicInteger hits = new AtomicInteger();
+    for (int i = (capacity * 4) - 1; i >= 0; i--) {
+      int expected = i;
+      cache.get(i, key -> {
+        hits.decrementAndGet();
+        return key;
+      });
+      hits.incrementAndGet();
+      assertEquals(expected, cache.get(i, key -> -1));
+    }
+    assertTrue(hits.get() <= capacity, "hits: " + hits.get());
+    assertTrue(hits.get() > 0, "hits: " + hits.get());
+  }
+
+  @Test
+  void hitsStayCached() {
+    Cache<String, String> cache = new SegmentedLruCache<>(256, 8);
+    // at most the capacity of a single segment, all keys may go to the same segment
+    for (int i = 0; i < 32; i++) {
+      String key = "key" + i;
+      cache.get(key, String::toUpperCase);
+    }
+    for (int i = 0; i < 32; i++) {
+      String key = "key" + i;
+      assertEquals(key.toUpperCase(), cache.get(key, k -> {
+        throw new AssertionError("should be cached: " + k);
+      }));
+    }
+  }
+
+}
@@ -0,0 +1,65 @@
+package com.github.marschall.sqlid;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+class SqlIdBatchTests {
+
+  private static List<String> statements(int count) {
+    List<String> statements = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      statements.add("SELECT /* \u00E4 */ * from dual where dummy = " + i);
+    }
+    return statements;
+  }
+
+  @Test
+  void computeAllSmall() {
+    List<String> statements = statements(10);
+    String[] sqlIds = SqlId.computeAll(statements);
+    assertEquals(statements.size(), sqlIds.length);
+    for (int i = 0; i < sqlIds.length; i++) {
+      assertEquals(SqlId.compute(statements.get(i)), sqlIds[i]);
+    }
+  }
+
+  @Test
+  void computeAllLarge() {
+    List<String> statements = statements(SqlIdBatch.PARALLEL_THRESHOLD * 4 + 1);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      long[] binarySqlIds = SqlId.computeAllBinary(statements, pool);
+      assertEquals(statements.size(), binarySqlIds.length);
+      for (int i = 0; i < binarySqlIds.length; i++) {
+        assertEquals(SqlId.computeBinary(statements.get(i)), binarySqlIds[i]);
+      }
+      assertArrayEquals(binarySqlIds, SqlId.computeAllBinary(new LinkedList<>(statements), pool));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  void computeAllNullElement() {
+    List<String> statements = Arrays.asList("select * from dual", null);
+    assertThrows(NullPointerException.class, () -> SqlId.computeAll(statements));
+  }
+
+  @Test
+  void collector() {
+    List<String> statements = statements(SqlIdBatch.PARALLEL_THRESHOLD);
+    long[] expected = SqlId.computeAllBinary(statements);
+    assertArrayEquals(expected, statements.stream().collect(SqlId.toBinarySqlIds()));
+    assertArrayEquals(expected, statements.parallelStream().collect(SqlId.toBinarySqlIds()));
+  }
+
+}
@@ -0,0 +1,95 @@
+package com.github.marschall.sqlid;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class SqlIdHasherTests {
+
+  @ParameterizedTest
+  @MethodSource("com.github.marschall.sqlid.MD5HashTests#nonAsciiInput")
+  void splitChars(String s) {
+    String expected = SqlId.compute(s);
+    SqlIdHasher hasher = new SqlIdHasher();
+    for (int split = 0; split <= s.length(); split++) {
+      char[] chars = s.toCharArray();
+      hasher.update(chars, 0, split);
+      hasher.update(s.subSequence(split, s.length()));
+      assertEquals(expected, hasher.finish());
+    }
+  }
+
+  @ParameterizedTest
+  @MethodSource("com.github.marschall.sqlid.MD5HashTests#nonAsciiInput")
+  void splitBytes(String s) {
+    String expected = SqlId.compute(s);
+    byte[] utf8 = s.getBytes(UTF_8);
+    SqlIdHasher hasher = new SqlIdHasher();
+    for (int split = 0; split <= utf8.length; split++) {
+      hasher.update(utf8, 0, split);
+      hasher.update(ByteBuffer.wrap(utf8, split, utf8.length - split));
+      assertEquals(expected, hasher.finish());
+    }
+  }
+
+  @Test
+  void mixed() {
+    SqlIdHasher hasher = new SqlIdHasher();
+    hasher.update("SELECT /* \u00E4 */ ");
+    hasher.update("* from dual ".getBytes(UTF_8), 0, 12);
+    hasher.update("where dummy = :1".toCharArray(), 0, 16);
+    assertEquals("512k73hwcpwcx", hasher.finish());
+  }
+
+  @Test
+  void large() {
+    StringBuilder buffer = new StringBuilder();
+    while (buffer.length() < 100_000) {
+      buffer.append("t.column_\u00E4, t.column_\uD83D\uDC7D, ");
+    }
+    String s = buffer.toString();
+    SqlIdHasher hasher = new SqlIdHasher();
+    hasher.update(s);
+    assertEquals(SqlId.compute(s), hasher.finish());
+  }
+
+  @Test
+  void reader() throws IOException {
+    assertEquals("0n6qcat2kzuy0", SqlId.compute(new StringReader("SELECT /* \uD83D\uDC7D */ * from dual where dummy = :1")));
+  }
+
+  @Test
+  void inputStream() throws IOException {
+    byte[] utf8 = "SELECT /* \uD83D\uDC7D */ * from dual where dummy = :1".getBytes(UTF_8);
+    assertEquals("0n6qcat2kzuy0", SqlId.compute(new ByteArrayInputStream(utf8)));
+  }
+
+  @Test
+  void malformed() {
+    SqlIdHasher hasher = new SqlIdHasher();
+    hasher.update("SELECT /* \uD83D");
+    assertThrows(IllegalArgumentException.class, hasher::finish);
+
+    hasher.update("SELECT /* \uD83D");
+    assertThrows(IllegalArgumentException.class, () -> hasher.update(" */"));
+    hasher.reset();
+
+    hasher.update("SELECT /* \uD83D");
+    assertThrows(IllegalArgumentException.class, () -> hasher.update(new byte[1], 0, 1));
+    hasher.reset();
+
+    // the hasher can be used after an error
+    hasher.update("select * from dual");
+    assertEquals("a5ks9fhw2v9s1", hasher.finish());
+  }
+
+}
@@ -1,27 +1,51 @@
 package com.github.marschall.sqlid;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.sql.DataSource;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.jdbc.UncategorizedSQLException;
 import org.springframework.util.ConcurrentLruCache;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
 
+import oracle.jdbc.OracleConnection;
+
 class SqlIdLookupDifferentCacheTests {
 
   private static final String JDBC_QUERY = "SELECT * from dual where dummy = ?";
@@ -30,12 +54,14 @@ class SqlIdLookupDifferentCacheTests {
 
   private DataSource dataSource;
 
+  private Connection connection;
+
   @BeforeEach
   void setUp() throws SQLException {
     this.dataSource = mock(DataSource.class);
-    Connection connection = mock(Connection.class);
-    when(this.dataSource.getConnection()).thenReturn(connection);
-    when(connection.nativeSQL(JDBC_QUERY)).thenReturn(NATIVE_QUERY);
+    this.connection = mock(Connection.class);
+    when(this.dataSource.getConnection()).thenReturn(this.connection);
+    when(this.connection.nativeSQL(JDBC_QUERY)).thenReturn(NATIVE_QUERY);
   }
 
   @Test
@@ -47,6 +73,50 @@ class SqlIdLookupDifferentCacheTests {
     assertNotSame(sqlId1, sqlId2);
   }
 
+  @Test
+  void identityFrontCache() throws SQLException {
+    AtomicInteger cacheAccesses = new AtomicInteger();
+    Cache<String, String> cache = new HashLruCache<>(16);
+    SqlIdLookup lookup = new SqlIdLookup(this.dataSource, (key, loader) -> {
+      cacheAccesses.incrementAndGet();
+      return cache.get(key, loader);
+    });
+    // the first lookup is a miss in the shared cache and not admitted
+    String sqlId1 = lookup.getSqlIdOfJdbcString(JDBC_QUERY);
+    String sqlId2 = lookup.getSqlIdOfJdbcString(JDBC_QUERY);
+    assertSame(sqlId1, sqlId2);
+    assertEquals(2, cacheAccesses.get());
+    assertSame(sqlId1, lookup.getSqlIdOfJdbcString(JDBC_QUERY));
+    assertEquals(SqlId.computeBinary(NATIVE_QUERY), lookup.getBinarySqlIdOfJdbcString(JDBC_QUERY));
+    assertEquals(2, cacheAccesses.get());
+
+    // the native front cache is separate
+    assertEquals(sqlId1, lookup.getSqlIdOfNativeString(NATIVE_QUERY));
+    assertEquals(sqlId1, lookup.getSqlIdOfNativeString(NATIVE_QUERY));
+    assertEquals(sqlId1, lookup.getSqlIdOfNativeString(NATIVE_QUERY));
+    assertEquals(4, cacheAccesses.get());
+  }
+
+  @Test
+  void identityFrontCacheDisabled() throws SQLException {
+    AtomicInteger cacheAccesses = new AtomicInteger();
+    Cache<String, String> cache = new HashLruCache<>(16);
+    SqlIdLookup lookup;
+    System.setProperty(IdentitySqlIdCache.ENABLED_PROPERTY, "false");
+    try {
+      lookup = new SqlIdLookup(this.dataSource, (key, loader) -> {
+        cacheAccesses.incrementAndGet();
+        return cache.get(key, loader);
+      });
+    } finally {
+      System.clearProperty(IdentitySqlIdCache.ENABLED_PROPERTY);
+    }
+    for (int i = 1; i <= 3; i++) {
+      assertEquals(SqlId.compute(NATIVE_QUERY), lookup.getSqlIdOfJdbcString(JDBC_QUERY));
+      assertEquals(i, cacheAccesses.get());
+    }
+  }
+
   static List<Cache<String, String>> caches() {
     com.github.benmanes.caffeine.cache.Cache<String, String> caffeine = Caffeine.newBuilder()
         .maximumSize(16)
@@ -65,6 +135,33 @@ class SqlIdLookupDifferentCacheTests {
     assertSame(sqlId1, sqlId2);
   }
 
+  @ParameterizedTest
+  @EnumSource(CacheAlgorithm.class)
+  void cacheAlgorithms(CacheAlgorithm cacheAlgorithm) throws SQLException {
+    SqlIdLookup lookup = new SqlIdLookup(this.dataSource, 16, cacheAlgorithm);
+    String sqlId1 = lookup.getSqlIdOfJdbcString(JDBC_QUERY);
+    String sqlId2 = lookup.getSqlIdOfJdbcString(JDBC_QUERY);
+    assertEquals(sqlId1, sqlId2);
+    assertSame(sqlId1, sqlId2);
+  }
+
+  @Test
+  void binaryCache() throws SQLException {
+    SqlIdLookup lookup = new SqlIdLookup(this.dataSource, new LongLruCache<>(16));
+    String sqlId = lookup.getSqlIdOfJdbcString(JDBC_QUERY);
+    assertEquals(SqlId.compute(NATIVE_QUERY), sqlId);
+    assertEquals(SqlId.computeBinary(NATIVE_QUERY), lookup.getBinarySqlIdOfJdbcString(JDBC_QUERY));
+    assertEquals(SqlId.computeBinary(NATIVE_QUERY), lookup.getBinarySqlIdOfNativeString(NATIVE_QUERY));
+    assertEquals(sqlId, lookup.getSqlIdOfNativeString(NATIVE_QUERY));
+  }
+
+  @Test
+  void binarySqlIdFromStringCache() throws SQLException {
+    SqlIdLookup lookup = new SqlIdLookup(this.dataSource, 16);
+    assertEquals(SqlId.computeBinary(NATIVE_QUERY), lookup.getBinarySqlIdOfJdbcString(JDBC_QUERY));
+    assertEquals(SqlId.computeBinary(NATIVE_QUERY), lookup.getBinarySqlIdOfNativeString(NATIVE_QUERY));
+  }
+
   @Test
   void springCache() throws SQLException {
     SqlIdLookup lookup = new SqlIdLookup(this.dataSource, (key, loader) -> loader.apply(key));
@@ -81,4 +178,218 @@ class SqlIdLookupDifferentCacheTests {
     assertSame(sqlId1, sqlId2);
   }
 
+  @Test
+  void translator() throws SQLException {
+    SqlIdLookup lookup = new SqlIdLookup(this.dataSource, new HashLruCache<>(16), NativeSqlMode.TRANSLATOR);
+    assertEquals(SqlId.compute(NATIVE_QUERY), lookup.getSqlIdOfJdbcString(JDBC_QUERY));
+    assertEquals(SqlId.computeBinary(NATIVE_QUERY), lookup.getBinarySqlIdOfJdbcString(JDBC_QUERY));
+    verifyNoInteractions(this.dataSource);
+  }
+
+  @Test
+  void verifiedTranslator() throws SQLException {
+    SqlIdLookup lookup = new SqlIdLookup(this.dataSource, new LongLruCache<>(16), NativeSqlMode.VERIFIED_TRANSLATOR);
+    assertEquals(SqlId.computeBinary(NATIVE_QUERY), lookup.getBinarySqlIdOfJdbcString(JDBC_QUERY));
+    // only the first miss is verified
+    for (int i = 0; i < SqlIdLookup.VERIFICATION_INTERVAL - 1; i++) {
+      lookup.getSqlIdOfJdbcString("SELECT " + i + " FROM dual");
+    }
+    verify(this.dataSource, times(1)).getConnection();
+    assertEquals(0L, lookup.getTranslationMismatchCount());
+  }
+
+  @Test
+  void verifiedTranslatorMismatch() throws SQLException {
+    String jdbcQuery = "SELECT 1 FROM dual";
+    String nativeQuery = "SELECT 2 FROM dual";
+    when(this.connection.nativeSQL(jdbcQuery)).thenReturn(nativeQuery);
+    SqlIdLookup lookup = new SqlIdLookup(this.dataSource, new HashLruCache<>(16), NativeSqlMode.VERIFIED_TRANSLATOR);
+    // the result of the driver wins
+    assertEquals(SqlId.compute(nativeQuery), lookup.getSqlIdOfJdbcString(jdbcQuery));
+    assertEquals(1L, lookup.getTranslationMismatchCount());
+  }
+
+  @Test
+  void callerConnection() throws SQLException {
+    SqlIdLookup lookup = new SqlIdLookup(this.dataSource, 16);
+    assertEquals(SqlId.compute(NATIVE_QUERY), lookup.getSqlIdOfJdbcString(this.connection, JDBC_QUERY));
+    assertEquals(SqlId.computeBinary(NATIVE_QUERY), lookup.getBinarySqlIdOfJdbcString(this.connection, JDBC_QUERY));
+    verifyNoInteractions(this.dataSource);
+    verify(this.connection, times(0)).close();
+  }
+
+  @Test
+  void oracleConnection() throws SQLException {
+    String jdbcQuery = "SELECT 1 FROM dual";
+    String nativeQuery = "SELECT 2 FROM dual";
+    OracleConnection oracleConnection = mock(OracleConnection.class);
+    when(oracleConnection.nativeSQL(jdbcQuery)).thenReturn(nativeQuery);
+    SqlIdLookup lookup = new SqlIdLookup(new HashLruCache<>(16));
+    // the driver is used even without a data source
+    assertEquals(SqlId.compute(nativeQuery), lookup.getSqlIdOfJdbcString(oracleConnection, jdbcQuery));
+  }
+
+  @Test
+  void wrappedOracleConnection() throws SQLException {
+    String jdbcQuery = "SELECT 1 FROM dual";
+    String nativeQuery = "SELECT 2 FROM dual";
+    OracleConnection oracleConnection = mock(OracleConnection.class);
+    when(oracleConnection.nativeSQL(jdbcQuery)).thenReturn(nativeQuery);
+    // a connection pool proxy
+    when(this.connection.isWrapperFor(OracleConnection.class)).thenReturn(true);
+    when(this.connection.unwrap(OracleConnection.class)).thenReturn(oracleConnection);
+    SqlIdLookup lookup = new SqlIdLookup(new HashLruCache<>(16));
+    // the driver is used even without a data source
+    assertEquals(SqlId.compute(nativeQuery), lookup.getSqlIdOfJdbcString(this.connection, jdbcQuery));
+    verify(this.connection, never()).nativeSQL(anyString());
+  }
+
+  @Test
+  void noDataSource() throws SQLException {
+    SqlIdLookup lookup = new SqlIdLookup(new LongLruCache<>(16));
+    assertEquals(SqlId.compute(NATIVE_QUERY), lookup.getSqlIdOfJdbcString(JDBC_QUERY));
+    // does not wrap an OracleConnection, translated
+    assertEquals(SqlId.computeBinary("SELECT :1  FROM dual"), lookup.getBinarySqlIdOfJdbcString(this.connection, "SELECT ? FROM dual"));
+    verify(this.connection, never()).nativeSQL(anyString());
+    verify(this.connection, never()).close();
+  }
+
+  @ParameterizedTest
+  @EnumSource(CacheAlgorithm.class)
+  void batch(CacheAlgorithm cacheAlgorithm) throws SQLException {
+    String otherQuery = "SELECT ? FROM dual";
+    String otherNativeQuery = "SELECT :1  FROM dual";
+    when(this.connection.nativeSQL(otherQuery)).thenReturn(otherNativeQuery);
+    SqlIdLookup lookup = new SqlIdLookup(this.dataSource, 16, cacheAlgorithm);
+    String sqlId = lookup.getSqlIdOfJdbcString(JDBC_QUERY);
+
+    Map<String, String> sqlIds = lookup.getSqlIdsOfJdbcStrings(Arrays.asList(otherQuery, JDBC_QUERY, otherQuery));
+    assertEquals(Arrays.asList(otherQuery, JDBC_QUERY), new ArrayList<>(sqlIds.keySet()));
+    assertSame(sqlId, sqlIds.get(JDBC_QUERY));
+    assertEquals(SqlId.compute(otherNativeQuery), sqlIds.get(otherQuery));
+    // one connection for the first lookup and one for the batch
+    verify(this.dataSource, times(2)).getConnection();
+
+    // only hits, no connection needed
+    sqlIds = lookup.getSqlIdsOfJdbcStrings(Arrays.asList(new String(otherQuery), new String(JDBC_QUERY)));
+    assertEquals(SqlId.compute(otherNativeQuery), sqlIds.get(otherQuery));
+    assertEquals(sqlId, sqlIds.get(JDBC_QUERY));
+    verify(this.dataSource, times(2)).getConnection();
+    // the misses were added to the cache
+    assertEquals(SqlId.compute(otherNativeQuery), lookup.getSqlIdOfJdbcString(new String(otherQuery)));
+    verify(this.dataSource, times(2)).getConnection();
+  }
+
+  @Test
+  void batchLarge() throws SQLException {
+    SqlIdLookup lookup = new SqlIdLookup(new LongLruCache<>(SqlIdBatch.PARALLEL_THRESHOLD * 2));
+    List<String> queries = new ArrayList<>();
+    for (int i = 0; i < SqlIdBatch.PARALLEL_THRESHOLD * 2; i++) {
+      queries.add("SELECT " + i + ", ? FROM dual");
+    }
+    Map<String, String> sqlIds = lookup.getSqlIdsOfJdbcStrings(queries);
+    assertEquals(queries.size(), sqlIds.size());
+    for (int i = 0; i < queries.size(); i++) {
+      String expected = SqlId.compute("SELECT " + i + ", :1  FROM dual");
+      assertEquals(expected, sqlIds.get(queries.get(i)));
+      assertEquals(expected, lookup.getSqlIdOfJdbcString(queries.get(i)));
+    }
+  }
+
+  @Test
+  void asyncHit() throws SQLException {
+    SqlIdLookup lookup = new SqlIdLookup(this.dataSource, 16);
+    String sqlId = lookup.getSqlIdOfJdbcString(JDBC_QUERY);
+    // hits must not be scheduled
+    CompletableFuture<String> future = lookup.getSqlIdOfJdbcStringAsync(new String(JDBC_QUERY), runnable -> {
+      throw new AssertionError("hit scheduled");
+    });
+    assertTrue(future.isDone());
+    assertSame(sqlId, future.join());
+  }
+
+  @Test
+  void asyncMiss() {
+    List<Runnable> tasks = new ArrayList<>();
+    SqlIdLookup lookup = new SqlIdLookup(this.dataSource, 16);
+    CompletableFuture<String> future = lookup.getSqlIdOfJdbcStringAsync(JDBC_QUERY, tasks::add);
+    assertFalse(future.isDone());
+    assertEquals(1, tasks.size());
+    tasks.get(0).run();
+    assertEquals(SqlId.compute(NATIVE_QUERY), future.join());
+  }
+
+  @Test
+  void asyncFailure() throws SQLException {
+    SQLException exception = new SQLException("no connection");
+    when(this.dataSource.getConnection()).thenThrow(exception);
+    SqlIdLookup lookup = new SqlIdLookup(this.dataSource, 16);
+    CompletableFuture<String> future = lookup.getSqlIdOfJdbcStringAsync(JDBC_QUERY, Runnable::run);
+    ExecutionException executionException = assertThrows(ExecutionException.class, future::get);
+    assertSame(exception, executionException.getCause());
+  }
+
+  @Test
+  void asyncDefaultExecutor() throws InterruptedException, ExecutionException, TimeoutException {
+    SqlIdLookup lookup = new SqlIdLookup(this.dataSource, 16);
+    assertEquals(SqlId.compute(NATIVE_QUERY), lookup.getSqlIdOfJdbcStringAsync(JDBC_QUERY).get(10L, TimeUnit.SECONDS));
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {1, SqlIdLookup.DEFAULT_MAXIMUM_CONCURRENT_NATIVE_SQL})
+  void asyncBounded(int maximumConcurrentNativeSql) throws SQLException, InterruptedException {
+    AtomicInteger concurrent = new AtomicInteger();
+    AtomicInteger maximumConcurrent = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+    when(this.connection.nativeSQL(anyString())).thenAnswer(invocation -> {
+      maximumConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+      try {
+        release.await();
+      } finally {
+        concurrent.decrementAndGet();
+      }
+      return invocation.getArgument(0);
+    });
+    int lookups = maximumConcurrentNativeSql * 4;
+    ExecutorService executor = Executors.newFixedThreadPool(lookups);
+    try {
+      SqlIdLookup lookup = new SqlIdLookup(this.dataSource, new HashLruCache<>(lookups), NativeSqlMode.DRIVER,
+          FailurePolicy.NONE, maximumConcurrentNativeSql);
+      List<CompletableFuture<String>> futures = new ArrayList<>();
+      for (int i = 0; i < lookups; i++) {
+        futures.add(lookup.getSqlIdOfJdbcStringAsync("SELECT " + i + " FROM dual", executor));
+      }
+      while (concurrent.get() < maximumConcurrentNativeSql) {
+        Thread.sleep(1L);
+      }
+      // give the other lookups a chance to exceed the limit
+      Thread.sleep(50L);
+      release.countDown();
+      for (int i = 0; i < lookups; i++) {
+        assertEquals(SqlId.compute("SELECT " + i + " FROM dual"), futures.get(i).join());
+      }
+      assertEquals(maximumConcurrentNativeSql, maximumConcurrent.get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void asyncInvalidLimit() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new SqlIdLookup(this.dataSource, new HashLruCache<>(16), NativeSqlMode.DRIVER, FailurePolicy.NONE, 0));
+  }
+
+  @Test
+  void asyncRejected() {
+    SqlIdLookup lookup = new SqlIdLookup(this.dataSource, 16);
+    RejectedExecutionException rejected = new RejectedExecutionException("shut down");
+    CompletableFuture<String> future = lookup.getSqlIdOfJdbcStringAsync(JDBC_QUERY, command -> {
+      throw rejected;
+    });
+    assertTrue(future.isCompletedExceptionally());
+    ExecutionException exception = assertThrows(ExecutionException.class, future::get);
+    assertSame(rejected, exception.getCause());
+  }
+
 }
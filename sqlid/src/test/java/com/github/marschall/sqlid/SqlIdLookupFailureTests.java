@@ -0,0 +1,228 @@
+package com.github.marschall.sqlid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.marschall.sqlid.FailurePolicy.OpenCircuitBehavior;
+
+class SqlIdLookupFailureTests {
+
+  private static final String JDBC_QUERY = "SELECT * from dual where dummy = ?";
+
+  private static final String NATIVE_QUERY = "SELECT * from dual where dummy = :1 ";
+
+  private final AtomicLong nanoTime = new AtomicLong();
+
+  private DataSource dataSource;
+
+  private SQLException connectionFailure;
+
+  @BeforeEach
+  void setUp() throws SQLException {
+    this.dataSource = mock(DataSource.class);
+    this.connectionFailure = new SQLException("no connection");
+    when(this.dataSource.getConnection()).thenThrow(this.connectionFailure);
+  }
+
+  private SqlIdLookup newLookup(FailurePolicy failurePolicy) {
+    return new SqlIdLookup(this.dataSource, new HashLruCache<>(16), NativeSqlMode.DRIVER, failurePolicy, this.nanoTime::get);
+  }
+
+  @Test
+  void invalidPolicy() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new FailurePolicy(Duration.ofSeconds(-1L), 1, Duration.ofSeconds(1L), OpenCircuitBehavior.FAIL_FAST));
+    assertThrows(IllegalArgumentException.class,
+        () -> new FailurePolicy(Duration.ZERO, -1, Duration.ofSeconds(1L), OpenCircuitBehavior.FAIL_FAST));
+    assertThrows(IllegalArgumentException.class,
+        () -> new FailurePolicy(Duration.ZERO, 1, Duration.ZERO, OpenCircuitBehavior.FAIL_FAST));
+    assertThrows(IllegalArgumentException.class, () -> FailurePolicy.negativeCaching(Duration.ZERO));
+  }
+
+  @Test
+  void negativeCachingWithoutCircuitBreaker() throws SQLException {
+    SqlIdLookup lookup = this.newLookup(new FailurePolicy(Duration.ofSeconds(1L), 0, Duration.ZERO, OpenCircuitBehavior.FAIL_FAST));
+    for (int i = 0; i < 3; i++) {
+      String query = "SELECT " + i + " FROM dual";
+      assertSame(this.connectionFailure, assertThrows(SQLException.class, () -> lookup.getSqlIdOfJdbcString(query)));
+      assertSame(this.connectionFailure, assertThrows(SQLException.class, () -> lookup.getSqlIdOfJdbcString(query)).getCause());
+    }
+    // the circuit never opens
+    assertEquals(CircuitState.CLOSED, lookup.getCircuitState());
+    verify(this.dataSource, times(3)).getConnection();
+  }
+
+  @Test
+  void noPolicy() throws SQLException {
+    SqlIdLookup lookup = this.newLookup(FailurePolicy.NONE);
+    for (int i = 0; i < 3; i++) {
+      assertSame(this.connectionFailure, assertThrows(SQLException.class, () -> lookup.getSqlIdOfJdbcString(JDBC_QUERY)));
+    }
+    verify(this.dataSource, times(3)).getConnection();
+    assertEquals(CircuitState.CLOSED, lookup.getCircuitState());
+  }
+
+  @Test
+  void negativeCaching() throws SQLException {
+    SqlIdLookup lookup = this.newLookup(FailurePolicy.negativeCaching(Duration.ofSeconds(1L)));
+    assertSame(this.connectionFailure, assertThrows(SQLException.class, () -> lookup.getSqlIdOfJdbcString(JDBC_QUERY)));
+    // every caller gets its own exception
+    SQLException first = assertThrows(SQLException.class, () -> lookup.getSqlIdOfJdbcString(JDBC_QUERY));
+    SQLException second = assertThrows(SQLException.class, () -> lookup.getSqlIdOfJdbcString(JDBC_QUERY));
+    assertNotSame(first, second);
+    assertSame(this.connectionFailure, first.getCause());
+    assertSame(this.connectionFailure, second.getCause());
+    verify(this.dataSource, times(1)).getConnection();
+
+    // other query strings are not affected
+    assertThrows(SQLException.class, () -> lookup.getSqlIdOfJdbcString("SELECT 1 FROM dual"));
+    verify(this.dataSource, times(2)).getConnection();
+
+    // the failure expires
+    this.nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(1L));
+    this.reachable();
+    assertEquals(SqlId.compute(NATIVE_QUERY), lookup.getSqlIdOfJdbcString(JDBC_QUERY));
+  }
+
+  @Test
+  void callerConnectionBypassesNegativeCache() throws SQLException {
+    SqlIdLookup lookup = this.newLookup(FailurePolicy.negativeCaching(Duration.ofSeconds(1L)));
+    assertSame(this.connectionFailure, assertThrows(SQLException.class, () -> lookup.getSqlIdOfJdbcString(JDBC_QUERY)));
+
+    // the failure of the borrowed connection does not apply to the connection of the caller
+    Connection connection = mock(Connection.class);
+    when(connection.nativeSQL(JDBC_QUERY)).thenReturn(NATIVE_QUERY);
+    assertEquals(SqlId.compute(NATIVE_QUERY), lookup.getSqlIdOfJdbcString(connection, JDBC_QUERY));
+
+    // a failure of the connection of the caller is not remembered
+    String otherQuery = "SELECT 1 FROM dual";
+    SQLException callerFailure = new SQLException("closed");
+    when(connection.nativeSQL(otherQuery)).thenThrow(callerFailure);
+    assertSame(callerFailure, assertThrows(SQLException.class, () -> lookup.getSqlIdOfJdbcString(connection, otherQuery)));
+    assertSame(this.connectionFailure, assertThrows(SQLException.class, () -> lookup.getSqlIdOfJdbcString(otherQuery)));
+    verify(this.dataSource, times(2)).getConnection();
+  }
+
+  @Test
+  void failFastNotRemembered() throws SQLException {
+    SqlIdLookup lookup = this.newLookup(new FailurePolicy(Duration.ofSeconds(10L), 1, Duration.ofSeconds(1L), OpenCircuitBehavior.FAIL_FAST));
+    assertSame(this.connectionFailure, assertThrows(SQLException.class, () -> lookup.getSqlIdOfJdbcString("SELECT 1 FROM dual")));
+    assertEquals(CircuitState.OPEN, lookup.getCircuitState());
+    assertInstanceOf(SQLTransientConnectionException.class, assertThrows(SQLException.class, () -> lookup.getSqlIdOfJdbcString(JDBC_QUERY)));
+
+    // the circuit closes before the negative cache TTL expires
+    this.nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(1L));
+    this.reachable();
+    assertEquals(SqlId.compute(NATIVE_QUERY), lookup.getSqlIdOfJdbcString(JDBC_QUERY));
+  }
+
+  @Test
+  void batchNegativeCaching() throws SQLException {
+    SqlIdLookup lookup = this.newLookup(FailurePolicy.negativeCaching(Duration.ofSeconds(1L)));
+    String otherQuery = "SELECT 1 FROM dual";
+    assertSame(this.connectionFailure, assertThrows(SQLException.class, () -> lookup.getSqlIdsOfJdbcStrings(Arrays.asList(JDBC_QUERY, otherQuery))));
+    verify(this.dataSource, times(1)).getConnection();
+
+    // remembered for every miss of the batch
+    assertSame(this.connectionFailure, assertThrows(SQLException.class, () -> lookup.getSqlIdOfJdbcString(otherQuery)).getCause());
+    assertSame(this.connectionFailure, assertThrows(SQLException.class, () -> lookup.getSqlIdsOfJdbcStrings(Arrays.asList(JDBC_QUERY))).getCause());
+    verify(this.dataSource, times(1)).getConnection();
+  }
+
+  @Test
+  void batchPartialFailure() throws SQLException {
+    SqlIdLookup lookup = this.newLookup(FailurePolicy.negativeCaching(Duration.ofSeconds(1L)));
+    Connection connection = this.reachable();
+    String invalidQuery = "SELECT {fn unknown()} FROM dual";
+    String otherInvalidQuery = "SELECT {fn other()} FROM dual";
+    SQLException invalid = new SQLException("invalid");
+    SQLException otherInvalid = new SQLException("other invalid");
+    when(connection.nativeSQL(invalidQuery)).thenThrow(invalid);
+    when(connection.nativeSQL(otherInvalidQuery)).thenThrow(otherInvalid);
+
+    // the first failure is the cause, the others are suppressed
+    SQLException failure = assertThrows(SQLException.class,
+        () -> lookup.getSqlIdsOfJdbcStrings(Arrays.asList(invalidQuery, JDBC_QUERY, otherInvalidQuery)));
+    assertSame(invalid, failure.getCause());
+    assertEquals(1, failure.getSuppressed().length);
+    assertSame(otherInvalid, failure.getSuppressed()[0]);
+    verify(this.dataSource, times(1)).getConnection();
+
+    // the valid query string was added to the cache
+    assertEquals(SqlId.compute(NATIVE_QUERY), lookup.getSqlIdOfJdbcString(JDBC_QUERY));
+    verify(this.dataSource, times(1)).getConnection();
+
+    // the invalid query strings are remembered but do not fail the others
+    String otherQuery = "SELECT 1 FROM dual";
+    when(connection.nativeSQL(otherQuery)).thenReturn(otherQuery);
+    assertSame(invalid, assertThrows(SQLException.class,
+        () -> lookup.getSqlIdsOfJdbcStrings(Arrays.asList(invalidQuery, otherQuery))).getCause());
+    verify(connection, times(1)).nativeSQL(invalidQuery);
+    assertEquals(SqlId.compute(otherQuery), lookup.getSqlIdOfJdbcString(otherQuery));
+    verify(this.dataSource, times(2)).getConnection();
+  }
+
+  @Test
+  void failFast() throws SQLException {
+    SqlIdLookup lookup = this.newLookup(new FailurePolicy(Duration.ZERO, 2, Duration.ofSeconds(1L), OpenCircuitBehavior.FAIL_FAST));
+    assertSame(this.connectionFailure, assertThrows(SQLException.class, () -> lookup.getSqlIdOfJdbcString(JDBC_QUERY)));
+    assertSame(this.connectionFailure, assertThrows(SQLException.class, () -> lookup.getSqlIdOfJdbcString(JDBC_QUERY)));
+    assertEquals(CircuitState.OPEN, lookup.getCircuitState());
+
+    SQLException exception = assertThrows(SQLException.class, () -> lookup.getSqlIdOfJdbcString(JDBC_QUERY));
+    assertInstanceOf(SQLTransientConnectionException.class, exception);
+    assertThrows(SQLTransientConnectionException.class, () -> lookup.getSqlIdsOfJdbcStrings(Arrays.asList(JDBC_QUERY)));
+    verify(this.dataSource, times(2)).getConnection();
+
+    // the database is reachable again
+    this.nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(1L));
+    assertEquals(CircuitState.HALF_OPEN, lookup.getCircuitState());
+    this.reachable();
+    assertEquals(SqlId.compute(NATIVE_QUERY), lookup.getSqlIdOfJdbcString(JDBC_QUERY));
+    assertEquals(CircuitState.CLOSED, lookup.getCircuitState());
+  }
+
+  @Test
+  void translate() throws SQLException {
+    SqlIdLookup lookup = this.newLookup(new FailurePolicy(Duration.ZERO, 1, Duration.ofSeconds(1L), OpenCircuitBehavior.TRANSLATE));
+    assertSame(this.connectionFailure, assertThrows(SQLException.class, () -> lookup.getSqlIdOfJdbcString(JDBC_QUERY)));
+    assertEquals(CircuitState.OPEN, lookup.getCircuitState());
+
+    // translated without borrowing a connection
+    assertEquals(SqlId.compute(NATIVE_QUERY), lookup.getSqlIdOfJdbcString(JDBC_QUERY));
+    Map<String, String> sqlIds = lookup.getSqlIdsOfJdbcStrings(Arrays.asList("SELECT ? FROM dual"));
+    assertEquals(SqlId.compute("SELECT :1  FROM dual"), sqlIds.get("SELECT ? FROM dual"));
+    verify(this.dataSource, times(1)).getConnection();
+  }
+
+  private Connection reachable() throws SQLException {
+    reset(this.dataSource);
+    Connection connection = mock(Connection.class);
+    when(this.dataSource.getConnection()).thenReturn(connection);
+    when(connection.nativeSQL(JDBC_QUERY)).thenReturn(NATIVE_QUERY);
+    return connection;
+  }
+
+}
@@ -40,6 +40,15 @@ class SqlIdLookupTests extends AbstractOracleTests {
     assertEquals("a5ks9fhw2v9s1", this.lookup.getSqlIdOfJdbcString("select * from dual"));
   }
 
+  @Test
+  void getSqlIdOfJdbcStringWithConnection() throws SQLException {
+    SqlIdLookup lookupWithoutDataSource = new SqlIdLookup(new HashLruCache<>(3));
+    try (Connection connection = this.dataSource.getConnection()) {
+      assertEquals("71hmmykrsa7wp", lookupWithoutDataSource.getSqlIdOfJdbcString(connection, "SELECT * from dual where dummy = ?"));
+      assertFalse(connection.isClosed());
+    }
+  }
+
   @Test
   void getSqlIdOfNativeString() throws SQLException {
     String sqlId1 = this.lookup.getSqlIdOfNativeString("SELECT * from dual where dummy = :1 ");
@@ -0,0 +1,69 @@
+package com.github.marschall.sqlid;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class SqlIdPrefixTests {
+
+  @ParameterizedTest
+  @MethodSource("com.github.marschall.sqlid.MD5HashTests#nonAsciiInput")
+  void compute(String s) {
+    for (int split = 0; split <= s.length(); split++) {
+      if ((split > 0) && Character.isHighSurrogate(s.charAt(split - 1))) {
+        continue;
+      }
+      SqlIdPrefix prefix = SqlIdPrefix.of(s.substring(0, split));
+      assertEquals(SqlId.compute(s), prefix.compute(s.substring(split)));
+      assertEquals(SqlId.computeBinary(s), prefix.computeBinary(s.substring(split)));
+    }
+  }
+
+  @Test
+  void sameSuffixTwice() {
+    SqlIdPrefix prefix = SqlIdPrefix.of("SELECT * from dual ");
+    assertEquals("71hmmykrsa7wp", prefix.compute("where dummy = :1 "));
+    assertEquals("71hmmykrsa7wp", prefix.compute("where dummy = :1 "));
+    assertEquals("a5ks9fhw2v9s1", SqlIdPrefix.of("select * from").compute(" dual"));
+  }
+
+  @Test
+  void inListVariants() {
+    StringBuilder selectList = new StringBuilder("SELECT ");
+    for (int i = 0; i < 100; i++) {
+      selectList.append("t.column_").append(i).append(", ");
+    }
+    selectList.append("t.id FROM t WHERE t.id IN (");
+    SqlIdPrefix prefix = SqlIdPrefix.of(selectList);
+
+    String[] sqlIds = prefix.computeInListVariants(1, 4, ", ", ")");
+    assertArrayEquals(new String[] {
+        SqlId.compute(selectList + ":1 )"),
+        SqlId.compute(selectList + ":1 , :2 )"),
+        SqlId.compute(selectList + ":1 , :2 , :3 )"),
+        SqlId.compute(selectList + ":1 , :2 , :3 , :4 )")}, sqlIds);
+  }
+
+  @Test
+  void inListVariantsSuffixFunction() {
+    SqlIdPrefix prefix = SqlIdPrefix.of("SELECT * FROM t WHERE a = :1 AND b IN (");
+    long[] sqlIds = prefix.computeBinaryInListVariants(2, 3, ",", elements -> ") AND c = :" + (elements + 2) + " ");
+    assertArrayEquals(new long[] {
+        SqlId.computeBinary("SELECT * FROM t WHERE a = :1 AND b IN (:2 ) AND c = :3 "),
+        SqlId.computeBinary("SELECT * FROM t WHERE a = :1 AND b IN (:2 ,:3 ) AND c = :4 "),
+        SqlId.computeBinary("SELECT * FROM t WHERE a = :1 AND b IN (:2 ,:3 ,:4 ) AND c = :5 ")}, sqlIds);
+  }
+
+  @Test
+  void inListVariantsInvalidArguments() {
+    SqlIdPrefix prefix = SqlIdPrefix.of("SELECT * FROM t WHERE b IN (");
+    assertEquals(0, prefix.computeInListVariants(1, 0, ", ", ")").length);
+    assertThrows(IllegalArgumentException.class, () -> prefix.computeInListVariants(0, 1, ", ", ")"));
+    assertThrows(IllegalArgumentException.class, () -> prefix.computeInListVariants(1, -1, ", ", ")"));
+  }
+
+}
@@ -2,6 +2,9 @@ package com.github.marschall.sqlid;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 import org.junit.jupiter.api.Test;
 
 class SqlIdTests {
@@ -37,4 +40,23 @@ class SqlIdTests {
     assertEquals("0n6qcat2kzuy0", SqlId.compute(nativeSQL));
   }
 
+  @Test
+  void sqlIdCharSequence() {
+    StringBuilder nativeSQL = new StringBuilder("SELECT * from dual where dummy = ");
+    nativeSQL.append(":1 ");
+    assertEquals("71hmmykrsa7wp", SqlId.compute(nativeSQL));
+  }
+
+  @Test
+  void sqlIdBytes() {
+    byte[] nativeSQL = "SELECT /* \u00E4 */ * from dual where dummy = :1".getBytes(StandardCharsets.UTF_8);
+    assertEquals("512k73hwcpwcx", SqlId.compute(nativeSQL, 0, nativeSQL.length));
+    assertEquals("512k73hwcpwcx", SqlId.compute(ByteBuffer.wrap(nativeSQL)));
+
+    ByteBuffer direct = ByteBuffer.allocateDirect(nativeSQL.length);
+    direct.put(nativeSQL);
+    direct.flip();
+    assertEquals("512k73hwcpwcx", SqlId.compute(direct));
+  }
+
 }
@@ -0,0 +1,44 @@
+package com.github.marschall.sqlid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class SqlIdValueTests {
+
+  @Test
+  void toStringValue() {
+    SqlIdValue value = SqlIdValue.valueOf(SqlId.computeBinary("select * from dual"));
+    assertEquals("a5ks9fhw2v9s1", value.toString());
+    assertSame(value.toString(), value.toString());
+  }
+
+  @Test
+  void hashValue() {
+    SqlIdValue value = SqlIdValue.valueOf(SqlId.computeBinary("select * from dual"));
+    assertEquals(942515969L, value.hashValue());
+  }
+
+  @Test
+  void equalsAndHashCode() {
+    SqlIdValue value1 = SqlIdValue.valueOf(SqlId.computeBinary("select * from dual"));
+    SqlIdValue value2 = SqlIdValue.valueOf(SqlId.computeBinary(new StringBuilder("select * from dual")));
+    SqlIdValue value3 = SqlIdValue.valueOf(SqlId.computeBinary("SELECT * from dual where dummy = :1 "));
+    assertEquals(value1, value2);
+    assertEquals(value1.hashCode(), value2.hashCode());
+    assertNotEquals(value1, value3);
+  }
+
+  @Test
+  void compareTo() {
+    SqlIdValue small = SqlIdValue.valueOf(1L);
+    SqlIdValue large = SqlIdValue.valueOf(-1L);
+    assertTrue(small.compareTo(large) < 0);
+    assertTrue(small.toString().compareTo(large.toString()) < 0);
+    assertEquals(0, small.compareTo(SqlIdValue.valueOf(1L)));
+  }
+
+}
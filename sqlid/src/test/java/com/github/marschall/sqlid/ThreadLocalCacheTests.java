@@ -0,0 +1,110 @@
+package com.github.marschall.sqlid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+class ThreadLocalCacheTests {
+
+  @Test
+  void invalidArguments() {
+    Cache<String, String> delegate = new HashLruCache<>(16);
+    assertThrows(NullPointerException.class, () -> new ThreadLocalCache<>(null, 16));
+    assertThrows(IllegalArgumentException.class, () -> new ThreadLocalCache<>(delegate, 0));
+    assertThrows(IllegalArgumentException.class, () -> new ThreadLocalCache<>(delegate, (1 << 16) + 1));
+  }
+
+  @Test
+  void sizeRoundedUp() {
+    Cache<String, String> delegate = new HashLruCache<>(16);
+    assertEquals(1, new ThreadLocalCache<>(delegate, 1).size());
+    assertEquals(2, new ThreadLocalCache<>(delegate, 2).size());
+    assertEquals(4, new ThreadLocalCache<>(delegate, 3).size());
+    assertEquals(16, new ThreadLocalCache<>(delegate, 16).size());
+  }
+
+  @Test
+  @SuppressWarnings({"deprecation", "removal"}) // new Integer(int) for a key that is equal but not identical
+  void hitsDoNotReachDelegate() {
+    AtomicInteger delegateAccesses = new AtomicInteger();
+    Cache<Integer, Integer> delegate = new HashLruCache<>(16);
+    Cache<Integer, Integer> cache = new ThreadLocalCache<>((key, loader) -> {
+      delegateAccesses.incrementAndGet();
+      return delegate.get(key, loader);
+    }, 4);
+
+    assertEquals(2, cache.get(1, i -> i * 2));
+    assertEquals(1, delegateAccesses.get());
+    // not recomputed and not forwarded
+    assertEquals(2, cache.get(1, i -> i * 3));
+    assertEquals(1, delegateAccesses.get());
+    // equal but not identical key
+    assertEquals(2, cache.get(new Integer(1), i -> i * 3));
+    assertEquals(1, delegateAccesses.get());
+  }
+
+  @Test
+  void similarKeysDoNotCollide() {
+    AtomicInteger delegateAccesses = new AtomicInteger();
+    Cache<String, String> delegate = new HashLruCache<>(16);
+    Cache<String, String> cache = new ThreadLocalCache<>((key, loader) -> {
+      delegateAccesses.incrementAndGet();
+      return delegate.get(key, loader);
+    }, 16);
+
+    // consecutive hash codes
+    for (int round = 0; round < 2; round++) {
+      for (int i = 0; i < 8; i++) {
+        cache.get("SELECT * FROM dual WHERE dummy = " + i, SqlId::compute);
+      }
+    }
+    assertEquals(8, delegateAccesses.get());
+  }
+
+  @Test
+  void getIfPresent() {
+    Cache<Integer, Integer> delegate = new HashLruCache<>(16);
+    Cache<Integer, Integer> cache = new ThreadLocalCache<>(delegate, 1);
+    assertNull(cache.getIfPresent(1));
+    assertEquals(2, delegate.get(1, i -> i * 2));
+    // forwarded to the delegate
+    assertEquals(2, cache.getIfPresent(1));
+    assertEquals(2, cache.get(1, i -> i * 3));
+  }
+
+  @Test
+  void missesServedByDelegate() {
+    Cache<Integer, Integer> delegate = new HashLruCache<>(16);
+    Cache<Integer, Integer> cache = new ThreadLocalCache<>(delegate, 1);
+    assertEquals(2, cache.get(1, i -> i * 2));
+    // replaces 1 in the single slot
+    assertEquals(4, cache.get(2, i -> i * 2));
+    // still cached in the delegate, not recomputed
+    assertEquals(2, cache.get(1, i -> i * 3));
+  }
+
+  @Test
+  void threadsHaveSeparateCaches() throws InterruptedException {
+    AtomicInteger delegateAccesses = new AtomicInteger();
+    Cache<String, String> cache = new ThreadLocalCache<>((key, loader) -> {
+      delegateAccesses.incrementAndGet();
+      return loader.apply(key);
+    }, 4);
+    assertEquals("a", cache.get("a", Function.identity()));
+    assertEquals(1, delegateAccesses.get());
+
+    AtomicReference<String> otherThreadValue = new AtomicReference<>();
+    Thread thread = new Thread(() -> otherThreadValue.set(cache.get("a", Function.identity())));
+    thread.start();
+    thread.join();
+    assertEquals("a", otherThreadValue.get());
+    assertEquals(2, delegateAccesses.get());
+  }
+
+}
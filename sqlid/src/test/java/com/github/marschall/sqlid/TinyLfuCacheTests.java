@@ -0,0 +1,86 @@
+package com.github.marschall.sqlid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class TinyLfuCacheTests {
+
+  @Test
+  void invalidCapacity() {
+    assertThrows(IllegalArgumentException.class, () -> new TinyLfuCache<>(0));
+  }
+
+  @Test
+  void sizeOne() {
+    Cache<Integer, Integer> cache = new TinyLfuCache<>(1);
+    assertEquals(2, cache.get(1, i -> i * 2));
+    // 1 is cached, not recomputed
+    assertEquals(2, cache.get(1, i -> i * 3));
+
+    assertEquals(4, cache.get(2, i -> i * 2));
+    // 2 is cached, not recomputed
+    assertEquals(4, cache.get(2, i -> i * 4));
+
+    // 1 is not cached, recomputed
+    assertEquals(5, cache.get(1, i -> i * 5));
+  }
+
+  @Test
+  void capacity() {
+    for (int capacity : new int[] {1, 2, 3, 10, 100}) {
+      TinyLfuCache<Integer, Integer> cache = new TinyLfuCache<>(capacity);
+      for (int i = 0; i < 1_000; i++) {
+        int key = i % (capacity * 3);
+        assertEquals(key, cache.get(key, k -> k));
+        assertTrue(cache.size() <= capacity);
+      }
+    }
+  }
+
+  @Test
+  void scanResistant() {
+    int capacity = 100;
+    int hotKeys = 50;
+    Cache<String, String> tinyLfu = new TinyLfuCache<>(capacity);
+    Cache<String, String> lru = new HashLruCache<>(capacity);
+
+    // make the hot keys frequent
+    for (int round = 0; round < 5; round++) {
+      for (int i = 0; i < hotKeys; i++) {
+        String key = "SELECT * FROM hot WHERE id = " + i;
+        tinyLfu.get(key, String::toUpperCase);
+        lru.get(key, String::toUpperCase);
+      }
+    }
+
+    // scan of one-hit wonders
+    for (int i = 0; i < 10_000; i++) {
+      String key = "SELECT * FROM cold WHERE id = " + i;
+      tinyLfu.get(key, String::toUpperCase);
+      lru.get(key, String::toUpperCase);
+    }
+
+    // the sketch ages during the scan, hot keys that are only on probation may be evicted eventually
+    int tinyLfuHits = countHits(tinyLfu, hotKeys);
+    assertTrue(tinyLfuHits >= (hotKeys - 2), "hits: " + tinyLfuHits);
+    assertEquals(0, countHits(lru, hotKeys));
+  }
+
+  private static int countHits(Cache<String, String> cache, int hotKeys) {
+    AtomicInteger misses = new AtomicInteger();
+    for (int i = 0; i < hotKeys; i++) {
+      String key = "SELECT * FROM hot WHERE id = " + i;
+      cache.get(key, k -> {
+        misses.incrementAndGet();
+        return k.toUpperCase();
+      });
+    }
+    return hotKeys - misses.get();
+  }
+
+}
@@ -0,0 +1,93 @@
+package com.github.marschall.sqlid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Tests {@link VectorMD5} with 4, 8 and 16 lanes independent of the lane
+ * count the current CPU prefers.
+ * <p>
+ * Requires {@code --add-modules jdk.incubator.vector}.
+ */
+class VectorMD5Tests {
+
+  static Stream<VectorSpecies<Integer>> species() {
+    return Stream.of(IntVector.SPECIES_128, IntVector.SPECIES_256, IntVector.SPECIES_512);
+  }
+
+  /**
+   * Statements of all lengths around the chunk and padding boundaries mixed
+   * with non-ASCII statements so that lanes finish at different times.
+   */
+  private static List<String> statements() {
+    List<String> statements = new ArrayList<>();
+    StringBuilder buffer = new StringBuilder();
+    for (int length = 0; length <= 200; length++) {
+      statements.add(buffer.toString());
+      if ((length % 7) == 0) {
+        statements.add(buffer + "\u00E4");
+      }
+      if ((length % 11) == 0) {
+        statements.add("SELECT '\u20AC\uD83D\uDE00' FROM dual -- " + buffer);
+      }
+      buffer.append((char) ('a' + (length % 26)));
+    }
+    return statements;
+  }
+
+  @ParameterizedTest
+  @MethodSource("species")
+  void computeBinarySqlIds(VectorSpecies<Integer> species) {
+    List<String> statements = statements();
+    long[] binarySqlIds = new long[statements.size()];
+    VectorMD5.computeBinarySqlIds(species, statements, binarySqlIds, 0, statements.size());
+    for (int i = 0; i < statements.size(); i++) {
+      assertEquals(SqlId.computeBinary(statements.get(i)), binarySqlIds[i], statements.get(i));
+    }
+  }
+
+  @ParameterizedTest
+  @MethodSource("species")
+  void subRange(VectorSpecies<Integer> species) {
+    List<String> statements = statements();
+    long[] binarySqlIds = new long[statements.size()];
+    int from = 3;
+    int to = species.length() + 5;
+    VectorMD5.computeBinarySqlIds(species, statements, binarySqlIds, from, to);
+    for (int i = 0; i < statements.size(); i++) {
+      long expected = ((i >= from) && (i < to)) ? SqlId.computeBinary(statements.get(i)) : 0L;
+      assertEquals(expected, binarySqlIds[i], statements.get(i));
+    }
+  }
+
+  @ParameterizedTest
+  @MethodSource("species")
+  void fewerStatementsThanLanes(VectorSpecies<Integer> species) {
+    List<String> statements = Arrays.asList("SELECT 1 FROM dual", "SELECT '\u00E4' FROM dual");
+    long[] binarySqlIds = new long[statements.size()];
+    VectorMD5.computeBinarySqlIds(species, statements, binarySqlIds, 0, statements.size());
+    assertEquals(SqlId.computeBinary(statements.get(0)), binarySqlIds[0]);
+    assertEquals(SqlId.computeBinary(statements.get(1)), binarySqlIds[1]);
+  }
+
+  @ParameterizedTest
+  @MethodSource("species")
+  void nullStatement(VectorSpecies<Integer> species) {
+    List<String> statements = Arrays.asList("SELECT 1 FROM dual", null);
+    long[] binarySqlIds = new long[statements.size()];
+    assertThrows(NullPointerException.class,
+        () -> VectorMD5.computeBinarySqlIds(species, statements, binarySqlIds, 0, statements.size()));
+  }
+
+}
@@ -0,0 +1,22 @@
+package com.github.marschall.sqlid;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the Java 21 version of {@link DefaultExecutor}.
+ */
+class DefaultExecutorTests {
+
+  @Test
+  void virtualThreads() throws Exception {
+    CompletableFuture<Boolean> virtual = new CompletableFuture<>();
+    DefaultExecutor.get().execute(() -> virtual.complete(Thread.currentThread().isVirtual()));
+    assertTrue(virtual.get(10L, TimeUnit.SECONDS));
+  }
+
+}
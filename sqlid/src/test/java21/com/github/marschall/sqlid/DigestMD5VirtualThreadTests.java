@@ -0,0 +1,35 @@
+package com.github.marschall.sqlid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link DigestMD5} with virtual threads.
+ */
+class DigestMD5VirtualThreadTests {
+
+  @Test
+  void virtualThreadsUseHandRolledMd5() throws InterruptedException {
+    List<String> input = MD5HashTests.longInput();
+    for (String s : input) {
+      byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+      long expected = DigestMD5.getBinarySqlId(s);
+      AtomicReference<long[]> actual = new AtomicReference<>();
+      Thread.ofVirtual().start(() -> actual.set(new long[] {
+        DigestMD5.getBinarySqlId(s),
+        DigestMD5.getBinarySqlId(utf8, 0, utf8.length),
+        DigestMD5.getBinarySqlId(ByteBuffer.wrap(utf8))
+      })).join();
+      assertEquals(expected, actual.get()[0]);
+      assertEquals(expected, actual.get()[1]);
+      assertEquals(expected, actual.get()[2]);
+    }
+  }
+
+}
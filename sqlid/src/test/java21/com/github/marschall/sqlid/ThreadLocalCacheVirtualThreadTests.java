@@ -0,0 +1,49 @@
+package com.github.marschall.sqlid;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link ThreadLocalCache} and {@link VirtualThreads} with virtual threads.
+ */
+class ThreadLocalCacheVirtualThreadTests {
+
+  @Test
+  void isCurrentThreadVirtual() throws InterruptedException {
+    assertFalse(VirtualThreads.isCurrentThreadVirtual());
+    AtomicBoolean virtual = new AtomicBoolean();
+    Thread.ofVirtual().start(() -> virtual.set(VirtualThreads.isCurrentThreadVirtual())).join();
+    assertTrue(virtual.get());
+  }
+
+  @Test
+  void virtualThreadsBypassThreadLocal() throws InterruptedException {
+    AtomicInteger delegateAccesses = new AtomicInteger();
+    Cache<String, String> delegate = new HashLruCache<>(16);
+    Cache<String, String> cache = new ThreadLocalCache<>((key, loader) -> {
+      delegateAccesses.incrementAndGet();
+      return delegate.get(key, loader);
+    }, 16);
+
+    Thread.ofVirtual().start(() -> {
+      cache.get("SELECT * FROM dual", SqlId::compute);
+      cache.get("SELECT * FROM dual", SqlId::compute);
+    }).join();
+    // every lookup is forwarded
+    assertEquals(2, delegateAccesses.get());
+
+    Thread.ofPlatform().start(() -> {
+      cache.get("SELECT * FROM dual", SqlId::compute);
+      cache.get("SELECT * FROM dual", SqlId::compute);
+    }).join();
+    // the second lookup hits the per-thread cache
+    assertEquals(3, delegateAccesses.get());
+  }
+
+}